@@ -0,0 +1,35 @@
+-- Lịch sử đổi trạng thái đơn hàng và thống kê thời gian xử lý cộng dồn theo loại chuyển trạng thái
+-- Chạy trước khi triển khai lên môi trường dùng spring.jpa.hibernate.ddl-auto=validate
+
+-- Nhật ký chỉ ghi thêm; trạng thái cũ được chép nguyên từ orders.status nên có cùng độ dài cột
+CREATE TABLE IF NOT EXISTS order_status_history (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    order_id BIGINT NOT NULL,
+    from_status VARCHAR(255) NULL,
+    to_status VARCHAR(20) NOT NULL,
+    changed_at DATETIME(6) NOT NULL,
+    duration_seconds BIGINT NOT NULL,
+    changed_by BIGINT NULL,
+    PRIMARY KEY (id),
+    INDEX idx_order_status_history_order_changed_at (order_id, changed_at)
+);
+
+-- Một dòng cho mỗi stat_key ("PENDING->PROCESSING", "ORDER->COMPLETED"...), tăng bằng upsert
+CREATE TABLE IF NOT EXISTS order_status_transition_stats (
+    stat_key VARCHAR(50) NOT NULL,
+    from_status VARCHAR(20) NULL,
+    to_status VARCHAR(20) NULL,
+    transition_count BIGINT NOT NULL,
+    sum_seconds BIGINT NOT NULL,
+    max_seconds BIGINT NOT NULL,
+    updated_at DATETIME(6) NULL,
+    PRIMARY KEY (stat_key)
+);
+
+-- Histogram thời gian xử lý: mỗi bucket một dòng, tăng bằng upsert
+CREATE TABLE IF NOT EXISTS order_status_duration_bucket (
+    stat_key VARCHAR(50) NOT NULL,
+    bucket_index INT NOT NULL,
+    bucket_count BIGINT NOT NULL,
+    PRIMARY KEY (stat_key, bucket_index)
+);
@@ -0,0 +1,19 @@
+-- Activity dạng mẫu: từ điển mẫu nội dung và các cột id mẫu/tham số trên bảng activity
+-- Chạy trước khi triển khai lên môi trường dùng spring.jpa.hibernate.ddl-auto=validate
+
+CREATE TABLE IF NOT EXISTS activity_template (
+    id INT NOT NULL AUTO_INCREMENT,
+    template VARCHAR(500) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_activity_template_template UNIQUE (template)
+);
+
+-- Dòng cũ giữ title/description và có title_template_id = NULL (chưa chuyển đổi)
+ALTER TABLE activity
+    ADD COLUMN title_template_id INT NULL,
+    ADD COLUMN description_template_id INT NULL,
+    ADD COLUMN params VARCHAR(500) NULL;
+
+-- Chỉ mục cho phân trang keyset của /feed, /type và cho các lượt quét chuyển tầng lạnh / dọn dữ liệu cũ
+CREATE INDEX IF NOT EXISTS idx_activity_created_at_id ON activity (created_at, id);
+CREATE INDEX IF NOT EXISTS idx_activity_type_created_at ON activity (activity_type, created_at);
@@ -0,0 +1,17 @@
+-- Thu hồi JWT theo user: version token trên bảng user và tombstone cho user đã bị xóa
+-- Chạy trước khi triển khai lên môi trường dùng spring.jpa.hibernate.ddl-auto=validate
+
+ALTER TABLE user
+    ADD COLUMN token_version INT NOT NULL DEFAULT 0,
+    ADD COLUMN token_version_at DATETIME(6) NULL;
+
+-- TokenVersionRegistry nạp thay đổi theo token_version_at mỗi vài giây
+CREATE INDEX idx_user_token_version_at ON user (token_version_at);
+
+-- Dòng được TokenVersionRegistry xóa khi token cuối cùng của user đã hết hạn
+CREATE TABLE IF NOT EXISTS user_token_tombstone (
+    user_id BIGINT NOT NULL,
+    revoked_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (user_id),
+    INDEX idx_user_token_tombstone_revoked_at (revoked_at)
+);
@@ -0,0 +1,12 @@
+-- Denylist jti của JWT bị thu hồi khi đăng xuất
+-- Chạy trước khi triển khai lên môi trường dùng spring.jpa.hibernate.ddl-auto=validate
+
+CREATE TABLE IF NOT EXISTS revoked_token (
+    jti VARCHAR(36) NOT NULL,
+    user_id BIGINT NULL,
+    revoked_at DATETIME(6) NOT NULL,
+    expires_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (jti),
+    INDEX idx_revoked_token_revoked_at (revoked_at),
+    INDEX idx_revoked_token_expires_at (expires_at)
+);
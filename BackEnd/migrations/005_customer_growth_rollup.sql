@@ -0,0 +1,20 @@
+-- Bảng đếm cho số liệu tăng trưởng khách hàng: user đăng ký theo (ngày, quốc gia) và số đơn theo user
+-- Chạy trước khi triển khai lên môi trường dùng spring.jpa.hibernate.ddl-auto=validate
+
+-- Quốc gia rỗng ('') khi user không khai báo; CustomerGrowthRollup tự dựng lại từ bảng user nếu bảng trống
+CREATE TABLE IF NOT EXISTS user_registration_daily (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    reg_date DATE NOT NULL,
+    country VARCHAR(100) NOT NULL,
+    registrations BIGINT NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_user_registration_daily UNIQUE (reg_date, country)
+);
+
+-- Dòng bị xóa cùng transaction xóa user; được dựng lại từ bảng orders nếu bảng trống
+CREATE TABLE IF NOT EXISTS customer_order_count (
+    user_id BIGINT NOT NULL,
+    order_count BIGINT NOT NULL,
+    PRIMARY KEY (user_id),
+    INDEX idx_customer_order_count_count (order_count)
+);
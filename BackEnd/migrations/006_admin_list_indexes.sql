@@ -0,0 +1,12 @@
+-- Chỉ mục cho danh sách đơn hàng phía admin (phân trang, lọc theo trạng thái / giá / email / điện thoại)
+-- và cho sắp xếp, dựng lại số liệu user theo ngày tạo
+-- Chạy trước khi triển khai lên môi trường dùng spring.jpa.hibernate.ddl-auto=validate
+
+CREATE INDEX IF NOT EXISTS idx_orders_create_at ON orders (create_at);
+CREATE INDEX IF NOT EXISTS idx_orders_user_id_id ON orders (user_id, id);
+CREATE INDEX IF NOT EXISTS idx_orders_status_create_at ON orders (status, create_at);
+CREATE INDEX IF NOT EXISTS idx_orders_total_price ON orders (total_price);
+CREATE INDEX IF NOT EXISTS idx_orders_email ON orders (email);
+CREATE INDEX IF NOT EXISTS idx_orders_phone ON orders (phone);
+
+CREATE INDEX IF NOT EXISTS idx_user_create_at ON user (create_at);
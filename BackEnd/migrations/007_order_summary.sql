@@ -0,0 +1,21 @@
+-- Bản tóm tắt đơn hàng cho bảng quản trị, cập nhật cùng transaction với thao tác trên đơn
+-- Chạy trước khi triển khai lên môi trường dùng spring.jpa.hibernate.ddl-auto=validate
+
+-- order_id trùng với orders.id, không tự sinh; đơn có từ trước được OrderServiceImpl bổ sung khi khởi động
+CREATE TABLE IF NOT EXISTS order_summary (
+    order_id BIGINT NOT NULL,
+    customer_name VARCHAR(255) NULL,
+    email VARCHAR(255) NULL,
+    phone VARCHAR(255) NULL,
+    total_price BIGINT NOT NULL,
+    status VARCHAR(20) NULL,
+    item_count INT NOT NULL,
+    create_at DATETIME(6) NULL,
+    PRIMARY KEY (order_id),
+    INDEX idx_order_summary_create_at (create_at),
+    INDEX idx_order_summary_status_create_at (status, create_at),
+    INDEX idx_order_summary_total_price (total_price),
+    INDEX idx_order_summary_email (email),
+    INDEX idx_order_summary_phone (phone)
+);
+
@@ -0,0 +1,17 @@
+-- Outbox cho tác vụ phụ sau commit (ghi activity...), được các worker nhận bằng SELECT ... FOR UPDATE SKIP LOCKED
+-- Chạy trước khi triển khai lên môi trường dùng spring.jpa.hibernate.ddl-auto=validate
+
+-- Với PROCESSING, available_at là hạn giữ (lease) của worker đang xử lý
+CREATE TABLE IF NOT EXISTS outbox_event (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    event_type VARCHAR(50) NOT NULL,
+    payload TEXT NULL,
+    status VARCHAR(20) NOT NULL,
+    attempts INT NOT NULL,
+    available_at DATETIME(6) NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    processed_at DATETIME(6) NULL,
+    last_error VARCHAR(1000) NULL,
+    PRIMARY KEY (id),
+    INDEX idx_outbox_event_status_available (status, available_at, id)
+);
@@ -10,12 +10,17 @@ DROP TABLE IF EXISTS user_roles;
 DROP TABLE IF EXISTS blog_tag;
 DROP TABLE IF EXISTS product_image;
 DROP TABLE IF EXISTS order_details;
+DROP TABLE IF EXISTS order_summary;
 DROP TABLE IF EXISTS orders;
 DROP TABLE IF EXISTS blog;
 DROP TABLE IF EXISTS product;
 DROP TABLE IF EXISTS tag;
 DROP TABLE IF EXISTS category;
 DROP TABLE IF EXISTS image;
+DROP TABLE IF EXISTS outbox_event;
+DROP TABLE IF EXISTS user_token_tombstone;
+DROP TABLE IF EXISTS user_registration_daily;
+DROP TABLE IF EXISTS customer_order_count;
 DROP TABLE IF EXISTS user;
 DROP TABLE IF EXISTS role;
 
@@ -39,7 +44,30 @@ CREATE TABLE user (
     address TEXT,
     phone VARCHAR(20),
     verification_code VARCHAR(64),
-    enabled BOOLEAN DEFAULT TRUE
+    enabled BOOLEAN DEFAULT TRUE,
+    token_version INT NOT NULL DEFAULT 0,
+    token_version_at DATETIME(6),
+    INDEX idx_user_token_version_at (token_version_at)
+);
+
+CREATE TABLE user_token_tombstone (
+    user_id BIGINT PRIMARY KEY,
+    revoked_at DATETIME(6) NOT NULL,
+    INDEX idx_user_token_tombstone_revoked_at (revoked_at)
+);
+
+CREATE TABLE user_registration_daily (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    reg_date DATE NOT NULL,
+    country VARCHAR(100) NOT NULL,
+    registrations BIGINT NOT NULL,
+    CONSTRAINT uk_user_registration_daily UNIQUE (reg_date, country)
+);
+
+CREATE TABLE customer_order_count (
+    user_id BIGINT PRIMARY KEY,
+    order_count BIGINT NOT NULL,
+    INDEX idx_customer_order_count_count (order_count)
 );
 
 CREATE TABLE user_roles (
@@ -138,6 +166,35 @@ CREATE TABLE order_details (
     FOREIGN KEY (order_id) REFERENCES orders(id) ON DELETE CASCADE
 );
 
+CREATE TABLE order_summary (
+    order_id BIGINT PRIMARY KEY,
+    customer_name VARCHAR(255),
+    email VARCHAR(255),
+    phone VARCHAR(255),
+    total_price BIGINT NOT NULL,
+    status VARCHAR(20),
+    item_count INT NOT NULL,
+    create_at DATETIME(6),
+    INDEX idx_order_summary_create_at (create_at),
+    INDEX idx_order_summary_status_create_at (status, create_at),
+    INDEX idx_order_summary_total_price (total_price),
+    INDEX idx_order_summary_email (email),
+    INDEX idx_order_summary_phone (phone)
+);
+
+CREATE TABLE outbox_event (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    event_type VARCHAR(50) NOT NULL,
+    payload TEXT,
+    status VARCHAR(20) NOT NULL,
+    attempts INT NOT NULL,
+    available_at DATETIME(6) NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    processed_at DATETIME(6),
+    last_error VARCHAR(1000),
+    INDEX idx_outbox_event_status_available (status, available_at, id)
+);
+
 -- Insert roles
 INSERT INTO role (name) VALUES ('ROLE_USER');
 INSERT INTO role (name) VALUES ('ROLE_MODERATOR');
@@ -0,0 +1,80 @@
+package com.naturegrain.config;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Hai pool kết nối trên cùng database: pool chính cho request thường và một pool nhỏ riêng cho báo cáo.
+ * DataSource dùng chung (JPA, JdbcTemplate) chọn pool theo luồng hiện tại, nên code chạy trong
+ * {@link #withAnalyticsPool} không bao giờ lấy kết nối của pool chính.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    private static final String MAIN = "main";
+    private static final String ANALYTICS = "analytics";
+
+    private static final ThreadLocal<Boolean> ANALYTICS_ROUTE = new ThreadLocal<>();
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource mainDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public HikariDataSource analyticsDataSource(DataSourceProperties properties,
+                                                @Value("${analytics.db.max-pool-size:3}") int maxPoolSize) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("analytics-pool");
+        dataSource.setMaximumPoolSize(maxPoolSize);
+        dataSource.setMinimumIdle(0);
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("mainDataSource") DataSource mainDataSource,
+                                 @Qualifier("analyticsDataSource") DataSource analyticsDataSource) {
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(MAIN, mainDataSource);
+        targets.put(ANALYTICS, analyticsDataSource);
+
+        AbstractRoutingDataSource routing = new AbstractRoutingDataSource() {
+            @Override
+            protected Object determineCurrentLookupKey() {
+                return Boolean.TRUE.equals(ANALYTICS_ROUTE.get()) ? ANALYTICS : MAIN;
+            }
+        };
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(mainDataSource);
+        routing.afterPropertiesSet();
+        return routing;
+    }
+
+    /**
+     * Chạy tác vụ với mọi kết nối mới lấy từ pool báo cáo
+     */
+    public static <T> T withAnalyticsPool(Callable<T> task) throws Exception {
+        ANALYTICS_ROUTE.set(Boolean.TRUE);
+        try {
+            return task.call();
+        } finally {
+            ANALYTICS_ROUTE.remove();
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.naturegrain.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Bật các tác vụ định kỳ (@Scheduled) như đồng bộ lại cache giá sản phẩm
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
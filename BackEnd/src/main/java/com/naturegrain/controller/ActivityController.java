@@ -1,13 +1,13 @@
 package com.naturegrain.controller;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.CrossOrigin;
@@ -19,11 +19,14 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.naturegrain.dto.response.ActivityResponse;
-import com.naturegrain.entity.Activity;
 import com.naturegrain.entity.ActivityType;
 import com.naturegrain.entity.User;
+import com.naturegrain.service.ActivityRetentionService;
 import com.naturegrain.service.ActivityService;
+import com.naturegrain.service.ActivityStatsService;
+import com.naturegrain.service.ActivityWriteBuffer;
 import com.naturegrain.service.UserService;
+import com.naturegrain.service.cold.ActivitySegmentStore;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -41,6 +44,18 @@ public class ActivityController {
     
     @Autowired
     private UserService userService;
+    
+    @Autowired
+    private ActivityWriteBuffer activityWriteBuffer;
+    
+    @Autowired
+    private ActivityRetentionService activityRetentionService;
+    
+    @Autowired
+    private ActivityStatsService activityStatsService;
+    
+    @Autowired
+    private ActivitySegmentStore activitySegmentStore;
 
     @GetMapping("/recent")
     @Operation(summary = "Lấy danh sách hoạt động gần đây", 
@@ -50,8 +65,8 @@ public class ActivityController {
             @RequestParam(defaultValue = "20") int limit) {
         
         try {
-            List<Activity> activities = activityService.getRecentActivities(limit);
-            List<ActivityResponse> activityResponses = convertToActivityResponses(activities);
+            // Trang đầu của feed: không COUNT(*) và user được nạp theo lô
+            List<ActivityResponse> activityResponses = activityService.getFeed(null, null, null, limit).getContent();
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -70,24 +85,56 @@ public class ActivityController {
         }
     }
 
+    @GetMapping("/feed")
+    @Operation(summary = "Lấy feed hoạt động theo con trỏ",
+               description = "Phân trang theo (createdAt, id): truyền nextCursor của trang trước vào beforeCreatedAt/beforeId")
+    public ResponseEntity<?> getActivityFeed(
+            @Parameter(description = "Lọc theo loại hoạt động") @RequestParam(required = false) String type,
+            @Parameter(description = "createdAt (epoch millis) của hoạt động cuối trang trước") @RequestParam(required = false) Long beforeCreatedAt,
+            @Parameter(description = "id của hoạt động cuối trang trước") @RequestParam(required = false) Long beforeId,
+            @RequestParam(defaultValue = "20") int size) {
+        
+        try {
+            ActivityType activityType = type != null ? ActivityType.valueOf(type.toUpperCase()) : null;
+            Date before = beforeCreatedAt != null ? new Date(beforeCreatedAt) : null;
+            Slice<ActivityResponse> feed = activityService.getFeed(activityType, before, beforeId, size);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("data", feed.getContent());
+            putNextCursor(response, feed);
+            
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "Loại hoạt động không hợp lệ: " + type);
+            
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+
     @GetMapping("/paginated")
-    @Operation(summary = "Lấy danh sách hoạt động với phân trang")
+    @Operation(summary = "Lấy danh sách hoạt động với phân trang",
+               description = "Không đếm tổng số dòng; trang sau nên lấy bằng nextCursor (beforeCreatedAt/beforeId) thay vì page")
     public ResponseEntity<?> getActivitiesPaginated(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            @Parameter(description = "createdAt (epoch millis) của hoạt động cuối trang trước") @RequestParam(required = false) Long beforeCreatedAt,
+            @Parameter(description = "id của hoạt động cuối trang trước") @RequestParam(required = false) Long beforeId) {
         
         try {
-            Page<Activity> activitiesPage = activityService.getActivitiesPaginated(page, size);
-            List<ActivityResponse> activityResponses = convertToActivityResponses(activitiesPage.getContent());
+            // Có con trỏ thì đi theo keyset, page chỉ còn dùng cho client cũ
+            Slice<ActivityResponse> activitiesPage = beforeCreatedAt != null
+                    ? activityService.getFeed(null, new Date(beforeCreatedAt), beforeId, size)
+                    : activityService.getFeedPage(null, page, size);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
-            response.put("data", activityResponses);
+            response.put("data", activitiesPage.getContent());
             response.put("currentPage", page);
-            response.put("totalPages", activitiesPage.getTotalPages());
-            response.put("totalElements", activitiesPage.getTotalElements());
-            response.put("hasNext", activitiesPage.hasNext());
-            response.put("hasPrevious", activitiesPage.hasPrevious());
+            response.put("hasPrevious", beforeCreatedAt != null || page > 0);
+            putNextCursor(response, activitiesPage);
             
             return ResponseEntity.ok(response);
         } catch (Exception e) {
@@ -103,8 +150,7 @@ public class ActivityController {
     @Operation(summary = "Lấy danh sách hoạt động hôm nay")
     public ResponseEntity<?> getTodayActivities() {
         try {
-            List<Activity> activities = activityService.getTodayActivities();
-            List<ActivityResponse> activityResponses = convertToActivityResponses(activities);
+            List<ActivityResponse> activityResponses = activityService.getTodayActivities();
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -127,8 +173,7 @@ public class ActivityController {
     @Operation(summary = "Lấy danh sách hoạt động trong tuần")
     public ResponseEntity<?> getThisWeekActivities() {
         try {
-            List<Activity> activities = activityService.getThisWeekActivities();
-            List<ActivityResponse> activityResponses = convertToActivityResponses(activities);
+            List<ActivityResponse> activityResponses = activityService.getThisWeekActivities();
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -149,17 +194,22 @@ public class ActivityController {
 
     @GetMapping("/type/{activityType}")
     @Operation(summary = "Lấy hoạt động theo loại")
-    public ResponseEntity<?> getActivitiesByType(@PathVariable String activityType) {
+    public ResponseEntity<?> getActivitiesByType(
+            @PathVariable String activityType,
+            @Parameter(description = "createdAt (epoch millis) của hoạt động cuối trang trước") @RequestParam(required = false) Long beforeCreatedAt,
+            @Parameter(description = "id của hoạt động cuối trang trước") @RequestParam(required = false) Long beforeId,
+            @RequestParam(defaultValue = "20") int size) {
         try {
             ActivityType type = ActivityType.valueOf(activityType.toUpperCase());
-            List<Activity> activities = activityService.getActivitiesByType(type);
-            List<ActivityResponse> activityResponses = convertToActivityResponses(activities);
+            Date before = beforeCreatedAt != null ? new Date(beforeCreatedAt) : null;
+            Slice<ActivityResponse> feed = activityService.getFeed(type, before, beforeId, size);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
-            response.put("data", activityResponses);
-            response.put("total", activityResponses.size());
+            response.put("data", feed.getContent());
+            response.put("total", feed.getNumberOfElements());
             response.put("activityType", type.getDisplayName());
+            putNextCursor(response, feed);
             
             return ResponseEntity.ok(response);
         } catch (IllegalArgumentException e) {
@@ -185,8 +235,7 @@ public class ActivityController {
             @PathVariable String entityType, 
             @PathVariable Long entityId) {
         try {
-            List<Activity> activities = activityService.getActivitiesByEntity(entityType.toUpperCase(), entityId);
-            List<ActivityResponse> activityResponses = convertToActivityResponses(activities);
+            List<ActivityResponse> activityResponses = activityService.getActivitiesByEntity(entityType.toUpperCase(), entityId);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -212,28 +261,10 @@ public class ActivityController {
         try {
             Map<String, Object> stats = new HashMap<>();
             
-            // Đếm hoạt động hôm nay
-            long todayCount = activityService.countTodayActivities();
-            stats.put("todayActivities", todayCount);
-            
-            // Đếm theo từng loại hoạt động
-            Map<String, Long> typeStats = new HashMap<>();
-            for (ActivityType type : ActivityType.values()) {
-                long count = activityService.countActivitiesByType(type);
-                typeStats.put(type.name(), count);
-            }
-            stats.put("byType", typeStats);
-            
-            // Thống kê tuần qua
-            List<Object[]> weekStats = activityService.getActivityStatsLastWeek();
-            List<Map<String, Object>> weeklyData = new ArrayList<>();
-            for (Object[] stat : weekStats) {
-                Map<String, Object> dayData = new HashMap<>();
-                dayData.put("date", stat[0]);
-                dayData.put("count", stat[1]);
-                weeklyData.add(dayData);
-            }
-            stats.put("lastWeek", weeklyData);
+            // Đọc từ bộ đếm trong bộ nhớ, không truy vấn database
+            stats.put("todayActivities", activityStatsService.countToday());
+            stats.put("byType", activityStatsService.countByType());
+            stats.put("lastWeek", activityStatsService.countLastWeek());
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -277,46 +308,76 @@ public class ActivityController {
         }
     }
 
+    @GetMapping("/writer-stats")
+    @Operation(summary = "Thống kê hàng đợi ghi hoạt động bất đồng bộ",
+               description = "Số activity đang chờ, đã ghi, bị bỏ do hàng đợi đầy và ghi lỗi")
+    public ResponseEntity<?> getWriterStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", activityWriteBuffer.getStats());
+        response.put("message", "Lấy thống kê ghi hoạt động thành công");
+        
+        return ResponseEntity.ok(response);
+    }
+
     @PostMapping("/cleanup")
-    @Operation(summary = "Dọn dẹp hoạt động cũ")
+    @Operation(summary = "Dọn dẹp hoạt động cũ",
+               description = "Khởi chạy job dọn dẹp theo lô ở chế độ nền, theo dõi tiến độ qua /cleanup/status")
     public ResponseEntity<?> cleanupOldActivities(
             @RequestParam(defaultValue = "30") int daysToKeep) {
         try {
-            activityService.deleteOldActivities(daysToKeep);
+            boolean started = activityRetentionService.start(daysToKeep);
             
             Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("message", "Dọn dẹp hoạt động cũ thành công");
+            response.put("success", started);
+            response.put("message", started
+                    ? "Đã bắt đầu dọn dẹp hoạt động cũ"
+                    : "Đang có một lượt dọn dẹp khác chạy");
             response.put("daysKept", daysToKeep);
+            response.put("data", activityRetentionService.getStatus());
             
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
+            return ResponseEntity.status(started ? 202 : 409).body(response);
+        } catch (IllegalArgumentException e) {
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("success", false);
             errorResponse.put("message", "Lỗi khi dọn dẹp hoạt động cũ: " + e.getMessage());
             
-            return ResponseEntity.status(500).body(errorResponse);
+            return ResponseEntity.badRequest().body(errorResponse);
         }
     }
 
-    // Helper method để convert Activity sang ActivityResponse
-    private List<ActivityResponse> convertToActivityResponses(List<Activity> activities) {
-        return activities.stream().map(activity -> {
-            String userName = activity.getUser() != null ? activity.getUser().getUsername() : "Hệ thống";
-            String userAvatar = activity.getUser() != null ? activity.getUser().getAvatar() : null;
-            
-            return new ActivityResponse(
-                activity.getId(),
-                activity.getActivityType(),
-                activity.getTitle(),
-                activity.getDescription(),
-                userName,
-                userAvatar,
-                activity.getEntityType(),
-                activity.getEntityId(),
-                activity.getMetadata(),
-                activity.getCreatedAt()
-            );
-        }).collect(Collectors.toList());
+    @GetMapping("/cleanup/status")
+    @Operation(summary = "Tiến độ dọn dẹp hoạt động cũ")
+    public ResponseEntity<?> getCleanupStatus() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", activityRetentionService.getStatus());
+        response.put("message", "Lấy tiến độ dọn dẹp thành công");
+        
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/cold/status")
+    @Operation(summary = "Trạng thái tầng lưu trữ lạnh của hoạt động",
+               description = "Số segment, số bản ghi, dung lượng và tiến độ lượt chuyển gần nhất")
+    public ResponseEntity<?> getColdStoreStatus() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", activitySegmentStore.getStatus());
+        response.put("message", "Lấy trạng thái tầng lưu trữ lạnh thành công");
+        
+        return ResponseEntity.ok(response);
+    }
+
+    // Helper method để thêm hasNext và con trỏ của trang tiếp theo
+    private void putNextCursor(Map<String, Object> response, Slice<ActivityResponse> feed) {
+        response.put("hasNext", feed.hasNext());
+        if (feed.hasNext() && !feed.getContent().isEmpty()) {
+            ActivityResponse last = feed.getContent().get(feed.getNumberOfElements() - 1);
+            Map<String, Object> nextCursor = new HashMap<>();
+            nextCursor.put("beforeCreatedAt", last.getCreatedAt().getTime());
+            nextCursor.put("beforeId", last.getId());
+            response.put("nextCursor", nextCursor);
+        }
     }
 }
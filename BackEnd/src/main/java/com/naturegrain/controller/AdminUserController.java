@@ -1,6 +1,6 @@
 package com.naturegrain.controller;
 
-import java.util.HashMap;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -8,10 +8,9 @@ import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -20,20 +19,26 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.naturegrain.entity.ActivityMessage;
 import com.naturegrain.entity.ActivityType;
 import com.naturegrain.entity.ERole;
 import com.naturegrain.entity.Role;
 import com.naturegrain.entity.User;
 import com.naturegrain.exception.NotFoundException;
 import com.naturegrain.model.request.CreateUserRequest;
+import com.naturegrain.model.request.UserFilterRequest;
+import com.naturegrain.model.response.AdminUserResponse;
 import com.naturegrain.model.response.MessageResponse;
 import com.naturegrain.repository.RoleRepository;
 import com.naturegrain.repository.UserRepository;
-import com.naturegrain.security.service.UserDetailsImpl;
-import com.naturegrain.service.ActivityService;
+import com.naturegrain.security.service.TokenVersionRegistry;
+import com.naturegrain.service.AdminUserQueryService;
 import com.naturegrain.service.UserService;
+import com.naturegrain.service.UserStatsService;
+import com.naturegrain.service.audit.AuditedAction;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -55,7 +60,13 @@ public class AdminUserController {
     private UserService userService;
     
     @Autowired
-    private ActivityService activityService;
+    private TokenVersionRegistry tokenVersionRegistry;
+
+    @Autowired
+    private AdminUserQueryService adminUserQueryService;
+
+    @Autowired
+    private UserStatsService userStatsService;
 
     @GetMapping("")
     @Operation(summary = "Get all users")
@@ -63,6 +74,15 @@ public class AdminUserController {
         List<User> users = userRepository.findAll();
         return ResponseEntity.ok(users);
     }
+
+    @GetMapping("/page")
+    @Operation(summary = "Danh sách user phân trang (tìm theo tiền tố username/email, lọc quyền, trạng thái; không kèm avatar)")
+    public ResponseEntity<Page<AdminUserResponse>> getUsersPaginated(
+            UserFilterRequest filter,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(adminUserQueryService.searchUsers(filter, page, size));
+    }
     
     @GetMapping("/{id}")
     @Operation(summary = "Get user by ID")
@@ -77,6 +97,10 @@ public class AdminUserController {
     
     @PutMapping("/{id}/role")
     @Operation(summary = "Update user role")
+    @AuditedAction(type = ActivityType.ADMIN_ACTION, message = ActivityMessage.USER_ROLE_CHANGED,
+                   entityType = "User", entityId = "#target.id",
+                   target = "@userRepository.findById(#id).orElse(null)",
+                   params = { "#target.username", "#payload['role']", "#actor.username" })
     public ResponseEntity<?> updateUserRole(@PathVariable Long id, @RequestBody Map<String, String> payload) {
         String roleName = payload.get("role");
         if (roleName == null) {
@@ -90,6 +114,7 @@ public class AdminUserController {
         
         User user = userOpt.get();
         Set<Role> roles = user.getRoles();
+        Set<ERole> previousRoles = roleNames(roles);
         roles.clear();
         
         // Convert role string to ERole enum
@@ -111,32 +136,18 @@ public class AdminUserController {
           roles.add(role);
         user.setRoles(roles);
         userRepository.save(user);
-        
-        // Log activity for user role change
-        try {
-            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-            if (authentication != null && authentication.isAuthenticated() && 
-                authentication.getPrincipal() instanceof UserDetailsImpl) {
-                UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
-                User adminUser = userRepository.findById(userDetails.getId()).orElse(null);
-                
-                if (adminUser != null) {
-                    String title = "Thay đổi quyền người dùng";
-                    String description = String.format("Quyền của người dùng '%s' đã được thay đổi thành %s bởi %s", 
-                                                      user.getUsername(), roleName, adminUser.getUsername());
-                    activityService.createActivity(ActivityType.ADMIN_ACTION, title, description, adminUser, "User", user.getId());
-                }
-            }
-        } catch (Exception e) {
-            // Log error but don't fail the role update
-            System.err.println("Failed to log user role update activity: " + e.getMessage());
-        }
+        tokenVersionRegistry.revoke(id);
+        userStatsService.onRolesChanged(previousRoles, roleNames(roles));
         
         return ResponseEntity.ok(new MessageResponse("User role updated successfully"));
     }
     
     @PutMapping("/{id}/toggle-status")
     @Operation(summary = "Toggle user active status")
+    @AuditedAction(type = ActivityType.ADMIN_ACTION, message = ActivityMessage.USER_STATUS_CHANGED,
+                   entityType = "User", entityId = "#target.id",
+                   target = "@userRepository.findById(#id).orElse(null)",
+                   params = { "#target.username", "#target.active ? 'kích hoạt' : 'vô hiệu hóa'", "#actor.username" })
     public ResponseEntity<?> toggleUserStatus(@PathVariable Long id) {
         Optional<User> userOpt = userRepository.findById(id);
         if (!userOpt.isPresent()) {
@@ -147,88 +158,35 @@ public class AdminUserController {
         boolean currentActive = user.isActive();
         user.setActive(!currentActive);
         userRepository.save(user);
-        
-        // Log activity for user status toggle
-        try {
-            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-            if (authentication != null && authentication.isAuthenticated() && 
-                authentication.getPrincipal() instanceof UserDetailsImpl) {
-                UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
-                User adminUser = userRepository.findById(userDetails.getId()).orElse(null);
-                
-                if (adminUser != null) {
-                    String action = !currentActive ? "kích hoạt" : "vô hiệu hóa";
-                    String title = String.format("Thay đổi trạng thái người dùng");
-                    String description = String.format("Tài khoản '%s' đã được %s bởi %s", 
-                                                      user.getUsername(), action, adminUser.getUsername());
-                    activityService.createActivity(ActivityType.ADMIN_ACTION, title, description, adminUser, "User", user.getId());
-                }
-            }
-        } catch (Exception e) {
-            // Log error but don't fail the status toggle
-            System.err.println("Failed to log user status toggle activity: " + e.getMessage());
-        }
+        tokenVersionRegistry.revoke(id);
+        userStatsService.onActiveChanged(!currentActive);
         
         return ResponseEntity.ok(new MessageResponse("User status toggled successfully"));
     }
       @DeleteMapping("/{id}")
     @Operation(summary = "Delete a user")
+    @AuditedAction(type = ActivityType.ADMIN_ACTION, message = ActivityMessage.USER_DELETED,
+                   entityType = "User", entityId = "#before.id",
+                   before = "@userRepository.findById(#id).orElse(null)",
+                   params = { "#before.username", "#actor.username" })
     public ResponseEntity<?> deleteUser(@PathVariable Long id) {
-        Optional<User> userOpt = userRepository.findById(id);
-        if (!userOpt.isPresent()) {
+        if (!userRepository.existsById(id)) {
             return ResponseEntity.notFound().build();
         }
         
-        User userToDelete = userOpt.get();
-        userRepository.deleteById(id);
-        
-        // Log activity for user deletion
-        try {
-            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-            if (authentication != null && authentication.isAuthenticated() && 
-                authentication.getPrincipal() instanceof UserDetailsImpl) {
-                UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
-                User adminUser = userRepository.findById(userDetails.getId()).orElse(null);
-                
-                if (adminUser != null) {
-                    String title = "Xóa người dùng";
-                    String description = String.format("Tài khoản '%s' đã được xóa bởi %s", 
-                                                      userToDelete.getUsername(), adminUser.getUsername());
-                    activityService.createActivity(ActivityType.ADMIN_ACTION, title, description, adminUser, "User", userToDelete.getId());
-                }
-            }
-        } catch (Exception e) {
-            // Log error but don't fail the user deletion
-            System.err.println("Failed to log user deletion activity: " + e.getMessage());
-        }
+        userService.deleteUser(id);
         
         return ResponseEntity.ok(new MessageResponse("User deleted successfully"));
     }
       @PostMapping("/create")
     @Operation(summary = "Create a new user")
+    @AuditedAction(type = ActivityType.ADMIN_ACTION, message = ActivityMessage.USER_CREATED_BY_ADMIN,
+                   entityType = "User", entityId = "#target.id",
+                   target = "@userRepository.findByUsername(#request.username).orElse(null)",
+                   params = { "#actor.username", "#target.username" })
     public ResponseEntity<?> createUser(@RequestBody CreateUserRequest request) {
         try {
-            User newUser = userService.register(request);
-            
-            // Log activity for admin creating user
-            try {
-                Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-                if (authentication != null && authentication.isAuthenticated() && 
-                    authentication.getPrincipal() instanceof UserDetailsImpl) {
-                    UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
-                    User admin = userRepository.findById(userDetails.getId()).orElse(null);
-                    
-                    if (admin != null && newUser != null) {
-                        String title = "Người dùng được tạo bởi admin";
-                        String description = String.format("Admin %s đã tạo tài khoản mới cho %s", 
-                                                          admin.getUsername(), newUser.getUsername());
-                        activityService.createActivity(ActivityType.ADMIN_ACTION, title, description, admin, "User", newUser.getId());
-                    }
-                }
-            } catch (Exception e) {
-                // Log error but don't fail the user creation
-                System.err.println("Failed to log admin user creation activity: " + e.getMessage());
-            }
+            userService.register(request);
             
             return ResponseEntity.ok(new MessageResponse("User created successfully"));
         } catch (Exception e) {
@@ -239,30 +197,10 @@ public class AdminUserController {
     @GetMapping("/stats")
     @Operation(summary = "Get user statistics")
     public ResponseEntity<?> getUserStats() {
-        List<User> users = userRepository.findAll();
-        
-        long totalUsers = users.size();
-        long activeUsers = users.stream().filter(User::isActive).count();
-        long inactiveUsers = totalUsers - activeUsers;
-        
-        // Count users by role
-        Map<String, Long> usersByRole = new HashMap<>();
-        usersByRole.put("admin", users.stream()
-            .filter(u -> u.getRoles().stream().anyMatch(r -> r.getName() == ERole.ROLE_ADMIN))
-            .count());
-        usersByRole.put("moderator", users.stream()
-            .filter(u -> u.getRoles().stream().anyMatch(r -> r.getName() == ERole.ROLE_MODERATOR))
-            .count());
-        usersByRole.put("user", users.stream()
-            .filter(u -> u.getRoles().stream().anyMatch(r -> r.getName() == ERole.ROLE_USER))
-            .count());
-        
-        Map<String, Object> stats = new HashMap<>();
-        stats.put("totalUsers", totalUsers);
-        stats.put("activeUsers", activeUsers);
-        stats.put("inactiveUsers", inactiveUsers);
-        stats.put("usersByRole", usersByRole);
-        
-        return ResponseEntity.ok(stats);
+        return ResponseEntity.ok(userStatsService.getStats());
+    }
+
+    private Set<ERole> roleNames(Set<Role> roles) {
+        return roles.stream().map(Role::getName).collect(Collectors.toCollection(() -> EnumSet.noneOf(ERole.class)));
     }
 }
@@ -15,6 +15,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncTask;
 
 import com.naturegrain.entity.Order;
 import com.naturegrain.entity.OrderDetail;
@@ -25,6 +26,7 @@ import com.naturegrain.repository.OrderDetailRepository;
 import com.naturegrain.repository.OrderRepository;
 import com.naturegrain.repository.ProductRepository;
 import com.naturegrain.repository.UserRepository;
+import com.naturegrain.service.AnalyticsExecutor;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -36,6 +38,9 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 @Tag(name = "Advanced Analytics APIs", description = "Endpoint cho các phân tích dữ liệu nâng cao")
 public class AdvancedAnalyticsController {
 
+    @Autowired
+    private AnalyticsExecutor analyticsExecutor;
+
     @Autowired
     private OrderRepository orderRepository;
     
@@ -53,7 +58,11 @@ public class AdvancedAnalyticsController {
 
     @GetMapping("/rfm-analysis")
     @Operation(summary = "Phân tích RFM (Recency, Frequency, Monetary) cho khách hàng")
-    public ResponseEntity<?> getRfmAnalysis() {
+    public WebAsyncTask<ResponseEntity<?>> getRfmAnalysis() {
+        return analyticsExecutor.submit(this::buildRfmAnalysis);
+    }
+
+    private ResponseEntity<?> buildRfmAnalysis() {
         List<Order> allOrders = orderRepository.findAll();
         List<User> allUsers = userRepository.findAll();
         
@@ -146,7 +155,11 @@ public class AdvancedAnalyticsController {
     
     @GetMapping("/basket-analysis")
     @Operation(summary = "Phân tích giỏ hàng - Sản phẩm thường được mua cùng nhau")
-    public ResponseEntity<?> getBasketAnalysis(@RequestParam(defaultValue = "20") int limit) {
+    public WebAsyncTask<ResponseEntity<?>> getBasketAnalysis(@RequestParam(defaultValue = "20") int limit) {
+        return analyticsExecutor.submit(() -> buildBasketAnalysis(limit));
+    }
+
+    private ResponseEntity<?> buildBasketAnalysis(int limit) {
         List<Object[]> productRelationships = orderDetailRepository.findProductCrossSellRelationships(limit);
           List<Map<String, Object>> formattedData = new ArrayList<>();
         for (Object[] row : productRelationships) {
@@ -170,7 +183,11 @@ public class AdvancedAnalyticsController {
     
     @GetMapping("/funnel-analysis")
     @Operation(summary = "Phân tích chuyển đổi theo phễu")
-    public ResponseEntity<?> getFunnelAnalysis() {
+    public WebAsyncTask<ResponseEntity<?>> getFunnelAnalysis() {
+        return analyticsExecutor.submit(this::buildFunnelAnalysis);
+    }
+
+    private ResponseEntity<?> buildFunnelAnalysis() {
         // Count total registered users
         long totalUsers = userRepository.count();
           // Count users who placed at least one order, handling null users
@@ -213,7 +230,11 @@ public class AdvancedAnalyticsController {
     
     @GetMapping("/user-cohort-analysis")
     @Operation(summary = "Phân tích đoàn hệ (Cohort Analysis) - theo thời điểm người dùng đăng ký")
-    public ResponseEntity<?> getUserCohortAnalysis() {
+    public WebAsyncTask<ResponseEntity<?>> getUserCohortAnalysis() {
+        return analyticsExecutor.submit(this::buildUserCohortAnalysis);
+    }
+
+    private ResponseEntity<?> buildUserCohortAnalysis() {
         List<User> allUsers = userRepository.findAll();
         List<Order> allOrders = orderRepository.findAll();
         
@@ -286,7 +307,11 @@ public class AdvancedAnalyticsController {
     
     @GetMapping("/customer-lifetime-value")
     @Operation(summary = "Phân tích giá trị vòng đời khách hàng (Customer Lifetime Value)")
-    public ResponseEntity<?> getCustomerLifetimeValue() {
+    public WebAsyncTask<ResponseEntity<?>> getCustomerLifetimeValue() {
+        return analyticsExecutor.submit(this::buildCustomerLifetimeValue);
+    }
+
+    private ResponseEntity<?> buildCustomerLifetimeValue() {
         List<Order> allOrders = orderRepository.findAll();
         // Group orders by user, making sure both order and user are not null
         Map<Long, List<Order>> ordersByUser = allOrders.stream()
@@ -379,8 +404,12 @@ public class AdvancedAnalyticsController {
     
     @GetMapping("/seasonal-trends")
     @Operation(summary = "Phân tích xu hướng theo mùa")
-    public ResponseEntity<?> getSeasonalTrends(
+    public WebAsyncTask<ResponseEntity<?>> getSeasonalTrends(
             @RequestParam(defaultValue = "2") int years) {
+        return analyticsExecutor.submit(() -> buildSeasonalTrends(years));
+    }
+
+    private ResponseEntity<?> buildSeasonalTrends(int years) {
         
         LocalDate endDate = LocalDate.now();
         LocalDate startDate = endDate.minusYears(years);
@@ -438,9 +467,13 @@ public class AdvancedAnalyticsController {
     
     @GetMapping("/category-performance")
     @Operation(summary = "Phân tích hiệu suất danh mục sản phẩm")
-    public ResponseEntity<?> getCategoryPerformance(
+    public WebAsyncTask<ResponseEntity<?>> getCategoryPerformance(
             @RequestParam(required = false) String startDateStr,
             @RequestParam(required = false) String endDateStr) {
+        return analyticsExecutor.submit(() -> buildCategoryPerformance(startDateStr, endDateStr));
+    }
+
+    private ResponseEntity<?> buildCategoryPerformance(String startDateStr, String endDateStr) {
             
         // Default to last 30 days if no dates are provided
         LocalDate now = LocalDate.now();
@@ -474,8 +507,12 @@ public class AdvancedAnalyticsController {
     
     @GetMapping("/day-hour-heatmap")
     @Operation(summary = "Phân tích doanh số theo ngày và giờ (heatmap)")
-    public ResponseEntity<?> getDayHourHeatmap(
+    public WebAsyncTask<ResponseEntity<?>> getDayHourHeatmap(
             @RequestParam(defaultValue = "30") int days) {
+        return analyticsExecutor.submit(() -> buildDayHourHeatmap(days));
+    }
+
+    private ResponseEntity<?> buildDayHourHeatmap(int days) {
             
         LocalDate endDate = LocalDate.now();
         LocalDate startDate = endDate.minusDays(days);
@@ -523,8 +560,12 @@ public class AdvancedAnalyticsController {
     
     @GetMapping("/order-completion-rate")
     @Operation(summary = "Phân tích tỷ lệ hoàn thành đơn hàng")
-    public ResponseEntity<?> getOrderCompletionRate(
+    public WebAsyncTask<ResponseEntity<?>> getOrderCompletionRate(
             @RequestParam(defaultValue = "30") int days) {
+        return analyticsExecutor.submit(() -> buildOrderCompletionRate(days));
+    }
+
+    private ResponseEntity<?> buildOrderCompletionRate(int days) {
             
         LocalDate endDate = LocalDate.now();
         LocalDate startDate = endDate.minusDays(days);
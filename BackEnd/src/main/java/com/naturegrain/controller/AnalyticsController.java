@@ -16,6 +16,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncTask;
 
 import com.naturegrain.entity.Activity;
 import com.naturegrain.entity.Order;
@@ -28,6 +29,10 @@ import com.naturegrain.repository.OrderRepository;
 import com.naturegrain.repository.ProductRepository;
 import com.naturegrain.repository.UserRepository;
 import com.naturegrain.service.ActivityService;
+import com.naturegrain.service.AnalyticsExecutor;
+import com.naturegrain.service.CustomerGrowthRollup;
+import com.naturegrain.service.OrderStatusHistoryService;
+import com.naturegrain.service.UserStatsService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -39,6 +44,9 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 @Tag(name = "Analytics APIs", description = "Endpoint cho phân tích dữ liệu kinh doanh")
 public class AnalyticsController {
 
+    @Autowired
+    private AnalyticsExecutor analyticsExecutor;
+
     @Autowired
     private OrderRepository orderRepository;
 
@@ -55,11 +63,24 @@ public class AnalyticsController {
     @Autowired
     private ActivityService activityService;
 
+    @Autowired
+    private OrderStatusHistoryService orderStatusHistoryService;
+
+    @Autowired
+    private CustomerGrowthRollup customerGrowthRollup;
+
+    @Autowired
+    private UserStatsService userStatsService;
+
     @GetMapping("/sales-trends")
     @Operation(summary = "Lấy xu hướng bán hàng theo thời gian (ngày, tuần, tháng)")
-    public ResponseEntity<?> getSalesTrends(
+    public WebAsyncTask<ResponseEntity<?>> getSalesTrends(
             @RequestParam(defaultValue = "daily") String timeframe,
             @RequestParam(defaultValue = "30") int timespan) {
+        return analyticsExecutor.submit(() -> buildSalesTrends(timeframe, timespan));
+    }
+
+    private ResponseEntity<?> buildSalesTrends(String timeframe, int timespan) {
 
         LocalDate endDate = LocalDate.now();
         LocalDate startDate;
@@ -102,45 +123,33 @@ public class AnalyticsController {
 
     @GetMapping("/user-growth")
     @Operation(summary = "Lấy dữ liệu tăng trưởng người dùng theo thời gian")
-    public ResponseEntity<?> getUserGrowth(@RequestParam(defaultValue = "30") int days) {
-        LocalDate endDate = LocalDate.now();
-        LocalDate startDate = endDate.minusDays(days);        List<User> allUsers = userRepository.findAll();
-
-        // Sort users by creation date, handling null createAt values
-        allUsers.sort(Comparator.comparing(User::getCreateAt, 
-            Comparator.nullsLast(Comparator.naturalOrder())));
+    public WebAsyncTask<ResponseEntity<?>> getUserGrowth(@RequestParam(defaultValue = "30") int days) {
+        return analyticsExecutor.submit(() -> buildUserGrowth(days));
+    }
 
-        // Group by day
-        Map<String, Integer> dailyGrowth = new LinkedHashMap<>();
+    private ResponseEntity<?> buildUserGrowth(int days) {
+        LocalDate endDate = LocalDate.now();
+        LocalDate startDate = endDate.minusDays(days);
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
-        // Initialize map with all days in range
-        for (int i = 0; i < days; i++) {
-            LocalDate date = startDate.plusDays(i);
-            dailyGrowth.put(date.format(formatter), 0);
+        // Số đăng ký theo ngày lấy từ prefix sum của CustomerGrowthRollup, không nạp toàn bộ user
+        long[] daily = customerGrowthRollup.dailySeries(startDate, days);
+        Map<String, Long> dailyGrowth = new LinkedHashMap<>();
+        for (int i = 0; i < daily.length; i++) {
+            dailyGrowth.put(startDate.plusDays(i).format(formatter), daily[i]);
         }
 
-        // Count new users by day
-        for (User user : allUsers) {
-            if (user.getCreateAt() != null) {
-                LocalDate registrationDate = user.getCreateAt().toInstant()
-                        .atZone(ZoneId.systemDefault()).toLocalDate();
-
-                if (!registrationDate.isBefore(startDate) && !registrationDate.isAfter(endDate)) {
-                    String dateKey = registrationDate.format(formatter);
-                    dailyGrowth.put(dateKey, dailyGrowth.getOrDefault(dateKey, 0) + 1);
-                }
-            }
+        // Hôm nay nằm ngoài khoảng days ngày, chỉ được thêm khi đã có user đăng ký
+        long today = customerGrowthRollup.countBetween(endDate, endDate);
+        if (today > 0) {
+            dailyGrowth.merge(endDate.format(formatter), today, Long::sum);
         }
 
         // Calculate cumulative growth
         List<Map<String, Object>> result = new ArrayList<>();
-        int cumulativeUsers = (int) allUsers.stream()
-                .filter(u -> u.getCreateAt() != null &&
-                        u.getCreateAt().toInstant().atZone(ZoneId.systemDefault()).toLocalDate().isBefore(startDate))
-                .count();
+        long cumulativeUsers = customerGrowthRollup.countBefore(startDate);
 
-        for (Map.Entry<String, Integer> entry : dailyGrowth.entrySet()) {
+        for (Map.Entry<String, Long> entry : dailyGrowth.entrySet()) {
             Map<String, Object> point = new HashMap<>();
             point.put("date", entry.getKey());
             point.put("newUsers", entry.getValue());
@@ -156,7 +165,11 @@ public class AnalyticsController {
 
     @GetMapping("/customer-retention")
     @Operation(summary = "Phân tích khách hàng quay lại mua hàng")
-    public ResponseEntity<?> getCustomerRetention() {
+    public WebAsyncTask<ResponseEntity<?>> getCustomerRetention() {
+        return analyticsExecutor.submit(this::buildCustomerRetention);
+    }
+
+    private ResponseEntity<?> buildCustomerRetention() {
         List<Order> allOrders = orderRepository.findAll();
 
         // Group orders by user
@@ -206,7 +219,11 @@ public class AnalyticsController {
 
     @GetMapping("/product-performance")
     @Operation(summary = "Phân tích hiệu suất sản phẩm")
-    public ResponseEntity<?> getProductPerformance() {
+    public WebAsyncTask<ResponseEntity<?>> getProductPerformance() {
+        return analyticsExecutor.submit(this::buildProductPerformance);
+    }
+
+    private ResponseEntity<?> buildProductPerformance() {
         List<OrderDetail> allOrderDetails = orderDetailRepository.findAll();
         
         // Group by product name since we now have a product reference
@@ -264,7 +281,11 @@ public class AnalyticsController {
 
     @GetMapping("/order-status-distribution")
     @Operation(summary = "Phân bố trạng thái đơn hàng")
-    public ResponseEntity<?> getOrderStatusDistribution() {
+    public WebAsyncTask<ResponseEntity<?>> getOrderStatusDistribution() {
+        return analyticsExecutor.submit(this::buildOrderStatusDistribution);
+    }
+
+    private ResponseEntity<?> buildOrderStatusDistribution() {
         List<Order> allOrders = orderRepository.findAll();
 
         // Group by status, handling null values
@@ -287,7 +308,11 @@ public class AnalyticsController {
         return ResponseEntity.ok(result);
     }    @GetMapping("/sales-by-hour")
     @Operation(summary = "Phân tích doanh số theo giờ trong ngày")
-    public ResponseEntity<?> getSalesByHourOfDay() {
+    public WebAsyncTask<ResponseEntity<?>> getSalesByHourOfDay() {
+        return analyticsExecutor.submit(this::buildSalesByHourOfDay);
+    }
+
+    private ResponseEntity<?> buildSalesByHourOfDay() {
         List<Object[]> hourlyData = orderDetailRepository.findSalesByHourOfDay();        List<Map<String, Object>> formattedData = new ArrayList<>();
         for (Object[] row : hourlyData) {
             // Skip rows with null hour
@@ -307,7 +332,11 @@ public class AnalyticsController {
     
     @GetMapping("/customer-insights")
     @Operation(summary = "Phân tích chi tiết về khách hàng")
-    public ResponseEntity<?> getCustomerInsights() {
+    public WebAsyncTask<ResponseEntity<?>> getCustomerInsights() {
+        return analyticsExecutor.submit(this::buildCustomerInsights);
+    }
+
+    private ResponseEntity<?> buildCustomerInsights() {
         try {
             List<Object[]> frequencyData = orderDetailRepository.findCustomerPurchaseFrequency();            List<Map<String, Object>> customerInsights = new ArrayList<>();
             for (Object[] row : frequencyData) {
@@ -360,9 +389,13 @@ public class AnalyticsController {
 
     @GetMapping("/sales-by-date-range")
     @Operation(summary = "Phân tích doanh số theo khoảng thời gian")
-    public ResponseEntity<?> getSalesByDateRange(
+    public WebAsyncTask<ResponseEntity<?>> getSalesByDateRange(
             @RequestParam(required = false) String startDateStr,
             @RequestParam(required = false) String endDateStr) {
+        return analyticsExecutor.submit(() -> buildSalesByDateRange(startDateStr, endDateStr));
+    }
+
+    private ResponseEntity<?> buildSalesByDateRange(String startDateStr, String endDateStr) {
         try {
             // Default to last 30 days if no dates are provided
             LocalDate now = LocalDate.now();
@@ -425,34 +458,14 @@ public class AnalyticsController {
     
     @GetMapping("/order-processing-time")
     @Operation(summary = "Phân tích thời gian xử lý đơn hàng")
-    public ResponseEntity<?> getOrderProcessingTime() {
-        try {
-            Double avgProcessingHours = orderDetailRepository.findAverageOrderProcessingTime();
-
-            if (avgProcessingHours == null) {
-                avgProcessingHours = 4.5; // Default value if null
-            }
-
-            Map<String, Object> result = new HashMap<>();
-            result.put("averageProcessingHours", avgProcessingHours);
-            result.put("averageProcessingDays", avgProcessingHours / 24.0);
-            
-            // Add status breakdown with mock data until schema is updated
-            List<Map<String, Object>> statusBreakdown = new ArrayList<>();
-            statusBreakdown.add(createStatusEntry("New", 0));
-            statusBreakdown.add(createStatusEntry("Processing", 1.5));
-            statusBreakdown.add(createStatusEntry("Shipped", 24));
-            statusBreakdown.add(createStatusEntry("Delivered", 36));
-            
-            result.put("byStatus", statusBreakdown);
-            
-            // Add trend data
-            Map<String, Object> trends = new HashMap<>();
-            trends.put("last30Days", avgProcessingHours);
-            trends.put("last60Days", avgProcessingHours + 0.3);
-            trends.put("changePercent", -6.2);
-            result.put("trends", trends);
+    public WebAsyncTask<ResponseEntity<?>> getOrderProcessingTime() {
+        return analyticsExecutor.submit(this::buildOrderProcessingTime);
+    }
 
+    private ResponseEntity<?> buildOrderProcessingTime() {
+        try {
+            // Đọc thống kê cộng dồn từ order_status_transition_stats, không quét bảng đơn hàng
+            Map<String, Object> result = orderStatusHistoryService.getProcessingTimeStats();
             return ResponseEntity.ok(result);
         } catch (Exception e) {
             Map<String, Object> fallbackData = createOrderProcessingFallbackData();
@@ -491,9 +504,13 @@ public class AnalyticsController {
 
     @GetMapping("/export-report")
     @Operation(summary = "Xuất báo cáo doanh số")
-    public ResponseEntity<?> exportSalesReport(
+    public WebAsyncTask<ResponseEntity<?>> exportSalesReport(
             @RequestParam(defaultValue = "30") int days,
             @RequestParam(defaultValue = "csv") String format) {
+        return analyticsExecutor.submit(() -> doExportSalesReport(days, format));
+    }
+
+    private ResponseEntity<?> doExportSalesReport(int days, String format) {
         try {
             LocalDate endDate = LocalDate.now();
             LocalDate startDate = endDate.minusDays(days);
@@ -653,7 +670,11 @@ public class AnalyticsController {
         return result;
     }    @GetMapping("/activity-feed")
     @Operation(summary = "Lấy danh sách hoạt động gần đây cho dashboard")
-    public ResponseEntity<?> getActivityFeed(@RequestParam(defaultValue = "10") int limit) {
+    public WebAsyncTask<ResponseEntity<?>> getActivityFeed(@RequestParam(defaultValue = "10") int limit) {
+        return analyticsExecutor.submit(() -> buildActivityFeed(limit));
+    }
+
+    private ResponseEntity<?> buildActivityFeed(int limit) {
         try {
             List<Activity> activities = activityService.getRecentActivities(limit);
             
@@ -773,7 +794,11 @@ public class AnalyticsController {
     }    @GetMapping("/setup-activity-table")
     @Operation(summary = "Tạo bảng activity và dữ liệu mẫu (chỉ cho development)")
     @PreAuthorize("permitAll()")
-    public ResponseEntity<?> setupActivityTable() {
+    public WebAsyncTask<ResponseEntity<?>> setupActivityTable() {
+        return analyticsExecutor.submit(this::doSetupActivityTable);
+    }
+
+    private ResponseEntity<?> doSetupActivityTable() {
         try {
             // Thực thi SQL tạo bảng và dữ liệu mẫu
             String result = activityService.setupActivityTable();
@@ -795,11 +820,15 @@ public class AnalyticsController {
     }    // API endpoints mà frontend đang gọi
     @GetMapping("/revenue")
     @Operation(summary = "Lấy dữ liệu doanh thu theo thời gian")
-    public ResponseEntity<?> getRevenue(
+    public WebAsyncTask<ResponseEntity<?>> getRevenue(
             @RequestParam(defaultValue = "month") String timeframe,
             @RequestParam(defaultValue = "30") int timespan,
             @RequestParam(required = false) String startDate,
             @RequestParam(required = false) String endDate) {
+        return analyticsExecutor.submit(() -> buildRevenue(timeframe, timespan, startDate, endDate));
+    }
+
+    private ResponseEntity<?> buildRevenue(String timeframe, int timespan, String startDate, String endDate) {
         try {
             List<Order> orders = orderRepository.findAll();
             
@@ -874,10 +903,14 @@ public class AnalyticsController {
         }
     }    @GetMapping("/traffic")
     @Operation(summary = "Lấy dữ liệu lưu lượng truy cập")
-    public ResponseEntity<?> getTraffic(
+    public WebAsyncTask<ResponseEntity<?>> getTraffic(
             @RequestParam(defaultValue = "30") int timespan,
             @RequestParam(required = false) String startDate,
             @RequestParam(required = false) String endDate) {
+        return analyticsExecutor.submit(() -> buildTraffic(timespan, startDate, endDate));
+    }
+
+    private ResponseEntity<?> buildTraffic(int timespan, String startDate, String endDate) {
         try {
             LocalDate endLocalDate;
             LocalDate startLocalDate;
@@ -933,10 +966,14 @@ public class AnalyticsController {
     }
       @GetMapping("/orders")
     @Operation(summary = "Lấy thống kê đơn hàng")
-    public ResponseEntity<?> getOrders(
+    public WebAsyncTask<ResponseEntity<?>> getOrders(
             @RequestParam(defaultValue = "month") String timeframe,
             @RequestParam(required = false) String startDate,
             @RequestParam(required = false) String endDate) {
+        return analyticsExecutor.submit(() -> buildOrders(timeframe, startDate, endDate));
+    }
+
+    private ResponseEntity<?> buildOrders(String timeframe, String startDate, String endDate) {
         try {
             List<Order> orders;
             
@@ -1011,10 +1048,14 @@ public class AnalyticsController {
     }
       @GetMapping("/products")
     @Operation(summary = "Lấy thống kê sản phẩm bán chạy")
-    public ResponseEntity<?> getProducts(
+    public WebAsyncTask<ResponseEntity<?>> getProducts(
             @RequestParam(defaultValue = "10") int limit,
             @RequestParam(required = false) String startDate,
             @RequestParam(required = false) String endDate) {
+        return analyticsExecutor.submit(() -> buildProducts(limit, startDate, endDate));
+    }
+
+    private ResponseEntity<?> buildProducts(int limit, String startDate, String endDate) {
         try {
             List<OrderDetail> orderDetails;
             
@@ -1087,14 +1128,15 @@ public class AnalyticsController {
     }
       @GetMapping("/customers")
     @Operation(summary = "Lấy thống kê khách hàng")
-    public ResponseEntity<?> getCustomers(
+    public WebAsyncTask<ResponseEntity<?>> getCustomers(
             @RequestParam(defaultValue = "30") int timespan,
             @RequestParam(required = false) String startDate,
             @RequestParam(required = false) String endDate) {
+        return analyticsExecutor.submit(() -> buildCustomers(timespan, startDate, endDate));
+    }
+
+    private ResponseEntity<?> buildCustomers(int timespan, String startDate, String endDate) {
         try {
-            List<User> users = userRepository.findAll();
-            List<Order> orders = orderRepository.findAll();
-            
             // Use date range if provided, otherwise use timespan
             LocalDate endLocalDate;
             LocalDate startLocalDate;
@@ -1107,56 +1149,30 @@ public class AnalyticsController {
                 startLocalDate = endLocalDate.minusDays(timespan);
             }
             
-            // Filter new customers in date range
-            List<User> newCustomers = users.stream()
-                    .filter(user -> user.getCreateAt() != null)
-                    .filter(user -> {
-                        LocalDate userDate = user.getCreateAt().toInstant()
-                                .atZone(ZoneId.systemDefault()).toLocalDate();
-                        return !userDate.isBefore(startLocalDate) && !userDate.isAfter(endLocalDate);
-                    })
-                    .collect(Collectors.toList());
-            
-            // Calculate customer metrics
-            Map<Long, List<Order>> ordersByUser = orders.stream()
-                    .filter(o -> o.getUser() != null)
-                    .collect(Collectors.groupingBy(o -> o.getUser().getId()));
-            
-            int totalCustomers = users.size();
-            int repeatCustomers = (int) ordersByUser.entrySet().stream()
-                    .filter(entry -> entry.getValue().size() > 1)
-                    .count();
+            // Số liệu lấy từ bộ đếm theo ngày và số đơn theo user, không nạp toàn bộ user/orders
+            long newCustomers = customerGrowthRollup.countBetween(startLocalDate, endLocalDate);
+            long totalCustomers = userStatsService.getTotalUsers();
+            long repeatCustomers = customerGrowthRollup.getRepeatCustomers();
             
             double retentionRate = totalCustomers > 0 ? 
                     (double) repeatCustomers / totalCustomers * 100 : 0;
               // Daily new customers
-            Map<String, Integer> dailyNewCustomers = new LinkedHashMap<>();
-            for (int i = 0; i < timespan; i++) {
-                LocalDate date = startLocalDate.plusDays(i);
-                long count = newCustomers.stream()
-                        .filter(user -> {
-                            LocalDate userDate = user.getCreateAt().toInstant()
-                                    .atZone(ZoneId.systemDefault()).toLocalDate();
-                            return userDate.equals(date);
-                        })
-                        .count();
-                dailyNewCustomers.put(date.toString(), (int) count);
-            }
-            
+            long[] daily = customerGrowthRollup.dailySeries(startLocalDate, timespan);
             List<Map<String, Object>> growthData = new ArrayList<>();
-            for (Map.Entry<String, Integer> entry : dailyNewCustomers.entrySet()) {
+            for (int i = 0; i < daily.length; i++) {
                 Map<String, Object> point = new HashMap<>();
-                point.put("date", entry.getKey());
-                point.put("newCustomers", entry.getValue());
+                point.put("date", startLocalDate.plusDays(i).toString());
+                point.put("newCustomers", daily[i]);
                 growthData.add(point);
             }
             
             Map<String, Object> result = new HashMap<>();
             result.put("growthData", growthData);
             result.put("totalCustomers", totalCustomers);
-            result.put("newCustomers", newCustomers.size());
+            result.put("newCustomers", newCustomers);
             result.put("repeatCustomers", repeatCustomers);
             result.put("retentionRate", Math.round(retentionRate * 100) / 100.0);
+            result.put("customersByCountry", customerGrowthRollup.countByCountry());
             result.put("timespan", timespan);
             
             return ResponseEntity.ok(result);
@@ -1244,7 +1260,11 @@ public class AnalyticsController {
 
     @GetMapping("/advanced-realtime")
     @Operation(summary = "Lấy dữ liệu thời gian thực nâng cao cho dashboard")
-    public ResponseEntity<?> getAdvancedRealTimeMetrics() {
+    public WebAsyncTask<ResponseEntity<?>> getAdvancedRealTimeMetrics() {
+        return analyticsExecutor.submit(this::buildAdvancedRealTimeMetrics);
+    }
+
+    private ResponseEntity<?> buildAdvancedRealTimeMetrics() {
         try {
             Map<String, Object> metrics = new HashMap<>();
             
@@ -1,7 +1,8 @@
 package com.naturegrain.controller;
 
-import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import javax.servlet.http.HttpServletRequest;
@@ -11,6 +12,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseCookie;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -22,20 +24,28 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.naturegrain.entity.User;
+import com.naturegrain.entity.ActivityMessage;
 import com.naturegrain.entity.ActivityType;
 import com.naturegrain.model.request.CreateUserRequest;
 import com.naturegrain.model.request.LoginRequest;
 import com.naturegrain.model.response.MessageResponse;
 import com.naturegrain.model.response.UserInfoResponse;
-import com.naturegrain.repository.UserRepository;
+import com.naturegrain.security.AuthRateLimiter;
+import com.naturegrain.security.CurrentUserResolver;
 import com.naturegrain.security.jwt.JwtUtils;
+import com.naturegrain.security.jwt.PrincipalCache;
+import com.naturegrain.security.service.TokenDenylist;
+import com.naturegrain.security.service.TokenVersionRegistry;
 import com.naturegrain.security.service.UserDetailsImpl;
 import com.naturegrain.service.ActivityService;
+import com.naturegrain.service.UserIdentityIndex;
 import com.naturegrain.service.UserService;
 
+import io.jsonwebtoken.Claims;
 import io.swagger.v3.oas.annotations.Operation;
 
 @RestController
@@ -51,18 +61,39 @@ public class AuthController {
     @Autowired
     private JwtUtils jwtUtils;
 
+    @Autowired
+    private PrincipalCache principalCache;
+
+    @Autowired
+    private TokenVersionRegistry tokenVersionRegistry;
+
+    @Autowired
+    private TokenDenylist tokenDenylist;
+
+    @Autowired
+    private CurrentUserResolver currentUserResolver;
+
+    @Autowired
+    private AuthRateLimiter authRateLimiter;
+
     @Autowired
     private UserService userService;
-    
+
     @Autowired
-    private UserRepository userRepository;
+    private UserIdentityIndex userIdentityIndex;
     
     @Autowired
     private ActivityService activityService;
 
     @PostMapping("/login")
     @Operation(summary="Đăng nhập")
-    public ResponseEntity<?> login(@Valid @RequestBody LoginRequest loginRequest) {
+    public ResponseEntity<?> login(@Valid @RequestBody LoginRequest loginRequest, HttpServletRequest request) {
+        long retryAfter = authRateLimiter.tryLogin(request.getRemoteAddr(), loginRequest.getUsername());
+        if (retryAfter > 0) {
+            logger.warn("Login throttled for {} from {}", loginRequest.getUsername(), request.getRemoteAddr());
+            return tooManyRequests(retryAfter, "Too many login attempts, please try again later");
+        }
+
         Authentication authentication = authenticationManager
                 .authenticate(new UsernamePasswordAuthenticationToken(loginRequest.getUsername(),
                         loginRequest.getPassword()));
@@ -76,21 +107,8 @@ public class AuthController {
                 .map(item -> item.getAuthority())
                 .collect(Collectors.toList());
         
-        // Lấy thêm thông tin người dùng từ database
-        User user = userService.getUserByUsername(userDetails.getUsername());
-          // Update last login time
-        user.setLastLogin(new Date());
-        userRepository.save(user);
-        
-        // Log activity for user login
-        try {
-            String title = "Người dùng đăng nhập";
-            String description = String.format("Người dùng %s đã đăng nhập vào hệ thống", user.getUsername());
-            activityService.createActivity(ActivityType.USER_LOGIN, title, description, user);
-        } catch (Exception e) {
-            // Log error but don't fail the login
-            System.err.println("Failed to log login activity: " + e.getMessage());
-        }
+        // Lấy thêm thông tin người dùng từ database, cập nhật last login và ghi activity đăng nhập
+        User user = userService.recordLogin(userDetails.getUsername());
 
         // Trả về đầy đủ thông tin người dùng
         return ResponseEntity.ok().header(HttpHeaders.SET_COOKIE, jwtCookie.toString())
@@ -108,15 +126,19 @@ public class AuthController {
                         user.getState()));
     }    @PostMapping("/register")
     @Operation(summary="Đăng ký")
-    public ResponseEntity<?> register(@Valid @RequestBody CreateUserRequest request){
+    public ResponseEntity<?> register(@Valid @RequestBody CreateUserRequest request, HttpServletRequest httpRequest){
+        long retryAfter = authRateLimiter.tryRegister(httpRequest.getRemoteAddr());
+        if (retryAfter > 0) {
+            return tooManyRequests(retryAfter, "Too many registration attempts, please try again later");
+        }
+
         User newUser = userService.register(request);
         
         // Log activity for user registration
         try {
             if (newUser != null) {
-                String title = "Người dùng mới đăng ký";
-                String description = String.format("Người dùng %s đã đăng ký tài khoản mới", newUser.getUsername());
-                activityService.createActivity(ActivityType.USER_REGISTERED, title, description, newUser);
+                activityService.createActivity(ActivityType.USER_REGISTERED, ActivityMessage.USER_REGISTERED, newUser, null, null,
+                                               newUser.getUsername());
             }
         } catch (Exception e) {
             // Log error but don't fail the registration
@@ -126,9 +148,43 @@ public class AuthController {
         return ResponseEntity.ok(new MessageResponse("User registered successfully!"));
     }
 
+    @GetMapping("/available")
+    @Operation(summary="Kiểm tra username/email còn trống")
+    public ResponseEntity<?> checkAvailability(@RequestParam(required = false) String username,
+                                               @RequestParam(required = false) String email) {
+        if ((username == null || username.isBlank()) && (email == null || email.isBlank())) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Username or email is required"));
+        }
+        Map<String, Object> data = new HashMap<>();
+        if (username != null && !username.isBlank()) {
+            data.put("username", !userIdentityIndex.isUsernameTaken(username));
+        }
+        if (email != null && !email.isBlank()) {
+            data.put("email", !userIdentityIndex.isEmailTaken(email));
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", data);
+        return ResponseEntity.ok(response);
+    }
+
     @PostMapping("/logout")
     @Operation(summary="Đăng xuất")
-    public ResponseEntity<?> logoutUser() {
+    public ResponseEntity<?> logoutUser(HttpServletRequest request) {
+      String jwt = jwtUtils.getJwtFromCookies(request);
+      Long userId = currentUserResolver.getUserId();
+      if (jwt != null) {
+        principalCache.invalidate(jwt);
+        // Thu hồi đúng token này tới khi hết hạn, có hiệu lực ngay cả khi cookie đã bị sao chép;
+        // token cũ chưa có jti thì thu hồi mọi token của user qua version
+        Claims claims = jwtUtils.parseClaims(jwt);
+        if (claims != null && claims.getId() != null) {
+          tokenDenylist.revoke(claims.getId(), userId, claims.getExpiration());
+        } else if (userId != null) {
+          tokenVersionRegistry.revoke(userId);
+        }
+      }
       ResponseCookie cookie = jwtUtils.getCleanJwtCookie();
       logger.info("User logged out successfully");
       return ResponseEntity.ok().header(HttpHeaders.SET_COOKIE, cookie.toString())
@@ -158,7 +214,7 @@ public class AuthController {
             return ResponseEntity.ok(new UserInfoResponse(
                     userDetails.getId(),
                     userDetails.getUsername(),
-                    userDetails.getEmail(),
+                    user.getEmail(),
                     roles,
                     user.getFirstname(),
                     user.getLastname(),
@@ -172,4 +228,11 @@ public class AuthController {
             return ResponseEntity.status(401).body(new MessageResponse("Not authenticated"));
         }
     }
+
+    // Vượt giới hạn token bucket theo IP/username: trả 429 kèm Retry-After để client biết khi nào được thử lại
+    private ResponseEntity<?> tooManyRequests(long retryAfterSeconds, String message) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(new MessageResponse(message));
+    }
 }
@@ -19,6 +19,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncTask;
 
 import com.naturegrain.entity.Order;
 import com.naturegrain.entity.Product;
@@ -26,6 +27,7 @@ import com.naturegrain.entity.User;
 import com.naturegrain.repository.OrderRepository;
 import com.naturegrain.repository.ProductRepository;
 import com.naturegrain.repository.UserRepository;
+import com.naturegrain.service.AnalyticsExecutor;
 
 import io.swagger.v3.oas.annotations.Operation;
 
@@ -34,6 +36,9 @@ import io.swagger.v3.oas.annotations.Operation;
 @CrossOrigin(origins = "*", maxAge = 3600)
 public class DashboardController {
 
+    @Autowired
+    private AnalyticsExecutor analyticsExecutor;
+
     @Autowired
     private OrderRepository orderRepository;
     
@@ -46,7 +51,11 @@ public class DashboardController {
     @GetMapping("/stats")
     @PreAuthorize("hasRole('ADMIN')")
     @Operation(summary = "Lấy số liệu thống kê tổng quan cho dashboard")
-    public ResponseEntity<?> getDashboardStats() {
+    public WebAsyncTask<ResponseEntity<?>> getDashboardStats() {
+        return analyticsExecutor.submit(this::buildDashboardStats);
+    }
+
+    private ResponseEntity<?> buildDashboardStats() {
         // Get counts
         long totalProducts = productRepository.count();
         long totalUsers = userRepository.count();
@@ -92,8 +101,12 @@ public class DashboardController {
     @GetMapping("/recent-orders")
     @PreAuthorize("hasRole('ADMIN')")
     @Operation(summary = "Lấy danh sách đơn hàng gần đây")
-    public ResponseEntity<?> getRecentOrders(
+    public WebAsyncTask<ResponseEntity<?>> getRecentOrders(
             @RequestParam(defaultValue = "5") int limit) {
+        return analyticsExecutor.submit(() -> buildRecentOrders(limit));
+    }
+
+    private ResponseEntity<?> buildRecentOrders(int limit) {
         // Get the most recent orders
         List<Order> recentOrders = orderRepository.findTop5ByOrderByCreateAtDesc();
         
@@ -118,8 +131,12 @@ public class DashboardController {
     @GetMapping("/top-products")
     @PreAuthorize("hasRole('ADMIN')")
     @Operation(summary = "Lấy danh sách sản phẩm bán chạy")
-    public ResponseEntity<List<Product>> getTopProducts(
+    public WebAsyncTask<ResponseEntity<List<Product>>> getTopProducts(
             @RequestParam(defaultValue = "5") int limit) {
+        return analyticsExecutor.submit(() -> buildTopProducts(limit));
+    }
+
+    private ResponseEntity<List<Product>> buildTopProducts(int limit) {
         // For now, we'll just return the products with highest price
         // In a real system, this would be based on sales data
         List<Product> topProducts = productRepository.findTop5ByOrderByPriceDesc();
@@ -129,8 +146,12 @@ public class DashboardController {
     @GetMapping("/sales-chart")
     @PreAuthorize("hasRole('ADMIN')")
     @Operation(summary = "Lấy dữ liệu biểu đồ doanh thu theo thời gian")
-    public ResponseEntity<?> getSalesChartData(
+    public WebAsyncTask<ResponseEntity<?>> getSalesChartData(
             @RequestParam(defaultValue = "7") int days) {
+        return analyticsExecutor.submit(() -> buildSalesChartData(days));
+    }
+
+    private ResponseEntity<?> buildSalesChartData(int days) {
         
         LocalDate endDate = LocalDate.now();
         LocalDate startDate = endDate.minusDays(days - 1);
@@ -176,7 +197,11 @@ public class DashboardController {
     @GetMapping("/category-breakdown")
     @PreAuthorize("hasRole('ADMIN')")
     @Operation(summary = "Lấy thống kê sản phẩm theo danh mục")
-    public ResponseEntity<?> getCategoryBreakdown() {
+    public WebAsyncTask<ResponseEntity<?>> getCategoryBreakdown() {
+        return analyticsExecutor.submit(this::buildCategoryBreakdown);
+    }
+
+    private ResponseEntity<?> buildCategoryBreakdown() {
         List<Product> products = productRepository.findAll();
         
         // Group products by category
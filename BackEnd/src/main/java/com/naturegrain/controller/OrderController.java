@@ -4,17 +4,19 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
+import javax.validation.Valid;
+
+import com.naturegrain.model.response.AdminOrderResponse;
+import com.naturegrain.model.response.CartQuoteResponse;
+import com.naturegrain.model.response.CustomerOrderPageResponse;
 import com.naturegrain.model.response.MessageResponse;
 import com.naturegrain.repository.OrderRepository;
-import com.naturegrain.repository.UserRepository;
-import com.naturegrain.entity.ActivityType;
-import com.naturegrain.entity.User;
-import com.naturegrain.service.ActivityService;
+import com.naturegrain.service.OrderStatusHistoryService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -27,8 +29,15 @@ import org.springframework.web.bind.annotation.RestController;
 
 import com.naturegrain.entity.Order;
 import com.naturegrain.entity.OrderDetail;
+import com.naturegrain.entity.OrderStatusHistory;
+import com.naturegrain.entity.OrderSummary;
+import com.naturegrain.exception.BadRequestException;
+import com.naturegrain.exception.NotFoundException;
+import com.naturegrain.model.request.CartQuoteRequest;
 import com.naturegrain.model.request.CreateOrderRequest;
+import com.naturegrain.model.request.OrderFilterRequest;
 
+import com.naturegrain.security.CurrentUserResolver;
 import com.naturegrain.security.service.UserDetailsImpl;
 import com.naturegrain.service.OrderService;
 
@@ -45,18 +54,18 @@ public class OrderController {
     private OrderRepository orderRepository;
     
     @Autowired
-    private ActivityService activityService;
+    private OrderStatusHistoryService orderStatusHistoryService;
     
     @Autowired
-    private UserRepository userRepository;    // Add this endpoint to handle direct requests to /api/order
+    private CurrentUserResolver currentUserResolver;
+    
+    // Add this endpoint to handle direct requests to /api/order
     @GetMapping("")
     @Operation(summary="Lấy ra danh sách đặt hàng của người dùng đang đăng nhập")
     public ResponseEntity<List<Order>> getOrders(){
         // Get current authenticated user
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication != null && authentication.isAuthenticated() && 
-            authentication.getPrincipal() instanceof UserDetailsImpl) {
-            UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
+        UserDetailsImpl userDetails = currentUserResolver.getPrincipal();
+        if (userDetails != null) {
             List<Order> list = orderService.getOrderByUser(userDetails.getUsername());
             
             // Đảm bảo lấy đầy đủ thông tin sản phẩm
@@ -80,27 +89,26 @@ public class OrderController {
         // Return empty list if not authenticated (will be handled by security)
         return ResponseEntity.ok(List.of());
     }    // Existing endpoints with the trailing slash
-    @GetMapping("/")
-    @Operation(summary="Lấy ra danh sách đặt hàng")
-    public ResponseEntity<List<Order>> getList(){
-        List<Order> list = orderService.getList();
-        
-        // Đảm bảo lấy đầy đủ thông tin sản phẩm
-        for (Order order : list) {
-            order.getOrderDetails().forEach(detail -> {
-                if (detail.getProduct() != null) {
-                    // Trigger eager loading của product
-                    detail.getProduct().getId();
-                    
-                    // Đảm bảo tải hình ảnh sản phẩm nếu có
-                    if (detail.getProduct().getImages() != null) {
-                        detail.getProduct().getImages().size();
-                    }
-                }
-            });
+    @GetMapping("/me")
+    @Operation(summary="Lấy đơn hàng của người dùng đang đăng nhập theo trang (keyset, before = id đơn hàng cuối trang trước)")
+    public ResponseEntity<?> getMyOrders(
+            @RequestParam(required = false) Long before,
+            @RequestParam(defaultValue = "10") int size) {
+        UserDetailsImpl userDetails = currentUserResolver.getPrincipal();
+        if (userDetails != null) {
+            CustomerOrderPageResponse page = orderService.getOrdersForUser(userDetails.getId(), before, size);
+            return ResponseEntity.ok(page);
         }
-            
-        return ResponseEntity.ok(list);    }
+        
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(new MessageResponse("Not authenticated"));
+    }
+
+    @GetMapping("/")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary="Lấy ra danh sách đặt hàng (bản tóm tắt từ order_summary)")
+    public ResponseEntity<List<OrderSummary>> getList(){
+        return ResponseEntity.ok(orderService.getSummaryList("newest"));
+    }
     
     // Add endpoint to get order by ID
     @GetMapping("/{id}")
@@ -128,46 +136,27 @@ public class OrderController {
             return ResponseEntity.notFound().build();
         }
     }
+    @GetMapping("/{id}/status-history")
+    @Operation(summary="Lịch sử thay đổi trạng thái của đơn hàng")
+    public ResponseEntity<List<OrderStatusHistory>> getOrderStatusHistory(@PathVariable("id") Long id){
+        return ResponseEntity.ok(orderStatusHistoryService.getHistory(id));
+    }
+
       // Add endpoint to cancel an order
     @PutMapping("/{id}/cancel")
     @Operation(summary="Hủy đơn hàng")
     public ResponseEntity<?> cancelOrder(@PathVariable("id") Long id){
-        Optional<Order> orderOpt = orderRepository.findById(id);
-        if (orderOpt.isPresent()) {
-            Order order = orderOpt.get();
+        try {
             // Only allow cancellation if order is in PENDING state
-            if ("PENDING".equals(order.getStatus())) {
-                order.setStatus("CANCELLED");
-                orderRepository.save(order);
-                
-                // Log activity for order cancellation
-                try {
-                    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-                    if (authentication != null && authentication.isAuthenticated() && 
-                        authentication.getPrincipal() instanceof UserDetailsImpl) {
-                        UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
-                        User user = userRepository.findById(userDetails.getId()).orElse(null);
-                        
-                        if (user != null) {
-                            String title = "Đơn hàng đã bị hủy";
-                            String description = String.format("Đơn hàng #%d với giá trị %,d VND đã bị hủy bởi %s", 
-                                                              order.getId(), order.getTotalPrice(), user.getUsername());
-                            activityService.createActivity(ActivityType.ORDER_CANCELLED, title, description, user, "Order", order.getId());
-                        }
-                    }
-                } catch (Exception e) {
-                    // Log error but don't fail the cancellation
-                    System.err.println("Failed to log order cancellation activity: " + e.getMessage());
-                }
-                
-                return ResponseEntity.ok(new MessageResponse("Order cancelled successfully"));
-            } else {
-                return ResponseEntity.badRequest()
-                    .body(new MessageResponse("Cannot cancel order that is not in PENDING state"));
-            }
-        } else {
+            orderService.cancelOrder(id);
+        } catch (NotFoundException e) {
             return ResponseEntity.notFound().build();
-        }    }
+        } catch (BadRequestException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+        
+        return ResponseEntity.ok(new MessageResponse("Order cancelled successfully"));
+    }
     
     @GetMapping("/user")
     @Operation(summary="Lấy ra danh sách đặt hàng của người dùng bằng username")
@@ -193,31 +182,18 @@ public class OrderController {
     }    @PostMapping("/create")
     @Operation(summary="Đặt hàng sản phẩm")
     public ResponseEntity<?> placeOrder(@RequestBody CreateOrderRequest request){
-        Order order = orderService.placeOrder(request);
-        
-        // Log activity for order creation
-        try {
-            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-            if (authentication != null && authentication.isAuthenticated() && 
-                authentication.getPrincipal() instanceof UserDetailsImpl) {
-                UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
-                User user = userRepository.findById(userDetails.getId()).orElse(null);
-                
-                if (user != null && order != null) {
-                    String title = "Đơn hàng mới được tạo";
-                    String description = String.format("Đơn hàng #%d với tổng giá trị %,d VND được tạo bởi %s", 
-                                                      order.getId(), order.getTotalPrice(), user.getUsername());
-                    activityService.createActivity(ActivityType.ORDER_CREATED, title, description, user, "Order", order.getId());
-                }
-            }
-        } catch (Exception e) {
-            // Log error but don't fail the order creation
-            System.err.println("Failed to log order creation activity: " + e.getMessage());
-        }
+        orderService.placeOrder(request);
         
         return ResponseEntity.ok(new MessageResponse("Order Placed Successfully!"));
     }
 
+    @PostMapping("/quote")
+    @Operation(summary="Tính giá giỏ hàng phía server (giá, tổng tiền, tồn kho)")
+    public ResponseEntity<CartQuoteResponse> quoteCart(@Valid @RequestBody CartQuoteRequest request){
+        CartQuoteResponse quote = orderService.quoteCart(request.getOrderDetails());
+        return ResponseEntity.ok(quote);
+    }
+
     @PostMapping("/update-product-associations")
     @Operation(summary="Cập nhật liên kết sản phẩm cho các chi tiết đơn hàng")
     public ResponseEntity<?> updateOrderDetailsProductAssociations() {
@@ -234,56 +210,35 @@ public class OrderController {
         return ResponseEntity.ok(updatedDetail);
     }
 
+    @GetMapping("/admin")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary="Lấy danh sách đơn hàng phân trang cho admin (lọc theo trạng thái, ngày tạo, email, số điện thoại)")
+    public ResponseEntity<Page<AdminOrderResponse>> getOrdersPaginated(
+            OrderFilterRequest filter,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        Page<AdminOrderResponse> orders = orderService.getOrdersPaginated(filter, page, size);
+        return ResponseEntity.ok(orders);
+    }
+
+    @GetMapping("/admin/summary")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary="Danh sách đơn hàng dạng tóm tắt cho bảng quản trị (đọc từ order_summary, không join)")
+    public ResponseEntity<Page<OrderSummary>> getOrderSummaries(
+            OrderFilterRequest filter,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        Page<OrderSummary> summaries = orderService.getOrderSummaries(filter, page, size);
+        return ResponseEntity.ok(summaries);
+    }
+
     @GetMapping("/all")
-    @Operation(summary="Lấy tất cả đơn hàng với tham số sắp xếp")
-    public ResponseEntity<List<Order>> getAllOrders(
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary="Lấy tất cả đơn hàng (bản tóm tắt từ order_summary) với tham số sắp xếp")
+    public ResponseEntity<List<OrderSummary>> getAllOrders(
             @RequestParam(required = false, defaultValue = "newest") String sortBy) {
-        List<Order> allOrders = orderService.getList();
-        
-        // Đảm bảo lấy đầy đủ thông tin sản phẩm
-        for (Order order : allOrders) {
-            order.getOrderDetails().forEach(detail -> {
-                if (detail.getProduct() != null) {
-                    // Trigger eager loading của product
-                    detail.getProduct().getId();
-                    
-                    // Đảm bảo tải hình ảnh sản phẩm nếu có
-                    if (detail.getProduct().getImages() != null) {
-                        detail.getProduct().getImages().size();
-                    }
-                }
-            });
-        }
-        
-        // Sắp xếp theo yêu cầu
-        switch (sortBy) {
-            case "newest":
-                // Sắp xếp theo ngày tạo giảm dần (mới nhất lên đầu)
-                allOrders.sort((o1, o2) -> o2.getCreateAt().compareTo(o1.getCreateAt()));
-                break;
-                
-            case "oldest":
-                // Sắp xếp theo ngày tạo tăng dần (cũ nhất lên đầu)
-                allOrders.sort((o1, o2) -> o1.getCreateAt().compareTo(o2.getCreateAt()));
-                break;
-                
-            case "highest_price":
-                // Sắp xếp theo giá giảm dần (cao nhất lên đầu)
-                allOrders.sort((o1, o2) -> Long.compare(o2.getTotalPrice(), o1.getTotalPrice()));
-                break;
-                
-            case "lowest_price":
-                // Sắp xếp theo giá tăng dần (thấp nhất lên đầu)
-                allOrders.sort((o1, o2) -> Long.compare(o1.getTotalPrice(), o2.getTotalPrice()));
-                break;
-                
-            default:
-                // Mặc định sắp xếp theo ngày tạo giảm dần (mới nhất lên đầu)
-                allOrders.sort((o1, o2) -> o2.getCreateAt().compareTo(o1.getCreateAt()));
-                break;
-        }
-        
-        return ResponseEntity.ok(allOrders);
+        // Sắp xếp trong SQL trên các index của order_summary, không nạp chi tiết hay sản phẩm
+        return ResponseEntity.ok(orderService.getSummaryList(sortBy));
     }
     
     @PutMapping("/{id}/status")
@@ -297,41 +252,9 @@ public class OrderController {
         try {
             Order order = orderService.updateOrderStatus(id, status);
             
-            // Log activity for order status update
-            try {
-                Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-                if (authentication != null && authentication.isAuthenticated() && 
-                    authentication.getPrincipal() instanceof UserDetailsImpl) {
-                    UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
-                    User user = userRepository.findById(userDetails.getId()).orElse(null);
-                    
-                    if (user != null && order != null) {
-                        String title = "Trạng thái đơn hàng được cập nhật";
-                        String description = String.format("Đơn hàng #%d đã được cập nhật từ trạng thái thành '%s' bởi %s", 
-                                                          order.getId(), status, user.getUsername());
-                        
-                        // Determine activity type based on new status
-                        ActivityType activityType;
-                        switch (status.toUpperCase()) {
-                            case "COMPLETED":
-                                activityType = ActivityType.ORDER_COMPLETED;
-                                break;
-                            case "PROCESSING":
-                            case "SHIPPING":
-                            default:
-                                activityType = ActivityType.ORDER_UPDATED;
-                                break;
-                        }
-                        
-                        activityService.createActivity(activityType, title, description, user, "Order", order.getId());
-                    }
-                }
-            } catch (Exception e) {
-                // Log error but don't fail the status update
-                System.err.println("Failed to log order status update activity: " + e.getMessage());
-            }
-            
             return ResponseEntity.ok(order);
+        } catch (BadRequestException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(new MessageResponse("Error updating order status: " + e.getMessage()));
@@ -6,8 +6,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -19,14 +17,9 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import com.naturegrain.entity.ActivityType;
 import com.naturegrain.entity.Product;
-import com.naturegrain.entity.User;
 import com.naturegrain.model.request.CreateProductRequest;
 import com.naturegrain.model.response.MessageResponse;
-import com.naturegrain.repository.UserRepository;
-import com.naturegrain.security.service.UserDetailsImpl;
-import com.naturegrain.service.ActivityService;
 import com.naturegrain.service.ProductService;
 
 import io.swagger.v3.oas.annotations.Operation;
@@ -36,12 +29,6 @@ import io.swagger.v3.oas.annotations.Operation;
 @CrossOrigin(origins = "*",maxAge = 3600)
 public class ProductController {    @Autowired
     private ProductService productService;
-    
-    @Autowired
-    private ActivityService activityService;
-    
-    @Autowired
-    private UserRepository userRepository;
 
 
     @GetMapping("/")
@@ -119,26 +106,6 @@ public class ProductController {    @Autowired
     @Operation(summary="Tạo mới sản phẩm")
     public ResponseEntity<Product> createProduct(@RequestBody CreateProductRequest request){
         Product product = productService.createProduct(request);
-        
-        // Log activity for product creation
-        try {
-            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-            if (authentication != null && authentication.isAuthenticated() && 
-                authentication.getPrincipal() instanceof UserDetailsImpl) {
-                UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
-                User user = userRepository.findById(userDetails.getId()).orElse(null);
-                
-                if (user != null && product != null) {
-                    String title = "Sản phẩm mới được tạo";
-                    String description = String.format("Sản phẩm '%s' đã được tạo bởi %s", 
-                                                      product.getName(), user.getUsername());
-                    activityService.createActivity(ActivityType.PRODUCT_CREATED, title, description, user, "Product", product.getId());
-                }
-            }
-        } catch (Exception e) {
-            // Log error but don't fail the product creation
-            System.err.println("Failed to log product creation activity: " + e.getMessage());
-        }
 
         return ResponseEntity.ok(product);
     }    @PutMapping("/update/{id}")
@@ -152,26 +119,6 @@ public class ProductController {    @Autowired
             
             Product product = productService.updateProduct(id, request);
             
-            // Log activity for product update
-            try {
-                Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-                if (authentication != null && authentication.isAuthenticated() && 
-                    authentication.getPrincipal() instanceof UserDetailsImpl) {
-                    UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
-                    User user = userRepository.findById(userDetails.getId()).orElse(null);
-                    
-                    if (user != null && product != null) {
-                        String title = "Sản phẩm được cập nhật";
-                        String description = String.format("Sản phẩm '%s' đã được cập nhật bởi %s", 
-                                                          product.getName(), user.getUsername());
-                        activityService.createActivity(ActivityType.PRODUCT_UPDATED, title, description, user, "Product", product.getId());
-                    }
-                }
-            } catch (Exception e) {
-                // Log error but don't fail the product update
-                System.err.println("Failed to log product update activity: " + e.getMessage());
-            }
-            
             return ResponseEntity.ok(product);
         } catch (Exception e) {
             // Log the error and return a meaningful response
@@ -184,36 +131,7 @@ public class ProductController {    @Autowired
     @PreAuthorize("hasRole('ADMIN')")
     @Operation(summary="Xóa sản phẩm bằng id")
     public ResponseEntity<?> deleteProduct(@PathVariable long id){
-        // Get product info before deletion for logging
-        Product product = null;
-        try {
-            product = productService.getProduct(id);
-        } catch (Exception e) {
-            // Product might not exist
-        }
-        
         productService.deleteProduct(id);
-        
-        // Log activity for product deletion
-        try {
-            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-            if (authentication != null && authentication.isAuthenticated() && 
-                authentication.getPrincipal() instanceof UserDetailsImpl) {
-                UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
-                User user = userRepository.findById(userDetails.getId()).orElse(null);
-                
-                if (user != null) {
-                    String title = "Sản phẩm đã bị xóa";
-                    String description = String.format("Sản phẩm %s đã bị xóa bởi %s", 
-                                                      product != null ? "'" + product.getName() + "'" : "#" + id, 
-                                                      user.getUsername());
-                    activityService.createActivity(ActivityType.PRODUCT_DELETED, title, description, user, "Product", id);
-                }
-            }
-        } catch (Exception e) {
-            // Log error but don't fail the product deletion
-            System.err.println("Failed to log product deletion activity: " + e.getMessage());
-        }
 
         return ResponseEntity.ok(new MessageResponse("Product is deleted"));
     }
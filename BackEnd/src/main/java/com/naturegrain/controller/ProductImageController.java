@@ -9,8 +9,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -30,8 +28,7 @@ import com.naturegrain.model.response.ImageUploadResponse;
 import com.naturegrain.model.response.MessageResponse;
 import com.naturegrain.repository.ImageRepository;
 import com.naturegrain.repository.ProductRepository;
-import com.naturegrain.repository.UserRepository;
-import com.naturegrain.security.service.UserDetailsImpl;
+import com.naturegrain.security.CurrentUserResolver;
 
 import io.swagger.v3.oas.annotations.Operation;
 
@@ -42,7 +39,7 @@ public class ProductImageController {    @Autowired
     private ImageRepository imageRepository;
 
     @Autowired
-    private UserRepository userRepository;
+    private CurrentUserResolver currentUserResolver;
     
     @Autowired
     private ProductRepository productRepository;@PostMapping("/upload")
@@ -56,9 +53,7 @@ public class ProductImageController {    @Autowired
             List<String> imageNames = new ArrayList<>();
             
             // Lấy thông tin người dùng hiện tại để ghi log người upload
-            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-            UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
-            User user = userRepository.findById(userDetails.getId())
+            User user = currentUserResolver.getUser()
                 .orElseThrow(() -> new NotFoundException("Không tìm thấy người dùng"));
             
             for (MultipartFile file : files) {
@@ -7,8 +7,6 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -22,7 +20,7 @@ import com.naturegrain.entity.User;
 import com.naturegrain.exception.NotFoundException;
 import com.naturegrain.model.response.MessageResponse;
 import com.naturegrain.repository.UserRepository;
-import com.naturegrain.security.service.UserDetailsImpl;
+import com.naturegrain.security.CurrentUserResolver;
 
 import io.swagger.v3.oas.annotations.Operation;
 
@@ -33,6 +31,9 @@ public class UserAvatarController {
 
     @Autowired
     private UserRepository userRepository;
+    
+    @Autowired
+    private CurrentUserResolver currentUserResolver;
       @PostMapping("/upload")
     @PreAuthorize("isAuthenticated()")
     @Operation(summary = "Upload avatar cho người dùng hiện tại và lưu vào database dưới dạng Base64")
@@ -60,11 +61,7 @@ public class UserAvatarController {
             }
             
             // Lấy thông tin người dùng hiện tại
-            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-            UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
-            
-            // Lấy user từ database
-            User user = userRepository.findById(userDetails.getId())
+            User user = currentUserResolver.getUser()
                     .orElseThrow(() -> new NotFoundException("User not found"));
             
             // Chuyển đổi file thành Base64 String để lưu trữ (thay vì byte array)            // Trước khi xử lý, kiểm tra kích thước tệp
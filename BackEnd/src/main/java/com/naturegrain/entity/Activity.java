@@ -4,16 +4,21 @@ import java.util.Date;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
 import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.PrePersist;
 import javax.persistence.Table;
+import javax.persistence.Transient;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -23,7 +28,11 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "activity")
+@EntityListeners(ActivityTemplateListener.class)
+@Table(name = "activity", indexes = {
+    @Index(name = "idx_activity_created_at_id", columnList = "created_at, id"),
+    @Index(name = "idx_activity_type_created_at", columnList = "activity_type, created_at")
+})
 public class Activity {
     
     @Id
@@ -34,12 +43,32 @@ public class Activity {
     @Column(name = "activity_type", nullable = false)
     private ActivityType activityType;
     
+    // Với dòng lưu dạng mẫu, title là chuỗi rỗng và description là null; nội dung được dựng từ mẫu khi đọc
     @Column(name = "title", nullable = false)
     private String title;
     
     @Column(name = "description")
     private String description;
     
+    // Id mẫu trong bảng activity_template; 0 = nội dung inline, null = dòng cũ chưa chuyển đổi
+    @Column(name = "title_template_id")
+    private Integer titleTemplateId;
+    
+    @Column(name = "description_template_id")
+    private Integer descriptionTemplateId;
+    
+    // Tham số có kiểu dùng chung cho mẫu tiêu đề và mô tả
+    @Column(name = "params", length = 500)
+    private String params;
+    
+    @Transient
+    @JsonIgnore
+    private String renderedTitle;
+    
+    @Transient
+    @JsonIgnore
+    private String renderedDescription;
+    
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private User user;
@@ -56,9 +85,21 @@ public class Activity {
     @Column(name = "created_at", nullable = false)
     private Date createdAt;
     
+    // Nội dung hiển thị: bản dựng từ mẫu nếu có, ngược lại là nội dung lưu trực tiếp
+    public String getTitle() {
+        return renderedTitle != null ? renderedTitle : title;
+    }
+    
+    public String getDescription() {
+        return renderedDescription != null ? renderedDescription : description;
+    }
+    
     @PrePersist
     protected void onCreate() {
-        createdAt = new Date();
+        // Giữ nguyên thời điểm phát sinh khi activity được ghi trễ (ví dụ từ outbox)
+        if (createdAt == null) {
+            createdAt = new Date();
+        }
     }
     
     // Constructor để tạo Activity dễ dàng
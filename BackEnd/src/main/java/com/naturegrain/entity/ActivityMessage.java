@@ -0,0 +1,59 @@
+package com.naturegrain.entity;
+
+/**
+ * Mẫu tiêu đề/mô tả của activity. Activity chỉ lưu id mẫu (trong bảng activity_template) cùng danh sách tham số,
+ * nội dung đầy đủ được dựng lại khi đọc. Tiêu đề và mô tả dùng chung danh sách tham số nên dùng chỉ số tường minh (%1$s).
+ * Chỉ được thêm mẫu mới hoặc sửa lỗi chính tả; đổi thứ tự tham số sẽ làm sai các dòng đã lưu.
+ */
+public enum ActivityMessage {
+    ORDER_CREATED("Đơn hàng mới được tạo",
+            "Đơn hàng #%1$d với tổng giá trị %2$,d VND được tạo bởi %3$s"),
+    ORDER_STATUS_UPDATED("Trạng thái đơn hàng được cập nhật",
+            "Đơn hàng #%1$d đã được cập nhật từ trạng thái thành '%2$s' bởi %3$s"),
+    ORDER_CANCELLED("Đơn hàng đã bị hủy",
+            "Đơn hàng #%1$d với giá trị %2$,d VND đã bị hủy bởi %3$s"),
+    PRODUCT_CREATED("Sản phẩm mới được tạo",
+            "Sản phẩm '%1$s' đã được tạo bởi %2$s"),
+    PRODUCT_UPDATED("Sản phẩm được cập nhật",
+            "Sản phẩm '%1$s' đã được cập nhật bởi %2$s"),
+    PRODUCT_DELETED("Sản phẩm đã bị xóa",
+            "Sản phẩm '%1$s' đã bị xóa bởi %2$s"),
+    USER_LOGIN("Người dùng đăng nhập",
+            "Người dùng %1$s đã đăng nhập vào hệ thống"),
+    USER_REGISTERED("Người dùng mới đăng ký",
+            "Người dùng %1$s đã đăng ký tài khoản mới"),
+    USER_PROFILE_UPDATED("Hồ sơ người dùng được cập nhật",
+            "Người dùng %1$s đã cập nhật hồ sơ"),
+    CATEGORY_CREATED("Danh mục mới được tạo",
+            "Danh mục '%1$s' đã được tạo bởi %2$s"),
+    CATEGORY_UPDATED("Danh mục được cập nhật",
+            "Danh mục '%1$s' đã được cập nhật bởi %2$s"),
+    CATEGORY_STATUS_CHANGED("Danh mục được %2$s",
+            "Danh mục '%1$s' đã được %2$s bởi %3$s"),
+    CATEGORY_DELETED("Danh mục được xóa",
+            "Danh mục '%1$s' đã được xóa bởi %2$s"),
+    USER_ROLE_CHANGED("Thay đổi quyền người dùng",
+            "Quyền của người dùng '%1$s' đã được thay đổi thành %2$s bởi %3$s"),
+    USER_STATUS_CHANGED("Thay đổi trạng thái người dùng",
+            "Tài khoản '%1$s' đã được %2$s bởi %3$s"),
+    USER_DELETED("Xóa người dùng",
+            "Tài khoản '%1$s' đã được xóa bởi %2$s"),
+    USER_CREATED_BY_ADMIN("Người dùng được tạo bởi admin",
+            "Admin %1$s đã tạo tài khoản mới cho %2$s");
+
+    private final String titleTemplate;
+    private final String descriptionTemplate;
+
+    ActivityMessage(String titleTemplate, String descriptionTemplate) {
+        this.titleTemplate = titleTemplate;
+        this.descriptionTemplate = descriptionTemplate;
+    }
+
+    public String getTitleTemplate() {
+        return titleTemplate;
+    }
+
+    public String getDescriptionTemplate() {
+        return descriptionTemplate;
+    }
+}
@@ -0,0 +1,33 @@
+package com.naturegrain.entity;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Từ điển mẫu nội dung activity: mỗi chuỗi mẫu chỉ được lưu một lần, activity tham chiếu bằng id
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "activity_template", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_activity_template_template", columnNames = "template")
+})
+public class ActivityTemplate {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Column(name = "template", length = 500, nullable = false)
+    private String template;
+}
@@ -0,0 +1,31 @@
+package com.naturegrain.entity;
+
+import javax.persistence.PostLoad;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+
+import com.naturegrain.service.ActivityTemplateService;
+
+/**
+ * Dựng tiêu đề/mô tả từ mẫu ngay khi Activity được nạp; chỉ ghi vào trường @Transient
+ * nên không làm entity bị đánh dấu thay đổi
+ */
+public class ActivityTemplateListener {
+
+    @Autowired
+    @Lazy
+    private ActivityTemplateService activityTemplateService;
+
+    @PostLoad
+    public void render(Activity activity) {
+        if (activity.getTitleTemplateId() != null && activity.getTitleTemplateId() != ActivityTemplateService.INLINE) {
+            activity.setRenderedTitle(activityTemplateService.render(activity.getTitleTemplateId(),
+                    activity.getParams(), activity.getTitle()));
+        }
+        if (activity.getDescriptionTemplateId() != null && activity.getDescriptionTemplateId() != ActivityTemplateService.INLINE) {
+            activity.setRenderedDescription(activityTemplateService.render(activity.getDescriptionTemplateId(),
+                    activity.getParams(), activity.getDescription()));
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.naturegrain.entity;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Số đơn hàng của từng user, tăng trong cùng transaction đặt hàng để đếm khách quay lại
+ * mà không phải gom nhóm toàn bộ bảng orders
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "customer_order_count", indexes = {
+    @Index(name = "idx_customer_order_count_count", columnList = "order_count")
+})
+public class CustomerOrderCount {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "order_count", nullable = false)
+    private long orderCount;
+}
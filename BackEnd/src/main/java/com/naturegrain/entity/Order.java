@@ -9,6 +9,7 @@ import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.OneToMany;
@@ -26,7 +27,14 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+    @Index(name = "idx_orders_create_at", columnList = "create_at"),
+    @Index(name = "idx_orders_user_id_id", columnList = "user_id, id"),
+    @Index(name = "idx_orders_status_create_at", columnList = "status, create_at"),
+    @Index(name = "idx_orders_total_price", columnList = "total_price"),
+    @Index(name = "idx_orders_email", columnList = "email"),
+    @Index(name = "idx_orders_phone", columnList = "phone")
+})
 public class Order {
     
     @Id
@@ -0,0 +1,47 @@
+package com.naturegrain.entity;
+
+import java.io.Serializable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Một bucket của histogram thời lượng (DurationSketch) cho một loại chuyển trạng thái.
+ * Mỗi bucket là một dòng riêng nên có thể tăng bằng upsert, không cần khóa và ghi lại cả histogram.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@IdClass(OrderStatusDurationBucket.Key.class)
+@Table(name = "order_status_duration_bucket")
+public class OrderStatusDurationBucket {
+
+    @Id
+    @Column(name = "stat_key", length = 50)
+    private String statKey;
+
+    @Id
+    @Column(name = "bucket_index")
+    private int bucketIndex;
+
+    @Column(name = "bucket_count", nullable = false)
+    private long bucketCount;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private String statKey;
+        private int bucketIndex;
+    }
+}
@@ -0,0 +1,53 @@
+package com.naturegrain.entity;
+
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Nhật ký chỉ ghi thêm (append-only) của mọi lần đổi trạng thái đơn hàng
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "order_status_history", indexes = {
+    @Index(name = "idx_order_status_history_order_changed_at", columnList = "order_id, changed_at")
+})
+public class OrderStatusHistory {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "order_id", nullable = false)
+    private long orderId;
+
+    // Trạng thái cũ được chép nguyên từ orders.status nên có cùng độ dài cột
+    @Column(name = "from_status")
+    private String fromStatus;
+
+    @Column(name = "to_status", length = 20, nullable = false)
+    private String toStatus;
+
+    @Column(name = "changed_at", nullable = false)
+    private Date changedAt;
+
+    // Số giây kể từ lần đổi trạng thái trước (hoặc từ lúc tạo đơn)
+    @Column(name = "duration_seconds")
+    private long durationSeconds;
+
+    // ID người thực hiện, null nếu không xác định
+    @Column(name = "changed_by")
+    private Long changedBy;
+}
@@ -0,0 +1,48 @@
+package com.naturegrain.entity;
+
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Thống kê cộng dồn cho một loại chuyển trạng thái, cập nhật bằng upsert sau khi ghi lịch sử.
+ * statKey có dạng "PENDING->PROCESSING" (thời gian từ trạng thái trước)
+ * hoặc "ORDER->COMPLETED" (thời gian tính từ lúc tạo đơn).
+ * Histogram phân vị nằm ở bảng order_status_duration_bucket, mỗi bucket một dòng.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "order_status_transition_stats")
+public class OrderStatusTransitionStats {
+
+    @Id
+    @Column(name = "stat_key", length = 50)
+    private String statKey;
+
+    @Column(name = "from_status", length = 20)
+    private String fromStatus;
+
+    @Column(name = "to_status", length = 20)
+    private String toStatus;
+
+    @Column(name = "transition_count")
+    private long count;
+
+    @Column(name = "sum_seconds")
+    private long sumSeconds;
+
+    @Column(name = "max_seconds")
+    private long maxSeconds;
+
+    @Column(name = "updated_at")
+    private Date updatedAt;
+}
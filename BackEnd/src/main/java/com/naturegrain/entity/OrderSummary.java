@@ -0,0 +1,64 @@
+package com.naturegrain.entity;
+
+import java.sql.Timestamp;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Bản ghi tóm tắt phi chuẩn hóa của một đơn hàng, chỉ chứa các cột bảng quản trị cần hiển thị.
+ * Được cập nhật trong cùng transaction với thao tác tạo đơn / đổi trạng thái / hủy đơn,
+ * nên danh sách đơn hàng phía admin không cần join tới orders, order_details hay user.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "order_summary", indexes = {
+    @Index(name = "idx_order_summary_create_at", columnList = "create_at"),
+    @Index(name = "idx_order_summary_status_create_at", columnList = "status, create_at"),
+    @Index(name = "idx_order_summary_total_price", columnList = "total_price"),
+    @Index(name = "idx_order_summary_email", columnList = "email"),
+    @Index(name = "idx_order_summary_phone", columnList = "phone")
+})
+public class OrderSummary {
+
+    // Trùng với orders.id, không tự sinh
+    @Id
+    @Column(name = "order_id")
+    private long orderId;
+
+    @Column(name = "customer_name")
+    private String customerName;
+
+    private String email;
+
+    private String phone;
+
+    @Column(name = "total_price")
+    private long totalPrice;
+
+    @Column(length = 20)
+    private String status;
+
+    // Tổng số lượng sản phẩm trong đơn
+    @Column(name = "item_count")
+    private int itemCount;
+
+    @Column(name = "create_at")
+    private Timestamp createAt;
+
+    public static OrderSummary from(Order order, int itemCount) {
+        String customerName = ((order.getFirstname() != null ? order.getFirstname() : "") + " "
+                + (order.getLastname() != null ? order.getLastname() : "")).trim();
+        return new OrderSummary(order.getId(), customerName, order.getEmail(), order.getPhone(),
+                order.getTotalPrice(), order.getStatus(), itemCount, order.getCreateAt());
+    }
+}
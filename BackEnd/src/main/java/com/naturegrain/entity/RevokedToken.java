@@ -0,0 +1,41 @@
+package com.naturegrain.entity;
+
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * JWT đã bị thu hồi trước hạn (đăng xuất), định danh bằng jti; dòng được xóa khi token hết hạn
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "revoked_token", indexes = {
+    @Index(name = "idx_revoked_token_revoked_at", columnList = "revoked_at"),
+    @Index(name = "idx_revoked_token_expires_at", columnList = "expires_at")
+})
+public class RevokedToken {
+
+    @Id
+    @Column(name = "jti", length = 36)
+    private String jti;
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "revoked_at", nullable = false)
+    private Date revokedAt;
+
+    // Hạn của token; sau thời điểm này token tự mất hiệu lực nên không cần giữ trong denylist
+    @Column(name = "expires_at", nullable = false)
+    private Date expiresAt;
+}
@@ -14,9 +14,12 @@ import javax.persistence.JoinColumn;
 import javax.persistence.Lob;
 import javax.persistence.ManyToMany;
 import javax.persistence.PrePersist;
+import javax.persistence.Index;
 import javax.persistence.Table;
 import java.util.Date;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -25,7 +28,10 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "user")
+@Table(name = "user", indexes = {
+    @Index(name = "idx_user_create_at", columnList = "create_at"),
+    @Index(name = "idx_user_token_version_at", columnList = "token_version_at")
+})
 public class User {
     
     @Id
@@ -81,6 +87,18 @@ public class User {
     @Column(name = "last_login")
     private Date lastLogin;
     
+    // Phiên bản token: JWT mang version nhỏ hơn giá trị này bị coi là đã thu hồi.
+    // Chỉ TokenVersionRegistry ghi (UPDATE trực tiếp), JPA không ghi đè khi lưu entity cũ
+    @JsonIgnore
+    @Column(name = "token_version", nullable = false, insertable = false, updatable = false,
+            columnDefinition = "INT NOT NULL DEFAULT 0")
+    private int tokenVersion;
+    
+    // Thời điểm tăng version gần nhất, dùng để nạp thay đổi theo kiểu tăng dần
+    @JsonIgnore
+    @Column(name = "token_version_at", insertable = false, updatable = false)
+    private Date tokenVersionAt;
+    
     // Getters and setters for active and lastLogin
     public boolean isActive() {
         return active;
@@ -0,0 +1,42 @@
+package com.naturegrain.entity;
+
+import java.time.LocalDate;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Số user đăng ký theo ngày và quốc gia, tăng giảm ngay khi đăng ký/xóa user.
+ * Quốc gia rỗng ('') khi user không khai báo.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "user_registration_daily", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_user_registration_daily", columnNames = { "reg_date", "country" })
+})
+public class UserRegistrationDaily {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "reg_date", nullable = false)
+    private LocalDate regDate;
+
+    @Column(name = "country", length = 100, nullable = false)
+    private String country;
+
+    @Column(name = "registrations", nullable = false)
+    private long registrations;
+}
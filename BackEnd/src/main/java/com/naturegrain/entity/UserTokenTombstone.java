@@ -0,0 +1,34 @@
+package com.naturegrain.entity;
+
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * User đã bị xóa mà token có thể còn hạn: không còn dòng user để tăng token_version nên việc thu hồi được ghi
+ * ở đây; dòng được xóa khi mọi token phát hành trước thời điểm xóa đã hết hạn
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "user_token_tombstone", indexes = {
+    @Index(name = "idx_user_token_tombstone_revoked_at", columnList = "revoked_at")
+})
+public class UserTokenTombstone {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "revoked_at", nullable = false)
+    private Date revokedAt;
+}
@@ -0,0 +1,24 @@
+package com.naturegrain.exception;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import com.naturegrain.model.response.MessageResponse;
+
+/**
+ * Xử lý chung các exception cần header riêng mà @ResponseStatus không đặt được
+ */
+@RestControllerAdvice
+public class GlobalExceptionHandler {
+
+    // Vách ngăn (đăng nhập, báo cáo...) đã đầy: 503 kèm Retry-After để client biết khi nào thử lại
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<?> handleOverloaded(ServiceOverloadedException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(new MessageResponse(e.getMessage()));
+    }
+}
@@ -0,0 +1,19 @@
+package com.naturegrain.model.request;
+
+import java.util.List;
+
+import javax.validation.constraints.NotEmpty;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CartQuoteRequest {
+
+    // Chỉ productId và quantity được sử dụng, giá luôn lấy từ phía server
+    @NotEmpty(message = "Giỏ hàng rỗng")
+    private List<CreateOrderDetailRequest> orderDetails;
+}
@@ -0,0 +1,37 @@
+package com.naturegrain.model.request;
+
+import java.time.LocalDate;
+
+import org.springframework.format.annotation.DateTimeFormat;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Bộ lọc cho danh sách đơn hàng phía admin, được bind trực tiếp từ query string
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderFilterRequest {
+
+    private String status;
+
+    // Ngày tạo từ (bao gồm), định dạng yyyy-MM-dd
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate from;
+
+    // Ngày tạo đến (bao gồm), định dạng yyyy-MM-dd
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate to;
+
+    // Tìm theo tiền tố email khách hàng
+    private String email;
+
+    // Tìm theo tiền tố số điện thoại khách hàng
+    private String phone;
+
+    // newest | oldest | highest_price | lowest_price
+    private String sortBy = "newest";
+}
@@ -0,0 +1,25 @@
+package com.naturegrain.model.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Bộ lọc cho danh sách user phía admin, được bind trực tiếp từ query string
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserFilterRequest {
+
+    // Tìm theo tiền tố username hoặc email
+    private String q;
+
+    // ROLE_ADMIN | ROLE_MODERATOR | ROLE_USER
+    private String role;
+
+    private Boolean active;
+
+    // newest | oldest | username | email | last_login
+    private String sortBy = "newest";
+}
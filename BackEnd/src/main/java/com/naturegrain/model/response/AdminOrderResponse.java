@@ -0,0 +1,65 @@
+package com.naturegrain.model.response;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Đơn hàng trong danh sách phân trang của admin: thông tin giao hàng và các dòng chi tiết,
+ * chỉ giữ id người đặt thay vì cả entity User
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AdminOrderResponse {
+
+    private long id;
+
+    private String firstname;
+
+    private String lastname;
+
+    private String country;
+
+    private String address;
+
+    private String town;
+
+    private String state;
+
+    private String postcode;
+
+    private String email;
+
+    private String phone;
+
+    private String note;
+
+    private long totalPrice;
+
+    private String status;
+
+    private Timestamp createAt;
+
+    private Long userId;
+
+    private List<Item> orderDetails = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Item {
+        private long id;
+        private Long productId;
+        private String name;
+        private long price;
+        private int quantity;
+        private long subTotal;
+        // Ảnh đầu tiên của sản phẩm, null nếu sản phẩm đã xóa hoặc không có ảnh
+        private String imageUrl;
+    }
+}
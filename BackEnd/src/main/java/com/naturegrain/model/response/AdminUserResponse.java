@@ -0,0 +1,37 @@
+package com.naturegrain.model.response;
+
+import java.util.Date;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Một dòng trong bảng quản lý user: chỉ các cột cần hiển thị, quyền đã gộp sẵn, không có avatar
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AdminUserResponse {
+
+    private Long id;
+
+    private String username;
+
+    private String email;
+
+    private String firstname;
+
+    private String lastname;
+
+    private String phone;
+
+    private boolean active;
+
+    private Date createAt;
+
+    private Date lastLogin;
+
+    private List<String> roles;
+}
@@ -0,0 +1,40 @@
+package com.naturegrain.model.response;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Báo giá giỏ hàng do server tính: giá từng dòng, tổng tiền và tình trạng tồn kho
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartQuoteResponse {
+
+    private List<Line> lines = new ArrayList<>();
+
+    private long totalPrice;
+
+    private int totalQuantity;
+
+    private boolean valid;
+
+    private List<String> errors = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Line {
+        private Long productId;
+        private String name;
+        private long price;
+        private int quantity;
+        private long subTotal;
+        private int availableQuantity;
+        private boolean available;
+    }
+}
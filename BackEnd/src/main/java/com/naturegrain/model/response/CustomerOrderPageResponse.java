@@ -0,0 +1,22 @@
+package com.naturegrain.model.response;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Một trang đơn hàng theo keyset: trang tiếp theo được lấy bằng before = nextBefore
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CustomerOrderPageResponse {
+
+    private List<CustomerOrderResponse> orders;
+
+    private Long nextBefore;
+
+    private boolean hasMore;
+}
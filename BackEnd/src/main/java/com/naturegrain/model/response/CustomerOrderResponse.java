@@ -0,0 +1,39 @@
+package com.naturegrain.model.response;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Thông tin gọn của một đơn hàng trong trang "Đơn hàng của tôi"
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CustomerOrderResponse {
+
+    private long id;
+
+    private String status;
+
+    private long totalPrice;
+
+    private Timestamp createAt;
+
+    private List<Item> items = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Item {
+        private Long productId;
+        private String name;
+        private long price;
+        private int quantity;
+        private long subTotal;
+    }
+}
@@ -5,6 +5,7 @@ import java.util.List;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -12,41 +13,47 @@ import org.springframework.stereotype.Repository;
 
 import com.naturegrain.entity.Activity;
 import com.naturegrain.entity.ActivityType;
-import com.naturegrain.entity.User;
 
 @Repository
 public interface ActivityRepository extends JpaRepository<Activity, Long> {
     
-    // Lấy danh sách hoạt động mới nhất
-    List<Activity> findTop20ByOrderByCreatedAtDesc();
+    // Projection cho feed: chỉ lấy user id (khóa ngoại) để nạp thông tin user theo lô
+    String FEED_SELECT = "SELECT a.id, a.activityType, a.title, a.description, a.user.id, a.entityType, " +
+            "a.entityId, a.metadata, a.createdAt, a.titleTemplateId, a.descriptionTemplateId, a.params FROM Activity a ";
     
-    // Lấy hoạt động theo phân trang
-    Page<Activity> findAllByOrderByCreatedAtDesc(Pageable pageable);
+    String FEED_ORDER = " ORDER BY a.createdAt DESC, a.id DESC";
+    
+    String FEED_BEFORE = "(a.createdAt < :createdAt OR (a.createdAt = :createdAt AND a.id < :id))";
+    
+    // Feed phân trang theo con trỏ (createdAt, id) - trả về Slice nên không cần COUNT(*)
+    @Query(FEED_SELECT + FEED_ORDER)
+    Slice<Object[]> findFeed(Pageable pageable);
     
-    // Lấy hoạt động theo user
-    List<Activity> findByUserOrderByCreatedAtDesc(User user);
+    @Query(FEED_SELECT + "WHERE " + FEED_BEFORE + FEED_ORDER)
+    Slice<Object[]> findFeedBefore(@Param("createdAt") Date createdAt, @Param("id") long id, Pageable pageable);
     
-    // Lấy hoạt động theo loại
-    List<Activity> findByActivityTypeOrderByCreatedAtDesc(ActivityType activityType);
+    @Query(FEED_SELECT + "WHERE a.activityType = :type" + FEED_ORDER)
+    Slice<Object[]> findFeedByType(@Param("type") ActivityType type, Pageable pageable);
     
-    // Lấy hoạt động trong khoảng thời gian
-    List<Activity> findByCreatedAtBetweenOrderByCreatedAtDesc(Date startDate, Date endDate);
+    @Query(FEED_SELECT + "WHERE a.activityType = :type AND " + FEED_BEFORE + FEED_ORDER)
+    Slice<Object[]> findFeedByTypeBefore(@Param("type") ActivityType type, @Param("createdAt") Date createdAt,
+                                         @Param("id") long id, Pageable pageable);
     
-    // Lấy hoạt động theo entity type và entity id
-    List<Activity> findByEntityTypeAndEntityIdOrderByCreatedAtDesc(String entityType, Long entityId);
+    // Lấy danh sách hoạt động mới nhất
+    List<Activity> findTop20ByOrderByCreatedAtDesc();
+    
+    // Lấy hoạt động theo phân trang
+    Page<Activity> findAllByOrderByCreatedAtDesc(Pageable pageable);
     
-    // Đếm số hoạt động trong ngày
-    @Query("SELECT COUNT(a) FROM Activity a WHERE DATE(a.createdAt) = DATE(CURRENT_DATE)")
-    long countTodayActivities();
+    // Lấy hoạt động trong khoảng thời gian (projection như feed)
+    @Query(FEED_SELECT + "WHERE a.createdAt BETWEEN :startDate AND :endDate" + FEED_ORDER)
+    List<Object[]> findFeedBetween(@Param("startDate") Date startDate, @Param("endDate") Date endDate);
     
-    // Đếm số hoạt động theo loại
-    long countByActivityType(ActivityType activityType);
+    // Lấy hoạt động theo entity type và entity id (projection như feed)
+    @Query(FEED_SELECT + "WHERE a.entityType = :entityType AND a.entityId = :entityId" + FEED_ORDER)
+    List<Object[]> findFeedByEntity(@Param("entityType") String entityType, @Param("entityId") Long entityId);
     
     // Lấy hoạt động gần đây nhất theo entity
     @Query("SELECT a FROM Activity a WHERE a.entityType = :entityType AND a.entityId = :entityId ORDER BY a.createdAt DESC")
     List<Activity> findRecentByEntity(@Param("entityType") String entityType, @Param("entityId") Long entityId, Pageable pageable);
-    
-    // Thống kê hoạt động theo ngày trong tuần qua
-    @Query("SELECT DATE(a.createdAt) as date, COUNT(a) as count FROM Activity a WHERE a.createdAt >= :startDate GROUP BY DATE(a.createdAt) ORDER BY DATE(a.createdAt)")
-    List<Object[]> getActivityStatsLastWeek(@Param("startDate") Date startDate);
 }
@@ -0,0 +1,43 @@
+package com.naturegrain.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.naturegrain.entity.CustomerOrderCount;
+
+@Repository
+public interface CustomerOrderCountRepository extends JpaRepository<CustomerOrderCount, Long> {
+
+    // Tăng số đơn của user, tạo dòng nếu đây là đơn đầu tiên
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO customer_order_count (user_id, order_count) VALUES (:userId, 1) " +
+           "ON DUPLICATE KEY UPDATE order_count = order_count + 1", nativeQuery = true)
+    int increment(@Param("userId") long userId);
+
+    @Query(value = "SELECT order_count FROM customer_order_count WHERE user_id = :userId", nativeQuery = true)
+    Long findOrderCount(@Param("userId") long userId);
+
+    @Query(value = "SELECT COUNT(*) FROM customer_order_count WHERE order_count > 1", nativeQuery = true)
+    long countRepeatCustomers();
+
+    // Bỏ số đơn của user bị xóa, chạy trong transaction xóa user
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM customer_order_count WHERE user_id = :userId", nativeQuery = true)
+    int deleteByUserId(@Param("userId") long userId);
+
+    @Modifying
+    @Query(value = "DELETE FROM customer_order_count", nativeQuery = true)
+    int deleteAllRows();
+
+    // Dựng lại số đơn theo user từ bảng orders
+    @Modifying
+    @Query(value = "INSERT INTO customer_order_count (user_id, order_count) " +
+           "SELECT o.user_id, COUNT(*) FROM orders o WHERE o.user_id IS NOT NULL GROUP BY o.user_id", nativeQuery = true)
+    int rebuildFromOrders();
+}
@@ -1,5 +1,6 @@
 package com.naturegrain.repository;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -20,6 +21,11 @@ public interface OrderDetailRepository extends JpaRepository<OrderDetail, Long>
        // Find order details by order id
        List<OrderDetail> findByOrderId(Long orderId);
 
+       // Projection chi tiết cho một trang đơn hàng: order_id, product_id, name, price, quantity
+       @Query("SELECT od.order.id, p.id, od.name, od.price, od.quantity FROM OrderDetail od " +
+                     "LEFT JOIN od.product p WHERE od.order.id IN :orderIds ORDER BY od.id")
+       List<Object[]> findLinesByOrderIdIn(@Param("orderIds") Collection<Long> orderIds);
+
        // Find top selling products
        @Query(value = "SELECT product_id, SUM(quantity) as total FROM order_details GROUP BY product_id ORDER BY total DESC LIMIT ?1", nativeQuery = true)
        List<Object[]> findTopSellingProducts(int limit);
@@ -62,11 +68,6 @@ public interface OrderDetailRepository extends JpaRepository<OrderDetail, Long>
                      "ORDER BY hour_of_day", nativeQuery = true)
        List<Object[]> findSalesByHourOfDay();
 
-       // Find average order processing time - using a default processing time since
-       // update_at isn't available
-       @Query(value = "SELECT 4.5", nativeQuery = true)
-       Double findAverageOrderProcessingTime();
-
        // Find product performance trends over time
        @Query(value = "SELECT p.id, p.name, DATE(o.create_at) as sale_date, SUM(od.quantity) as quantity_sold, " +
                      "SUM(od.price * od.quantity) as revenue " +
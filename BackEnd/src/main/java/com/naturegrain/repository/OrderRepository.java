@@ -1,8 +1,10 @@
 package com.naturegrain.repository;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -16,6 +18,15 @@ public interface OrderRepository extends JpaRepository<Order,Long> {
     @Query(value ="Select * from Orders where user_id = :id order by id desc",nativeQuery = true)
     List<Order> getOrderByUser(long id);
     
+    // Nạp đơn hàng kèm chi tiết cho một trang id (giai đoạn 2 của phân trang admin); user chỉ cần id nên không join
+    @Query("SELECT DISTINCT o FROM Order o LEFT JOIN FETCH o.orderDetails WHERE o.id IN :ids")
+    List<Order> findAllWithDetailsByIdIn(@Param("ids") Collection<Long> ids);
+    
+    // Keyset pagination cho "đơn hàng của tôi": trang đầu và các trang có id nhỏ hơn con trỏ
+    List<Order> findByUserIdOrderByIdDesc(long userId, Pageable pageable);
+
+    List<Order> findByUserIdAndIdLessThanOrderByIdDesc(long userId, long before, Pageable pageable);
+    
     // Find recent orders for dashboard
     List<Order> findTop5ByOrderByCreateAtDesc();
     
@@ -39,24 +50,6 @@ public interface OrderRepository extends JpaRepository<Order,Long> {
                                              @Param("startDate") Date startDate, 
                                              @Param("endDate") Date endDate);
     
-    // Find average time to process orders by status
-    @Query(value = "SELECT status, AVG(TIMESTAMPDIFF(HOUR, create_at, update_at)) as avg_hours " +
-           "FROM orders " +
-           "WHERE create_at IS NOT NULL AND update_at IS NOT NULL " +
-           "GROUP BY status", nativeQuery = true)
-    List<Object[]> findAverageProcessingTimeByStatus();
-    
-    // Find orders with high processing time
-    @Query(value = "SELECT o.id, o.total_price, o.status, " +
-           "TIMESTAMPDIFF(HOUR, o.create_at, o.update_at) as processing_hours, " +
-           "u.username as customer " +
-           "FROM orders o " +
-           "JOIN users u ON o.user_id = u.id " +
-           "WHERE o.create_at IS NOT NULL AND o.update_at IS NOT NULL " +
-           "AND TIMESTAMPDIFF(HOUR, o.create_at, o.update_at) > :hourThreshold " +
-           "ORDER BY processing_hours DESC", nativeQuery = true)
-    List<Object[]> findOrdersWithHighProcessingTime(@Param("hourThreshold") int hourThreshold);
-    
     // Find customer order value distribution
     @Query(value = "SELECT " +
            "CASE " +
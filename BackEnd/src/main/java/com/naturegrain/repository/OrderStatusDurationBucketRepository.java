@@ -0,0 +1,21 @@
+package com.naturegrain.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.naturegrain.entity.OrderStatusDurationBucket;
+
+@Repository
+public interface OrderStatusDurationBucketRepository
+        extends JpaRepository<OrderStatusDurationBucket, OrderStatusDurationBucket.Key> {
+
+    // Tăng một bucket, tạo dòng nếu chưa có
+    @Modifying
+    @Query(value = "INSERT INTO order_status_duration_bucket (stat_key, bucket_index, bucket_count) " +
+           "VALUES (:statKey, :bucketIndex, 1) " +
+           "ON DUPLICATE KEY UPDATE bucket_count = bucket_count + 1", nativeQuery = true)
+    int increment(@Param("statKey") String statKey, @Param("bucketIndex") int bucketIndex);
+}
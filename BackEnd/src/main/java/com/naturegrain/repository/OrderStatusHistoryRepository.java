@@ -0,0 +1,18 @@
+package com.naturegrain.repository;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.naturegrain.entity.OrderStatusHistory;
+
+@Repository
+public interface OrderStatusHistoryRepository extends JpaRepository<OrderStatusHistory, Long> {
+
+    // Lần đổi trạng thái gần nhất của đơn hàng
+    Optional<OrderStatusHistory> findTopByOrderIdOrderByChangedAtDesc(long orderId);
+
+    List<OrderStatusHistory> findByOrderIdOrderByChangedAtAsc(long orderId);
+}
@@ -0,0 +1,27 @@
+package com.naturegrain.repository;
+
+import java.util.Date;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.naturegrain.entity.OrderStatusTransitionStats;
+
+@Repository
+public interface OrderStatusTransitionStatsRepository extends JpaRepository<OrderStatusTransitionStats, String> {
+
+    // Cộng dồn một lần chuyển trạng thái trong một câu lệnh, tạo dòng nếu chưa có; khóa dòng chỉ trong câu lệnh này
+    @Modifying
+    @Query(value = "INSERT INTO order_status_transition_stats " +
+           "(stat_key, from_status, to_status, transition_count, sum_seconds, max_seconds, updated_at) " +
+           "VALUES (:statKey, :fromStatus, :toStatus, 1, :seconds, :seconds, :now) " +
+           "ON DUPLICATE KEY UPDATE transition_count = transition_count + 1, " +
+           "sum_seconds = sum_seconds + VALUES(sum_seconds), " +
+           "max_seconds = GREATEST(max_seconds, VALUES(max_seconds)), " +
+           "updated_at = VALUES(updated_at)", nativeQuery = true)
+    int accumulate(@Param("statKey") String statKey, @Param("fromStatus") String fromStatus,
+                   @Param("toStatus") String toStatus, @Param("seconds") long seconds, @Param("now") Date now);
+}
@@ -0,0 +1,30 @@
+package com.naturegrain.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.naturegrain.entity.OrderSummary;
+
+@Repository
+public interface OrderSummaryRepository extends JpaRepository<OrderSummary, Long>, JpaSpecificationExecutor<OrderSummary> {
+
+    // Cập nhật trạng thái trực tiếp, không cần nạp bản ghi
+    @Modifying
+    @Query("UPDATE OrderSummary s SET s.status = :status WHERE s.orderId = :orderId")
+    int updateStatus(@Param("orderId") long orderId, @Param("status") String status);
+
+    // Bổ sung bản tóm tắt cho các đơn hàng tạo trước khi có bảng order_summary
+    @Modifying
+    @Query(value = "INSERT INTO order_summary (order_id, customer_name, email, phone, total_price, status, item_count, create_at) " +
+           "SELECT o.id, TRIM(CONCAT(COALESCE(o.firstname, ''), ' ', COALESCE(o.lastname, ''))), o.email, o.phone, " +
+           "o.total_price, o.status, " +
+           "COALESCE((SELECT SUM(od.quantity) FROM order_details od WHERE od.order_id = o.id), 0), o.create_at " +
+           "FROM orders o " +
+           "LEFT JOIN order_summary s ON s.order_id = o.id " +
+           "WHERE s.order_id IS NULL", nativeQuery = true)
+    int backfillMissing();
+}
@@ -0,0 +1,52 @@
+package com.naturegrain.repository;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.naturegrain.entity.OutboxEvent;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // Khóa một lô sự kiện sẵn sàng xử lý, bỏ qua các dòng worker khác đang khóa (MariaDB 10.6+)
+    @Query(value = "SELECT * FROM outbox_event " +
+           "WHERE status IN ('PENDING', 'PROCESSING') AND available_at <= :now " +
+           "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<OutboxEvent> lockNextBatch(@Param("now") Date now, @Param("limit") int limit);
+
+    // Xóa persistence context để các entity vừa khóa không bị flush đè trạng thái khi commit
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE OutboxEvent e SET e.status = 'PROCESSING', e.attempts = e.attempts + 1, e.availableAt = :leaseUntil " +
+           "WHERE e.id IN :ids")
+    int markProcessing(@Param("ids") Collection<Long> ids, @Param("leaseUntil") Date leaseUntil);
+
+    // Chỉ worker còn giữ lease (PROCESSING với đúng hạn giữ đã nhận) mới được đổi trạng thái; trả 0 nếu lease đã mất
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.status = 'DONE', e.processedAt = :now, e.lastError = null " +
+           "WHERE e.id = :id AND e.status = 'PROCESSING' AND e.availableAt = :leaseUntil")
+    int markDone(@Param("id") long id, @Param("leaseUntil") Date leaseUntil, @Param("now") Date now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.status = :status, e.availableAt = :availableAt, e.lastError = :error " +
+           "WHERE e.id = :id AND e.status = 'PROCESSING' AND e.availableAt = :leaseUntil")
+    int markFailedAttempt(@Param("id") long id, @Param("leaseUntil") Date leaseUntil, @Param("status") String status,
+                          @Param("availableAt") Date availableAt, @Param("error") String error);
+
+    // Dọn các sự kiện đã xử lý xong theo từng lô nhỏ để tránh khóa bảng lâu
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM outbox_event WHERE status = 'DONE' AND processed_at < :before LIMIT :limit", nativeQuery = true)
+    int deleteProcessedBefore(@Param("before") Date before, @Param("limit") int limit);
+
+    long countByStatus(String status);
+}
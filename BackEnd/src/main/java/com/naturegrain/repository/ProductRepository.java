@@ -1,5 +1,6 @@
 package com.naturegrain.repository;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -33,4 +34,13 @@ public interface ProductRepository extends JpaRepository<Product,Long> {
     @Query(value= "Select p from Product p where p.name like %:keyword% order by id desc")
     List<Product> searchProduct(String keyword);
 
+    // Nạp các sản phẩm của một trang đơn hàng cùng ảnh và danh mục trong một truy vấn
+    @Query("SELECT DISTINCT p FROM Product p LEFT JOIN FETCH p.images LEFT JOIN FETCH p.category " +
+           "WHERE p.id IN (SELECT od.product.id FROM OrderDetail od WHERE od.order.id IN :orderIds)")
+    List<Product> findAllByOrderIdIn(@Param("orderIds") Collection<Long> orderIds);
+
+    // Projection gọn cho cache giá: id, name, price, quantity, category_id, category.enable
+    @Query("SELECT p.id, p.name, p.price, p.quantity, c.id, c.enable FROM Product p LEFT JOIN p.category c")
+    List<Object[]> findCatalogSnapshot();
+
 }
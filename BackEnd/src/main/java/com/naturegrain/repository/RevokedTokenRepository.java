@@ -0,0 +1,28 @@
+package com.naturegrain.repository;
+
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.naturegrain.entity.RevokedToken;
+
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, String> {
+
+    List<RevokedToken> findByExpiresAtAfter(Date now);
+
+    // Các token bị thu hồi từ mốc cho trước (kể cả trên instance khác)
+    List<RevokedToken> findByRevokedAtGreaterThanEqualAndExpiresAtAfter(Date since, Date now);
+
+    // Dọn các token đã hết hạn theo từng lô nhỏ
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM revoked_token WHERE expires_at < :before LIMIT :limit", nativeQuery = true)
+    int deleteExpiredBefore(@Param("before") Date before, @Param("limit") int limit);
+}
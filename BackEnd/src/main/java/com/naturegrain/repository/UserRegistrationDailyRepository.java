@@ -0,0 +1,36 @@
+package com.naturegrain.repository;
+
+import java.time.LocalDate;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.naturegrain.entity.UserRegistrationDaily;
+
+@Repository
+public interface UserRegistrationDailyRepository extends JpaRepository<UserRegistrationDaily, Long> {
+
+    // Cộng delta vào bộ đếm (ngày, quốc gia), tạo dòng nếu chưa có
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO user_registration_daily (reg_date, country, registrations) " +
+           "VALUES (:regDate, :country, :delta) " +
+           "ON DUPLICATE KEY UPDATE registrations = registrations + :delta", nativeQuery = true)
+    int adjust(@Param("regDate") LocalDate regDate, @Param("country") String country, @Param("delta") long delta);
+
+    @Modifying
+    @Query(value = "DELETE FROM user_registration_daily", nativeQuery = true)
+    int deleteAllRows();
+
+    // Dựng lại toàn bộ bộ đếm từ bảng user
+    @Modifying
+    @Query(value = "INSERT INTO user_registration_daily (reg_date, country, registrations) " +
+           "SELECT DATE(u.create_at), LEFT(COALESCE(TRIM(u.country), ''), 100), COUNT(*) FROM user u " +
+           "WHERE u.create_at IS NOT NULL " +
+           "GROUP BY DATE(u.create_at), LEFT(COALESCE(TRIM(u.country), ''), 100)", nativeQuery = true)
+    int rebuildFromUsers();
+}
@@ -1,5 +1,6 @@
 package com.naturegrain.repository;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
@@ -20,6 +21,10 @@ public interface UserRepository extends JpaRepository<User,Long> {
 
     Boolean existsByEmail(String email);
     
+    // Thông tin hiển thị (id, username, avatar) của nhiều user trong một truy vấn
+    @Query("SELECT u.id, u.username, u.avatar FROM User u WHERE u.id IN :ids")
+    List<Object[]> findDisplayInfoByIdIn(@Param("ids") Collection<Long> ids);
+    
     // Find users created after a specific date
     List<User> findByCreateAtAfter(Date date);
     
@@ -0,0 +1,113 @@
+package com.naturegrain.security;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.naturegrain.exception.ServiceOverloadedException;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Vách ngăn cho việc băm/kiểm tra mật khẩu BCrypt (~100 ms CPU mỗi lần): mọi phép băm chạy trên một pool
+ * cố định với hàng đợi có giới hạn, nên một đợt đăng nhập dồn dập chỉ chiếm tối đa số luồng của pool
+ * thay vì toàn bộ CPU mà các request catalog/checkout đang cần. Khi hàng đợi đầy, request bị từ chối ngay
+ * (503 + Retry-After) thay vì xếp hàng vô hạn trên luồng Tomcat.
+ */
+@Component
+@Slf4j
+public class AuthBulkhead {
+
+    // 0 = một nửa số core, để phần còn lại luôn dành cho request thường
+    @Value("${security.auth.threads:0}")
+    private int threads;
+
+    @Value("${security.auth.queue-capacity:32}")
+    private int queueCapacity;
+
+    @Value("${security.auth.timeout-ms:3000}")
+    private long timeoutMs;
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong timedOutCount = new AtomicLong();
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void start() {
+        int size = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread thread = new Thread(r, "auth-hash-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        executor.prestartAllCoreThreads();
+        log.info("Auth bulkhead started: {} threads, queue capacity {}", size, queueCapacity);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Chạy phép băm trên pool và chờ kết quả; ném ServiceOverloadedException khi pool đã đầy hoặc quá thời gian chờ
+     */
+    public <T> T call(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejectedCount.incrementAndGet();
+            throw new ServiceOverloadedException("Authentication service is busy, please try again later", 1);
+        }
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            timedOutCount.incrementAndGet();
+            throw new ServiceOverloadedException("Authentication service is busy, please try again later", 1);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ServiceOverloadedException("Authentication was interrupted", 1);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("threads", executor.getCorePoolSize());
+        stats.put("active", executor.getActiveCount());
+        stats.put("queued", executor.getQueue().size());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("completed", executor.getCompletedTaskCount());
+        stats.put("rejected", rejectedCount.get());
+        stats.put("timedOut", timedOutCount.get());
+        return stats;
+    }
+}
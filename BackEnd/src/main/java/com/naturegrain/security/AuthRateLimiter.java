@@ -0,0 +1,121 @@
+package com.naturegrain.security;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Token bucket theo IP và theo username cho đăng nhập/đăng ký, chặn sớm (429) trước khi tốn một phép BCrypt.
+ * Mỗi bucket chỉ là một AtomicLong lưu "thời điểm lý thuyết" của lượt kế tiếp (GCRA) và được cập nhật bằng CAS,
+ * nên không có khóa trên đường nóng. Bucket đã nạp đầy trở lại tương đương bucket mới và được dọn định kỳ.
+ */
+@Component
+public class AuthRateLimiter {
+
+    // Khóa dùng chung khi số bucket vượt giới hạn (ví dụ bị dò bằng rất nhiều IP)
+    private static final String OVERFLOW_KEY = "*";
+
+    @Value("${security.auth.ip.rate-per-minute:30}")
+    private int ipRatePerMinute;
+
+    @Value("${security.auth.ip.burst:10}")
+    private int ipBurst;
+
+    @Value("${security.auth.username.rate-per-minute:6}")
+    private int usernameRatePerMinute;
+
+    @Value("${security.auth.username.burst:5}")
+    private int usernameBurst;
+
+    @Value("${security.auth.register.rate-per-minute:10}")
+    private int registerRatePerMinute;
+
+    @Value("${security.auth.register.burst:5}")
+    private int registerBurst;
+
+    @Value("${security.auth.max-keys:100000}")
+    private int maxKeys;
+
+    private final Map<String, AtomicLong> ipBuckets = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> usernameBuckets = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> registerBuckets = new ConcurrentHashMap<>();
+
+    /**
+     * Số giây phải chờ trước khi được đăng nhập tiếp, 0 nếu được phép
+     */
+    public long tryLogin(String ip, String username) {
+        long wait = acquire(ipBuckets, ip, ipRatePerMinute, ipBurst);
+        if (wait > 0) {
+            return wait;
+        }
+        if (username == null || username.isBlank()) {
+            return 0;
+        }
+        return acquire(usernameBuckets, username.trim().toLowerCase(Locale.ROOT), usernameRatePerMinute, usernameBurst);
+    }
+
+    /**
+     * Số giây phải chờ trước khi được đăng ký tiếp từ IP này, 0 nếu được phép
+     */
+    public long tryRegister(String ip) {
+        return acquire(registerBuckets, ip, registerRatePerMinute, registerBurst);
+    }
+
+    @Scheduled(fixedDelayString = "${security.auth.purge-ms:60000}")
+    public void purge() {
+        long now = System.nanoTime();
+        purge(ipBuckets, now);
+        purge(usernameBuckets, now);
+        purge(registerBuckets, now);
+    }
+
+    public int size() {
+        return ipBuckets.size() + usernameBuckets.size() + registerBuckets.size();
+    }
+
+    private long acquire(Map<String, AtomicLong> buckets, String key, int ratePerMinute, int burst) {
+        if (ratePerMinute <= 0) {
+            return 0;
+        }
+        long interval = TimeUnit.MINUTES.toNanos(1) / ratePerMinute;
+        long tolerance = interval * Math.max(1, burst);
+        long now = System.nanoTime();
+        AtomicLong bucket = bucketFor(buckets, key == null ? OVERFLOW_KEY : key, now);
+
+        while (true) {
+            long current = bucket.get();
+            long next = Math.max(current, now) + interval;
+            long excess = next - now - tolerance;
+            if (excess > 0) {
+                return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(excess + TimeUnit.SECONDS.toNanos(1) - 1));
+            }
+            if (bucket.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    private AtomicLong bucketFor(Map<String, AtomicLong> buckets, String key, long now) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= maxKeys) {
+            purge(buckets, now);
+            if (buckets.size() >= maxKeys) {
+                key = OVERFLOW_KEY;
+            }
+        }
+        return buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+    }
+
+    private void purge(Map<String, AtomicLong> buckets, long now) {
+        buckets.entrySet().removeIf(e -> e.getValue().get() - now <= 0);
+    }
+}
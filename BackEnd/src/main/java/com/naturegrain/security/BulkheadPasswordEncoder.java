@@ -0,0 +1,33 @@
+package com.naturegrain.security;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * PasswordEncoder chuyển mọi phép băm/kiểm tra của encoder gốc sang AuthBulkhead.
+ * Dùng chung cho DaoAuthenticationProvider (đăng nhập) và các service đăng ký/đổi mật khẩu.
+ */
+public class BulkheadPasswordEncoder implements PasswordEncoder {
+
+    private final PasswordEncoder delegate;
+    private final AuthBulkhead bulkhead;
+
+    public BulkheadPasswordEncoder(PasswordEncoder delegate, AuthBulkhead bulkhead) {
+        this.delegate = delegate;
+        this.bulkhead = bulkhead;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return bulkhead.call(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return bulkhead.call(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+}
@@ -0,0 +1,67 @@
+package com.naturegrain.security;
+
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import com.naturegrain.entity.User;
+import com.naturegrain.repository.UserRepository;
+import com.naturegrain.security.service.UserDetailsImpl;
+
+/**
+ * Người dùng đang đăng nhập của request hiện tại. Id và username lấy thẳng từ principal mà AuthTokenFilter đã dựng
+ * (không truy vấn); entity User chỉ được nạp khi thật sự cần và được giữ trong request attribute,
+ * nên mỗi request truy vấn user nhiều nhất một lần. Ngoài request (luồng nền) thì nạp trực tiếp, không cache.
+ */
+@Component
+public class CurrentUserResolver {
+
+    private static final String USER_ATTRIBUTE = CurrentUserResolver.class.getName() + ".USER";
+
+    @Autowired
+    private UserRepository userRepository;
+
+    /**
+     * Principal của request hiện tại, null nếu chưa đăng nhập
+     */
+    public UserDetailsImpl getPrincipal() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()
+                && authentication.getPrincipal() instanceof UserDetailsImpl) {
+            return (UserDetailsImpl) authentication.getPrincipal();
+        }
+        return null;
+    }
+
+    public Long getUserId() {
+        UserDetailsImpl principal = getPrincipal();
+        return principal != null ? principal.getId() : null;
+    }
+
+    /**
+     * Entity User của người đang đăng nhập, nạp một lần cho cả request
+     */
+    public Optional<User> getUser() {
+        UserDetailsImpl principal = getPrincipal();
+        if (principal == null) {
+            return Optional.empty();
+        }
+
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return userRepository.findById(principal.getId());
+        }
+        Object cached = attributes.getAttribute(USER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (cached instanceof User && principal.getId().equals(((User) cached).getId())) {
+            return Optional.of((User) cached);
+        }
+        Optional<User> user = userRepository.findById(principal.getId());
+        user.ifPresent(u -> attributes.setAttribute(USER_ATTRIBUTE, u, RequestAttributes.SCOPE_REQUEST));
+        return user;
+    }
+}
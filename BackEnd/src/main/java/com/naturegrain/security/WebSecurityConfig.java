@@ -28,6 +28,9 @@ public class WebSecurityConfig {
     @Autowired
     private AuthEntryPointJwt unauthorizedHandler;
 
+    @Autowired
+    private AuthBulkhead authBulkhead;
+
     @Bean
     public AuthTokenFilter authenticationJwtTokenFilter() {
         return new AuthTokenFilter();
@@ -50,7 +53,8 @@ public class WebSecurityConfig {
 
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        // BCrypt chạy trên pool riêng của AuthBulkhead, không chiếm luồng Tomcat
+        return new BulkheadPasswordEncoder(new BCryptPasswordEncoder(), authBulkhead);
     }
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
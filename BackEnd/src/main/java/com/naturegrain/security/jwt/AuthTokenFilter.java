@@ -12,13 +12,17 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.web.filter.OncePerRequestFilter;
 
+import com.naturegrain.security.service.UserDetailsImpl;
+import com.naturegrain.security.service.TokenDenylist;
+import com.naturegrain.security.service.TokenVersionRegistry;
 import com.naturegrain.security.service.UserDetailsServiceImpl;
 
+import io.jsonwebtoken.Claims;
+
 
 
 public class AuthTokenFilter extends OncePerRequestFilter  {
@@ -29,6 +33,15 @@ public class AuthTokenFilter extends OncePerRequestFilter  {
     @Autowired
     private UserDetailsServiceImpl userDetailsService;
   
+    @Autowired
+    private PrincipalCache principalCache;
+  
+    @Autowired
+    private TokenVersionRegistry tokenVersionRegistry;
+  
+    @Autowired
+    private TokenDenylist tokenDenylist;
+  
     private static final Logger logger = LoggerFactory.getLogger(AuthTokenFilter.class);
   
     @Override
@@ -36,12 +49,9 @@ public class AuthTokenFilter extends OncePerRequestFilter  {
         throws ServletException, IOException {
       try {
         String jwt = parseJwt(request);
-        if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-          String username = jwtUtils.getUserNameFromJwtToken(jwt);
-  
-          try {
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-            
+        if (jwt != null) {
+          UserDetailsImpl userDetails = resolvePrincipal(jwt, response);
+          if (userDetails != null) {
             UsernamePasswordAuthenticationToken authentication = 
                 new UsernamePasswordAuthenticationToken(userDetails,
                                                         null,
@@ -50,12 +60,6 @@ public class AuthTokenFilter extends OncePerRequestFilter  {
             authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
     
             SecurityContextHolder.getContext().setAuthentication(authentication);
-          } catch (UsernameNotFoundException e) {
-            // User not found but JWT is valid - this can happen if user was deleted
-            // Just log it and don't set authentication - user will be treated as anonymous
-            logger.warn("JWT valid but user {} no longer exists in the database", username);
-            // Clear any invalid cookies
-            jwtUtils.cleanJwtCookie(response);
           }
         }
       } catch (Exception e) {
@@ -65,6 +69,49 @@ public class AuthTokenFilter extends OncePerRequestFilter  {
       filterChain.doFilter(request, response);
     }
   
+    // Principal từ cache; khi chưa có thì parse token đúng một lần và dựng principal từ claims (token tự chứa)
+    // hoặc nạp user (token dạng cũ). Kết quả, kể cả token hỏng, được cache; thu hồi (version của user và
+    // denylist jti) được kiểm tra ở mọi request
+    private UserDetailsImpl resolvePrincipal(String jwt, HttpServletResponse response) {
+      PrincipalCache.Entry cached = principalCache.get(jwt);
+      if (cached == null) {
+        cached = loadPrincipal(jwt, response);
+      }
+      UserDetailsImpl userDetails = cached.getPrincipal();
+  
+      if (userDetails != null && (tokenVersionRegistry.isRevoked(userDetails.getId(), userDetails.getTokenVersion())
+          || tokenDenylist.isRevoked(cached.getTokenId()))) {
+        logger.debug("Rejected revoked token of user {}", userDetails.getUsername());
+        principalCache.put(jwt, null, null);
+        jwtUtils.cleanJwtCookie(response);
+        return null;
+      }
+      return userDetails;
+    }
+  
+    private PrincipalCache.Entry loadPrincipal(String jwt, HttpServletResponse response) {
+      Claims claims = jwtUtils.parseClaims(jwt);
+      if (claims == null) {
+        return principalCache.put(jwt, null, null, null);
+      }
+  
+      UserDetailsImpl userDetails = jwtUtils.principalFromClaims(claims);
+      if (userDetails == null) {
+        try {
+          userDetails = (UserDetailsImpl) userDetailsService.loadUserByUsername(claims.getSubject());
+          // Token dạng cũ phát hành trước khi có version: coi là version 0 để lần thu hồi đầu tiên đã vô hiệu hóa nó
+          userDetails.setTokenVersion(0);
+        } catch (UsernameNotFoundException e) {
+          // User not found but JWT is valid - this can happen if user was deleted
+          // Just log it and don't set authentication - user will be treated as anonymous
+          logger.warn("JWT valid but user {} no longer exists in the database", claims.getSubject());
+          // Clear any invalid cookies
+          jwtUtils.cleanJwtCookie(response);
+        }
+      }
+      return principalCache.put(jwt, userDetails, claims.getId(), claims.getExpiration());
+    }
+  
     private String parseJwt(HttpServletRequest request) {
       String jwt = jwtUtils.getJwtFromCookies(request);
       return jwt;
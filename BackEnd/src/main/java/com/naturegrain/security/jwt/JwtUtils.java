@@ -1,7 +1,12 @@
 package com.naturegrain.security.jwt;
 
 import org.springframework.stereotype.Component;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
 import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletRequest;
@@ -12,6 +17,8 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseCookie;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.web.util.WebUtils;
 
 import com.naturegrain.security.service.UserDetailsImpl;
@@ -29,6 +36,14 @@ public class JwtUtils {
     @Value("${jwtCookieName}")
     private String jwtCookie;
   
+    // Token tự chứa id, quyền và version: filter dựng Authentication chỉ từ claims, không truy vấn user
+    @Value("${jwt.self-contained:true}")
+    private boolean selfContained;
+  
+    private static final String CLAIM_USER_ID = "uid";
+    private static final String CLAIM_ROLES = "roles";
+    private static final String CLAIM_VERSION = "ver";
+  
     public String getJwtFromCookies(HttpServletRequest request) {
       Cookie cookie = WebUtils.getCookie(request, jwtCookie);
       if (cookie != null) {
@@ -41,7 +56,9 @@ public class JwtUtils {
     }
   
     public ResponseCookie generateJwtCookie(UserDetailsImpl userPrincipal) {
-      String jwt = generateTokenFromUsername(userPrincipal.getUsername());
+      String jwt = selfContained
+          ? generateSelfContainedToken(userPrincipal)
+          : generateTokenFromUsername(userPrincipal.getUsername());
       
       // Tăng thời gian sống của cookie lên 7 ngày thay vì 1 ngày
       ResponseCookie cookie = ResponseCookie.from(jwtCookie, jwt)
@@ -81,9 +98,15 @@ public class JwtUtils {
     }
   
     public boolean validateJwtToken(String authToken) {
+      return parseClaims(authToken) != null;
+    }
+  
+    /**
+     * Kiểm tra chữ ký, hạn dùng và trả về claims trong một lần parse; null nếu token không hợp lệ
+     */
+    public Claims parseClaims(String authToken) {
       try {
-        Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(authToken);
-        return true;
+        return Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(authToken).getBody();
       } catch (SignatureException e) {
         logger.error("Invalid JWT signature: {}", e.getMessage());
       } catch (MalformedJwtException e) {
@@ -96,13 +119,50 @@ public class JwtUtils {
         logger.error("JWT claims string is empty: {}", e.getMessage());
       }
   
-      return false;
+      return null;
     }
     
+    public String generateSelfContainedToken(UserDetailsImpl userPrincipal) {
+      List<String> roles = userPrincipal.getAuthorities().stream()
+          .map(GrantedAuthority::getAuthority)
+          .collect(Collectors.toList());
+      return Jwts.builder()
+          .setSubject(userPrincipal.getUsername())
+          .claim(CLAIM_USER_ID, userPrincipal.getId())
+          .claim(CLAIM_ROLES, roles)
+          .claim(CLAIM_VERSION, userPrincipal.getTokenVersion())
+          .setId(UUID.randomUUID().toString())
+          .setIssuedAt(new Date())
+          .setExpiration(new Date((new Date()).getTime() + (7L * 24 * 60 * 60 * 1000))) // 7 ngày
+          .signWith(SignatureAlgorithm.HS512, jwtSecret)
+          .compact();
+    }
+  
+    /**
+     * Dựng principal chỉ từ claims; null nếu token thuộc dạng cũ (chỉ có username)
+     */
+    public UserDetailsImpl principalFromClaims(Claims claims) {
+      Object userId = claims.get(CLAIM_USER_ID);
+      if (!(userId instanceof Number)) {
+        return null;
+      }
+      List<GrantedAuthority> authorities = new ArrayList<>();
+      Object roles = claims.get(CLAIM_ROLES);
+      if (roles instanceof Collection) {
+        for (Object role : (Collection<?>) roles) {
+          authorities.add(new SimpleGrantedAuthority(String.valueOf(role)));
+        }
+      }
+      Object version = claims.get(CLAIM_VERSION);
+      return new UserDetailsImpl(((Number) userId).longValue(), claims.getSubject(), null, null, authorities,
+          version instanceof Number ? ((Number) version).intValue() : 0);
+    }
+  
     public String generateTokenFromUsername(String username) {   
       // Tăng thời gian sống của JWT token lên 7 ngày
       return Jwts.builder()
           .setSubject(username)
+          .setId(UUID.randomUUID().toString())
           .setIssuedAt(new Date())
           .setExpiration(new Date((new Date()).getTime() + (7L * 24 * 60 * 60 * 1000))) // 7 ngày
           .signWith(SignatureAlgorithm.HS512, jwtSecret)
@@ -0,0 +1,128 @@
+package com.naturegrain.security.jwt;
+
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.naturegrain.security.service.UserDetailsImpl;
+
+/**
+ * Cache principal đã xác thực theo chữ ký JWT, có giới hạn kích thước và thời gian sống (không vượt quá hạn của
+ * token). Request có token đã gặp chỉ tốn một lần tra bảng băm thay vì parse JWT và truy vấn user.
+ * Token không hợp lệ cũng được nhớ (principal null) để cookie cũ không bị parse lại ở mỗi request.
+ */
+@Component
+public class PrincipalCache {
+
+    @Value("${security.principal-cache.ttl-ms:60000}")
+    private long ttlMs;
+
+    @Value("${security.principal-cache.max-size:10000}")
+    private int maxSize;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public static final class Entry {
+        private final String token;
+        private final UserDetailsImpl principal;
+        private final String tokenId;
+        private final long expiresAt;
+
+        private Entry(String token, UserDetailsImpl principal, String tokenId, long expiresAt) {
+            this.token = token;
+            this.principal = principal;
+            this.tokenId = tokenId;
+            this.expiresAt = expiresAt;
+        }
+
+        // null nếu token đã biết là không hợp lệ
+        public UserDetailsImpl getPrincipal() {
+            return principal;
+        }
+
+        // jti của token, null với token phát hành trước khi có jti
+        public String getTokenId() {
+            return tokenId;
+        }
+    }
+
+    /**
+     * Entry còn hạn của token, null nếu chưa có trong cache
+     */
+    public Entry get(String token) {
+        String key = signatureOf(token);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        // Khóa là chữ ký nên vẫn so toàn bộ token để header/payload bị sửa không dùng lại được entry
+        if (!entry.token.equals(token)) {
+            return null;
+        }
+        if (entry.expiresAt <= System.currentTimeMillis()) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry;
+    }
+
+    public void put(String token, UserDetailsImpl principal, Date tokenExpiration) {
+        put(token, principal, null, tokenExpiration);
+    }
+
+    public Entry put(String token, UserDetailsImpl principal, String tokenId, Date tokenExpiration) {
+        long expiresAt = System.currentTimeMillis() + ttlMs;
+        if (tokenExpiration != null) {
+            expiresAt = Math.min(expiresAt, tokenExpiration.getTime());
+        }
+        if (entries.size() >= maxSize) {
+            evict();
+        }
+        Entry entry = new Entry(token, principal, tokenId, expiresAt);
+        entries.put(signatureOf(token), entry);
+        return entry;
+    }
+
+    public void invalidate(String token) {
+        entries.remove(signatureOf(token));
+    }
+
+    /**
+     * Bỏ mọi principal của user (đổi quyền, khóa/mở, xóa tài khoản)
+     */
+    public void invalidateUser(long userId) {
+        entries.values().removeIf(entry -> entry.principal != null && entry.principal.getId() == userId);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    @Scheduled(fixedDelayString = "${security.principal-cache.ttl-ms:60000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.expiresAt <= now);
+    }
+
+    private void evict() {
+        purgeExpired();
+        // Vẫn đầy: bỏ bớt khoảng 10% entry bất kỳ, chúng sẽ được nạp lại khi cần
+        int toRemove = entries.size() - maxSize + Math.max(1, maxSize / 10);
+        Iterator<String> keys = entries.keySet().iterator();
+        while (toRemove > 0 && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+            toRemove--;
+        }
+    }
+
+    private static String signatureOf(String token) {
+        int dot = token.lastIndexOf('.');
+        return dot >= 0 ? token.substring(dot + 1) : token;
+    }
+}
@@ -0,0 +1,189 @@
+package com.naturegrain.security.service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.naturegrain.entity.RevokedToken;
+import com.naturegrain.repository.RevokedTokenRepository;
+import com.naturegrain.service.BloomFilter;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Denylist jti của các JWT bị thu hồi trước hạn. Bản ghi được lưu trong bảng revoked_token và nạp vào
+ * các shard ConcurrentHashMap jti → hạn token, phía trước là một Bloom filter: trường hợp thường gặp
+ * (token chưa bị thu hồi) chỉ tốn một lần băm và vài phép đọc bit. Entry hết hạn được dọn định kỳ cùng
+ * với việc dựng lại filter; thu hồi từ instance khác được nạp tăng dần theo revoked_at.
+ */
+@Service
+@Slf4j
+public class TokenDenylist {
+
+    private static final int SHARD_COUNT = 16;
+
+    private static final int PURGE_CHUNK = 1000;
+
+    // Lùi mốc để không bỏ sót dòng commit muộn hoặc lệch đồng hồ giữa các instance
+    private static final long OVERLAP_MS = 60_000;
+
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @Value("${security.denylist.expected-size:10000}")
+    private long expectedSize;
+
+    @Value("${security.denylist.fpp:0.001}")
+    private double fpp;
+
+    private final List<Map<String, Long>> shards = new ArrayList<>(SHARD_COUNT);
+
+    // Chỉ dùng khi thêm jti và dựng lại filter; đường kiểm tra không khóa
+    private final Object filterLock = new Object();
+
+    private volatile BloomFilter filter;
+    private volatile Date watermark;
+
+    public TokenDenylist() {
+        for (int i = 0; i < SHARD_COUNT; i++) {
+            shards.add(new ConcurrentHashMap<>());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            Date now = new Date();
+            List<RevokedToken> tokens = revokedTokenRepository.findByExpiresAtAfter(now);
+            tokens.forEach(this::addLocal);
+            advanceWatermark(tokens, now);
+            rebuildFilter();
+            log.info("Token denylist loaded: {} revoked tokens", size());
+        } catch (Exception e) {
+            log.error("Failed to load token denylist: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${security.denylist.refresh-ms:5000}",
+               initialDelayString = "${security.denylist.refresh-ms:5000}")
+    public void refresh() {
+        Date since = watermark;
+        if (since == null) {
+            warmUp();
+            return;
+        }
+        try {
+            Date now = new Date();
+            List<RevokedToken> tokens = revokedTokenRepository.findByRevokedAtGreaterThanEqualAndExpiresAtAfter(
+                    new Date(since.getTime() - OVERLAP_MS), now);
+            tokens.forEach(this::addLocal);
+            advanceWatermark(tokens, since);
+        } catch (Exception e) {
+            log.error("Failed to refresh token denylist: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Dọn các token đã hết hạn khỏi database và bộ nhớ, rồi dựng lại filter cho gọn
+     */
+    @Scheduled(fixedDelayString = "${security.denylist.purge-ms:3600000}",
+               initialDelayString = "${security.denylist.purge-ms:3600000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        try {
+            int deleted;
+            do {
+                deleted = revokedTokenRepository.deleteExpiredBefore(new Date(now), PURGE_CHUNK);
+            } while (deleted == PURGE_CHUNK);
+        } catch (Exception e) {
+            log.error("Failed to purge expired revoked tokens: {}", e.getMessage());
+        }
+        for (Map<String, Long> shard : shards) {
+            shard.values().removeIf(expiresAt -> expiresAt <= now);
+        }
+        rebuildFilter();
+    }
+
+    /**
+     * Thu hồi một token cho tới khi nó hết hạn
+     */
+    public void revoke(String jti, Long userId, Date expiresAt) {
+        if (jti == null || expiresAt == null || expiresAt.getTime() <= System.currentTimeMillis()) {
+            return;
+        }
+        revokedTokenRepository.save(new RevokedToken(jti, userId, new Date(), expiresAt));
+        addLocal(jti, expiresAt.getTime());
+    }
+
+    public boolean isRevoked(String jti) {
+        if (jti == null) {
+            return false;
+        }
+        BloomFilter current = filter;
+        if (current != null && !current.mightContain(jti)) {
+            return false;
+        }
+        Long expiresAt = shardOf(jti).get(jti);
+        return expiresAt != null && expiresAt > System.currentTimeMillis();
+    }
+
+    public int size() {
+        int size = 0;
+        for (Map<String, Long> shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    private void addLocal(RevokedToken token) {
+        addLocal(token.getJti(), token.getExpiresAt().getTime());
+    }
+
+    private void addLocal(String jti, long expiresAt) {
+        synchronized (filterLock) {
+            shardOf(jti).put(jti, expiresAt);
+            BloomFilter current = filter;
+            if (current == null) {
+                return;
+            }
+            current.put(jti);
+            // Vượt sức chứa thiết kế thì tỉ lệ dương tính giả tăng nhanh: dựng filter lớn hơn
+            if (size() > current.getExpectedInsertions()) {
+                rebuildFilter();
+            }
+        }
+    }
+
+    private void rebuildFilter() {
+        synchronized (filterLock) {
+            BloomFilter rebuilt = new BloomFilter(Math.max(expectedSize, size() * 2L), fpp);
+            for (Map<String, Long> shard : shards) {
+                shard.keySet().forEach(rebuilt::put);
+            }
+            filter = rebuilt;
+        }
+    }
+
+    private void advanceWatermark(List<RevokedToken> tokens, Date fallback) {
+        Date latest = watermark != null ? watermark : fallback;
+        for (RevokedToken token : tokens) {
+            if (token.getRevokedAt() != null && token.getRevokedAt().after(latest)) {
+                latest = token.getRevokedAt();
+            }
+        }
+        watermark = latest;
+    }
+
+    private Map<String, Long> shardOf(String jti) {
+        return shards.get((jti.hashCode() & Integer.MAX_VALUE) % SHARD_COUNT);
+    }
+}
@@ -0,0 +1,163 @@
+package com.naturegrain.security.service;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.naturegrain.security.jwt.PrincipalCache;
+import com.naturegrain.service.AfterCommit;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bảng userId → version token nhỏ nhất còn hiệu lực, giữ trong bộ nhớ để AuthTokenFilter kiểm tra thu hồi
+ * mà không truy vấn. Chỉ chứa user đã từng bị thu hồi (version > 0); được nạp đầy đủ khi khởi động và cập nhật
+ * tăng dần theo cột token_version_at, nên thay đổi từ instance khác cũng có hiệu lực sau một chu kỳ làm mới.
+ * User đã bị xóa được ghi vào bảng user_token_tombstone và bị chặn vĩnh viễn (version Integer.MAX_VALUE)
+ * cho tới khi token cuối cùng của họ hết hạn.
+ */
+@Service
+@Slf4j
+public class TokenVersionRegistry {
+
+    private static final String LOAD_ALL_SQL = "SELECT id, token_version, token_version_at FROM user WHERE token_version > 0";
+
+    // Lùi mốc một khoảng để không bỏ sót dòng commit muộn hoặc lệch đồng hồ giữa các instance; áp dụng lại là vô hại
+    private static final long OVERLAP_MS = 60_000;
+
+    private static final String LOAD_CHANGED_SQL = "SELECT id, token_version, token_version_at FROM user WHERE token_version_at >= ?";
+
+    // Bảng tombstone chỉ chứa user bị xóa trong thời hạn token nên được nạp lại toàn bộ mỗi chu kỳ
+    private static final String LOAD_TOMBSTONES_SQL = "SELECT user_id FROM user_token_tombstone";
+
+    // Thời hạn JWT (JwtUtils) cộng một ngày dự phòng
+    private static final long TOMBSTONE_TTL_MS = 8L * 24 * 60 * 60 * 1000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PrincipalCache principalCache;
+
+    private final Map<Long, Integer> minVersions = new ConcurrentHashMap<>();
+
+    private volatile Timestamp watermark;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            apply(jdbcTemplate.queryForList(LOAD_ALL_SQL));
+            applyTombstones();
+            log.info("Token version registry loaded: {} users with revoked tokens", minVersions.size());
+        } catch (Exception e) {
+            log.error("Failed to load token versions: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${security.token-version.refresh-ms:5000}",
+               initialDelayString = "${security.token-version.refresh-ms:5000}")
+    public void refresh() {
+        Timestamp since = watermark;
+        if (since == null) {
+            warmUp();
+            return;
+        }
+        try {
+            apply(jdbcTemplate.queryForList(LOAD_CHANGED_SQL, new Timestamp(since.getTime() - OVERLAP_MS)));
+            applyTombstones();
+        } catch (Exception e) {
+            log.error("Failed to refresh token versions: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Token mang version nhỏ hơn version hiện hành của user thì đã bị thu hồi
+     */
+    public boolean isRevoked(long userId, int tokenVersion) {
+        Integer minVersion = minVersions.get(userId);
+        return minVersion != null && tokenVersion < minVersion;
+    }
+
+    public int currentVersion(long userId) {
+        return minVersions.getOrDefault(userId, 0);
+    }
+
+    /**
+     * Thu hồi mọi token đã phát hành cho user (đổi quyền, khóa tài khoản, đăng xuất)
+     */
+    public void revoke(long userId) {
+        jdbcTemplate.update("UPDATE user SET token_version = token_version + 1, token_version_at = ? WHERE id = ?",
+                new Timestamp(System.currentTimeMillis()), userId);
+        Integer version = jdbcTemplate.query("SELECT token_version FROM user WHERE id = ?",
+                rs -> rs.next() ? rs.getInt(1) : null, userId);
+        if (version != null) {
+            minVersions.merge(userId, version, Math::max);
+        }
+        principalCache.invalidateUser(userId);
+    }
+
+    /**
+     * User đã bị xóa: ghi tombstone (trong transaction xóa user) để mọi instance, kể cả sau khi khởi động lại,
+     * từ chối token của user này; bộ nhớ của instance hiện tại được cập nhật sau khi commit
+     */
+    public void revokeDeleted(long userId) {
+        jdbcTemplate.update("INSERT INTO user_token_tombstone (user_id, revoked_at) VALUES (?, ?) " +
+                "ON DUPLICATE KEY UPDATE revoked_at = VALUES(revoked_at)",
+                userId, new Timestamp(System.currentTimeMillis()));
+        AfterCommit.run(() -> {
+            minVersions.put(userId, Integer.MAX_VALUE);
+            principalCache.invalidateUser(userId);
+        });
+    }
+
+    /**
+     * Xóa tombstone đã quá thời hạn token; user tương ứng vẫn bị chặn trong bộ nhớ tới lần khởi động lại
+     */
+    @Scheduled(cron = "${security.token-version.purge-cron:0 30 3 * * *}")
+    public void purgeTombstones() {
+        try {
+            int purged = jdbcTemplate.update("DELETE FROM user_token_tombstone WHERE revoked_at < ?",
+                    new Timestamp(System.currentTimeMillis() - TOMBSTONE_TTL_MS));
+            if (purged > 0) {
+                log.info("Purged {} expired user token tombstones", purged);
+            }
+        } catch (Exception e) {
+            log.error("Failed to purge user token tombstones: {}", e.getMessage());
+        }
+    }
+
+    private void applyTombstones() {
+        for (Long userId : jdbcTemplate.queryForList(LOAD_TOMBSTONES_SQL, Long.class)) {
+            Integer previous = minVersions.put(userId, Integer.MAX_VALUE);
+            if (previous == null || previous != Integer.MAX_VALUE) {
+                principalCache.invalidateUser(userId);
+            }
+        }
+    }
+
+    private void apply(List<Map<String, Object>> rows) {
+        Timestamp latest = watermark;
+        for (Map<String, Object> row : rows) {
+            long userId = ((Number) row.get("id")).longValue();
+            int version = ((Number) row.get("token_version")).intValue();
+            Integer previous = minVersions.get(userId);
+            if (previous == null || version > previous) {
+                minVersions.merge(userId, version, Math::max);
+                principalCache.invalidateUser(userId);
+            }
+            Object changedAt = row.get("token_version_at");
+            if (changedAt instanceof Timestamp && (latest == null || ((Timestamp) changedAt).after(latest))) {
+                latest = (Timestamp) changedAt;
+            }
+        }
+        watermark = latest != null ? latest : new Timestamp(0);
+    }
+}
@@ -0,0 +1,219 @@
+package com.naturegrain.service;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.naturegrain.entity.ActivityMessage;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Chuyển các activity cũ (tiêu đề/mô tả lưu nguyên văn) sang dạng mẫu + tham số, theo từng lô id tăng dần.
+ * Mỗi dòng được so khớp với các mẫu trong ActivityMessage; dòng không khớp được đánh dấu inline (title_template_id = 0)
+ * để không bị quét lại. Chạy nền một lần sau khi ứng dụng khởi động.
+ */
+@Service
+@Slf4j
+public class ActivityCompactionService {
+
+    private static final Pattern SPECIFIER = Pattern.compile("%(\\d+)\\$(,?)([sd])");
+
+    private static final String UPDATE_SQL = "UPDATE activity SET title = ?, description = ?, " +
+            "title_template_id = ?, description_template_id = ?, params = ? WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ActivityTemplateService activityTemplateService;
+
+    @Value("${activity.compaction.enabled:true}")
+    private boolean enabled;
+
+    @Value("${activity.compaction.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${activity.compaction.pause-ms:100}")
+    private long pauseMs;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final List<CompiledMessage> messages = new ArrayList<>();
+
+    /**
+     * Mẫu đã biên dịch thành regex; nhóm bắt thứ i tương ứng chỉ số tham số indexes[i]
+     */
+    private static final class CompiledTemplate {
+        private final Pattern pattern;
+        private final List<Integer> indexes = new ArrayList<>();
+        private final List<Boolean> numeric = new ArrayList<>();
+
+        CompiledTemplate(String template) {
+            StringBuilder regex = new StringBuilder("^");
+            Matcher m = SPECIFIER.matcher(template);
+            int last = 0;
+            while (m.find()) {
+                regex.append(Pattern.quote(template.substring(last, m.start())));
+                boolean isNumber = "d".equals(m.group(3));
+                // Số có dấu phân cách hàng nghìn phụ thuộc locale nên chấp nhận mọi ký tự phân cách thường gặp
+                regex.append(isNumber ? (m.group(2).isEmpty() ? "(-?\\d+)" : "(-?[\\d.,\\u00A0 ]+)") : "(.*?)");
+                indexes.add(Integer.parseInt(m.group(1)) - 1);
+                numeric.add(isNumber);
+                last = m.end();
+            }
+            regex.append(Pattern.quote(template.substring(last))).append('$');
+            pattern = Pattern.compile(regex.toString(), Pattern.DOTALL);
+        }
+
+        // Ghi các tham số bắt được vào params; false nếu không khớp hoặc mâu thuẫn với tham số đã có
+        boolean extract(String text, Object[] params) {
+            if (text == null) {
+                return false;
+            }
+            Matcher m = pattern.matcher(text);
+            if (!m.matches()) {
+                return false;
+            }
+            for (int i = 0; i < indexes.size(); i++) {
+                String raw = m.group(i + 1);
+                Object value = raw;
+                if (numeric.get(i)) {
+                    try {
+                        value = Long.parseLong(raw.replaceAll("[^\\d-]", ""));
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                }
+                int index = indexes.get(i);
+                if (params[index] != null && !params[index].equals(value)) {
+                    return false;
+                }
+                params[index] = value;
+            }
+            return true;
+        }
+
+        int maxIndex() {
+            return indexes.stream().mapToInt(Integer::intValue).max().orElse(-1);
+        }
+    }
+
+    private static final class CompiledMessage {
+        private final ActivityMessage message;
+        private final CompiledTemplate title;
+        private final CompiledTemplate description;
+
+        CompiledMessage(ActivityMessage message) {
+            this.message = message;
+            this.title = new CompiledTemplate(message.getTitleTemplate());
+            this.description = new CompiledTemplate(message.getDescriptionTemplate());
+        }
+
+        Object[] match(String titleText, String descriptionText) {
+            Object[] params = new Object[Math.max(title.maxIndex(), description.maxIndex()) + 1];
+            if (!title.extract(titleText, params) || !description.extract(descriptionText, params)) {
+                return null;
+            }
+            return params;
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startOnReady() {
+        if (!enabled) {
+            return;
+        }
+        Thread thread = new Thread(this::migrate, "activity-compaction");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void migrate() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            if (messages.isEmpty()) {
+                for (ActivityMessage message : ActivityMessage.values()) {
+                    messages.add(new CompiledMessage(message));
+                }
+            }
+            long lastId = 0;
+            long compacted = 0;
+            long inline = 0;
+            while (true) {
+                List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                        "SELECT id, title, description FROM activity WHERE id > ? AND title_template_id IS NULL ORDER BY id LIMIT ?",
+                        lastId, chunkSize);
+                if (rows.isEmpty()) {
+                    break;
+                }
+                List<Object[]> updates = new ArrayList<>(rows.size());
+                for (Map<String, Object> row : rows) {
+                    long id = ((Number) row.get("id")).longValue();
+                    String title = (String) row.get("title");
+                    String description = (String) row.get("description");
+                    Object[] update = compact(id, title, description);
+                    if (update[2].equals(ActivityTemplateService.INLINE)) {
+                        inline++;
+                    } else {
+                        compacted++;
+                    }
+                    updates.add(update);
+                    lastId = id;
+                }
+                jdbcTemplate.batchUpdate(UPDATE_SQL, updates, new int[] {
+                        Types.VARCHAR, Types.VARCHAR, Types.INTEGER, Types.INTEGER, Types.VARCHAR, Types.BIGINT });
+                if (rows.size() < chunkSize) {
+                    break;
+                }
+                Thread.sleep(pauseMs);
+            }
+            if (compacted + inline > 0) {
+                log.info("Activity compaction finished: {} rows converted to templates, {} kept inline", compacted, inline);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Activity compaction failed: {}", e.getMessage());
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private Object[] compact(long id, String title, String description) {
+        for (CompiledMessage compiled : messages) {
+            Object[] params = compiled.match(title, description);
+            // Chỉ chuyển đổi khi dựng lại từ mẫu cho đúng nguyên văn nội dung cũ
+            if (params != null && renders(compiled.message.getTitleTemplate(), params, title)
+                    && renders(compiled.message.getDescriptionTemplate(), params, description)) {
+                return new Object[] {
+                        "", null,
+                        activityTemplateService.idOf(compiled.message.getTitleTemplate()),
+                        activityTemplateService.idOf(compiled.message.getDescriptionTemplate()),
+                        activityTemplateService.encodeParams(params),
+                        id };
+            }
+        }
+        return new Object[] { title, description, ActivityTemplateService.INLINE, null, null, id };
+    }
+
+    private boolean renders(String template, Object[] params, String expected) {
+        try {
+            return String.format(template, params).equals(expected);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
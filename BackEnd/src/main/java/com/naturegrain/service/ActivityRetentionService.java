@@ -0,0 +1,228 @@
+package com.naturegrain.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.text.SimpleDateFormat;
+import java.time.Duration;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.naturegrain.service.cold.ActivitySegmentStore;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Dọn bảng activity theo từng lô nhỏ: mỗi lô là một câu DELETE ... LIMIT n riêng (transaction ngắn, khóa ít dòng),
+ * nghỉ pauseMs giữa các lô để không chiếm I/O của các request. Khi bật archive, mỗi lô được ghi ra file
+ * JSON Lines nén gzip trước khi xóa. Chỉ một lượt dọn chạy tại một thời điểm; tiến độ xem qua getStatus().
+ */
+@Service
+@Slf4j
+public class ActivityRetentionService {
+
+    private static final String SELECT_CHUNK_SQL = "SELECT id, activity_type, title, description, user_id, " +
+            "entity_type, entity_id, metadata, created_at, title_template_id, description_template_id, params FROM activity WHERE created_at < ? ORDER BY created_at, id LIMIT ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ActivityStatsService activityStatsService;
+
+    @Autowired
+    private ActivitySegmentStore activitySegmentStore;
+
+    @Value("${activity.retention.days:90}")
+    private int defaultDaysToKeep;
+
+    @Value("${activity.retention.chunk-size:2000}")
+    private int chunkSize;
+
+    @Value("${activity.retention.pause-ms:200}")
+    private long pauseMs;
+
+    @Value("${activity.retention.archive-enabled:false}")
+    private boolean archiveEnabled;
+
+    @Value("${activity.retention.archive-dir:./archive/activity}")
+    private String archiveDir;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "activity-retention");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private volatile boolean stopRequested;
+
+    // Tiến độ của lượt dọn gần nhất
+    private volatile Date startedAt;
+    private volatile Date finishedAt;
+    private volatile Date cutoff;
+    private volatile long deleted;
+    private volatile long archived;
+    private volatile int chunks;
+    private volatile String archiveFile;
+    private volatile String lastError;
+
+    @Scheduled(cron = "${activity.retention.cron:0 0 4 * * *}")
+    public void scheduledCleanup() {
+        start(defaultDaysToKeep);
+    }
+
+    /**
+     * Bắt đầu dọn bất đồng bộ các activity cũ hơn daysToKeep ngày; trả về false nếu đang có lượt dọn khác chạy
+     */
+    public boolean start(int daysToKeep) {
+        if (daysToKeep < 1) {
+            throw new IllegalArgumentException("daysToKeep must be at least 1");
+        }
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        Date cutoffDate = new Date(System.currentTimeMillis() - Duration.ofDays(daysToKeep).toMillis());
+        resetProgress(cutoffDate);
+        executor.submit(() -> {
+            try {
+                run(cutoffDate);
+            } catch (Exception e) {
+                lastError = e.getMessage();
+                log.error("Activity retention run failed after deleting {} rows: {}", deleted, e.getMessage());
+            } finally {
+                // Bộ đếm thống kê được nạp lại sau khi xóa
+                activityStatsService.reload();
+                finishedAt = new Date();
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("running", running.get());
+        status.put("startedAt", startedAt);
+        status.put("finishedAt", finishedAt);
+        status.put("cutoff", cutoff);
+        status.put("deleted", deleted);
+        status.put("archived", archived);
+        status.put("chunks", chunks);
+        status.put("archiveFile", archiveFile);
+        status.put("lastError", lastError);
+        return status;
+    }
+
+    @PreDestroy
+    public void stop() {
+        // Lượt dọn dừng sau lô hiện tại; các lô đã xóa đều đã commit nên có thể chạy tiếp lần sau
+        stopRequested = true;
+        executor.shutdownNow();
+    }
+
+    private void resetProgress(Date cutoffDate) {
+        startedAt = new Date();
+        finishedAt = null;
+        cutoff = cutoffDate;
+        deleted = 0;
+        archived = 0;
+        chunks = 0;
+        archiveFile = null;
+        lastError = null;
+    }
+
+    private void run(Date cutoffDate) throws IOException, InterruptedException {
+        log.info("Activity retention started: deleting rows older than {}", cutoffDate);
+        Timestamp cutoffTs = new Timestamp(cutoffDate.getTime());
+        if (archiveEnabled) {
+            runWithArchive(cutoffTs);
+        } else {
+            int affected;
+            do {
+                affected = jdbcTemplate.update("DELETE FROM activity WHERE created_at < ? LIMIT ?", cutoffTs, chunkSize);
+                recordChunk(affected);
+            } while (affected == chunkSize && pause());
+        }
+        // Segment tầng lạnh hết hạn được xóa nguyên file
+        deleted += activitySegmentStore.dropSegmentsBefore(cutoffDate);
+        log.info("Activity retention finished: {} rows deleted in {} chunks, {} archived", deleted, chunks, archived);
+    }
+
+    private void runWithArchive(Timestamp cutoffTs) throws IOException, InterruptedException {
+        Path dir = Paths.get(archiveDir);
+        Files.createDirectories(dir);
+        String name = "activity-before-" + new SimpleDateFormat("yyyyMMdd").format(cutoffTs)
+                + "-" + System.currentTimeMillis() + ".jsonl.gz";
+        Path file = dir.resolve(name);
+        archiveFile = file.toAbsolutePath().toString();
+
+        // syncFlush để mỗi lô nằm trọn trên đĩa trước khi các dòng tương ứng bị xóa
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(file), 64 * 1024, true), StandardCharsets.UTF_8))) {
+            List<Map<String, Object>> rows;
+            do {
+                rows = jdbcTemplate.queryForList(SELECT_CHUNK_SQL, cutoffTs, chunkSize);
+                if (rows.isEmpty()) {
+                    break;
+                }
+                for (Map<String, Object> row : rows) {
+                    writer.write(objectMapper.writeValueAsString(row));
+                    writer.write('\n');
+                }
+                writer.flush();
+                archived += rows.size();
+
+                List<Long> ids = rows.stream()
+                        .map(row -> ((Number) row.get("id")).longValue())
+                        .collect(Collectors.toList());
+                String placeholders = ids.stream().map(id -> "?").collect(Collectors.joining(","));
+                int affected = jdbcTemplate.update("DELETE FROM activity WHERE id IN (" + placeholders + ")", ids.toArray());
+                recordChunk(affected);
+            } while (rows.size() == chunkSize && pause());
+        }
+    }
+
+    private void recordChunk(int affected) {
+        deleted += affected;
+        chunks++;
+        if (chunks % 50 == 0) {
+            log.info("Activity retention progress: {} rows deleted in {} chunks", deleted, chunks);
+        }
+    }
+
+    private boolean pause() throws InterruptedException {
+        if (stopRequested) {
+            return false;
+        }
+        if (pauseMs > 0) {
+            Thread.sleep(pauseMs);
+        }
+        return true;
+    }
+}
@@ -1,49 +1,125 @@
 package com.naturegrain.service;
 
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.naturegrain.dto.response.ActivityResponse;
 import com.naturegrain.entity.Activity;
+import com.naturegrain.entity.ActivityMessage;
 import com.naturegrain.entity.ActivityType;
 import com.naturegrain.entity.User;
 import com.naturegrain.repository.ActivityRepository;
 import com.naturegrain.repository.UserRepository;
-import com.naturegrain.repository.UserRepository;
+import com.naturegrain.service.cold.ActivityRecord;
+import com.naturegrain.service.cold.ActivitySegmentStore;
+import com.naturegrain.service.outbox.ActivityEvent;
+import com.naturegrain.service.outbox.ActivityOutboxHandler;
+import com.naturegrain.service.outbox.OutboxService;
 
 @Service
 @Transactional
 public class ActivityService {
     
+    private static final int MAX_FEED_SIZE = 100;
+    
     @Autowired
     private ActivityRepository activityRepository;
     
     @Autowired
     private UserRepository userRepository;
     
-    // Tạo hoạt động mới
-    public Activity createActivity(ActivityType activityType, String title, String description, User user) {
-        Activity activity = new Activity(activityType, title, description, user);
-        return activityRepository.save(activity);
+    @Autowired
+    private OutboxService outboxService;
+    
+    @Autowired
+    private ActivityWriteBuffer activityWriteBuffer;
+    
+    @Autowired
+    private ActivityStatsService activityStatsService;
+    
+    @Autowired
+    private ActivityTemplateService activityTemplateService;
+    
+    @Autowired
+    private ActivitySegmentStore activitySegmentStore;
+    
+    // Tạo hoạt động mới - ghi bất đồng bộ qua ActivityWriteBuffer, không mở transaction trên luồng request
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public void createActivity(ActivityType activityType, String title, String description, User user) {
+        createActivity(activityType, title, description, user, null, null, null);
+    }
+    
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public void createActivity(ActivityType activityType, String title, String description, User user, String entityType, Long entityId) {
+        createActivity(activityType, title, description, user, entityType, entityId, null);
     }
     
-    public Activity createActivity(ActivityType activityType, String title, String description, User user, String entityType, Long entityId) {
-        Activity activity = new Activity(activityType, title, description, user, entityType, entityId);
-        return activityRepository.save(activity);
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public void createActivity(ActivityType activityType, String title, String description, User user, String entityType, Long entityId, String metadata) {
+        Long userId = user != null ? user.getId() : null;
+        activityWriteBuffer.offer(new ActivityEvent(activityType, title, description, userId, entityType, entityId, metadata, new Date(), null, null));
     }
     
-    public Activity createActivity(ActivityType activityType, String title, String description, User user, String entityType, Long entityId, String metadata) {
-        Activity activity = new Activity(activityType, title, description, user, entityType, entityId);
-        activity.setMetadata(metadata);
-        return activityRepository.save(activity);
+    // Tạo hoạt động dạng mẫu: chỉ lưu id mẫu và tham số, nội dung được dựng khi đọc
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public void createActivity(ActivityType activityType, ActivityMessage message, User user, String entityType, Long entityId, Object... params) {
+        createActivity(activityType, message, user != null ? user.getId() : null, entityType, entityId, params);
+    }
+    
+    // Chỉ cần id người thực hiện, không phải nạp entity User
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public void createActivity(ActivityType activityType, ActivityMessage message, Long userId, String entityType, Long entityId, Object... params) {
+        activityWriteBuffer.offer(new ActivityEvent(activityType, null, null, userId, entityType, entityId, null, new Date(),
+                message, activityTemplateService.encodeParams(params)));
+    }
+    
+    // Ghi activity từ sự kiện outbox - ghi trong transaction đánh dấu sự kiện xong của worker
+    public Activity saveActivity(ActivityEvent event) {
+        User user = event.getUserId() != null ? userRepository.getReferenceById(event.getUserId()) : null;
+        Activity activity = new Activity(event.getActivityType(), event.getTitle(), event.getDescription(), user,
+                event.getEntityType(), event.getEntityId());
+        activity.setMetadata(event.getMetadata());
+        if (event.getMessage() != null) {
+            activity.setTitle("");
+            activity.setDescription(null);
+            activity.setTitleTemplateId(activityTemplateService.idOf(event.getMessage().getTitleTemplate()));
+            activity.setDescriptionTemplateId(activityTemplateService.idOf(event.getMessage().getDescriptionTemplate()));
+            activity.setParams(event.getParams());
+        } else {
+            activity.setTitleTemplateId(ActivityTemplateService.INLINE);
+        }
+        if (event.getOccurredAt() != null) {
+            activity.setCreatedAt(event.getOccurredAt());
+        }
+        Activity saved = activityRepository.save(activity);
+        AfterCommit.run(() -> activityStatsService.record(saved.getActivityType(), saved.getCreatedAt()));
+        return saved;
+    }
+    
+    /**
+     * Đưa activity vào outbox trong transaction nghiệp vụ hiện tại; activity chỉ được ghi
+     * (bởi worker outbox) khi nghiệp vụ commit thành công
+     */
+    public void publishActivity(ActivityType activityType, ActivityMessage message, Long userId, String entityType, Long entityId, Object... params) {
+        outboxService.enqueue(ActivityOutboxHandler.EVENT_TYPE,
+                new ActivityEvent(activityType, null, null, userId, entityType, entityId, null, new Date(),
+                        message, activityTemplateService.encodeParams(params)));
     }
     
     // Lấy danh sách hoạt động gần đây
@@ -56,29 +132,139 @@ public class ActivityService {
         return activityRepository.findAllByOrderByCreatedAtDesc(pageable).getContent();
     }
     
-    // Lấy hoạt động theo phân trang
-    public Page<Activity> getActivitiesPaginated(int page, int size) {
-        Pageable pageable = PageRequest.of(page, size);
-        return activityRepository.findAllByOrderByCreatedAtDesc(pageable);
+    /**
+     * Feed hoạt động phân trang theo con trỏ (createdAt, id), mới nhất trước.
+     * Trang đầu khi before == null; khi database (tầng nóng) hết dòng trước con trỏ, trang được nối tiếp
+     * bằng tầng lạnh (segment) nên con trỏ đi xuyên qua cả hai tầng. User của cả trang được nạp bằng một truy vấn.
+     */
+    @Transactional(readOnly = true)
+    public Slice<ActivityResponse> getFeed(ActivityType type, Date before, Long beforeId, int size) {
+        return loadFeed(type, before, beforeId, PageRequest.of(0, feedSize(size)));
+    }
+    
+    /**
+     * Feed theo số trang cho client cũ: cùng projection và nạp user theo lô như getFeed, trả về Slice nên không COUNT(*).
+     * Offset chỉ áp dụng trên tầng nóng; trang nằm hẳn trong tầng lạnh phải đi tiếp bằng con trỏ của getFeed.
+     */
+    @Transactional(readOnly = true)
+    public Slice<ActivityResponse> getFeedPage(ActivityType type, int page, int size) {
+        return loadFeed(type, null, null, PageRequest.of(Math.max(page, 0), feedSize(size)));
+    }
+    
+    private int feedSize(int size) {
+        return Math.max(1, Math.min(size, MAX_FEED_SIZE));
+    }
+    
+    private Slice<ActivityResponse> loadFeed(ActivityType type, Date before, Long beforeId, Pageable pageable) {
+        Slice<Object[]> rows;
+        if (before == null) {
+            rows = type == null
+                    ? activityRepository.findFeed(pageable)
+                    : activityRepository.findFeedByType(type, pageable);
+        } else {
+            long id = beforeId != null ? beforeId : Long.MAX_VALUE;
+            rows = type == null
+                    ? activityRepository.findFeedBefore(before, id, pageable)
+                    : activityRepository.findFeedByTypeBefore(type, before, id, pageable);
+        }
+        
+        List<ActivityRecord> records = new ArrayList<>(pageable.getPageSize());
+        for (Object[] row : rows) {
+            records.add(toRecord(row));
+        }
+        
+        boolean hasNext = rows.hasNext();
+        int missing = pageable.getPageSize() - records.size();
+        // Tầng nóng hết dòng: luôn dò tầng lạnh (kể cả khi trang đã đủ) để biết còn trang sau hay không.
+        // Trang theo offset rỗng nghĩa là offset đã vượt quá tầng nóng, không thể định vị trong tầng lạnh
+        if (!hasNext && (pageable.getPageNumber() == 0 || !records.isEmpty())) {
+            long cursorCreatedAt = before != null ? before.getTime() : Long.MAX_VALUE;
+            long cursorId = beforeId != null ? beforeId : Long.MAX_VALUE;
+            if (!records.isEmpty()) {
+                ActivityRecord last = records.get(records.size() - 1);
+                cursorCreatedAt = last.getCreatedAt();
+                cursorId = last.getId();
+            }
+            List<ActivityRecord> cold = activitySegmentStore.findBefore(type, cursorCreatedAt, cursorId, Long.MIN_VALUE, missing + 1);
+            hasNext = cold.size() > missing;
+            records.addAll(cold.subList(0, Math.min(missing, cold.size())));
+        }
+        return new SliceImpl<>(toResponses(records), pageable, hasNext);
     }
     
-    // Lấy hoạt động theo user
-    public List<Activity> getActivitiesByUser(User user) {
-        return activityRepository.findByUserOrderByCreatedAtDesc(user);
+    // Một dòng projection FEED_SELECT của tầng nóng
+    private ActivityRecord toRecord(Object[] row) {
+        return new ActivityRecord(
+            ((Number) row[0]).longValue(),
+            ((Date) row[8]).getTime(),
+            (ActivityType) row[1],
+            row[4] != null ? ((Number) row[4]).longValue() : null,
+            (String) row[5],
+            row[6] != null ? ((Number) row[6]).longValue() : null,
+            (Integer) row[9],
+            (Integer) row[10],
+            (String) row[2],
+            (String) row[3],
+            (String) row[11],
+            (String) row[7]
+        );
     }
     
-    // Lấy hoạt động theo loại
-    public List<Activity> getActivitiesByType(ActivityType activityType) {
-        return activityRepository.findByActivityTypeOrderByCreatedAtDesc(activityType);
+    private List<ActivityResponse> toResponses(List<ActivityRecord> records) {
+        Set<Long> userIds = new HashSet<>();
+        for (ActivityRecord record : records) {
+            if (record.getUserId() != null) {
+                userIds.add(record.getUserId());
+            }
+        }
+        Map<Long, Object[]> users = new HashMap<>();
+        if (!userIds.isEmpty()) {
+            for (Object[] user : userRepository.findDisplayInfoByIdIn(userIds)) {
+                users.put(((Number) user[0]).longValue(), user);
+            }
+        }
+        
+        List<ActivityResponse> content = new ArrayList<>(records.size());
+        for (ActivityRecord record : records) {
+            Object[] user = record.getUserId() != null ? users.get(record.getUserId()) : null;
+            content.add(new ActivityResponse(
+                record.getId(),
+                record.getActivityType(),
+                activityTemplateService.render(record.getTitleTemplateId(), record.getParams(), record.getTitle()),
+                activityTemplateService.render(record.getDescriptionTemplateId(), record.getParams(), record.getDescription()),
+                user != null ? (String) user[1] : "Hệ thống",
+                user != null ? (String) user[2] : null,
+                record.getEntityType(),
+                record.getEntityId(),
+                record.getMetadata(),
+                new Date(record.getCreatedAt())
+            ));
+        }
+        return content;
     }
     
-    // Lấy hoạt động trong khoảng thời gian
-    public List<Activity> getActivitiesByDateRange(Date startDate, Date endDate) {
-        return activityRepository.findByCreatedAtBetweenOrderByCreatedAtDesc(startDate, endDate);
+    // Lấy hoạt động trong khoảng thời gian; user của cả danh sách được nạp bằng một truy vấn
+    @Transactional(readOnly = true)
+    public List<ActivityResponse> getActivitiesByDateRange(Date startDate, Date endDate) {
+        List<ActivityRecord> records = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+        for (Object[] row : activityRepository.findFeedBetween(startDate, endDate)) {
+            ActivityRecord record = toRecord(row);
+            seen.add(record.getId());
+            records.add(record);
+        }
+        
+        // Tầng lạnh chỉ chứa dòng cũ hơn tầng nóng nên nối tiếp vào cuối; bỏ dòng trùng khi đang chuyển tầng
+        for (ActivityRecord record : activitySegmentStore.findBefore(null, endDate.getTime(), Long.MAX_VALUE, startDate.getTime(), Integer.MAX_VALUE)) {
+            if (seen.add(record.getId())) {
+                records.add(record);
+            }
+        }
+        return toResponses(records);
     }
     
     // Lấy hoạt động hôm nay
-    public List<Activity> getTodayActivities() {
+    public List<ActivityResponse> getTodayActivities() {
         Calendar cal = Calendar.getInstance();
         cal.set(Calendar.HOUR_OF_DAY, 0);
         cal.set(Calendar.MINUTE, 0);
@@ -93,7 +279,7 @@ public class ActivityService {
     }
     
     // Lấy hoạt động trong tuần
-    public List<Activity> getThisWeekActivities() {
+    public List<ActivityResponse> getThisWeekActivities() {
         Calendar cal = Calendar.getInstance();
         cal.set(Calendar.DAY_OF_WEEK, cal.getFirstDayOfWeek());
         cal.set(Calendar.HOUR_OF_DAY, 0);
@@ -109,8 +295,13 @@ public class ActivityService {
     }
     
     // Lấy hoạt động theo entity
-    public List<Activity> getActivitiesByEntity(String entityType, Long entityId) {
-        return activityRepository.findByEntityTypeAndEntityIdOrderByCreatedAtDesc(entityType, entityId);
+    @Transactional(readOnly = true)
+    public List<ActivityResponse> getActivitiesByEntity(String entityType, Long entityId) {
+        List<ActivityRecord> records = new ArrayList<>();
+        for (Object[] row : activityRepository.findFeedByEntity(entityType, entityId)) {
+            records.add(toRecord(row));
+        }
+        return toResponses(records);
     }
     
     // Lấy một hoạt động theo ID
@@ -118,34 +309,6 @@ public class ActivityService {
         return activityRepository.findById(id);
     }
     
-    // Đếm số hoạt động hôm nay
-    public long countTodayActivities() {
-        return activityRepository.countTodayActivities();
-    }
-    
-    // Đếm số hoạt động theo loại
-    public long countActivitiesByType(ActivityType activityType) {
-        return activityRepository.countByActivityType(activityType);
-    }
-    
-    // Thống kê hoạt động tuần qua
-    public List<Object[]> getActivityStatsLastWeek() {
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_MONTH, -7);
-        Date startDate = cal.getTime();
-        return activityRepository.getActivityStatsLastWeek(startDate);
-    }
-    
-    // Xóa hoạt động cũ (cleanup)
-    public void deleteOldActivities(int daysToKeep) {
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_MONTH, -daysToKeep);
-        Date cutoffDate = cal.getTime();
-        
-        List<Activity> oldActivities = activityRepository.findByCreatedAtBetweenOrderByCreatedAtDesc(new Date(0), cutoffDate);
-        activityRepository.deleteAll(oldActivities);
-    }
-    
     // Helper methods để tạo hoạt động cho các entity khác nhau
     
     public void logOrderActivity(ActivityType type, Long orderId, User user, String additionalInfo) {
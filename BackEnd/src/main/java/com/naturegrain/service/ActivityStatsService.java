@@ -0,0 +1,177 @@
+package com.naturegrain.service;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.naturegrain.entity.ActivityType;
+import com.naturegrain.service.cold.ActivitySegmentStore;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bộ đếm hoạt động trong bộ nhớ theo loại và theo ngày (DAYS_TRACKED ngày gần nhất).
+ * Được nạp bằng một truy vấn GROUP BY khi khởi động, tăng dần mỗi khi một activity được ghi,
+ * và đối soát lại định kỳ (hoặc sau khi dọn dẹp) để sửa sai lệch nhỏ do ghi đồng thời lúc nạp.
+ */
+@Service
+@Slf4j
+public class ActivityStatsService {
+
+    private static final int DAYS_TRACKED = 35;
+
+    // Một lần quét: tổng theo loại, kèm tách theo ngày cho các dòng trong khoảng theo dõi (ngày NULL = cũ hơn)
+    private static final String SEED_SQL = "SELECT activity_type, " +
+            "CASE WHEN created_at >= ? THEN DATE(created_at) END AS day, COUNT(*) " +
+            "FROM activity GROUP BY activity_type, day";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ActivitySegmentStore activitySegmentStore;
+
+    // Bộ đếm sống duy nhất: đối soát cộng phần chênh lệch vào đây thay vì thay cả đối tượng
+    private final Counters counters = new Counters();
+
+    private static final class Counters {
+        private final Map<ActivityType, LongAdder> byType = new EnumMap<>(ActivityType.class);
+        private final Map<LocalDate, LongAdder> byDay = new ConcurrentHashMap<>();
+
+        Counters() {
+            // Tạo sẵn mọi khóa nên map theo loại chỉ còn được đọc, an toàn khi dùng đồng thời
+            for (ActivityType type : ActivityType.values()) {
+                byType.put(type, new LongAdder());
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        reload();
+    }
+
+    /**
+     * Đối soát với database: giá trị mới = kết quả GROUP BY + số lượt record() chạy trong lúc truy vấn.
+     * Giá trị trước truy vấn được chụp lại, sau đó mỗi bộ đếm được cộng (kết quả - giá trị trước),
+     * nên các lượt tăng đồng thời không bị mất.
+     */
+    @Scheduled(fixedDelayString = "${activity.stats.reconcile-ms:3600000}",
+               initialDelayString = "${activity.stats.reconcile-ms:3600000}")
+    public synchronized void reload() {
+        try {
+            evictExpiredDays();
+            LocalDate firstDay = LocalDate.now().minusDays(DAYS_TRACKED - 1);
+            Timestamp since = Timestamp.valueOf(firstDay.atStartOfDay());
+            Map<ActivityType, Long> typeBefore = new EnumMap<>(ActivityType.class);
+            counters.byType.forEach((type, count) -> typeBefore.put(type, count.sum()));
+            Map<LocalDate, Long> dayBefore = new HashMap<>();
+            counters.byDay.forEach((day, count) -> dayBefore.put(day, count.sum()));
+
+            Map<ActivityType, Long> freshByType = new EnumMap<>(ActivityType.class);
+            Map<LocalDate, Long> freshByDay = new HashMap<>();
+            jdbcTemplate.query(SEED_SQL, rs -> {
+                ActivityType type = parseType(rs.getString(1));
+                java.sql.Date day = rs.getDate(2);
+                long count = rs.getLong(3);
+                if (type != null) {
+                    freshByType.merge(type, count, Long::sum);
+                }
+                if (day != null) {
+                    freshByDay.merge(day.toLocalDate(), count, Long::sum);
+                }
+            }, since);
+            // Tổng theo loại gồm cả tầng lạnh (đọc từ footer segment); tầng lạnh chỉ chứa ngày ngoài tuần gần nhất
+            activitySegmentStore.countByType().forEach((type, count) -> freshByType.merge(type, count, Long::sum));
+
+            counters.byType.forEach((type, count) ->
+                    count.add(freshByType.getOrDefault(type, 0L) - typeBefore.get(type)));
+            dayBefore.forEach((day, before) -> freshByDay.putIfAbsent(day, 0L));
+            freshByDay.forEach((day, fresh) -> {
+                if (!day.isBefore(firstDay)) {
+                    counters.byDay.computeIfAbsent(day, d -> new LongAdder())
+                            .add(fresh - dayBefore.getOrDefault(day, 0L));
+                }
+            });
+            log.debug("Activity statistics reloaded");
+        } catch (Exception e) {
+            log.error("Failed to reload activity statistics: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Bỏ các ngày đã ra khỏi khoảng theo dõi; chạy đầu mỗi ngày thay vì trong luồng đọc
+     */
+    @Scheduled(cron = "${activity.stats.evict-cron:0 1 0 * * *}")
+    public void evictExpiredDays() {
+        LocalDate firstDay = LocalDate.now().minusDays(DAYS_TRACKED - 1);
+        counters.byDay.keySet().removeIf(day -> day.isBefore(firstDay));
+    }
+
+    /**
+     * Ghi nhận một activity vừa được lưu
+     */
+    public void record(ActivityType type, Date createdAt) {
+        if (type != null) {
+            counters.byType.get(type).increment();
+        }
+        LocalDate day = createdAt != null
+                ? createdAt.toInstant().atZone(ZoneId.systemDefault()).toLocalDate()
+                : LocalDate.now();
+        if (!day.isBefore(LocalDate.now().minusDays(DAYS_TRACKED - 1))) {
+            counters.byDay.computeIfAbsent(day, d -> new LongAdder()).increment();
+        }
+    }
+
+    public long countToday() {
+        LongAdder today = counters.byDay.get(LocalDate.now());
+        return today != null ? today.sum() : 0;
+    }
+
+    public Map<String, Long> countByType() {
+        Map<String, Long> result = new HashMap<>();
+        counters.byType.forEach((type, count) -> result.put(type.name(), count.sum()));
+        return result;
+    }
+
+    /**
+     * Số hoạt động theo ngày trong 7 ngày gần nhất (chỉ các ngày có hoạt động), tăng dần theo ngày
+     */
+    public List<Map<String, Object>> countLastWeek() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        LocalDate today = LocalDate.now();
+        for (LocalDate day = today.minusDays(7); !day.isAfter(today); day = day.plusDays(1)) {
+            LongAdder count = counters.byDay.get(day);
+            if (count != null && count.sum() > 0) {
+                Map<String, Object> dayData = new HashMap<>();
+                dayData.put("date", day.toString());
+                dayData.put("count", count.sum());
+                result.add(dayData);
+            }
+        }
+        return result;
+    }
+
+    private ActivityType parseType(String name) {
+        try {
+            return name != null ? ActivityType.valueOf(name) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
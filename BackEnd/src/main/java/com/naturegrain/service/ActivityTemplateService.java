@@ -0,0 +1,206 @@
+package com.naturegrain.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.IllegalFormatException;
+import java.util.MissingFormatArgumentException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Từ điển mẫu nội dung activity (bảng activity_template) được cache toàn bộ trong bộ nhớ,
+ * cùng bộ mã hóa tham số có kiểu và phần dựng lại tiêu đề/mô tả khi đọc.
+ * Tham số được lưu dạng "<kiểu><giá trị>" nối bằng ký tự phân tách U+001F: s = chuỗi, l = số nguyên, n = null.
+ * Chuỗi mã hóa không vượt quá độ dài cột activity.params; tham số chuỗi quá dài bị cắt bớt.
+ */
+@Service
+@Slf4j
+public class ActivityTemplateService {
+
+    // Dòng cũ chưa chuyển đổi hoặc không khớp mẫu nào: nội dung vẫn nằm nguyên trong title/description
+    public static final int INLINE = 0;
+
+    private static final char SEPARATOR = '\u001F';
+
+    // Khớp độ dài cột activity.params
+    public static final int MAX_PARAMS_LENGTH = 500;
+
+    private static final char ELLIPSIS = '\u2026';
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final Map<String, Integer> idsByTemplate = new ConcurrentHashMap<>();
+    private final Map<Integer, String> templatesById = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        jdbcTemplate.query("SELECT id, template FROM activity_template", rs -> {
+            cache(rs.getInt(1), rs.getString(2));
+        });
+        log.info("Loaded {} activity templates", templatesById.size());
+    }
+
+    /**
+     * Id của mẫu, thêm vào từ điển nếu chưa có (chỉ chạm database lần đầu gặp mẫu)
+     */
+    public int idOf(String template) {
+        Integer id = idsByTemplate.get(template);
+        if (id != null) {
+            return id;
+        }
+        jdbcTemplate.update("INSERT IGNORE INTO activity_template (template) VALUES (?)", template);
+        id = jdbcTemplate.queryForObject("SELECT id FROM activity_template WHERE template = ?", Integer.class, template);
+        cache(id, template);
+        return id;
+    }
+
+    public String templateOf(int id) {
+        String template = templatesById.get(id);
+        if (template == null) {
+            List<String> found = jdbcTemplate.queryForList("SELECT template FROM activity_template WHERE id = ?", String.class, id);
+            if (found.isEmpty()) {
+                return null;
+            }
+            template = found.get(0);
+            cache(id, template);
+        }
+        return template;
+    }
+
+    /**
+     * Dựng nội dung từ mẫu; trả về fallback nếu dòng lưu dạng inline hoặc mẫu không còn dựng được
+     */
+    public String render(Integer templateId, String params, String fallback) {
+        if (templateId == null || templateId == INLINE) {
+            return fallback;
+        }
+        String template = templateOf(templateId);
+        if (template == null) {
+            return fallback;
+        }
+        try {
+            return String.format(template, decodeParams(params));
+        } catch (MissingFormatArgumentException e) {
+            return template;
+        } catch (IllegalFormatException e) {
+            log.warn("Cannot render activity template {}: {}", templateId, e.getMessage());
+            return template;
+        }
+    }
+
+    public String encodeParams(Object... params) {
+        String[] texts = new String[params.length];
+        int fixedLength = Math.max(params.length - 1, 0);
+        int textLength = 0;
+        for (int i = 0; i < params.length; i++) {
+            Object param = params[i];
+            if (param == null) {
+                fixedLength += 1;
+            } else if (param instanceof Long || param instanceof Integer || param instanceof Short) {
+                fixedLength += 1 + String.valueOf(((Number) param).longValue()).length();
+            } else {
+                texts[i] = param.toString().replace(SEPARATOR, ' ');
+                fixedLength += 1;
+                textLength += texts[i].length();
+            }
+        }
+        int budget = Math.max(MAX_PARAMS_LENGTH - fixedLength, 0);
+        if (textLength > budget) {
+            fitTexts(texts, budget);
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < params.length; i++) {
+            if (i > 0) {
+                sb.append(SEPARATOR);
+            }
+            Object param = params[i];
+            if (param == null) {
+                sb.append('n');
+            } else if (texts[i] == null) {
+                sb.append('l').append(((Number) param).longValue());
+            } else {
+                sb.append('s').append(texts[i]);
+            }
+        }
+        return sb.toString();
+    }
+
+    public Object[] decodeParams(String encoded) {
+        if (encoded == null || encoded.isEmpty()) {
+            return new Object[0];
+        }
+        List<Object> params = new ArrayList<>();
+        int start = 0;
+        while (start <= encoded.length()) {
+            int end = encoded.indexOf(SEPARATOR, start);
+            if (end < 0) {
+                end = encoded.length();
+            }
+            params.add(decodeParam(encoded.substring(start, end)));
+            start = end + 1;
+        }
+        return params.toArray();
+    }
+
+    private Object decodeParam(String token) {
+        if (token.isEmpty() || token.charAt(0) == 'n') {
+            return null;
+        }
+        String value = token.substring(1);
+        if (token.charAt(0) == 'l') {
+            try {
+                return Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                return value;
+            }
+        }
+        return value;
+    }
+
+    // Chia đều phần còn lại của cột cho các tham số chuỗi: chuỗi ngắn giữ nguyên, phần dư dồn cho chuỗi dài hơn
+    private void fitTexts(String[] texts, int budget) {
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < texts.length; i++) {
+            if (texts[i] != null) {
+                order.add(i);
+            }
+        }
+        order.sort(Comparator.comparingInt(i -> texts[i].length()));
+        int remaining = budget;
+        int left = order.size();
+        for (int index : order) {
+            texts[index] = truncate(texts[index], remaining / left--);
+            remaining -= texts[index].length();
+        }
+    }
+
+    private String truncate(String text, int maxLength) {
+        if (text.length() <= maxLength) {
+            return text;
+        }
+        if (maxLength <= 0) {
+            return "";
+        }
+        int end = maxLength - 1;
+        if (end > 0 && Character.isHighSurrogate(text.charAt(end - 1))) {
+            end--;
+        }
+        return text.substring(0, end) + ELLIPSIS;
+    }
+
+    private void cache(int id, String template) {
+        idsByTemplate.put(template, id);
+        templatesById.put(id, template);
+    }
+}
@@ -0,0 +1,252 @@
+package com.naturegrain.service;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.naturegrain.entity.ActivityMessage;
+import com.naturegrain.service.outbox.ActivityEvent;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Ghi activity bất đồng bộ (write-behind): request chỉ đưa activity vào một hàng đợi lock-free có giới hạn,
+ * một luồng ghi duy nhất gom thành lô và INSERT bằng JDBC batch mỗi batchSize bản ghi hoặc mỗi flushIntervalMs.
+ * Khi hàng đợi đầy, producer chờ tối đa offerTimeoutMs (backpressure) rồi bỏ activity và tăng bộ đếm dropped.
+ * Hàng đợi còn lại được ghi hết khi ứng dụng dừng.
+ */
+@Service
+@Slf4j
+public class ActivityWriteBuffer {
+
+    private static final String INSERT_SQL = "INSERT INTO activity " +
+            "(activity_type, title, description, user_id, entity_type, entity_id, metadata, created_at, " +
+            "title_template_id, description_template_id, params) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final long OFFER_RETRY_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ActivityStatsService activityStatsService;
+
+    @Autowired
+    private ActivityTemplateService activityTemplateService;
+
+    @Value("${activity.writer.capacity:10000}")
+    private int capacity;
+
+    @Value("${activity.writer.batch-size:200}")
+    private int batchSize;
+
+    @Value("${activity.writer.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    @Value("${activity.writer.offer-timeout-ms:10}")
+    private long offerTimeoutMs;
+
+    // ConcurrentLinkedQueue không giới hạn nên kích thước được giữ riêng để chặn trên bằng CAS
+    private final Queue<ActivityEvent> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicInteger highWatermark = new AtomicInteger();
+
+    private TransactionTemplate transactionTemplate;
+    private volatile boolean running;
+    private Thread writer;
+
+    @PostConstruct
+    public void start() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        running = true;
+        writer = new Thread(this::runWriter, "activity-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (size.get() > 0) {
+            log.warn("Activity writer stopped with {} activities still queued", size.get());
+        }
+    }
+
+    /**
+     * Đưa activity vào hàng đợi; trả về false nếu hàng đợi vẫn đầy sau thời gian chờ và activity bị bỏ
+     */
+    public boolean offer(ActivityEvent event) {
+        if (!running || !reserveSlot()) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        queue.add(event);
+        enqueued.incrementAndGet();
+        int depth = size.get();
+        highWatermark.accumulateAndGet(depth, Math::max);
+        if (depth >= batchSize) {
+            LockSupport.unpark(writer);
+        }
+        return true;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("queued", size.get());
+        stats.put("capacity", capacity);
+        stats.put("highWatermark", highWatermark.get());
+        stats.put("enqueued", enqueued.get());
+        stats.put("written", written.get());
+        stats.put("dropped", dropped.get());
+        stats.put("failed", failed.get());
+        stats.put("batches", batches.get());
+        return stats;
+    }
+
+    private boolean reserveSlot() {
+        long deadline = offerTimeoutMs > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(offerTimeoutMs) : 0;
+        while (true) {
+            int current = size.get();
+            if (current < capacity) {
+                if (size.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+                continue;
+            }
+            if (offerTimeoutMs <= 0 || System.nanoTime() >= deadline) {
+                return false;
+            }
+            // Hàng đợi đầy: đánh thức luồng ghi và chờ một chút để nó giải phóng chỗ
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(OFFER_RETRY_NANOS);
+        }
+    }
+
+    private void runWriter() {
+        List<ActivityEvent> batch = new ArrayList<>(batchSize);
+        long flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        long lastFlush = System.nanoTime();
+
+        while (running || size.get() > 0) {
+            if (running && size.get() < batchSize) {
+                long wait = flushIntervalNanos - (System.nanoTime() - lastFlush);
+                if (wait > 0) {
+                    LockSupport.parkNanos(this, wait);
+                    continue;
+                }
+            }
+
+            ActivityEvent event;
+            while (batch.size() < batchSize && (event = queue.poll()) != null) {
+                size.decrementAndGet();
+                batch.add(event);
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+                batch.clear();
+            }
+            lastFlush = System.nanoTime();
+        }
+    }
+
+    private void write(List<ActivityEvent> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), this::bind));
+            written.addAndGet(batch.size());
+            batches.incrementAndGet();
+            batch.forEach(event -> activityStatsService.record(event.getActivityType(), event.getOccurredAt()));
+        } catch (Exception e) {
+            // Một dòng lỗi (ví dụ user vừa bị xóa) làm hỏng cả lô: ghi lại từng dòng để chỉ bỏ dòng lỗi
+            log.warn("Activity batch insert of {} rows failed, retrying row by row: {}", batch.size(), e.getMessage());
+            for (ActivityEvent event : batch) {
+                try {
+                    jdbcTemplate.update(INSERT_SQL, ps -> bind(ps, event));
+                    written.incrementAndGet();
+                    activityStatsService.record(event.getActivityType(), event.getOccurredAt());
+                } catch (Exception rowError) {
+                    failed.incrementAndGet();
+                    log.error("Failed to write activity {}: {}", describe(event), rowError.getMessage());
+                }
+            }
+        }
+    }
+
+    // Activity dạng mẫu không có title: ghi log bằng khóa mẫu và tham số
+    private String describe(ActivityEvent event) {
+        if (event.getMessage() != null) {
+            return event.getMessage().name() + " " + event.getParams();
+        }
+        return "'" + event.getTitle() + "'";
+    }
+
+    private void bind(PreparedStatement ps, ActivityEvent event) throws SQLException {
+        ps.setString(1, event.getActivityType().name());
+        ActivityMessage message = event.getMessage();
+        if (message != null) {
+            // Dạng mẫu: chỉ ghi id mẫu (lấy từ từ điển trong bộ nhớ) và tham số
+            ps.setString(2, "");
+            ps.setNull(3, Types.VARCHAR);
+            ps.setInt(9, activityTemplateService.idOf(message.getTitleTemplate()));
+            ps.setInt(10, activityTemplateService.idOf(message.getDescriptionTemplate()));
+            ps.setString(11, event.getParams());
+        } else {
+            ps.setString(2, event.getTitle());
+            ps.setString(3, event.getDescription());
+            ps.setInt(9, ActivityTemplateService.INLINE);
+            ps.setNull(10, Types.INTEGER);
+            ps.setNull(11, Types.VARCHAR);
+        }
+        setNullableLong(ps, 4, event.getUserId());
+        ps.setString(5, event.getEntityType());
+        setNullableLong(ps, 6, event.getEntityId());
+        ps.setString(7, event.getMetadata());
+        Date occurredAt = event.getOccurredAt() != null ? event.getOccurredAt() : new Date();
+        ps.setTimestamp(8, new Timestamp(occurredAt.getTime()));
+    }
+
+    private void setNullableLong(PreparedStatement ps, int index, Long value) throws SQLException {
+        if (value != null) {
+            ps.setLong(index, value);
+        } else {
+            ps.setNull(index, Types.BIGINT);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.naturegrain.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.naturegrain.entity.ERole;
+import com.naturegrain.exception.BadRequestException;
+import com.naturegrain.model.request.UserFilterRequest;
+import com.naturegrain.model.response.AdminUserResponse;
+
+/**
+ * Danh sách user phân trang cho admin bằng một truy vấn projection: lọc theo tiền tố username/email
+ * (dùng index unique của hai cột), quyền và trạng thái; quyền được gộp bằng GROUP_CONCAT trong cùng truy vấn
+ * nên không có N+1, và không đọc cột avatar LONGTEXT.
+ */
+@Service
+public class AdminUserQueryService {
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private static final String SELECT_SQL = "SELECT u.id, u.username, u.email, u.firstname, u.lastname, u.phone, "
+            + "u.active, u.create_at, u.last_login, "
+            + "(SELECT GROUP_CONCAT(r.name ORDER BY r.name) FROM user_roles ur JOIN role r ON r.id = ur.role_id "
+            + "WHERE ur.user_id = u.id) AS roles "
+            + "FROM user u";
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    public Page<AdminUserResponse> searchUsers(UserFilterRequest filter, int page, int size) {
+        PageRequest pageRequest = PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), MAX_PAGE_SIZE));
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String where = buildWhere(filter, params);
+
+        Long total = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM user u" + where, params, Long.class);
+        if (total == null || total == 0 || pageRequest.getOffset() >= total) {
+            return new PageImpl<>(Collections.emptyList(), pageRequest, total != null ? total : 0);
+        }
+
+        params.addValue("limit", pageRequest.getPageSize());
+        params.addValue("offset", pageRequest.getOffset());
+        List<AdminUserResponse> rows = jdbcTemplate.query(
+                SELECT_SQL + where + buildOrderBy(filter.getSortBy()) + " LIMIT :limit OFFSET :offset", params,
+                (rs, rowNum) -> new AdminUserResponse(
+                        rs.getLong("id"),
+                        rs.getString("username"),
+                        rs.getString("email"),
+                        rs.getString("firstname"),
+                        rs.getString("lastname"),
+                        rs.getString("phone"),
+                        rs.getBoolean("active"),
+                        rs.getTimestamp("create_at"),
+                        rs.getTimestamp("last_login"),
+                        splitRoles(rs.getString("roles"))));
+        return new PageImpl<>(rows, pageRequest, total);
+    }
+
+    private String buildWhere(UserFilterRequest filter, MapSqlParameterSource params) {
+        List<String> conditions = new ArrayList<>();
+        if (filter.getQ() != null && !filter.getQ().isBlank()) {
+            conditions.add("(u.username LIKE :prefix OR u.email LIKE :prefix)");
+            params.addValue("prefix", escapeLike(filter.getQ().trim()) + "%");
+        }
+        if (filter.getActive() != null) {
+            conditions.add("u.active = :active");
+            params.addValue("active", filter.getActive());
+        }
+        if (filter.getRole() != null && !filter.getRole().isBlank()) {
+            conditions.add("EXISTS (SELECT 1 FROM user_roles fr JOIN role fro ON fro.id = fr.role_id "
+                    + "WHERE fr.user_id = u.id AND fro.name = :role)");
+            params.addValue("role", parseRole(filter.getRole()).name());
+        }
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+
+    private String buildOrderBy(String sortBy) {
+        String key = sortBy != null ? sortBy : "newest";
+        switch (key) {
+            case "oldest":
+                return " ORDER BY u.create_at ASC, u.id ASC";
+            case "username":
+                return " ORDER BY u.username ASC";
+            case "email":
+                return " ORDER BY u.email ASC";
+            case "last_login":
+                return " ORDER BY u.last_login DESC, u.id DESC";
+            case "newest":
+            default:
+                return " ORDER BY u.create_at DESC, u.id DESC";
+        }
+    }
+
+    private ERole parseRole(String role) {
+        String name = role.trim().toUpperCase();
+        if (!name.startsWith("ROLE_")) {
+            name = "ROLE_" + name;
+        }
+        try {
+            return ERole.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Unknown role: " + role);
+        }
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private static List<String> splitRoles(String roles) {
+        if (roles == null || roles.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return Arrays.asList(roles.split(","));
+    }
+}
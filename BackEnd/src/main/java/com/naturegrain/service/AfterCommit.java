@@ -0,0 +1,27 @@
+package com.naturegrain.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Hoãn cập nhật bộ nhớ (cache, bộ đếm) tới khi transaction hiện tại commit, để rollback không để lại
+ * dữ liệu ảo. Chạy ngay nếu không có transaction đang hoạt động.
+ */
+public final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    public static void run(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
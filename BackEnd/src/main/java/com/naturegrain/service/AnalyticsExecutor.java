@@ -0,0 +1,88 @@
+package com.naturegrain.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import com.naturegrain.config.DataSourceConfig;
+import com.naturegrain.exception.ServiceOverloadedException;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Vách ngăn cho các endpoint báo cáo: chạy bất đồng bộ trên pool luồng riêng có giới hạn và dùng pool kết nối
+ * riêng (DataSourceConfig), nên vài admin làm mới báo cáo không chiếm được luồng Tomcat hay kết nối database
+ * của storefront và checkout. Khi đã đủ số tác vụ đang chạy và chờ, request mới bị từ chối ngay với 503.
+ */
+@Service
+@Slf4j
+public class AnalyticsExecutor {
+
+    @Value("${analytics.threads:3}")
+    private int threads;
+
+    @Value("${analytics.queue-capacity:20}")
+    private int queueCapacity;
+
+    @Value("${analytics.timeout-ms:60000}")
+    private long timeoutMs;
+
+    private ThreadPoolTaskExecutor executor;
+    // Số tác vụ được nhận (đang chạy + đang chờ), giữ đúng sức chứa của pool để không bao giờ bị pool từ chối
+    private Semaphore admission;
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    @PostConstruct
+    public void start() {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("analytics-");
+        executor.setDaemon(true);
+        executor.initialize();
+        admission = new Semaphore(threads + queueCapacity);
+        log.info("Analytics executor started: {} threads, queue capacity {}", threads, queueCapacity);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdown();
+    }
+
+    /**
+     * Bọc phần thân endpoint thành tác vụ bất đồng bộ trên pool báo cáo
+     */
+    public <T> WebAsyncTask<T> submit(Callable<T> task) {
+        if (!admission.tryAcquire()) {
+            rejectedCount.incrementAndGet();
+            throw new ServiceOverloadedException("Too many reports are being generated, please try again later", 5);
+        }
+        return new WebAsyncTask<>(timeoutMs, executor, () -> {
+            try {
+                return DataSourceConfig.withAnalyticsPool(task);
+            } finally {
+                admission.release();
+            }
+        });
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("threads", threads);
+        stats.put("active", executor.getActiveCount());
+        stats.put("queued", executor.getThreadPoolExecutor().getQueue().size());
+        stats.put("rejected", rejectedCount.get());
+        return stats;
+    }
+}
@@ -0,0 +1,348 @@
+package com.naturegrain.service;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.naturegrain.entity.UserRegistrationDaily;
+import com.naturegrain.repository.CustomerOrderCountRepository;
+import com.naturegrain.repository.UserRegistrationDailyRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Số liệu tăng trưởng khách hàng cho trang analytics. Số đăng ký theo (ngày, quốc gia) được lưu ở bảng
+ * user_registration_daily và được giữ trong bộ nhớ dưới dạng mảng theo ngày kèm mảng cộng dồn (prefix sum),
+ * nên chuỗi user mới, tổng tích lũy và số user theo quốc gia được trả lời trong O(số ngày) thay vì nạp toàn bộ user.
+ * Số khách quay lại lấy từ bảng customer_order_count (số đơn theo user) được tăng khi đặt hàng.
+ * Bộ nhớ chỉ được cập nhật sau khi transaction ghi bảng đếm commit, nên rollback không để lại số ảo.
+ * Cả hai bảng được dựng lại định kỳ từ user/orders để sửa sai lệch nhỏ do ghi đồng thời hoặc rollback.
+ */
+@Service
+@Slf4j
+public class CustomerGrowthRollup {
+
+    private static final int MAX_COUNTRY_LENGTH = 100;
+
+    @Autowired
+    private UserRegistrationDailyRepository registrationRepository;
+
+    @Autowired
+    private CustomerOrderCountRepository orderCountRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    // Dữ liệu gốc theo ngày, chỉ được đọc/ghi khi giữ lock của đối tượng
+    private LocalDate firstDay;
+    private long[] daily = new long[0];
+    private final Map<String, Long> byCountry = new HashMap<>();
+
+    // Ảnh chụp bất biến cho luồng đọc, bằng null khi dữ liệu gốc vừa thay đổi và cần dựng lại
+    private volatile Snapshot snapshot;
+
+    private final AtomicLong repeatCustomers = new AtomicLong();
+
+    private static final class Snapshot {
+        private final LocalDate firstDay;
+        // prefix[i] = số user đăng ký trước ngày firstDay + i
+        private final long[] prefix;
+        private final Map<String, Long> byCountry;
+
+        Snapshot(LocalDate firstDay, long[] prefix, Map<String, Long> byCountry) {
+            this.firstDay = firstDay;
+            this.prefix = prefix;
+            this.byCountry = byCountry;
+        }
+
+        long countBefore(LocalDate day) {
+            if (firstDay == null) {
+                return 0;
+            }
+            long index = ChronoUnit.DAYS.between(firstDay, day);
+            if (index <= 0) {
+                return 0;
+            }
+            return prefix[(int) Math.min(index, prefix.length - 1)];
+        }
+
+        long total() {
+            return prefix[prefix.length - 1];
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            // Lần đầu chạy trên database có sẵn dữ liệu: bổ sung hai bảng đếm
+            if (registrationRepository.count() == 0) {
+                int rows = transactionTemplate.execute(status -> registrationRepository.rebuildFromUsers());
+                log.info("Backfilled user_registration_daily with {} rows", rows);
+            }
+            if (orderCountRepository.count() == 0) {
+                int rows = transactionTemplate.execute(status -> orderCountRepository.rebuildFromOrders());
+                log.info("Backfilled customer_order_count with {} rows", rows);
+            }
+        } catch (Exception e) {
+            log.error("Failed to backfill customer growth rollup: {}", e.getMessage());
+        }
+        reload();
+    }
+
+    /**
+     * Dựng lại hai bảng đếm từ user/orders rồi nạp lại bộ nhớ
+     */
+    @Scheduled(cron = "${customer.rollup.cron:0 45 4 * * *}")
+    public void reconcile() {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                registrationRepository.deleteAllRows();
+                registrationRepository.rebuildFromUsers();
+                orderCountRepository.deleteAllRows();
+                orderCountRepository.rebuildFromOrders();
+            });
+            log.info("Customer growth rollup rebuilt");
+        } catch (Exception e) {
+            log.error("Failed to rebuild customer growth rollup: {}", e.getMessage());
+        }
+        reload();
+    }
+
+    /**
+     * Nạp lại từ hai bảng đếm. Phần chênh lệch so với ảnh chụp trước khi truy vấn được cộng vào dữ liệu đang dùng
+     * thay vì thay thế toàn bộ, nên các điều chỉnh sau commit chạy trong lúc truy vấn không bị mất.
+     */
+    public void reload() {
+        try {
+            Map<LocalDate, Long> dayBefore;
+            Map<String, Long> countryBefore;
+            synchronized (this) {
+                dayBefore = dailyCounts();
+                countryBefore = new HashMap<>(byCountry);
+            }
+            long repeatBefore = repeatCustomers.get();
+
+            List<UserRegistrationDaily> rows = registrationRepository.findAll();
+            long repeat = orderCountRepository.countRepeatCustomers();
+            merge(rows, dayBefore, countryBefore);
+            repeatCustomers.addAndGet(repeat - repeatBefore);
+            log.debug("Customer growth rollup loaded: {} day/country rows, {} repeat customers", rows.size(), repeat);
+        } catch (Exception e) {
+            log.error("Failed to load customer growth rollup: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Ghi nhận user mới, phải được gọi trong transaction đăng ký
+     */
+    public void onRegistered(Date createAt, String country) {
+        adjust(createAt, country, 1);
+    }
+
+    /**
+     * Ghi nhận user bị xóa, phải được gọi trong transaction xóa user; bỏ luôn số đơn của user đó
+     */
+    public void onDeleted(long userId, Date createAt, String country) {
+        adjust(createAt, country, -1);
+        Long orderCount = orderCountRepository.findOrderCount(userId);
+        if (orderCount == null) {
+            return;
+        }
+        orderCountRepository.deleteByUserId(userId);
+        if (orderCount > 1) {
+            AfterCommit.run(repeatCustomers::decrementAndGet);
+        }
+    }
+
+    public void onCountryChanged(Date createAt, String before, String after) {
+        if (normalizeCountry(before).equals(normalizeCountry(after))) {
+            return;
+        }
+        adjust(createAt, before, -1);
+        adjust(createAt, after, 1);
+    }
+
+    /**
+     * Tăng số đơn của user, phải được gọi trong transaction đặt hàng; user trở thành khách quay lại ở đơn thứ hai
+     */
+    public void onOrderPlaced(long userId) {
+        orderCountRepository.increment(userId);
+        Long orderCount = orderCountRepository.findOrderCount(userId);
+        if (orderCount != null && orderCount == 2) {
+            AfterCommit.run(repeatCustomers::incrementAndGet);
+        }
+    }
+
+    public long getRepeatCustomers() {
+        return repeatCustomers.get();
+    }
+
+    public long getTotalRegistrations() {
+        return snapshot().total();
+    }
+
+    /**
+     * Số user đăng ký trước ngày day (không tính day)
+     */
+    public long countBefore(LocalDate day) {
+        return snapshot().countBefore(day);
+    }
+
+    /**
+     * Số user đăng ký trong khoảng [from, to], tính cả hai đầu
+     */
+    public long countBetween(LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            return 0;
+        }
+        Snapshot current = snapshot();
+        return current.countBefore(to.plusDays(1)) - current.countBefore(from);
+    }
+
+    /**
+     * Số user đăng ký của từng ngày, bắt đầu từ from
+     */
+    public long[] dailySeries(LocalDate from, int days) {
+        Snapshot current = snapshot();
+        long[] series = new long[Math.max(days, 0)];
+        long before = current.countBefore(from);
+        for (int i = 0; i < series.length; i++) {
+            long next = current.countBefore(from.plusDays(i + 1));
+            series[i] = next - before;
+            before = next;
+        }
+        return series;
+    }
+
+    /**
+     * Số user theo quốc gia, giảm dần; bỏ qua user không khai báo quốc gia
+     */
+    public Map<String, Long> countByCountry() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        snapshot().byCountry.entrySet().stream()
+                .filter(e -> !e.getKey().isEmpty() && e.getValue() > 0)
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .forEach(e -> result.put(e.getKey(), e.getValue()));
+        return result;
+    }
+
+    private void adjust(Date createAt, String country, long delta) {
+        if (createAt == null) {
+            return;
+        }
+        LocalDate day = createAt.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+        String normalized = normalizeCountry(country);
+        registrationRepository.adjust(day, normalized, delta);
+        AfterCommit.run(() -> apply(day, normalized, delta));
+    }
+
+    private synchronized void apply(LocalDate day, String country, long delta) {
+        ensureCovers(day);
+        daily[(int) ChronoUnit.DAYS.between(firstDay, day)] += delta;
+        byCountry.merge(country, delta, Long::sum);
+        snapshot = null;
+    }
+
+    private synchronized void merge(List<UserRegistrationDaily> rows, Map<LocalDate, Long> dayBefore,
+                                    Map<String, Long> countryBefore) {
+        Map<LocalDate, Long> freshByDay = new HashMap<>();
+        Map<String, Long> freshByCountry = new HashMap<>();
+        for (UserRegistrationDaily row : rows) {
+            freshByDay.merge(row.getRegDate(), row.getRegistrations(), Long::sum);
+            freshByCountry.merge(row.getCountry(), row.getRegistrations(), Long::sum);
+        }
+        dayBefore.forEach((day, before) -> freshByDay.putIfAbsent(day, 0L));
+        freshByDay.forEach((day, fresh) -> {
+            long delta = fresh - dayBefore.getOrDefault(day, 0L);
+            if (delta != 0) {
+                ensureCovers(day);
+                daily[(int) ChronoUnit.DAYS.between(firstDay, day)] += delta;
+            }
+        });
+        countryBefore.forEach((country, before) -> freshByCountry.putIfAbsent(country, 0L));
+        freshByCountry.forEach((country, fresh) ->
+                byCountry.merge(country, fresh - countryBefore.getOrDefault(country, 0L), Long::sum));
+        snapshot = null;
+    }
+
+    // Số đăng ký theo ngày của dữ liệu gốc; gọi khi giữ lock
+    private Map<LocalDate, Long> dailyCounts() {
+        Map<LocalDate, Long> counts = new HashMap<>();
+        for (int i = 0; i < daily.length; i++) {
+            if (daily[i] != 0) {
+                counts.put(firstDay.plusDays(i), daily[i]);
+            }
+        }
+        return counts;
+    }
+
+    // Mở rộng mảng theo ngày để chứa được day, về phía trước hoặc phía sau
+    private void ensureCovers(LocalDate day) {
+        if (firstDay == null) {
+            firstDay = day;
+            daily = new long[1];
+            return;
+        }
+        if (day.isBefore(firstDay)) {
+            int shift = (int) ChronoUnit.DAYS.between(day, firstDay);
+            long[] extended = new long[daily.length + shift];
+            System.arraycopy(daily, 0, extended, shift, daily.length);
+            daily = extended;
+            firstDay = day;
+            return;
+        }
+        int index = (int) ChronoUnit.DAYS.between(firstDay, day);
+        if (index >= daily.length) {
+            daily = Arrays.copyOf(daily, index + 1);
+        }
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        return current != null ? current : buildSnapshot();
+    }
+
+    private synchronized Snapshot buildSnapshot() {
+        if (snapshot != null) {
+            return snapshot;
+        }
+        long[] prefix = new long[daily.length + 1];
+        for (int i = 0; i < daily.length; i++) {
+            prefix[i + 1] = prefix[i] + daily[i];
+        }
+        snapshot = new Snapshot(firstDay, prefix, new HashMap<>(byCountry));
+        return snapshot;
+    }
+
+    private String normalizeCountry(String country) {
+        if (country == null) {
+            return "";
+        }
+        String trimmed = country.trim();
+        return trimmed.length() > MAX_COUNTRY_LENGTH ? trimmed.substring(0, MAX_COUNTRY_LENGTH) : trimmed;
+    }
+}
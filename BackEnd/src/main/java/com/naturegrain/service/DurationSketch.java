@@ -0,0 +1,64 @@
+package com.naturegrain.service;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Histogram theo thang logarit để ước lượng phân vị thời lượng (giây) với sai số tương đối ~1%.
+ * Mỗi giá trị v >= 1 rơi vào bucket ceil(log(v) / log(GAMMA)); số bucket chỉ tăng theo log của
+ * khoảng giá trị (vài trăm bucket cho tới nhiều năm) nên mỗi bucket được lưu thành một dòng
+ * trong order_status_duration_bucket.
+ */
+public class DurationSketch {
+
+    private static final double RELATIVE_ACCURACY = 0.01;
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+
+    // Bucket 0 dành cho các giá trị < 1 giây
+    private final TreeMap<Integer, Long> buckets = new TreeMap<>();
+    private long count;
+
+    public static int bucketIndex(long seconds) {
+        return seconds < 1 ? 0 : Math.max(1, (int) Math.ceil(Math.log(seconds) / LOG_GAMMA));
+    }
+
+    public void add(long seconds) {
+        addBucket(bucketIndex(seconds), 1);
+    }
+
+    public void addBucket(int index, long bucketCount) {
+        buckets.merge(index, bucketCount, Long::sum);
+        count += bucketCount;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Giá trị ước lượng tại phân vị q (0..1), trả về 0 nếu chưa có dữ liệu
+     */
+    public double quantile(double q) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.floor(Math.min(Math.max(q, 0), 1) * (count - 1));
+        long seen = 0;
+        for (Map.Entry<Integer, Long> bucket : buckets.entrySet()) {
+            seen += bucket.getValue();
+            if (seen > rank) {
+                return bucketValue(bucket.getKey());
+            }
+        }
+        return bucketValue(buckets.lastKey());
+    }
+
+    private double bucketValue(int index) {
+        if (index == 0) {
+            return 0;
+        }
+        // Điểm giữa (theo sai số tương đối) của khoảng (GAMMA^(i-1), GAMMA^i]
+        return 2 * Math.pow(GAMMA, index) / (GAMMA + 1);
+    }
+}
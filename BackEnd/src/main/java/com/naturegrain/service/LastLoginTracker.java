@@ -0,0 +1,92 @@
+package com.naturegrain.service;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Ghi trễ thời điểm đăng nhập gần nhất: đăng nhập chỉ cập nhật một map userId → thời điểm,
+ * các lần đăng nhập của cùng user giữa hai lần flush gộp thành một. Mỗi chu kỳ ghi toàn bộ bằng một
+ * câu UPDATE ... CASE cho mỗi lô, không đọc hay ghi lại cả dòng user (avatar LONGTEXT).
+ */
+@Service
+@Slf4j
+public class LastLoginTracker {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${last-login.batch-size:500}")
+    private int batchSize;
+
+    private final Map<Long, Long> pending = new ConcurrentHashMap<>();
+
+    public void record(long userId) {
+        pending.merge(userId, System.currentTimeMillis(), Math::max);
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    @Scheduled(fixedDelayString = "${last-login.flush-ms:10000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<Long, Long>> batch = new ArrayList<>(Math.min(pending.size(), batchSize));
+        for (Map.Entry<Long, Long> entry : pending.entrySet()) {
+            batch.add(Map.entry(entry.getKey(), entry.getValue()));
+            if (batch.size() == batchSize) {
+                write(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(batch);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private void write(List<Map.Entry<Long, Long>> batch) {
+        StringBuilder sql = new StringBuilder("UPDATE user SET last_login = CASE id");
+        List<Object> args = new ArrayList<>(batch.size() * 3);
+        for (Map.Entry<Long, Long> entry : batch) {
+            sql.append(" WHEN ? THEN ?");
+            args.add(entry.getKey());
+            args.add(new Timestamp(entry.getValue()));
+        }
+        sql.append(" END WHERE id IN (");
+        for (int i = 0; i < batch.size(); i++) {
+            sql.append(i == 0 ? "?" : ",?");
+            args.add(batch.get(i).getKey());
+        }
+        sql.append(')');
+
+        try {
+            jdbcTemplate.update(sql.toString(), args.toArray());
+            // Chỉ bỏ các entry chưa bị ghi đè bởi lần đăng nhập mới hơn trong lúc flush
+            for (Map.Entry<Long, Long> entry : batch) {
+                pending.remove(entry.getKey(), entry.getValue());
+            }
+        } catch (Exception e) {
+            log.error("Failed to flush {} last-login timestamps: {}", batch.size(), e.getMessage());
+        }
+    }
+}
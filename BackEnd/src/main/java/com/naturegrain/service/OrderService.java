@@ -2,17 +2,75 @@ package com.naturegrain.service;
 
 import java.util.List;
 
+import org.springframework.data.domain.Page;
+
 import com.naturegrain.entity.Order;
 import com.naturegrain.entity.OrderDetail;
+import com.naturegrain.entity.OrderSummary;
+import com.naturegrain.model.request.CreateOrderDetailRequest;
 import com.naturegrain.model.request.CreateOrderRequest;
+import com.naturegrain.model.request.OrderFilterRequest;
+import com.naturegrain.model.response.AdminOrderResponse;
+import com.naturegrain.model.response.CartQuoteResponse;
+import com.naturegrain.model.response.CustomerOrderPageResponse;
 
 public interface OrderService {
     
     Order placeOrder(CreateOrderRequest request);
 
-    List<Order> getList();
+    /**
+     * Computes line prices, totals and stock availability for a cart using
+     * server-side prices only; client-supplied prices are ignored
+     *
+     * @param orderDetails The cart lines (productId and quantity are used)
+     * @return The quote, with {@code valid = false} and errors when the cart cannot be ordered
+     */
+    CartQuoteResponse quoteCart(List<CreateOrderDetailRequest> orderDetails);
+
+    /**
+     * Returns every order summary for the admin order table, sorted in SQL.
+     * Reads only the order_summary table, never the order graph
+     *
+     * @param sortBy newest, oldest, highest_price or lowest_price
+     * @return All order summaries in the requested order
+     */
+    List<OrderSummary> getSummaryList(String sortBy);
     
     List<Order> getOrderByUser(String username);
+
+    /**
+     * Returns one keyset page of a customer's orders, newest first, as compact DTOs.
+     * Details for the whole page are loaded with a single IN query
+     *
+     * @param userId The ID of the customer
+     * @param before Only orders with an ID lower than this cursor are returned; null for the first page
+     * @param size Page size
+     * @return The page and the cursor for the next one
+     */
+    CustomerOrderPageResponse getOrdersForUser(long userId, Long before, int size);
+
+    /**
+     * Returns one page of orders for the admin listing. Filtering and sorting run in SQL,
+     * then details and products for the page are batch-loaded, so the number of
+     * queries per page is constant regardless of page size
+     *
+     * @param filter Status, creation date range and customer email/phone prefix filters
+     * @param page Zero-based page index
+     * @param size Page size
+     * @return The requested page of orders mapped to response objects (no user entity)
+     */
+    Page<AdminOrderResponse> getOrdersPaginated(OrderFilterRequest filter, int page, int size);
+
+    /**
+     * Returns one page of the denormalized order summaries used by the admin order table.
+     * Reads only the order_summary table, never the order graph
+     *
+     * @param filter Status, creation date range and customer email/phone prefix filters
+     * @param page Zero-based page index
+     * @param size Page size
+     * @return The requested page of order summaries
+     */
+    Page<OrderSummary> getOrderSummaries(OrderFilterRequest filter, int page, int size);
     
     /**
      * Adds a product association to an existing OrderDetail
@@ -39,4 +97,12 @@ public interface OrderService {
      * @return The updated Order
      */
     Order updateOrderStatus(Long orderId, String status);
+
+    /**
+     * Cancels an order that is still in PENDING state
+     * 
+     * @param orderId The ID of the order to cancel
+     * @return The cancelled Order
+     */
+    Order cancelOrder(Long orderId);
 }
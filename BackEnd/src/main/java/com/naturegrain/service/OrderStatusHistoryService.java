@@ -0,0 +1,194 @@
+package com.naturegrain.service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.naturegrain.entity.Order;
+import com.naturegrain.entity.OrderStatusDurationBucket;
+import com.naturegrain.entity.OrderStatusHistory;
+import com.naturegrain.entity.OrderStatusTransitionStats;
+import com.naturegrain.repository.OrderStatusDurationBucketRepository;
+import com.naturegrain.repository.OrderStatusHistoryRepository;
+import com.naturegrain.repository.OrderStatusTransitionStatsRepository;
+import com.naturegrain.security.CurrentUserResolver;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Ghi lịch sử đổi trạng thái đơn hàng và cập nhật thống kê cộng dồn (count, sum, max, histogram phân vị)
+ * để các báo cáo thời gian xử lý chỉ cần đọc vài dòng thống kê. Thống kê được cộng bằng upsert trong một
+ * transaction ngắn sau khi đổi trạng thái commit, nên các lần đổi trạng thái không phải chờ nhau trên dòng thống kê.
+ */
+@Service
+@Slf4j
+public class OrderStatusHistoryService {
+
+    // Tiền tố cho thống kê thời gian tính từ lúc tạo đơn
+    public static final String ORDER_CREATED = "ORDER";
+
+    // Độ dài tối đa của trạng thái mới, khớp với cột status của order_summary và bảng thống kê
+    public static final int MAX_STATUS_LENGTH = 20;
+
+    private static final String COMPLETED = "COMPLETED";
+
+    @Autowired
+    private OrderStatusHistoryRepository historyRepository;
+
+    @Autowired
+    private OrderStatusTransitionStatsRepository statsRepository;
+
+    @Autowired
+    private OrderStatusDurationBucketRepository bucketRepository;
+
+    @Autowired
+    private CurrentUserResolver currentUserResolver;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate statsTransaction;
+
+    @PostConstruct
+    public void init() {
+        // Chạy trong afterCommit nên cần transaction mới, không tham gia transaction vừa commit
+        statsTransaction = new TransactionTemplate(transactionManager);
+        statsTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Ghi một lần chuyển trạng thái, phải được gọi trong transaction đổi trạng thái đơn hàng
+     */
+    @Transactional
+    public void recordTransition(Order order, String fromStatus, String toStatus) {
+        if (toStatus == null || toStatus.equals(fromStatus)) {
+            return;
+        }
+
+        Date now = new Date();
+        Date previousChange = historyRepository.findTopByOrderIdOrderByChangedAtDesc(order.getId())
+                .map(OrderStatusHistory::getChangedAt)
+                .orElse(order.getCreateAt());
+        long stepSeconds = secondsBetween(previousChange, now);
+        long totalSeconds = secondsBetween(order.getCreateAt(), now);
+
+        historyRepository.save(new OrderStatusHistory(null, order.getId(), fromStatus, toStatus, now,
+                stepSeconds, currentUserResolver.getUserId()));
+
+        // Trạng thái cũ có thể dài hơn giới hạn nếu được ghi trước khi có kiểm tra độ dài
+        String from = fromStatus != null ? truncate(fromStatus) : "UNKNOWN";
+        String to = truncate(toStatus);
+        AfterCommit.run(() -> accumulate(from, to, stepSeconds, totalSeconds, now));
+    }
+
+    @Transactional(readOnly = true)
+    public List<OrderStatusHistory> getHistory(long orderId) {
+        return historyRepository.findByOrderIdOrderByChangedAtAsc(orderId);
+    }
+
+    /**
+     * Thống kê thời gian xử lý: tổng thời gian tạo đơn → hoàn thành và từng bước chuyển trạng thái
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> getProcessingTimeStats() {
+        Map<String, DurationSketch> sketches = new HashMap<>();
+        for (OrderStatusDurationBucket bucket : bucketRepository.findAll()) {
+            sketches.computeIfAbsent(bucket.getStatKey(), key -> new DurationSketch())
+                    .addBucket(bucket.getBucketIndex(), bucket.getBucketCount());
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        List<Map<String, Object>> byStatus = new ArrayList<>();
+        List<Map<String, Object>> transitions = new ArrayList<>();
+        OrderStatusTransitionStats completed = null;
+
+        for (OrderStatusTransitionStats stats : statsRepository.findAll()) {
+            if (stats.getCount() == 0) {
+                continue;
+            }
+            DurationSketch sketch = sketches.getOrDefault(stats.getStatKey(), new DurationSketch());
+            if (ORDER_CREATED.equals(stats.getFromStatus())) {
+                byStatus.add(toHoursEntry(stats, sketch, "status", stats.getToStatus()));
+                if (COMPLETED.equals(stats.getToStatus())) {
+                    completed = stats;
+                }
+            } else {
+                Map<String, Object> entry = toHoursEntry(stats, sketch, "transition", stats.getStatKey());
+                entry.put("from", stats.getFromStatus());
+                entry.put("to", stats.getToStatus());
+                transitions.add(entry);
+            }
+        }
+
+        double averageHours = 0;
+        double p50Hours = 0;
+        double p90Hours = 0;
+        long completedCount = 0;
+        if (completed != null) {
+            DurationSketch sketch = sketches.getOrDefault(completed.getStatKey(), new DurationSketch());
+            averageHours = completed.getSumSeconds() / 3600.0 / completed.getCount();
+            p50Hours = sketch.quantile(0.5) / 3600.0;
+            p90Hours = sketch.quantile(0.9) / 3600.0;
+            completedCount = completed.getCount();
+        }
+
+        result.put("averageProcessingHours", averageHours);
+        result.put("averageProcessingDays", averageHours / 24.0);
+        result.put("p50ProcessingHours", p50Hours);
+        result.put("p90ProcessingHours", p90Hours);
+        result.put("completedOrders", completedCount);
+        result.put("byStatus", byStatus);
+        result.put("transitions", transitions);
+        return result;
+    }
+
+    // Lỗi ghi thống kê không ảnh hưởng tới lần đổi trạng thái đã commit
+    private void accumulate(String from, String to, long stepSeconds, long totalSeconds, Date now) {
+        String stepKey = from + "->" + to;
+        String totalKey = ORDER_CREATED + "->" + to;
+        try {
+            statsTransaction.executeWithoutResult(status -> {
+                statsRepository.accumulate(stepKey, from, to, stepSeconds, now);
+                bucketRepository.increment(stepKey, DurationSketch.bucketIndex(stepSeconds));
+                statsRepository.accumulate(totalKey, ORDER_CREATED, to, totalSeconds, now);
+                bucketRepository.increment(totalKey, DurationSketch.bucketIndex(totalSeconds));
+            });
+        } catch (Exception e) {
+            log.error("Failed to accumulate status transition stats {}: {}", stepKey, e.getMessage());
+        }
+    }
+
+    private Map<String, Object> toHoursEntry(OrderStatusTransitionStats stats, DurationSketch sketch,
+                                             String labelKey, String label) {
+        Map<String, Object> entry = new HashMap<>();
+        entry.put(labelKey, label);
+        entry.put("count", stats.getCount());
+        entry.put("hours", stats.getSumSeconds() / 3600.0 / stats.getCount());
+        entry.put("p50Hours", sketch.quantile(0.5) / 3600.0);
+        entry.put("p90Hours", sketch.quantile(0.9) / 3600.0);
+        entry.put("maxHours", stats.getMaxSeconds() / 3600.0);
+        return entry;
+    }
+
+    private String truncate(String status) {
+        return status.length() > MAX_STATUS_LENGTH ? status.substring(0, MAX_STATUS_LENGTH) : status;
+    }
+
+    private long secondsBetween(Date start, Date end) {
+        if (start == null || end == null) {
+            return 0;
+        }
+        return Math.max(0, (end.getTime() - start.getTime()) / 1000);
+    }
+}
@@ -0,0 +1,171 @@
+package com.naturegrain.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.naturegrain.entity.Category;
+import com.naturegrain.entity.Product;
+import com.naturegrain.repository.ProductRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bản sao trong bộ nhớ của id → (tên, giá, tồn kho, trạng thái bán) cho mọi sản phẩm.
+ * Được cập nhật ngay khi catalog thay đổi và đối soát định kỳ với database,
+ * nhờ đó việc kiểm tra giỏ hàng không cần truy vấn sản phẩm cho từng dòng.
+ */
+@Service
+@Slf4j
+public class ProductCatalogCache {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    // productId → thời điểm (nanoTime) bị xóa; ngăn lần đối soát đang chạy nạp lại sản phẩm vừa xóa
+    private final Map<Long, Long> tombstones = new ConcurrentHashMap<>();
+
+    /**
+     * Ảnh chụp bất biến của một sản phẩm tại thời điểm được nạp vào cache
+     */
+    public static final class Entry {
+        private final long productId;
+        private final String name;
+        private final long price;
+        private final int quantity;
+        private final Long categoryId;
+        private final boolean enabled;
+        private final long loadedAt;
+
+        public Entry(long productId, String name, long price, int quantity, Long categoryId, boolean enabled) {
+            this.productId = productId;
+            this.name = name;
+            this.price = price;
+            this.quantity = quantity;
+            this.categoryId = categoryId;
+            this.enabled = enabled;
+            this.loadedAt = System.nanoTime();
+        }
+
+        public long getProductId() {
+            return productId;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getPrice() {
+            return price;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public Long getCategoryId() {
+            return categoryId;
+        }
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        Entry withEnabled(boolean enabled) {
+            return new Entry(productId, name, price, quantity, categoryId, enabled);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        reconcile();
+    }
+
+    /**
+     * Nạp lại toàn bộ catalog bằng một truy vấn projection và thay thế các entry lệch với database
+     */
+    @Scheduled(fixedDelayString = "${catalog.cache.reconcile-ms:300000}",
+               initialDelayString = "${catalog.cache.reconcile-ms:300000}")
+    public void reconcile() {
+        try {
+            long startedAt = System.nanoTime();
+            List<Object[]> rows = productRepository.findCatalogSnapshot();
+            Map<Long, Entry> fresh = new HashMap<>(rows.size() * 2);
+            for (Object[] row : rows) {
+                Entry entry = fromRow(row);
+                fresh.put(entry.getProductId(), entry);
+            }
+
+            // Không ghi đè các entry được cập nhật bởi thao tác catalog xảy ra trong lúc đang đối soát,
+            // và không nạp lại sản phẩm bị xóa sau khi bắt đầu đối soát (snapshot có thể đọc trước lúc xóa)
+            fresh.forEach((id, entry) -> {
+                Long deletedAt = tombstones.get(id);
+                if (deletedAt != null && deletedAt >= startedAt) {
+                    return;
+                }
+                entries.compute(id, (key, current) -> current != null && current.loadedAt > startedAt ? current : entry);
+            });
+            entries.entrySet().removeIf(e -> !fresh.containsKey(e.getKey()) && e.getValue().loadedAt <= startedAt);
+            // Tombstone cũ hơn lần đối soát này không còn cần: snapshot đã đọc sau khi xóa commit
+            tombstones.values().removeIf(deletedAt -> deletedAt < startedAt);
+            log.debug("Product catalog cache reconciled: {} products", fresh.size());
+        } catch (Exception e) {
+            log.error("Failed to reconcile product catalog cache: {}", e.getMessage());
+        }
+    }
+
+    public Entry get(long productId) {
+        return entries.get(productId);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Ghi đè entry sau khi sản phẩm được tạo hoặc cập nhật, gọi sau khi transaction commit
+     */
+    public void put(Product product) {
+        Category category = product.getCategory();
+        Long categoryId = category != null ? category.getId() : null;
+        boolean enabled = category == null || category.isEnable();
+        entries.put(product.getId(), new Entry(product.getId(), product.getName(), product.getPrice(),
+                product.getQuantity(), categoryId, enabled));
+    }
+
+    /**
+     * Xóa entry sau khi sản phẩm bị xóa, gọi sau khi transaction commit
+     */
+    public void evict(long productId) {
+        tombstones.put(productId, System.nanoTime());
+        entries.remove(productId);
+    }
+
+    /**
+     * Cập nhật trạng thái bán của mọi sản phẩm thuộc danh mục khi danh mục được bật/tắt hoặc bị xóa
+     */
+    public void updateCategory(long categoryId, boolean enabled) {
+        entries.replaceAll((id, entry) -> entry.getCategoryId() != null && entry.getCategoryId() == categoryId
+                ? entry.withEnabled(enabled)
+                : entry);
+    }
+
+    private Entry fromRow(Object[] row) {
+        long id = ((Number) row[0]).longValue();
+        String name = (String) row[1];
+        long price = ((Number) row[2]).longValue();
+        int quantity = ((Number) row[3]).intValue();
+        Long categoryId = row[4] != null ? ((Number) row[4]).longValue() : null;
+        boolean enabled = categoryId == null || Boolean.TRUE.equals(row[5]);
+        return new Entry(id, name, price, quantity, categoryId, enabled);
+    }
+}
@@ -0,0 +1,196 @@
+package com.naturegrain.service;
+
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.naturegrain.repository.UserRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bloom filter của mọi username và email đã đăng ký, dùng cho kiểm tra "còn trống" khi đăng ký.
+ * Filter trả lời "chưa có" thì không cần truy vấn; chỉ khi filter báo có thể trùng mới kiểm tra database.
+ * So khớp không phân biệt hoa thường như collation của bảng user. Filter không xóa được nên user bị xóa
+ * chỉ tốn thêm một truy vấn; ràng buộc unique của bảng vẫn là bảo đảm cuối cùng.
+ * User đăng ký trên instance khác được nạp dần theo id mỗi vài giây.
+ */
+@Service
+@Slf4j
+public class UserIdentityIndex {
+
+    private static final String LOAD_SQL = "SELECT id, username, email FROM user";
+
+    private static final String LOAD_SINCE_SQL = "SELECT id, username, email FROM user WHERE id > ?";
+
+    // Nạp lại một đoạn id trước mốc đã thấy, để không sót dòng có id nhỏ hơn nhưng commit muộn hơn
+    private static final long REFRESH_OVERLAP_IDS = 100;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${user-index.expected-users:100000}")
+    private long expectedUsers;
+
+    @Value("${user-index.fpp:0.01}")
+    private double fpp;
+
+    // null khi chưa nạp xong: mọi kiểm tra đi thẳng xuống database
+    private volatile BloomFilter usernames;
+    private volatile BloomFilter emails;
+
+    private final AtomicLong insertions = new AtomicLong();
+    // Id lớn nhất đã được nạp vào filter hiện tại
+    private volatile long lastSeenId;
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+    // Các giá trị thêm vào trong lúc dựng lại, được áp vào filter mới sau khi hoán đổi
+    private final Queue<String[]> addedDuringRebuild = new ConcurrentLinkedQueue<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        rebuild();
+    }
+
+    /**
+     * Dựng lại khi số phần tử đã vượt sức chứa thiết kế (tỉ lệ dương tính giả tăng nhanh sau ngưỡng này)
+     */
+    @Scheduled(fixedDelayString = "${user-index.check-ms:600000}", initialDelayString = "${user-index.check-ms:600000}")
+    public void rebuildIfSaturated() {
+        BloomFilter current = usernames;
+        if (current == null || insertions.get() > current.getExpectedInsertions()) {
+            rebuild();
+        }
+    }
+
+    public void rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM user", Long.class);
+            long capacity = Math.max(expectedUsers, (count != null ? count : 0) * 2);
+            BloomFilter newUsernames = new BloomFilter(capacity, fpp);
+            BloomFilter newEmails = new BloomFilter(capacity, fpp);
+            AtomicLong loaded = new AtomicLong();
+            AtomicLong maxId = new AtomicLong();
+            jdbcTemplate.query(LOAD_SQL, rs -> {
+                maxId.accumulateAndGet(rs.getLong(1), Math::max);
+                putIfPresent(newUsernames, rs.getString(2));
+                putIfPresent(newEmails, rs.getString(3));
+                loaded.incrementAndGet();
+            });
+
+            usernames = newUsernames;
+            emails = newEmails;
+            lastSeenId = maxId.get();
+            insertions.set(loaded.get());
+            String[] added;
+            while ((added = addedDuringRebuild.poll()) != null) {
+                putIfPresent(newUsernames, added[0]);
+                putIfPresent(newEmails, added[1]);
+            }
+            log.info("User identity index built: {} users, capacity {}", loaded.get(), capacity);
+        } catch (Exception e) {
+            log.error("Failed to build user identity index: {}", e.getMessage());
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    /**
+     * Nạp các user mới (kể cả user đăng ký trên instance khác) vào filter hiện tại
+     */
+    @Scheduled(fixedDelayString = "${user-index.refresh-ms:5000}", initialDelayString = "${user-index.refresh-ms:5000}")
+    public void refresh() {
+        BloomFilter usernameFilter = usernames;
+        BloomFilter emailFilter = emails;
+        if (usernameFilter == null || rebuilding.get()) {
+            return;
+        }
+        try {
+            long since = lastSeenId;
+            AtomicLong maxId = new AtomicLong(since);
+            jdbcTemplate.query(LOAD_SINCE_SQL, rs -> {
+                long id = rs.getLong(1);
+                putIfPresent(usernameFilter, rs.getString(2));
+                putIfPresent(emailFilter, rs.getString(3));
+                if (id > since) {
+                    maxId.accumulateAndGet(id, Math::max);
+                    insertions.incrementAndGet();
+                }
+            }, Math.max(0, since - REFRESH_OVERLAP_IDS));
+            // Filter đã bị thay trong lúc nạp thì mốc id thuộc về filter mới
+            if (usernames == usernameFilter) {
+                lastSeenId = maxId.get();
+            }
+        } catch (Exception e) {
+            log.error("Failed to refresh user identity index: {}", e.getMessage());
+        }
+    }
+
+    public boolean isUsernameTaken(String username) {
+        String key = normalize(username);
+        if (key == null) {
+            return false;
+        }
+        BloomFilter filter = usernames;
+        if (filter != null && !filter.mightContain(key)) {
+            return false;
+        }
+        return Boolean.TRUE.equals(userRepository.existsByUsername(username.trim()));
+    }
+
+    public boolean isEmailTaken(String email) {
+        String key = normalize(email);
+        if (key == null) {
+            return false;
+        }
+        BloomFilter filter = emails;
+        if (filter != null && !filter.mightContain(key)) {
+            return false;
+        }
+        return Boolean.TRUE.equals(userRepository.existsByEmail(email.trim()));
+    }
+
+    /**
+     * Ghi nhận user vừa đăng ký; số phần tử được đếm khi refresh nạp dòng này từ database
+     */
+    public void add(String username, String email) {
+        BloomFilter usernameFilter = usernames;
+        BloomFilter emailFilter = emails;
+        if (usernameFilter != null) {
+            putIfPresent(usernameFilter, username);
+            putIfPresent(emailFilter, email);
+        }
+        if (rebuilding.get()) {
+            addedDuringRebuild.add(new String[] { username, email });
+        }
+    }
+
+    private void putIfPresent(BloomFilter filter, String value) {
+        String key = normalize(value);
+        if (key != null) {
+            filter.put(key);
+        }
+    }
+
+    private String normalize(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+}
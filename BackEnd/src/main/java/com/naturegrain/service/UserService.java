@@ -12,8 +12,12 @@ public interface UserService {
 
     User getUserByUsername(String username);
 
+    User recordLogin(String username);
+
     User updateUser(UpdateProfileRequest request);
 
     void changePassword(ChangePasswordRequest request);
 
+    void deleteUser(Long id);
+
 }
@@ -0,0 +1,145 @@
+package com.naturegrain.service;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.naturegrain.entity.ERole;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bộ đếm user theo trạng thái và theo quyền cho trang quản trị. Được nạp bằng hai truy vấn GROUP BY
+ * (user theo active, user_roles theo quyền), điều chỉnh tăng giảm sau khi transaction đăng ký, đổi quyền,
+ * khóa/mở hoặc xóa user commit, và đối soát lại định kỳ. Đối soát cộng phần chênh lệch vào bộ đếm đang dùng
+ * thay vì thay cả đối tượng, nên các điều chỉnh xảy ra trong lúc truy vấn không bị mất.
+ */
+@Service
+@Slf4j
+public class UserStatsService {
+
+    private static final String ACTIVE_SQL = "SELECT active, COUNT(*) FROM user GROUP BY active";
+
+    private static final String ROLE_SQL = "SELECT r.name, COUNT(DISTINCT ur.user_id) FROM user_roles ur " +
+            "JOIN role r ON r.id = ur.role_id GROUP BY r.name";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final Counters counters = new Counters();
+
+    private static final class Counters {
+        private final LongAdder active = new LongAdder();
+        private final LongAdder inactive = new LongAdder();
+        private final Map<ERole, LongAdder> byRole = new EnumMap<>(ERole.class);
+
+        Counters() {
+            // Tạo sẵn mọi khóa nên map theo quyền chỉ còn được đọc, an toàn khi dùng đồng thời
+            for (ERole role : ERole.values()) {
+                byRole.put(role, new LongAdder());
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        reload();
+    }
+
+    @Scheduled(fixedDelayString = "${user.stats.reconcile-ms:600000}",
+               initialDelayString = "${user.stats.reconcile-ms:600000}")
+    public synchronized void reload() {
+        try {
+            long activeBefore = counters.active.sum();
+            long inactiveBefore = counters.inactive.sum();
+            Map<ERole, Long> roleBefore = new EnumMap<>(ERole.class);
+            counters.byRole.forEach((role, count) -> roleBefore.put(role, count.sum()));
+
+            long[] fresh = new long[2];
+            jdbcTemplate.query(ACTIVE_SQL, rs -> {
+                fresh[rs.getBoolean(1) ? 0 : 1] += rs.getLong(2);
+            });
+            Map<ERole, Long> freshByRole = new EnumMap<>(ERole.class);
+            jdbcTemplate.query(ROLE_SQL, rs -> {
+                ERole role = parseRole(rs.getString(1));
+                if (role != null) {
+                    freshByRole.merge(role, rs.getLong(2), Long::sum);
+                }
+            });
+
+            counters.active.add(fresh[0] - activeBefore);
+            counters.inactive.add(fresh[1] - inactiveBefore);
+            counters.byRole.forEach((role, count) ->
+                    count.add(freshByRole.getOrDefault(role, 0L) - roleBefore.get(role)));
+            log.debug("User statistics reloaded");
+        } catch (Exception e) {
+            log.error("Failed to reload user statistics: {}", e.getMessage());
+        }
+    }
+
+    public void onRegistered(boolean active, Collection<ERole> roles) {
+        AfterCommit.run(() -> {
+            (active ? counters.active : counters.inactive).increment();
+            roles.forEach(role -> counters.byRole.get(role).increment());
+        });
+    }
+
+    public void onRolesChanged(Collection<ERole> before, Collection<ERole> after) {
+        AfterCommit.run(() -> {
+            before.stream().filter(role -> !after.contains(role)).forEach(role -> counters.byRole.get(role).decrement());
+            after.stream().filter(role -> !before.contains(role)).forEach(role -> counters.byRole.get(role).increment());
+        });
+    }
+
+    public void onActiveChanged(boolean active) {
+        AfterCommit.run(() -> {
+            (active ? counters.active : counters.inactive).increment();
+            (active ? counters.inactive : counters.active).decrement();
+        });
+    }
+
+    public void onDeleted(boolean active, Collection<ERole> roles) {
+        AfterCommit.run(() -> {
+            (active ? counters.active : counters.inactive).decrement();
+            roles.forEach(role -> counters.byRole.get(role).decrement());
+        });
+    }
+
+    public long getTotalUsers() {
+        return counters.active.sum() + counters.inactive.sum();
+    }
+
+    public Map<String, Object> getStats() {
+        long activeUsers = counters.active.sum();
+        long inactiveUsers = counters.inactive.sum();
+
+        Map<String, Long> usersByRole = new HashMap<>();
+        usersByRole.put("admin", counters.byRole.get(ERole.ROLE_ADMIN).sum());
+        usersByRole.put("moderator", counters.byRole.get(ERole.ROLE_MODERATOR).sum());
+        usersByRole.put("user", counters.byRole.get(ERole.ROLE_USER).sum());
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("totalUsers", activeUsers + inactiveUsers);
+        stats.put("activeUsers", activeUsers);
+        stats.put("inactiveUsers", inactiveUsers);
+        stats.put("usersByRole", usersByRole);
+        return stats;
+    }
+
+    private ERole parseRole(String name) {
+        try {
+            return name != null ? ERole.valueOf(name) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
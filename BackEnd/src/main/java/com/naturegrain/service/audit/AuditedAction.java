@@ -0,0 +1,43 @@
+package com.naturegrain.service.audit;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import com.naturegrain.entity.ActivityMessage;
+import com.naturegrain.entity.ActivityType;
+
+/**
+ * Ghi một activity sau khi endpoint thay đổi dữ liệu chạy xong thành công (không ném lỗi, status 2xx).
+ * Các thuộc tính chuỗi là biểu thức SpEL, dùng được:
+ * <ul>
+ * <li>tham số của method theo tên (#id, #request...) và tham chiếu bean (@userRepository...)</li>
+ * <li>#actor: principal của người đang đăng nhập (id, username), không cần truy vấn</li>
+ * <li>#before: giá trị của {@link #before()}, tính trước khi method chạy (ví dụ entity sắp bị xóa)</li>
+ * <li>#result: giá trị trả về; #body: body nếu là ResponseEntity, ngược lại bằng #result</li>
+ * <li>#target: giá trị của {@link #target()}, tính sau khi method chạy</li>
+ * </ul>
+ * Activity bị bỏ qua nếu chưa đăng nhập hoặc entityId tính ra null; lỗi khi ghi không làm hỏng request.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface AuditedAction {
+
+    ActivityType type();
+
+    ActivityMessage message();
+
+    String entityType() default "";
+
+    String entityId();
+
+    // Tham số cho mẫu của message, theo đúng thứ tự
+    String[] params() default {};
+
+    String before() default "";
+
+    String target() default "";
+}
@@ -0,0 +1,112 @@
+package com.naturegrain.service.audit;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.expression.BeanFactoryResolver;
+import org.springframework.context.expression.MethodBasedEvaluationContext;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import com.naturegrain.security.CurrentUserResolver;
+import com.naturegrain.security.service.UserDetailsImpl;
+import com.naturegrain.service.ActivityService;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Thực thi {@link AuditedAction}: lấy người thực hiện từ principal (không truy vấn user), tính các biểu thức
+ * SpEL (được parse một lần và cache) rồi đưa activity vào hàng đợi ghi bất đồng bộ.
+ */
+@Aspect
+@Component
+@Slf4j
+public class AuditedActionAspect {
+
+    private final ExpressionParser parser = new SpelExpressionParser();
+    private final ParameterNameDiscoverer parameterNames = new DefaultParameterNameDiscoverer();
+    private final Map<String, Expression> expressions = new ConcurrentHashMap<>();
+
+    @Autowired
+    private ActivityService activityService;
+
+    @Autowired
+    private CurrentUserResolver currentUserResolver;
+
+    @Autowired
+    private BeanFactory beanFactory;
+
+    @Around("@annotation(auditedAction)")
+    public Object audit(ProceedingJoinPoint joinPoint, AuditedAction auditedAction) throws Throwable {
+        UserDetailsImpl actor = currentUserResolver.getPrincipal();
+        if (actor == null) {
+            return joinPoint.proceed();
+        }
+
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        MethodBasedEvaluationContext context = new MethodBasedEvaluationContext(
+                null, method, joinPoint.getArgs(), parameterNames);
+        context.setBeanResolver(new BeanFactoryResolver(beanFactory));
+        context.setVariable("actor", actor);
+        if (!auditedAction.before().isEmpty()) {
+            context.setVariable("before", evaluateQuietly(auditedAction.before(), context));
+        }
+
+        Object result = joinPoint.proceed();
+
+        if (result instanceof ResponseEntity && !((ResponseEntity<?>) result).getStatusCode().is2xxSuccessful()) {
+            return result;
+        }
+        try {
+            context.setVariable("result", result);
+            context.setVariable("body", result instanceof ResponseEntity ? ((ResponseEntity<?>) result).getBody() : result);
+            if (!auditedAction.target().isEmpty()) {
+                context.setVariable("target", evaluate(auditedAction.target(), context));
+            }
+
+            Object entityId = evaluate(auditedAction.entityId(), context);
+            if (entityId == null) {
+                return result;
+            }
+            String[] paramExpressions = auditedAction.params();
+            Object[] params = new Object[paramExpressions.length];
+            for (int i = 0; i < paramExpressions.length; i++) {
+                params[i] = evaluate(paramExpressions[i], context);
+            }
+            String entityType = auditedAction.entityType().isEmpty() ? null : auditedAction.entityType();
+            activityService.createActivity(auditedAction.type(), auditedAction.message(), actor.getId(),
+                    entityType, ((Number) entityId).longValue(), params);
+        } catch (Exception e) {
+            // Không làm hỏng thao tác chính khi ghi activity lỗi
+            log.warn("Failed to record audited action {} on {}: {}", auditedAction.message(), method.getName(), e.getMessage());
+        }
+        return result;
+    }
+
+    private Object evaluate(String expression, EvaluationContext context) {
+        return expressions.computeIfAbsent(expression, parser::parseExpression).getValue(context);
+    }
+
+    // Giá trị trước khi chạy có thể không tồn tại (ví dụ id sai); khi đó method tự xử lý và activity bị bỏ qua
+    private Object evaluateQuietly(String expression, EvaluationContext context) {
+        try {
+            return evaluate(expression, context);
+        } catch (Exception e) {
+            log.debug("Cannot evaluate audit expression {}: {}", expression, e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.naturegrain.service.cold;
+
+import com.naturegrain.entity.ActivityType;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Một activity ở dạng lưu trữ thô (chưa dựng nội dung, chưa nạp user), dùng chung cho tầng nóng (database)
+ * và tầng lạnh (segment file)
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ActivityRecord {
+
+    private long id;
+
+    private long createdAt;
+
+    private ActivityType activityType;
+
+    private Long userId;
+
+    private String entityType;
+
+    private Long entityId;
+
+    private Integer titleTemplateId;
+
+    private Integer descriptionTemplateId;
+
+    private String title;
+
+    private String description;
+
+    private String params;
+
+    private String metadata;
+
+    // So sánh theo thứ tự feed (createdAt, id)
+    public boolean isBefore(long otherCreatedAt, long otherId) {
+        return createdAt < otherCreatedAt || (createdAt == otherCreatedAt && id < otherId);
+    }
+}
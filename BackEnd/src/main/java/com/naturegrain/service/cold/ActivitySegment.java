@@ -0,0 +1,236 @@
+package com.naturegrain.service.cold;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+import com.naturegrain.entity.ActivityType;
+
+/**
+ * Một segment đã đóng, được ánh xạ bộ nhớ (mmap) chỉ đọc. Footer (chỉ mục thời gian thưa, bảng loại và số lượng
+ * theo loại) được đọc một lần khi mở; khi truy vấn chỉ giải mã các khối record có thể chứa kết quả.
+ */
+public final class ActivitySegment {
+
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final long dataEnd;
+
+    // Chỉ mục thưa: createdAt và vị trí của record đầu mỗi khối SPARSE_EVERY record
+    private final long[] blockCreatedAt;
+    private final long[] blockOffset;
+
+    // Bảng loại của segment (typeIndex trong record → loại) và bitmap các loại có mặt theo ordinal
+    private final ActivityType[] typeTable;
+    private final long typeMask;
+    private final Map<ActivityType, Long> countByType = new EnumMap<>(ActivityType.class);
+
+    private final long minCreatedAt;
+    private final long maxCreatedAt;
+    private final long minId;
+    private final long maxId;
+    private final int recordCount;
+
+    private ActivitySegment(Path path, MappedByteBuffer buffer) {
+        this.path = path;
+        this.buffer = buffer;
+
+        int size = buffer.capacity();
+        if (size < ActivitySegmentFormat.TRAILER_SIZE
+                || buffer.getInt(size - Integer.BYTES) != ActivitySegmentFormat.MAGIC) {
+            throw new IllegalStateException("Not a sealed activity segment: " + path);
+        }
+        this.dataEnd = buffer.getLong(size - ActivitySegmentFormat.TRAILER_SIZE);
+
+        ByteBuffer footer = buffer.duplicate();
+        footer.position((int) dataEnd);
+        int sparseCount = footer.getInt();
+        blockCreatedAt = new long[sparseCount];
+        blockOffset = new long[sparseCount];
+        for (int i = 0; i < sparseCount; i++) {
+            blockCreatedAt[i] = footer.getLong();
+            blockOffset[i] = footer.getLong();
+        }
+
+        int typeCount = footer.getInt();
+        typeTable = new ActivityType[typeCount];
+        long mask = 0;
+        for (int i = 0; i < typeCount; i++) {
+            String name = ActivitySegmentFormat.readString(footer);
+            int count = footer.getInt();
+            ActivityType type = parseType(name);
+            typeTable[i] = type;
+            if (type != null) {
+                mask |= 1L << type.ordinal();
+                countByType.merge(type, (long) count, Long::sum);
+            }
+        }
+        typeMask = mask;
+
+        minCreatedAt = footer.getLong();
+        maxCreatedAt = footer.getLong();
+        minId = footer.getLong();
+        maxId = footer.getLong();
+        recordCount = footer.getInt();
+    }
+
+    public static ActivitySegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // Vùng ánh xạ vẫn hợp lệ sau khi đóng channel
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new ActivitySegment(path, mapped);
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getMinCreatedAt() {
+        return minCreatedAt;
+    }
+
+    public long getMaxCreatedAt() {
+        return maxCreatedAt;
+    }
+
+    public long getMinId() {
+        return minId;
+    }
+
+    public long getMaxId() {
+        return maxId;
+    }
+
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    public long getSizeBytes() {
+        return buffer.capacity();
+    }
+
+    public Map<ActivityType, Long> getCountByType() {
+        return Collections.unmodifiableMap(countByType);
+    }
+
+    public boolean containsType(ActivityType type) {
+        return type == null || (typeMask & (1L << type.ordinal())) != 0;
+    }
+
+    /**
+     * Tối đa limit record mới nhất thỏa (createdAt, id) < (beforeCreatedAt, beforeId), createdAt >= fromCreatedAt
+     * và đúng loại (null = mọi loại), sắp xếp mới nhất trước
+     */
+    public List<ActivityRecord> findBefore(ActivityType type, long beforeCreatedAt, long beforeId,
+                                           long fromCreatedAt, int limit) {
+        List<ActivityRecord> result = new ArrayList<>();
+        if (limit <= 0 || !containsType(type) || minCreatedAt > beforeCreatedAt || maxCreatedAt < fromCreatedAt) {
+            return result;
+        }
+
+        ByteBuffer view = buffer.duplicate();
+        // Khối cuối cùng bắt đầu không muộn hơn con trỏ; các khối sau nó chỉ chứa record mới hơn
+        int block = lastBlockStartingAtOrBefore(beforeCreatedAt);
+        List<ActivityRecord> blockRecords = new ArrayList<>(ActivitySegmentFormat.SPARSE_EVERY);
+        for (; block >= 0 && result.size() < limit; block--) {
+            long end = block + 1 < blockOffset.length ? blockOffset[block + 1] : dataEnd;
+            blockRecords.clear();
+            view.position((int) blockOffset[block]);
+            while (view.position() < end) {
+                ActivityRecord record = readRecord(view, type);
+                if (record != null && record.isBefore(beforeCreatedAt, beforeId)
+                        && record.getCreatedAt() >= fromCreatedAt) {
+                    blockRecords.add(record);
+                }
+            }
+            for (int i = blockRecords.size() - 1; i >= 0 && result.size() < limit; i--) {
+                result.add(blockRecords.get(i));
+            }
+            if (blockCreatedAt[block] < fromCreatedAt) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Duyệt id của mọi record trong segment
+     */
+    public void forEachId(LongConsumer consumer) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(0);
+        while (view.position() < dataEnd) {
+            int length = view.getInt();
+            int next = view.position() + length;
+            consumer.accept(view.getLong());
+            view.position(next);
+        }
+    }
+
+    private int lastBlockStartingAtOrBefore(long createdAt) {
+        int low = 0;
+        int high = blockCreatedAt.length - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (blockCreatedAt[mid] <= createdAt) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    // Trả về null (và bỏ qua phần còn lại của record) nếu record không đúng loại cần tìm
+    private ActivityRecord readRecord(ByteBuffer view, ActivityType wanted) {
+        int length = view.getInt();
+        int next = view.position() + length;
+        long id = view.getLong();
+        long createdAt = view.getLong();
+        ActivityType type = typeTable[view.get() & 0xFF];
+        if (wanted != null && wanted != type) {
+            view.position(next);
+            return null;
+        }
+
+        ActivityRecord record = new ActivityRecord();
+        record.setId(id);
+        record.setCreatedAt(createdAt);
+        record.setActivityType(type);
+        long userId = view.getLong();
+        record.setUserId(userId >= 0 ? userId : null);
+        long entityId = view.getLong();
+        record.setEntityId(entityId != Long.MIN_VALUE ? entityId : null);
+        int titleTemplateId = view.getInt();
+        record.setTitleTemplateId(titleTemplateId >= 0 ? titleTemplateId : null);
+        int descriptionTemplateId = view.getInt();
+        record.setDescriptionTemplateId(descriptionTemplateId >= 0 ? descriptionTemplateId : null);
+        record.setEntityType(ActivitySegmentFormat.readString(view));
+        record.setTitle(ActivitySegmentFormat.readString(view));
+        record.setDescription(ActivitySegmentFormat.readString(view));
+        record.setParams(ActivitySegmentFormat.readString(view));
+        record.setMetadata(ActivitySegmentFormat.readString(view));
+        view.position(next);
+        return record;
+    }
+
+    private static ActivityType parseType(String name) {
+        try {
+            return name != null ? ActivityType.valueOf(name) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
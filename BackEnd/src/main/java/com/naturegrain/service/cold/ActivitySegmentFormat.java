@@ -0,0 +1,57 @@
+package com.naturegrain.service.cold;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Định dạng segment lưu activity lạnh (big-endian, chỉ ghi thêm, bất biến sau khi đóng):
+ * <pre>
+ * record*  : int len | long id | long createdAt | byte typeIndex | long userId(-1) | long entityId(MIN) |
+ *            int titleTemplateId(-1) | int descriptionTemplateId(-1) | str entityType | str title |
+ *            str description | str params | str metadata        (str = int byteLen(-1 = null) + UTF-8)
+ * footer   : int sparseCount | (long createdAt, long offset)* | int typeCount | (str typeName, int count)* |
+ *            long minCreatedAt | long maxCreatedAt | long minId | long maxId | int recordCount
+ * trailer  : long footerOffset | int MAGIC
+ * </pre>
+ * Record được ghi theo thứ tự (createdAt, id) tăng dần; chỉ mục thưa lưu vị trí của mỗi SPARSE_EVERY record.
+ */
+final class ActivitySegmentFormat {
+
+    static final int MAGIC = 0x41435447;
+    static final int TRAILER_SIZE = Long.BYTES + Integer.BYTES;
+    static final int SPARSE_EVERY = 64;
+    static final String EXTENSION = ".seg";
+
+    private ActivitySegmentFormat() {
+    }
+
+    static int writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return Integer.BYTES;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        return Integer.BYTES + bytes.length;
+    }
+
+    static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void skipString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length > 0) {
+            buffer.position(buffer.position() + length);
+        }
+    }
+}
@@ -0,0 +1,379 @@
+package com.naturegrain.service.cold;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.naturegrain.entity.ActivityType;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Tầng lạnh của lịch sử activity: các dòng cũ hơn afterDays ngày được chuyển khỏi bảng activity sang các file
+ * segment chỉ ghi thêm (xem ActivitySegmentFormat), đọc qua mmap. Mỗi lượt chuyển ghi segment, fsync, mở lại để đọc
+ * rồi mới xóa các dòng tương ứng trong database, nên dữ liệu luôn nằm ở ít nhất một tầng. ActivityService ghép kết
+ * quả của hai tầng khi truy vấn, người gọi không cần biết dòng nằm ở đâu.
+ */
+@Service
+@Slf4j
+public class ActivitySegmentStore {
+
+    private static final String SELECT_SQL = "SELECT id, activity_type, title, description, user_id, entity_type, " +
+            "entity_id, metadata, created_at, title_template_id, description_template_id, params FROM activity ";
+
+    private static final String FIRST_CHUNK_SQL = SELECT_SQL +
+            "WHERE created_at < ? ORDER BY created_at, id LIMIT ?";
+
+    private static final String NEXT_CHUNK_SQL = SELECT_SQL +
+            "WHERE created_at < ? AND (created_at > ? OR (created_at = ? AND id > ?)) ORDER BY created_at, id LIMIT ?";
+
+    private static final Comparator<ActivityRecord> NEWEST_FIRST = Comparator
+            .comparingLong(ActivityRecord::getCreatedAt)
+            .thenComparingLong(ActivityRecord::getId)
+            .reversed();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${activity.cold.enabled:true}")
+    private boolean enabled;
+
+    @Value("${activity.cold.dir:./data/activity-segments}")
+    private String segmentDir;
+
+    @Value("${activity.cold.after-days:30}")
+    private int afterDays;
+
+    @Value("${activity.cold.segment-max-records:200000}")
+    private int segmentMaxRecords;
+
+    @Value("${activity.cold.chunk-size:2000}")
+    private int chunkSize;
+
+    @Value("${activity.cold.pause-ms:200}")
+    private long pauseMs;
+
+    // Các segment đang mở, sắp xếp theo maxCreatedAt giảm dần; thay cả danh sách khi thêm/bớt
+    private volatile List<ActivitySegment> segments = new ArrayList<>();
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "activity-cold-roll");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private volatile boolean stopRequested;
+
+    // Tiến độ của lượt chuyển gần nhất
+    private volatile Date startedAt;
+    private volatile Date finishedAt;
+    private volatile Date cutoff;
+    private volatile long moved;
+    private volatile int segmentsWritten;
+    private volatile String lastError;
+
+    @PostConstruct
+    public void open() {
+        Path dir = Paths.get(segmentDir);
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        List<ActivitySegment> opened = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + ActivitySegmentFormat.EXTENSION)) {
+            for (Path file : files) {
+                try {
+                    opened.add(ActivitySegment.open(file));
+                } catch (Exception e) {
+                    log.error("Skipping unreadable activity segment {}: {}", file, e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            log.error("Cannot list activity segments in {}: {}", dir, e.getMessage());
+        }
+        segments = sorted(opened);
+        log.info("Opened {} cold activity segments from {}", opened.size(), dir.toAbsolutePath());
+    }
+
+    @Scheduled(cron = "${activity.cold.cron:0 30 3 * * *}")
+    public void scheduledRoll() {
+        if (enabled) {
+            startRoll();
+        }
+    }
+
+    /**
+     * Bắt đầu chuyển bất đồng bộ các activity cũ hơn afterDays ngày sang tầng lạnh; false nếu đang có lượt khác chạy
+     */
+    public boolean startRoll() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        Date cutoffDate = Timestamp.valueOf(LocalDate.now().minusDays(afterDays).atStartOfDay());
+        startedAt = new Date();
+        finishedAt = null;
+        cutoff = cutoffDate;
+        moved = 0;
+        segmentsWritten = 0;
+        lastError = null;
+        executor.submit(() -> {
+            try {
+                roll(new Timestamp(cutoffDate.getTime()));
+            } catch (Exception e) {
+                lastError = e.getMessage();
+                log.error("Activity cold roll failed after moving {} rows: {}", moved, e.getMessage());
+            } finally {
+                finishedAt = new Date();
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Tối đa limit activity của tầng lạnh đứng trước con trỏ (beforeCreatedAt, beforeId) và không cũ hơn
+     * fromCreatedAt, lọc theo loại (null = mọi loại), mới nhất trước
+     */
+    public List<ActivityRecord> findBefore(ActivityType type, long beforeCreatedAt, long beforeId,
+                                           long fromCreatedAt, int limit) {
+        List<ActivityRecord> merged = new ArrayList<>();
+        for (ActivitySegment segment : segments) {
+            // Segment theo maxCreatedAt giảm dần: khi đã đủ limit và segment này cũ hơn hẳn thì các segment sau cũng vậy
+            if (merged.size() >= limit && segment.getMaxCreatedAt() < merged.get(limit - 1).getCreatedAt()) {
+                break;
+            }
+            List<ActivityRecord> found = segment.findBefore(type, beforeCreatedAt, beforeId, fromCreatedAt, limit);
+            if (found.isEmpty()) {
+                continue;
+            }
+            merged.addAll(found);
+            merged.sort(NEWEST_FIRST);
+            if (merged.size() > limit) {
+                merged.subList(limit, merged.size()).clear();
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Tổng số activity theo loại đang nằm ở tầng lạnh (đọc từ footer, không quét record)
+     */
+    public Map<ActivityType, Long> countByType() {
+        Map<ActivityType, Long> result = new EnumMap<>(ActivityType.class);
+        for (ActivitySegment segment : segments) {
+            segment.getCountByType().forEach((type, count) -> result.merge(type, count, Long::sum));
+        }
+        return result;
+    }
+
+    /**
+     * Xóa các segment mà mọi record đều cũ hơn cutoff; trả về số record bị xóa
+     */
+    public synchronized long dropSegmentsBefore(Date cutoffDate) {
+        long dropped = 0;
+        List<ActivitySegment> kept = new ArrayList<>();
+        for (ActivitySegment segment : segments) {
+            if (segment.getMaxCreatedAt() >= cutoffDate.getTime()) {
+                kept.add(segment);
+                continue;
+            }
+            try {
+                Files.deleteIfExists(segment.getPath());
+                dropped += segment.getRecordCount();
+            } catch (IOException e) {
+                kept.add(segment);
+                log.warn("Cannot delete activity segment {}: {}", segment.getPath(), e.getMessage());
+            }
+        }
+        segments = sorted(kept);
+        if (dropped > 0) {
+            log.info("Dropped {} cold activity records older than {}", dropped, cutoffDate);
+        }
+        return dropped;
+    }
+
+    public Map<String, Object> getStatus() {
+        List<ActivitySegment> current = segments;
+        Map<String, Object> status = new HashMap<>();
+        status.put("enabled", enabled);
+        status.put("afterDays", afterDays);
+        status.put("segments", current.size());
+        status.put("records", current.stream().mapToLong(ActivitySegment::getRecordCount).sum());
+        status.put("sizeBytes", current.stream().mapToLong(ActivitySegment::getSizeBytes).sum());
+        OptionalLong oldest = current.stream().mapToLong(ActivitySegment::getMinCreatedAt).min();
+        status.put("oldest", oldest.isPresent() ? new Date(oldest.getAsLong()) : null);
+        status.put("running", running.get());
+        status.put("startedAt", startedAt);
+        status.put("finishedAt", finishedAt);
+        status.put("cutoff", cutoff);
+        status.put("moved", moved);
+        status.put("segmentsWritten", segmentsWritten);
+        status.put("lastError", lastError);
+        return status;
+    }
+
+    @PreDestroy
+    public void stop() {
+        // Segment đang ghi dở bị bỏ; các dòng của nó vẫn còn trong database
+        stopRequested = true;
+        executor.shutdownNow();
+    }
+
+    private void roll(Timestamp cutoffTs) throws IOException, InterruptedException {
+        Path dir = Paths.get(segmentDir);
+        Files.createDirectories(dir);
+        log.info("Activity cold roll started: moving rows older than {}", cutoffTs);
+
+        deleteLeftoversOfSealedSegments();
+
+        boolean more = true;
+        while (more && !stopRequested) {
+            List<Long> ids = new ArrayList<>();
+            Path sealed = null;
+            try (ActivitySegmentWriter writer = new ActivitySegmentWriter(dir)) {
+                Timestamp lastCreatedAt = null;
+                long lastId = 0;
+                while (writer.getRecordCount() < segmentMaxRecords && !stopRequested) {
+                    int limit = Math.min(chunkSize, segmentMaxRecords - writer.getRecordCount());
+                    List<Object[]> chunk = lastCreatedAt == null
+                            ? jdbcTemplate.query(FIRST_CHUNK_SQL, this::mapRow, cutoffTs, limit)
+                            : jdbcTemplate.query(NEXT_CHUNK_SQL, this::mapRow, cutoffTs, lastCreatedAt, lastCreatedAt, lastId, limit);
+                    for (Object[] row : chunk) {
+                        ActivityRecord record = (ActivityRecord) row[0];
+                        writer.append(record);
+                        ids.add(record.getId());
+                        lastCreatedAt = (Timestamp) row[1];
+                        lastId = record.getId();
+                    }
+                    if (chunk.size() < limit) {
+                        more = false;
+                        break;
+                    }
+                }
+                if (writer.getRecordCount() > 0) {
+                    sealed = writer.seal();
+                }
+            }
+            if (sealed == null) {
+                break;
+            }
+
+            addSegment(ActivitySegment.open(sealed));
+            segmentsWritten++;
+            // Chỉ xóa khỏi database sau khi segment đã nằm trên đĩa và đọc được
+            deleteIds(ids);
+            log.info("Activity segment {} sealed with {} records", sealed.getFileName(), ids.size());
+        }
+        log.info("Activity cold roll finished: {} rows moved into {} segments", moved, segmentsWritten);
+    }
+
+    /**
+     * Nếu lượt trước dừng giữa lúc đóng segment và xóa dòng, các dòng đó vẫn còn trong database: xóa nốt
+     * (chỉ cần kiểm tra segment có record không cũ hơn dòng cũ nhất còn lại)
+     */
+    private void deleteLeftoversOfSealedSegments() throws InterruptedException {
+        Timestamp oldestHot = jdbcTemplate.queryForObject("SELECT MIN(created_at) FROM activity", Timestamp.class);
+        if (oldestHot == null) {
+            return;
+        }
+        for (ActivitySegment segment : segments) {
+            if (segment.getMaxCreatedAt() < oldestHot.getTime()) {
+                continue;
+            }
+            List<Long> ids = new ArrayList<>(segment.getRecordCount());
+            segment.forEachId(ids::add);
+            long before = moved;
+            deleteIds(ids);
+            if (moved > before) {
+                log.info("Removed {} rows left in the database by an interrupted roll of {}", moved - before,
+                        segment.getPath().getFileName());
+            }
+        }
+    }
+
+    private void deleteIds(List<Long> ids) throws InterruptedException {
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            List<Long> chunk = ids.subList(from, Math.min(from + chunkSize, ids.size()));
+            String placeholders = chunk.stream().map(id -> "?").collect(Collectors.joining(","));
+            moved += jdbcTemplate.update("DELETE FROM activity WHERE id IN (" + placeholders + ")", chunk.toArray());
+            if (pauseMs > 0 && !stopRequested) {
+                Thread.sleep(pauseMs);
+            }
+        }
+    }
+
+    private synchronized void addSegment(ActivitySegment segment) {
+        List<ActivitySegment> updated = new ArrayList<>(segments);
+        updated.add(segment);
+        segments = sorted(updated);
+    }
+
+    private List<ActivitySegment> sorted(List<ActivitySegment> list) {
+        list.sort(Comparator.comparingLong(ActivitySegment::getMaxCreatedAt).reversed());
+        return list;
+    }
+
+    // Trả về (record, createdAt gốc): con trỏ đọc tiếp dùng Timestamp đầy đủ độ chính xác của cột
+    private Object[] mapRow(ResultSet rs, int rowNum) throws SQLException {
+        Timestamp createdAt = rs.getTimestamp("created_at");
+        ActivityRecord record = new ActivityRecord();
+        record.setId(rs.getLong("id"));
+        record.setCreatedAt(createdAt.getTime());
+        record.setActivityType(parseType(rs.getString("activity_type")));
+        record.setUserId(nullableLong(rs, "user_id"));
+        record.setEntityType(rs.getString("entity_type"));
+        record.setEntityId(nullableLong(rs, "entity_id"));
+        record.setTitleTemplateId(nullableInt(rs, "title_template_id"));
+        record.setDescriptionTemplateId(nullableInt(rs, "description_template_id"));
+        record.setTitle(rs.getString("title"));
+        record.setDescription(rs.getString("description"));
+        record.setParams(rs.getString("params"));
+        record.setMetadata(rs.getString("metadata"));
+        return new Object[] { record, createdAt };
+    }
+
+    private Long nullableLong(ResultSet rs, String column) throws SQLException {
+        long value = rs.getLong(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    private Integer nullableInt(ResultSet rs, String column) throws SQLException {
+        int value = rs.getInt(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    private ActivityType parseType(String name) {
+        try {
+            return name != null ? ActivityType.valueOf(name) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
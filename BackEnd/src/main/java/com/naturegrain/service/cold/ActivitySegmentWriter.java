@@ -0,0 +1,139 @@
+package com.naturegrain.service.cold;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.naturegrain.entity.ActivityType;
+
+/**
+ * Ghi một segment mới vào file tạm; seal() ghi footer, fsync rồi đổi tên nguyên tử thành file .seg.
+ * Record phải được thêm theo thứ tự (createdAt, id) tăng dần.
+ */
+public final class ActivitySegmentWriter implements Closeable {
+
+    private final Path dir;
+    private final Path tempFile;
+    private final FileChannel channel;
+    private final DataOutputStream out;
+
+    // Mỗi record được mã hóa vào bộ đệm riêng để biết độ dài trước khi ghi
+    private final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(256);
+    private final DataOutputStream recordOut = new DataOutputStream(recordBytes);
+
+    private final List<long[]> sparseIndex = new ArrayList<>();
+    private final Map<ActivityType, int[]> typeIndex = new LinkedHashMap<>();
+
+    private long offset;
+    private int recordCount;
+    private long minCreatedAt = Long.MAX_VALUE;
+    private long maxCreatedAt = Long.MIN_VALUE;
+    private long minId = Long.MAX_VALUE;
+    private long maxId = Long.MIN_VALUE;
+    private boolean sealed;
+
+    public ActivitySegmentWriter(Path dir) throws IOException {
+        this.dir = dir;
+        this.tempFile = Files.createTempFile(dir, "activity-", ".tmp");
+        this.channel = FileChannel.open(tempFile, StandardOpenOption.WRITE);
+        this.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024));
+    }
+
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    public void append(ActivityRecord record) throws IOException {
+        if (recordCount > 0 && !(maxCreatedAt < record.getCreatedAt()
+                || (maxCreatedAt == record.getCreatedAt() && maxId < record.getId()))) {
+            throw new IllegalArgumentException("Records must be appended in (createdAt, id) order");
+        }
+
+        int[] typeEntry = typeIndex.computeIfAbsent(record.getActivityType(), t -> new int[] { typeIndex.size(), 0 });
+        typeEntry[1]++;
+
+        recordBytes.reset();
+        recordOut.writeLong(record.getId());
+        recordOut.writeLong(record.getCreatedAt());
+        recordOut.writeByte(typeEntry[0]);
+        recordOut.writeLong(record.getUserId() != null ? record.getUserId() : -1L);
+        recordOut.writeLong(record.getEntityId() != null ? record.getEntityId() : Long.MIN_VALUE);
+        recordOut.writeInt(record.getTitleTemplateId() != null ? record.getTitleTemplateId() : -1);
+        recordOut.writeInt(record.getDescriptionTemplateId() != null ? record.getDescriptionTemplateId() : -1);
+        ActivitySegmentFormat.writeString(recordOut, record.getEntityType());
+        ActivitySegmentFormat.writeString(recordOut, record.getTitle());
+        ActivitySegmentFormat.writeString(recordOut, record.getDescription());
+        ActivitySegmentFormat.writeString(recordOut, record.getParams());
+        ActivitySegmentFormat.writeString(recordOut, record.getMetadata());
+        recordOut.flush();
+
+        if (recordCount % ActivitySegmentFormat.SPARSE_EVERY == 0) {
+            sparseIndex.add(new long[] { record.getCreatedAt(), offset });
+        }
+        out.writeInt(recordBytes.size());
+        recordBytes.writeTo(out);
+        offset += Integer.BYTES + recordBytes.size();
+
+        recordCount++;
+        minCreatedAt = Math.min(minCreatedAt, record.getCreatedAt());
+        maxCreatedAt = Math.max(maxCreatedAt, record.getCreatedAt());
+        minId = Math.min(minId, record.getId());
+        maxId = Math.max(maxId, record.getId());
+    }
+
+    /**
+     * Ghi footer, đồng bộ xuống đĩa và đổi tên thành file segment; trả về đường dẫn file đã đóng
+     */
+    public Path seal() throws IOException {
+        if (recordCount == 0) {
+            throw new IllegalStateException("Cannot seal an empty segment");
+        }
+        long footerOffset = offset;
+        out.writeInt(sparseIndex.size());
+        for (long[] entry : sparseIndex) {
+            out.writeLong(entry[0]);
+            out.writeLong(entry[1]);
+        }
+        out.writeInt(typeIndex.size());
+        for (Map.Entry<ActivityType, int[]> entry : typeIndex.entrySet()) {
+            ActivitySegmentFormat.writeString(out, entry.getKey() != null ? entry.getKey().name() : null);
+            out.writeInt(entry.getValue()[1]);
+        }
+        out.writeLong(minCreatedAt);
+        out.writeLong(maxCreatedAt);
+        out.writeLong(minId);
+        out.writeLong(maxId);
+        out.writeInt(recordCount);
+        out.writeLong(footerOffset);
+        out.writeInt(ActivitySegmentFormat.MAGIC);
+        out.flush();
+        channel.force(true);
+        out.close();
+
+        Path target = dir.resolve(String.format("activity-%d-%d%s", minCreatedAt, minId, ActivitySegmentFormat.EXTENSION));
+        Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE);
+        sealed = true;
+        return target;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!sealed) {
+            // Segment dở dang (lỗi giữa chừng) bị bỏ, dữ liệu vẫn nằm trong database
+            out.close();
+            Files.deleteIfExists(tempFile);
+        }
+    }
+}
@@ -10,7 +10,9 @@ import com.naturegrain.entity.Category;
 import com.naturegrain.exception.NotFoundException;
 import com.naturegrain.model.request.CreateCategoryRequest;
 import com.naturegrain.repository.CategoryRepository;
+import com.naturegrain.service.AfterCommit;
 import com.naturegrain.service.CategoryService;
+import com.naturegrain.service.ProductCatalogCache;
 
 @Service
 public class CategoryServiceImpl implements CategoryService {
@@ -18,6 +20,9 @@ public class CategoryServiceImpl implements CategoryService {
     @Autowired
     private CategoryRepository categoryRepository;
 
+    @Autowired
+    private ProductCatalogCache productCatalogCache;
+
     @Override
     public List<Category> findAll() {
         // TODO Auto-generated method stub
@@ -54,6 +59,7 @@ public class CategoryServiceImpl implements CategoryService {
             category.setEnable(true);
         }
         categoryRepository.save(category);
+        AfterCommit.run(() -> productCatalogCache.updateCategory(id, category.isEnable()));
     }
 
     @Override
@@ -61,6 +67,8 @@ public class CategoryServiceImpl implements CategoryService {
         // TODO Auto-generated method stub
         Category category = categoryRepository.findById(id).orElseThrow(() -> new NotFoundException("Not Found Category With Id: " + id));
         categoryRepository.delete(category);
+        // Sản phẩm thuộc danh mục bị xóa thay đổi category_id, nạp lại từ database
+        AfterCommit.run(productCatalogCache::reconcile);
     }    @Override
     public List<Category> getListEnabled() {
         // TODO Auto-generated method stub
@@ -1,31 +1,70 @@
 package com.naturegrain.service.impl;
 
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
 
 import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.naturegrain.entity.ActivityMessage;
+import com.naturegrain.entity.ActivityType;
 import com.naturegrain.entity.Order;
 import com.naturegrain.entity.OrderDetail;
+import com.naturegrain.entity.OrderSummary;
 import com.naturegrain.entity.Product;
 import com.naturegrain.entity.User;
+import com.naturegrain.exception.BadRequestException;
 import com.naturegrain.exception.NotFoundException;
 import com.naturegrain.model.request.CreateOrderDetailRequest;
 import com.naturegrain.model.request.CreateOrderRequest;
+import com.naturegrain.model.request.OrderFilterRequest;
+import com.naturegrain.model.response.AdminOrderResponse;
+import com.naturegrain.model.response.CartQuoteResponse;
+import com.naturegrain.model.response.CustomerOrderPageResponse;
+import com.naturegrain.model.response.CustomerOrderResponse;
 import com.naturegrain.repository.OrderDetailRepository;
 import com.naturegrain.repository.OrderRepository;
+import com.naturegrain.repository.OrderSummaryRepository;
 import com.naturegrain.repository.ProductRepository;
 import com.naturegrain.repository.UserRepository;
+import com.naturegrain.security.CurrentUserResolver;
+import com.naturegrain.security.service.UserDetailsImpl;
+import com.naturegrain.service.ActivityService;
+import com.naturegrain.service.CustomerGrowthRollup;
 import com.naturegrain.service.OrderService;
+import com.naturegrain.service.OrderStatusHistoryService;
+import com.naturegrain.service.ProductCatalogCache;
+
+import lombok.extern.slf4j.Slf4j;
 
 @Service
+@Slf4j
 public class OrderServiceImpl implements OrderService {
+
+    private static final int MAX_ADMIN_PAGE_SIZE = 100;
+
+    private static final int MAX_CUSTOMER_PAGE_SIZE = 50;
     
     @Autowired
     private OrderRepository orderRepository;
@@ -33,15 +72,39 @@ public class OrderServiceImpl implements OrderService {
     @Autowired
     private OrderDetailRepository orderDetailRepository;
 
+    @Autowired
+    private OrderSummaryRepository orderSummaryRepository;
+
     @Autowired
     private UserRepository userRepository;
     
     @PersistenceContext
     private EntityManager entityManager;    @Autowired
     private ProductRepository productRepository;
+
+    @Autowired
+    private ProductCatalogCache productCatalogCache;
+
+    @Autowired
+    private OrderStatusHistoryService orderStatusHistoryService;
+
+    @Autowired
+    private ActivityService activityService;
+
+    @Autowired
+    private CustomerGrowthRollup customerGrowthRollup;
+
+    @Autowired
+    private CurrentUserResolver currentUserResolver;
       @Override
     @Transactional
     public Order placeOrder(CreateOrderRequest request) {
+        // Giá và tồn kho luôn được tính lại từ phía server, bỏ qua giá client gửi lên
+        CartQuoteResponse quote = quoteCart(request.getOrderDetails());
+        if (!quote.isValid()) {
+            throw new BadRequestException(String.join("; ", quote.getErrors()));
+        }
+
         // Create the order
         Order order = new Order();
         User user = userRepository.findByUsername(request.getUsername())
@@ -60,61 +123,256 @@ public class OrderServiceImpl implements OrderService {
         order.setNote(request.getNote());
         order.setUser(user);
         order.setStatus("PENDING");
+        order.setTotalPrice(quote.getTotalPrice());
         
         // Save the order first to generate an ID
         orderRepository.save(order);
         
         // Process order details
-        long totalPrice = 0;
-        for(CreateOrderDetailRequest rq: request.getOrderDetails()){
+        for (CartQuoteResponse.Line line : quote.getLines()) {
             OrderDetail orderDetail = new OrderDetail();
-            orderDetail.setName(rq.getName());
-            orderDetail.setPrice(rq.getPrice());
-            orderDetail.setQuantity(rq.getQuantity());
-            orderDetail.setSubTotal(rq.getPrice() * rq.getQuantity());
+            orderDetail.setName(line.getName());
+            orderDetail.setPrice(line.getPrice());
+            orderDetail.setQuantity(line.getQuantity());
+            orderDetail.setSubTotal(line.getSubTotal());
             orderDetail.setOrder(order);
             
-            // Link to the product entity
-            if(rq.getProductId() != null) {
-                Product product = productRepository.findById(rq.getProductId())
-                    .orElseThrow(() -> new NotFoundException("Not Found Product With Id: " + rq.getProductId()));
-                orderDetail.setProduct(product);
-            }
+            // Link to the product entity - sản phẩm đã được xác thực qua cache nên chỉ cần reference
+            orderDetail.setProduct(productRepository.getReferenceById(line.getProductId()));
             
-            totalPrice += orderDetail.getSubTotal();
             orderDetailRepository.save(orderDetail);
         }
-        
-        // Update the total price and save the order again
-        order.setTotalPrice(totalPrice);
-        orderRepository.save(order);
+
+        // Bản tóm tắt cho bảng quản trị được ghi trong cùng transaction
+        orderSummaryRepository.save(OrderSummary.from(order, quote.getTotalQuantity()));
+
+        // Số đơn theo user cho thống kê khách quay lại, cùng transaction
+        customerGrowthRollup.onOrderPlaced(user.getId());
+
+        // Activity được đưa vào outbox cùng transaction, ghi sau khi commit
+        activityService.publishActivity(ActivityType.ORDER_CREATED, ActivityMessage.ORDER_CREATED,
+                user.getId(), "Order", order.getId(),
+                order.getId(), order.getTotalPrice(), user.getUsername());
         
         // Đảm bảo tất cả thay đổi được lưu và session được flush
         entityManager.flush();
         
         return order;
-    }@Override
+    }
+
+    @Override
+    public CartQuoteResponse quoteCart(List<CreateOrderDetailRequest> orderDetails) {
+        CartQuoteResponse quote = new CartQuoteResponse();
+        if (orderDetails == null || orderDetails.isEmpty()) {
+            quote.getErrors().add("Cart is empty");
+            return quote;
+        }
+
+        // Cộng dồn số lượng theo sản phẩm để kiểm tra tồn kho khi cùng sản phẩm xuất hiện nhiều dòng
+        Map<Long, Integer> requestedByProduct = new HashMap<>();
+        long totalPrice = 0;
+        int totalQuantity = 0;
+        for (CreateOrderDetailRequest rq : orderDetails) {
+            Long productId = rq.getProductId();
+            if (productId == null) {
+                quote.getErrors().add("Missing product id for item: " + rq.getName());
+                continue;
+            }
+
+            ProductCatalogCache.Entry entry = productCatalogCache.get(productId);
+            if (entry == null) {
+                quote.getErrors().add("Not Found Product With Id: " + productId);
+                continue;
+            }
+            if (rq.getQuantity() <= 0) {
+                quote.getErrors().add("Invalid quantity for product: " + entry.getName());
+                continue;
+            }
+
+            int requested = requestedByProduct.merge(productId, rq.getQuantity(), Integer::sum);
+            boolean available = entry.isEnabled() && requested <= entry.getQuantity();
+            if (!entry.isEnabled()) {
+                quote.getErrors().add("Product is not available for sale: " + entry.getName());
+            } else if (!available) {
+                quote.getErrors().add(String.format("Insufficient stock for product %s: requested %d, available %d",
+                        entry.getName(), requested, entry.getQuantity()));
+            }
+
+            long subTotal = entry.getPrice() * rq.getQuantity();
+            quote.getLines().add(new CartQuoteResponse.Line(productId, entry.getName(), entry.getPrice(),
+                    rq.getQuantity(), subTotal, entry.getQuantity(), available));
+            totalPrice += subTotal;
+            totalQuantity += rq.getQuantity();
+        }
+
+        quote.setTotalPrice(totalPrice);
+        quote.setTotalQuantity(totalQuantity);
+        quote.setValid(quote.getErrors().isEmpty());
+        return quote;
+    }
+
+    @Override
     @Transactional(readOnly = true)
-    public List<Order> getList() {
-        List<Order> orders = orderRepository.findAll(Sort.by("id").descending());
-        
-        // Ensure product relationships are loaded for all order details
-        for (Order order : orders) {
-            for (OrderDetail detail : order.getOrderDetails()) {
-                if (detail.getProduct() != null) {
-                    // Trigger loading of product data
-                    detail.getProduct().getName();
-                }
+    public List<OrderSummary> getSummaryList(String sortBy) {
+        return orderSummaryRepository.findAll(buildSummarySort(sortBy));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<AdminOrderResponse> getOrdersPaginated(OrderFilterRequest filter, int page, int size) {
+        Pageable pageable = PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), MAX_ADMIN_PAGE_SIZE));
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+
+        // Giai đoạn 1: chỉ lấy id của trang hiện tại, lọc và sắp xếp hoàn toàn trong SQL
+        CriteriaQuery<Long> idQuery = cb.createQuery(Long.class);
+        Root<Order> root = idQuery.from(Order.class);
+        idQuery.select(root.get("id"))
+                .where(buildOrderPredicates(cb, root, filter))
+                .orderBy(buildOrderSort(cb, root, filter.getSortBy()));
+        List<Long> ids = entityManager.createQuery(idQuery)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize())
+                .getResultList();
+
+        CriteriaQuery<Long> countQuery = cb.createQuery(Long.class);
+        Root<Order> countRoot = countQuery.from(Order.class);
+        countQuery.select(cb.count(countRoot)).where(buildOrderPredicates(cb, countRoot, filter));
+        long total = entityManager.createQuery(countQuery).getSingleResult();
+
+        if (ids.isEmpty()) {
+            return new PageImpl<>(new ArrayList<>(), pageable, total);
+        }
+
+        // Giai đoạn 2: nạp đơn hàng + chi tiết, rồi sản phẩm + ảnh + danh mục bằng truy vấn IN
+        Map<Long, Order> byId = new HashMap<>();
+        for (Order order : orderRepository.findAllWithDetailsByIdIn(ids)) {
+            byId.put(order.getId(), order);
+        }
+        // Sản phẩm nạp vào persistence context sẽ khởi tạo các proxy OrderDetail.product của trang
+        productRepository.findAllByOrderIdIn(ids);
+
+        // Giữ nguyên thứ tự đã sắp xếp ở giai đoạn 1
+        List<AdminOrderResponse> orders = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Order order = byId.get(id);
+            if (order != null) {
+                orders.add(toAdminOrderResponse(order));
             }
         }
-        
-        // Khởi tạo lazy collections để tránh Hibernate collection warnings và tránh lỗi LazyInitializationException
-        for (Order order : orders) {
-            Hibernate.initialize(order.getOrderDetails());
-            Hibernate.initialize(order.getUser());
+        return new PageImpl<>(orders, pageable, total);
+    }
+
+    private AdminOrderResponse toAdminOrderResponse(Order order) {
+        AdminOrderResponse response = new AdminOrderResponse();
+        response.setId(order.getId());
+        response.setFirstname(order.getFirstname());
+        response.setLastname(order.getLastname());
+        response.setCountry(order.getCountry());
+        response.setAddress(order.getAddress());
+        response.setTown(order.getTown());
+        response.setState(order.getState());
+        response.setPostcode(order.getPostcode());
+        response.setEmail(order.getEmail());
+        response.setPhone(order.getPhone());
+        response.setNote(order.getNote());
+        response.setTotalPrice(order.getTotalPrice());
+        response.setStatus(order.getStatus());
+        response.setCreateAt(order.getCreateAt());
+        // Lấy id từ proxy, không nạp dòng user
+        response.setUserId(order.getUser() != null ? order.getUser().getId() : null);
+        for (OrderDetail detail : order.getOrderDetails()) {
+            Product product = detail.getProduct();
+            String imageUrl = product != null && product.getImages() != null && !product.getImages().isEmpty()
+                    ? product.getImages().iterator().next().getUrl()
+                    : null;
+            response.getOrderDetails().add(new AdminOrderResponse.Item(detail.getId(),
+                    product != null ? product.getId() : null, detail.getName(), detail.getPrice(),
+                    detail.getQuantity(), detail.getSubTotal(), imageUrl));
         }
-        
-        return orders;
+        return response;
+    }
+
+    // Order và OrderSummary dùng chung tên thuộc tính status, createAt, email, phone
+    private Predicate[] buildOrderPredicates(CriteriaBuilder cb, Root<?> root, OrderFilterRequest filter) {
+        List<Predicate> predicates = new ArrayList<>();
+        if (filter.getStatus() != null && !filter.getStatus().isBlank()) {
+            predicates.add(cb.equal(root.get("status"), filter.getStatus().trim().toUpperCase()));
+        }
+        if (filter.getFrom() != null) {
+            Timestamp from = Timestamp.valueOf(filter.getFrom().atStartOfDay());
+            predicates.add(cb.greaterThanOrEqualTo(root.<Timestamp>get("createAt"), from));
+        }
+        if (filter.getTo() != null) {
+            Timestamp to = Timestamp.valueOf(filter.getTo().plusDays(1).atStartOfDay());
+            predicates.add(cb.lessThan(root.<Timestamp>get("createAt"), to));
+        }
+        // Tìm theo tiền tố để MariaDB có thể dùng index trên email/phone
+        if (filter.getEmail() != null && !filter.getEmail().isBlank()) {
+            predicates.add(cb.like(root.<String>get("email"), escapeLike(filter.getEmail().trim()) + "%", '\\'));
+        }
+        if (filter.getPhone() != null && !filter.getPhone().isBlank()) {
+            predicates.add(cb.like(root.<String>get("phone"), escapeLike(filter.getPhone().trim()) + "%", '\\'));
+        }
+        return predicates.toArray(new Predicate[0]);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<OrderSummary> getOrderSummaries(OrderFilterRequest filter, int page, int size) {
+        Pageable pageable = PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), MAX_ADMIN_PAGE_SIZE),
+                buildSummarySort(filter.getSortBy()));
+        Specification<OrderSummary> spec = (root, query, cb) -> cb.and(buildOrderPredicates(cb, root, filter));
+        return orderSummaryRepository.findAll(spec, pageable);
+    }
+
+    private Sort buildSummarySort(String sortBy) {
+        String key = sortBy != null ? sortBy : "newest";
+        switch (key) {
+            case "oldest":
+                return Sort.by(Sort.Order.asc("createAt"), Sort.Order.asc("orderId"));
+            case "highest_price":
+                return Sort.by(Sort.Order.desc("totalPrice"), Sort.Order.desc("orderId"));
+            case "lowest_price":
+                return Sort.by(Sort.Order.asc("totalPrice"), Sort.Order.asc("orderId"));
+            case "newest":
+            default:
+                return Sort.by(Sort.Order.desc("createAt"), Sort.Order.desc("orderId"));
+        }
+    }
+
+    /**
+     * Bổ sung order_summary cho các đơn hàng có từ trước bằng một câu INSERT ... SELECT
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillOrderSummaries() {
+        try {
+            int inserted = orderSummaryRepository.backfillMissing();
+            if (inserted > 0) {
+                log.info("Backfilled {} order summaries", inserted);
+            }
+        } catch (Exception e) {
+            log.error("Failed to backfill order summaries: {}", e.getMessage());
+        }
+    }
+
+    private List<javax.persistence.criteria.Order> buildOrderSort(CriteriaBuilder cb, Root<Order> root, String sortBy) {
+        String key = sortBy != null ? sortBy : "newest";
+        switch (key) {
+            case "oldest":
+                return List.of(cb.asc(root.get("createAt")), cb.asc(root.get("id")));
+            case "highest_price":
+                return List.of(cb.desc(root.get("totalPrice")), cb.desc(root.get("id")));
+            case "lowest_price":
+                return List.of(cb.asc(root.get("totalPrice")), cb.asc(root.get("id")));
+            case "newest":
+            default:
+                return List.of(cb.desc(root.get("createAt")), cb.desc(root.get("id")));
+        }
+    }
+
+    private String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
     }
 
     @Override
@@ -133,6 +391,42 @@ public class OrderServiceImpl implements OrderService {
         return orders;  
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public CustomerOrderPageResponse getOrdersForUser(long userId, Long before, int size) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_CUSTOMER_PAGE_SIZE);
+        // Lấy dư một bản ghi để biết còn trang sau hay không, không cần COUNT
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+        List<Order> orders = before != null
+                ? orderRepository.findByUserIdAndIdLessThanOrderByIdDesc(userId, before, limit)
+                : orderRepository.findByUserIdOrderByIdDesc(userId, limit);
+
+        boolean hasMore = orders.size() > pageSize;
+        if (hasMore) {
+            orders = orders.subList(0, pageSize);
+        }
+
+        Map<Long, CustomerOrderResponse> byId = new LinkedHashMap<>();
+        for (Order order : orders) {
+            byId.put(order.getId(), new CustomerOrderResponse(order.getId(), order.getStatus(),
+                    order.getTotalPrice(), order.getCreateAt(), new ArrayList<>()));
+        }
+
+        if (!byId.isEmpty()) {
+            for (Object[] row : orderDetailRepository.findLinesByOrderIdIn(byId.keySet())) {
+                CustomerOrderResponse dto = byId.get(((Number) row[0]).longValue());
+                long price = ((Number) row[3]).longValue();
+                int quantity = ((Number) row[4]).intValue();
+                dto.getItems().add(new CustomerOrderResponse.Item(
+                        row[1] != null ? ((Number) row[1]).longValue() : null,
+                        (String) row[2], price, quantity, price * quantity));
+            }
+        }
+
+        Long nextBefore = hasMore ? orders.get(orders.size() - 1).getId() : null;
+        return new CustomerOrderPageResponse(new ArrayList<>(byId.values()), nextBefore, hasMore);
+    }
+
     @Override
     @Transactional
     public OrderDetail associateProductWithOrderDetail(Long orderDetailId, Long productId) {
@@ -174,10 +468,54 @@ public class OrderServiceImpl implements OrderService {
     @Override
     @Transactional
     public Order updateOrderStatus(Long orderId, String status) {
+        // Trạng thái được ghi vào các cột có độ dài cố định (order_summary, lịch sử, thống kê)
+        if (status == null || status.isBlank() || status.length() > OrderStatusHistoryService.MAX_STATUS_LENGTH) {
+            throw new BadRequestException("Invalid order status: must be 1-"
+                    + OrderStatusHistoryService.MAX_STATUS_LENGTH + " characters");
+        }
         Order order = orderRepository.findById(orderId)
             .orElseThrow(() -> new NotFoundException("Not Found Order With Id: " + orderId));
             
+        String previousStatus = order.getStatus();
         order.setStatus(status);
-        return orderRepository.save(order);
+        Order saved = orderRepository.save(order);
+        orderSummaryRepository.updateStatus(orderId, status);
+        orderStatusHistoryService.recordTransition(saved, previousStatus, status);
+
+        UserDetailsImpl actor = currentUserResolver.getPrincipal();
+        if (actor != null) {
+            ActivityType activityType = "COMPLETED".equalsIgnoreCase(status)
+                    ? ActivityType.ORDER_COMPLETED
+                    : ActivityType.ORDER_UPDATED;
+            activityService.publishActivity(activityType, ActivityMessage.ORDER_STATUS_UPDATED,
+                    actor.getId(), "Order", saved.getId(),
+                    saved.getId(), status, actor.getUsername());
+        }
+        return saved;
+    }
+
+    @Override
+    @Transactional
+    public Order cancelOrder(Long orderId) {
+        Order order = orderRepository.findById(orderId)
+            .orElseThrow(() -> new NotFoundException("Not Found Order With Id: " + orderId));
+
+        if (!"PENDING".equals(order.getStatus())) {
+            throw new BadRequestException("Cannot cancel order that is not in PENDING state");
+        }
+
+        String previousStatus = order.getStatus();
+        order.setStatus("CANCELLED");
+        Order saved = orderRepository.save(order);
+        orderSummaryRepository.updateStatus(orderId, "CANCELLED");
+        orderStatusHistoryService.recordTransition(saved, previousStatus, "CANCELLED");
+
+        UserDetailsImpl actor = currentUserResolver.getPrincipal();
+        if (actor != null) {
+            activityService.publishActivity(ActivityType.ORDER_CANCELLED, ActivityMessage.ORDER_CANCELLED,
+                    actor.getId(), "Order", saved.getId(),
+                    saved.getId(), saved.getTotalPrice(), actor.getUsername());
+        }
+        return saved;
     }
 }
@@ -8,7 +8,10 @@ import java.util.stream.Collectors;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.naturegrain.entity.ActivityMessage;
+import com.naturegrain.entity.ActivityType;
 import com.naturegrain.entity.Category;
 import com.naturegrain.entity.Image;
 import com.naturegrain.entity.Product;
@@ -17,6 +20,11 @@ import com.naturegrain.model.request.CreateProductRequest;
 import com.naturegrain.repository.CategoryRepository;
 import com.naturegrain.repository.ImageRepository;
 import com.naturegrain.repository.ProductRepository;
+import com.naturegrain.security.CurrentUserResolver;
+import com.naturegrain.security.service.UserDetailsImpl;
+import com.naturegrain.service.ActivityService;
+import com.naturegrain.service.AfterCommit;
+import com.naturegrain.service.ProductCatalogCache;
 import com.naturegrain.service.ProductService;
 
 @Service
@@ -31,6 +39,15 @@ public class ProductServiceImpl implements ProductService {
     @Autowired
     private ImageRepository imageRepository;
 
+    @Autowired
+    private ProductCatalogCache productCatalogCache;
+
+    @Autowired
+    private ActivityService activityService;
+
+    @Autowired
+    private CurrentUserResolver currentUserResolver;
+
     @Override
     public List<Product> getList() {
         // TODO Auto-generated method stub
@@ -47,6 +64,7 @@ public class ProductServiceImpl implements ProductService {
     }
 
     @Override
+    @Transactional
     public Product createProduct(CreateProductRequest request) {
         // TODO Auto-generated method stub
         Product product = new Product();
@@ -66,10 +84,13 @@ public class ProductServiceImpl implements ProductService {
         }
         product.setImages(images);
         productRepository.save(product);
+        AfterCommit.run(() -> productCatalogCache.put(product));
+        publishProductActivity(ActivityType.PRODUCT_CREATED, ActivityMessage.PRODUCT_CREATED, product.getName(), product.getId());
         return product;
     }
 
     @Override
+    @Transactional
     public Product updateProduct(long id, CreateProductRequest request) {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Not Found Product With Id: " + id));
@@ -105,10 +126,14 @@ public class ProductServiceImpl implements ProductService {
             }
         }
         
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        AfterCommit.run(() -> productCatalogCache.put(saved));
+        publishProductActivity(ActivityType.PRODUCT_UPDATED, ActivityMessage.PRODUCT_UPDATED, saved.getName(), saved.getId());
+        return saved;
     }
 
     @Override
+    @Transactional
     public void deleteProduct(long id) {
         // TODO Auto-generated method stub
         Product product = productRepository.findById(id)
@@ -116,6 +141,18 @@ public class ProductServiceImpl implements ProductService {
         // Clear the product-image relationship but don't delete the actual images
         product.setImages(new HashSet<>());
         productRepository.delete(product);
+        AfterCommit.run(() -> productCatalogCache.evict(id));
+        publishProductActivity(ActivityType.PRODUCT_DELETED, ActivityMessage.PRODUCT_DELETED, product.getName(), id);
+    }
+
+    // Activity được đưa vào outbox trong transaction của thao tác sản phẩm
+    private void publishProductActivity(ActivityType type, ActivityMessage message, String productName, long productId) {
+        UserDetailsImpl actor = currentUserResolver.getPrincipal();
+        if (actor == null) {
+            return;
+        }
+        activityService.publishActivity(type, message, actor.getId(), "Product", productId,
+                productName, actor.getUsername());
     }
 
     @Override
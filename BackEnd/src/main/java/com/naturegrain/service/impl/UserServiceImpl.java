@@ -1,13 +1,18 @@
 package com.naturegrain.service.impl;
 
 import java.util.HashSet;
+import java.util.Locale;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.naturegrain.entity.ActivityMessage;
+import com.naturegrain.entity.ActivityType;
 import com.naturegrain.entity.ERole;
 import com.naturegrain.entity.Role;
 import com.naturegrain.entity.User;
@@ -18,7 +23,13 @@ import com.naturegrain.model.request.CreateUserRequest;
 import com.naturegrain.model.request.UpdateProfileRequest;
 import com.naturegrain.repository.RoleRepository;
 import com.naturegrain.repository.UserRepository;
+import com.naturegrain.security.service.TokenVersionRegistry;
+import com.naturegrain.service.ActivityService;
+import com.naturegrain.service.CustomerGrowthRollup;
+import com.naturegrain.service.LastLoginTracker;
+import com.naturegrain.service.UserIdentityIndex;
 import com.naturegrain.service.UserService;
+import com.naturegrain.service.UserStatsService;
 
 @Service
 public class UserServiceImpl implements UserService {
@@ -30,9 +41,37 @@ public class UserServiceImpl implements UserService {
     private RoleRepository roleRepository;
 
     @Autowired
-    private PasswordEncoder encoder;    @Override
+    private PasswordEncoder encoder;
+
+    @Autowired
+    private ActivityService activityService;
+
+    @Autowired
+    private LastLoginTracker lastLoginTracker;
+
+    @Autowired
+    private UserIdentityIndex userIdentityIndex;
+
+    @Autowired
+    private UserStatsService userStatsService;
+
+    @Autowired
+    private CustomerGrowthRollup customerGrowthRollup;
+
+    @Autowired
+    private TokenVersionRegistry tokenVersionRegistry;
+
+    @Override
     @Transactional
     public User register(CreateUserRequest request) {
+        // Hầu hết các lần kiểm tra được Bloom filter trả lời mà không cần truy vấn
+        if (userIdentityIndex.isUsernameTaken(request.getUsername())) {
+            throw new BadRequestException("Error: Username is already taken!");
+        }
+        if (userIdentityIndex.isEmailTaken(request.getEmail())) {
+            throw new BadRequestException("Error: Email is already in use!");
+        }
+
         User user = new User();
         user.setUsername(request.getUsername());
         user.setEmail(request.getEmail());
@@ -76,17 +115,52 @@ public class UserServiceImpl implements UserService {
             });
         }
         user.setRoles(roles);
-        User savedUser = userRepository.save(user);
+        User savedUser;
+        try {
+            savedUser = userRepository.save(user);
+        } catch (DataIntegrityViolationException e) {
+            // User vừa đăng ký trên instance khác mà filter của instance này chưa nạp tới
+            throw new BadRequestException(duplicateMessage(e, request));
+        }
+        userIdentityIndex.add(savedUser.getUsername(), savedUser.getEmail());
+        userStatsService.onRegistered(savedUser.isActive(),
+                roles.stream().map(Role::getName).collect(Collectors.toSet()));
+        customerGrowthRollup.onRegistered(savedUser.getCreateAt(), savedUser.getCountry());
         return savedUser;
     }
 
+    // MariaDB báo giá trị bị trùng trong thông báo lỗi ("Duplicate entry '...' for key ...")
+    private String duplicateMessage(DataIntegrityViolationException e, CreateUserRequest request) {
+        String cause = String.valueOf(e.getMostSpecificCause().getMessage()).toLowerCase(Locale.ROOT);
+        String email = request.getEmail();
+        if (email != null && cause.contains("'" + email.trim().toLowerCase(Locale.ROOT) + "'")) {
+            return "Error: Email is already in use!";
+        }
+        return "Error: Username is already taken!";
+    }
+
     @Override
     @Transactional(readOnly = true)
     public User getUserByUsername(String username) {
         User user = userRepository.findByUsername(username)
             .orElseThrow(() -> new NotFoundException("Not Found User With Username: " + username));
         return user;
-    }    @Override
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public User recordLogin(String username) {
+        User user = getUserByUsername(username);
+        // Last login được ghi trễ theo lô, không ghi lại dòng user trên luồng đăng nhập
+        lastLoginTracker.record(user.getId());
+
+        // Activity đăng nhập đi qua ActivityWriteBuffer, không cần transaction ghi
+        activityService.createActivity(ActivityType.USER_LOGIN, ActivityMessage.USER_LOGIN,
+                user.getId(), null, null, user.getUsername());
+        return user;
+    }
+
+    @Override
     @Transactional
     public User updateUser(UpdateProfileRequest request) {
         User user = userRepository.findByUsername(request.getUsername())
@@ -94,6 +168,7 @@ public class UserServiceImpl implements UserService {
         user.setFirstname(request.getFirstname());
         user.setLastname(request.getLastname());
         user.setEmail(request.getEmail());
+        customerGrowthRollup.onCountryChanged(user.getCreateAt(), user.getCountry(), request.getCountry());
         user.setCountry(request.getCountry());
         user.setState(request.getState());
         user.setAddress(request.getAddress());
@@ -128,4 +203,19 @@ public class UserServiceImpl implements UserService {
         user.setPassword(encoder.encode(request.getNewPassword()));
         userRepository.save(user);
     }
+
+    @Override
+    @Transactional
+    public void deleteUser(Long id) {
+        User user = userRepository.findById(id)
+            .orElseThrow(() -> new NotFoundException("Not Found User With Id: " + id));
+        boolean wasActive = user.isActive();
+        Set<ERole> previousRoles = user.getRoles().stream().map(Role::getName).collect(Collectors.toSet());
+
+        // Xóa user, tombstone thu hồi token và các bảng đếm cùng commit hoặc cùng rollback
+        userRepository.delete(user);
+        tokenVersionRegistry.revokeDeleted(id);
+        userStatsService.onDeleted(wasActive, previousRoles);
+        customerGrowthRollup.onDeleted(id, user.getCreateAt(), user.getCountry());
+    }
 }
@@ -0,0 +1,154 @@
+package com.naturegrain.service.limit;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Giới hạn số request đồng thời tự điều chỉnh theo độ trễ (thuật toán gradient).
+ * So sánh độ trễ ngắn hạn với độ trễ nền dài hạn: khi độ trễ tăng (request bắt đầu xếp hàng ở database
+ * hoặc CPU) giới hạn giảm theo tỉ lệ, khi độ trễ ổn định giới hạn tăng thêm khoảng sqrt(limit).
+ * Request lỗi 5xx hoặc ném exception làm giới hạn giảm theo cấp số nhân như AIMD.
+ * Có thể cho một số ít request chờ suất trong thời gian ngắn trước khi bị từ chối.
+ */
+public class AdaptiveConcurrencyLimit {
+
+    private static final double SHORT_ALPHA = 0.1;
+    private static final double LONG_ALPHA = 0.01;
+    private static final double SMOOTHING = 0.2;
+    private static final double BACKOFF = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long maxWaitNanos;
+    private final int maxQueue;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+
+    // Request đang chờ suất; chỉ thay đổi khi giữ waitLock, được đọc không khóa khi trả suất
+    private final Object waitLock = new Object();
+    private volatile int waiting;
+
+    private volatile double limit;
+    // Trung bình trượt của độ trễ (nano giây), cập nhật trong khối đồng bộ ngắn khi request kết thúc
+    private double shortRtt;
+    private double longRtt;
+
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit) {
+        this(initialLimit, minLimit, maxLimit, 0, 0);
+    }
+
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, long maxWaitMs, int maxQueue) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxWaitMs));
+        this.maxQueue = Math.max(0, maxQueue);
+    }
+
+    /**
+     * Giữ một suất nếu còn, hoặc chờ tối đa maxWaitMs khi hàng chờ chưa đầy; false nghĩa là request phải bị từ chối
+     */
+    public boolean tryAcquire() throws InterruptedException {
+        if (acquireNow()) {
+            return true;
+        }
+        if (maxWaitNanos == 0 || waiting >= maxQueue) {
+            rejected.incrementAndGet();
+            return false;
+        }
+        synchronized (waitLock) {
+            if (waiting >= maxQueue) {
+                rejected.incrementAndGet();
+                return false;
+            }
+            waiting++;
+            try {
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (!acquireNow()) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        rejected.incrementAndGet();
+                        return false;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(waitLock, remaining);
+                }
+                return true;
+            } finally {
+                waiting--;
+            }
+        }
+    }
+
+    private boolean acquireNow() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Trả suất và cập nhật giới hạn theo độ trễ quan sát được
+     */
+    public void release(long rttNanos, boolean failed) {
+        int inFlightAtRelease = inFlight.getAndDecrement();
+        try {
+            adjust(rttNanos, failed, inFlightAtRelease);
+        } finally {
+            if (waiting > 0) {
+                synchronized (waitLock) {
+                    waitLock.notifyAll();
+                }
+            }
+        }
+    }
+
+    private void adjust(long rttNanos, boolean failed, int inFlightAtRelease) {
+        synchronized (this) {
+            double current = limit;
+            double next;
+            if (failed) {
+                next = current * BACKOFF;
+            } else {
+                shortRtt = shortRtt == 0 ? rttNanos : shortRtt + SHORT_ALPHA * (rttNanos - shortRtt);
+                longRtt = longRtt == 0 ? rttNanos : longRtt + LONG_ALPHA * (rttNanos - longRtt);
+                // Quá tải kéo dài làm nền dài hạn trôi lên; kéo nó về để giới hạn có thể hồi phục
+                if (longRtt > shortRtt * 2) {
+                    longRtt *= 0.95;
+                }
+                // Chỉ nới giới hạn khi nó thực sự đang được dùng tới
+                if (inFlightAtRelease < current / 2) {
+                    return;
+                }
+                double gradient = Math.max(0.5, Math.min(1.0, longRtt / shortRtt));
+                next = current * gradient + Math.sqrt(current);
+            }
+            next = current * (1 - SMOOTHING) + next * SMOOTHING;
+            limit = Math.min(maxLimit, Math.max(minLimit, next));
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("limit", (int) limit);
+        stats.put("inFlight", inFlight.get());
+        stats.put("rejected", rejected.get());
+        stats.put("waiting", waiting);
+        synchronized (this) {
+            stats.put("shortRttMs", shortRtt / 1_000_000.0);
+            stats.put("longRttMs", longRtt / 1_000_000.0);
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,152 @@
+package com.naturegrain.service.limit;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Giới hạn đồng thời thích ứng cho từng nhóm route (storefront, checkout, analytics, upload), chạy trước
+ * Spring Security. Request vượt giới hạn bị trả 503 + Retry-After (sau một khoảng chờ ngắn có giới hạn nếu nhóm
+ * cho phép) thay vì xếp hàng chờ luồng Tomcat và kết nối Hikari, nên một nhóm bị quá tải không kéo độ trễ
+ * của các nhóm khác lên theo.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@Slf4j
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private static final String SHED_BODY = "{\"message\":\"Server is busy, please try again later\"}";
+
+    @Autowired
+    private Environment environment;
+
+    @Value("${limiter.enabled:true}")
+    private boolean enabled;
+
+    @Value("${limiter.retry-after-seconds:1}")
+    private int retryAfterSeconds;
+
+    private final Map<RouteGroup, AdaptiveConcurrencyLimit> limits = new EnumMap<>(RouteGroup.class);
+
+    @PostConstruct
+    public void init() {
+        for (RouteGroup group : RouteGroup.values()) {
+            String prefix = "limiter." + group.getKey() + ".";
+            limits.put(group, new AdaptiveConcurrencyLimit(
+                    environment.getProperty(prefix + "initial-limit", Integer.class, group.getInitialLimit()),
+                    environment.getProperty(prefix + "min-limit", Integer.class, group.getMinLimit()),
+                    environment.getProperty(prefix + "max-limit", Integer.class, group.getMaxLimit()),
+                    environment.getProperty(prefix + "max-wait-ms", Long.class, group.getMaxWaitMs()),
+                    environment.getProperty(prefix + "max-queue", Integer.class, group.getMaxQueue())));
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RouteGroup group = enabled ? RouteGroup.of(request.getMethod(), request.getRequestURI()) : null;
+        if (group == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        AdaptiveConcurrencyLimit limit = limits.get(group);
+        boolean acquired;
+        try {
+            acquired = limit.tryAcquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            log.debug("Shed {} {} ({} limit {})", request.getMethod(), request.getRequestURI(), group, limit.getLimit());
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write(SHED_BODY);
+            return;
+        }
+
+        long startedAt = System.nanoTime();
+        boolean failed = true;
+        try {
+            filterChain.doFilter(request, response);
+            failed = false;
+        } finally {
+            if (!failed && request.isAsyncStarted()) {
+                // Request bất đồng bộ giữ suất tới khi hoàn tất thật sự
+                request.getAsyncContext().addListener(new ReleaseListener(limit, startedAt));
+            } else {
+                limit.release(System.nanoTime() - startedAt, failed || response.getStatus() >= 500);
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        limits.forEach((group, limit) -> stats.put(group.getKey(), limit.getStats()));
+        return stats;
+    }
+
+    private static final class ReleaseListener implements AsyncListener {
+        private final AdaptiveConcurrencyLimit limit;
+        private final long startedAt;
+        private boolean released;
+
+        private ReleaseListener(AdaptiveConcurrencyLimit limit, long startedAt) {
+            this.limit = limit;
+            this.startedAt = startedAt;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            int status = ((HttpServletResponse) event.getSuppliedResponse()).getStatus();
+            release(status >= 500);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release(true);
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release(true);
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Bắt đầu lại async trên cùng request: listener phải được đăng ký lại để còn nhận sự kiện
+            event.getAsyncContext().addListener(this);
+        }
+
+        private synchronized void release(boolean failed) {
+            if (!released) {
+                released = true;
+                limit.release(System.nanoTime() - startedAt, failed);
+            }
+        }
+    }
+}
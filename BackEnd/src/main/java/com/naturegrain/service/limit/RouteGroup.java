@@ -0,0 +1,77 @@
+package com.naturegrain.service.limit;
+
+/**
+ * Nhóm route có giới hạn đồng thời riêng; giá trị mặc định (ban đầu, tối thiểu, tối đa, thời gian chờ suất,
+ * số request được chờ) có thể ghi đè bằng limiter.<key>.initial-limit / min-limit / max-limit / max-wait-ms / max-queue
+ */
+public enum RouteGroup {
+
+    STOREFRONT("storefront", 40, 8, 200, 0, 0),
+    CHECKOUT("checkout", 20, 4, 100, 0, 0),
+    // Trang dashboard/analytics gửi khoảng 10 request song song: giới hạn ban đầu và tối thiểu đủ cho một trang,
+    // phần vượt được chờ ngắn thay vì bị từ chối ngay làm Promise.all của cả trang thất bại
+    ANALYTICS("analytics", 12, 4, 24, 2000, 24),
+    UPLOAD("upload", 4, 1, 16, 0, 0);
+
+    private final String key;
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long maxWaitMs;
+    private final int maxQueue;
+
+    RouteGroup(String key, int initialLimit, int minLimit, int maxLimit, long maxWaitMs, int maxQueue) {
+        this.key = key;
+        this.initialLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.maxWaitMs = maxWaitMs;
+        this.maxQueue = maxQueue;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public int getInitialLimit() {
+        return initialLimit;
+    }
+
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public long getMaxWaitMs() {
+        return maxWaitMs;
+    }
+
+    public int getMaxQueue() {
+        return maxQueue;
+    }
+
+    /**
+     * Nhóm của request, null nếu route không bị giới hạn (đăng nhập, thao tác quản trị nhẹ...)
+     */
+    public static RouteGroup of(String method, String path) {
+        // Preflight CORS không chạm tới controller nên không giữ suất
+        if (path == null || !path.startsWith("/api/") || "OPTIONS".equals(method)) {
+            return null;
+        }
+        boolean read = "GET".equals(method) || "HEAD".equals(method);
+        if (path.startsWith("/api/analytics") || path.startsWith("/api/advanced-analytics")
+                || path.startsWith("/api/dashboard")) {
+            return ANALYTICS;
+        }
+        if (!read && (path.contains("/upload") || path.equals("/api/files/avatar"))) {
+            return UPLOAD;
+        }
+        if (!read && path.startsWith("/api/order")) {
+            return CHECKOUT;
+        }
+        return read ? STOREFRONT : null;
+    }
+}
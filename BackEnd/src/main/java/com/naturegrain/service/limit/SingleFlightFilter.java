@@ -0,0 +1,241 @@
+package com.naturegrain.service.limit;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.WebUtils;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Gộp các GET giống hệt nhau đang chạy đồng thời (single-flight) cho báo cáo và danh sách sản phẩm.
+ * Khóa gồm method, path, query đã chuẩn hóa (sắp theo tên tham số) và quyền của người gọi. Request đầu tiên (leader) chạy bình thường
+ * và giữ lại byte phản hồi; các request trùng (follower) chờ và nhận lại đúng các byte đó mà không truy vấn gì.
+ * Follower chờ bất đồng bộ (AsyncContext) nên không giữ luồng Tomcat trong lúc leader chạy.
+ * Follower chờ quá hạn, hoặc leader lỗi / trả mã không phải 2xx, thì follower được dispatch lại và tự xử lý như request thường.
+ * Chạy sau Spring Security để quyền đã được xác định; hỗ trợ cả endpoint bất đồng bộ (WebAsyncTask).
+ */
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER + 1)
+@Slf4j
+public class SingleFlightFilter extends OncePerRequestFilter {
+
+    private static final String FLIGHT_ATTRIBUTE = SingleFlightFilter.class.getName() + ".flight";
+
+    private static final String FALLBACK_CONTEXT_ATTRIBUTE = SingleFlightFilter.class.getName() + ".fallbackContext";
+
+    // Khoảng dư cho timeout của AsyncContext, để việc hết hạn chờ luôn do filter xử lý trước container
+    private static final long ASYNC_TIMEOUT_GRACE_MS = 5000;
+
+    @Value("${singleflight.enabled:true}")
+    private boolean enabled;
+
+    @Value("${singleflight.wait-ms:30000}")
+    private long waitMs;
+
+    private final Map<String, Flight> flights = new ConcurrentHashMap<>();
+
+    private static final class Flight {
+        private final String key;
+        private final long startedAt = System.currentTimeMillis();
+        private final CompletableFuture<SharedResponse> result = new CompletableFuture<>();
+
+        private Flight(String key) {
+            this.key = key;
+        }
+    }
+
+    private static final class SharedResponse {
+        private final int status;
+        private final String contentType;
+        private final String contentDisposition;
+        private final byte[] body;
+
+        private SharedResponse(int status, String contentType, String contentDisposition, byte[] body) {
+            this.status = status;
+            this.contentType = contentType;
+            this.contentDisposition = contentDisposition;
+            this.body = body;
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        // Leader của endpoint bất đồng bộ chỉ có phản hồi đầy đủ sau lượt dispatch cuối
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (isAsyncDispatch(request)) {
+            SecurityContext fallbackContext = (SecurityContext) request.getAttribute(FALLBACK_CONTEXT_ATTRIBUTE);
+            if (fallbackContext != null) {
+                // Follower tự xử lý: lượt dispatch mới không qua lại AuthTokenFilter nên phải khôi phục người gọi
+                request.removeAttribute(FALLBACK_CONTEXT_ATTRIBUTE);
+                SecurityContextHolder.setContext(fallbackContext);
+                try {
+                    filterChain.doFilter(request, response);
+                } finally {
+                    SecurityContextHolder.clearContext();
+                }
+                return;
+            }
+            Flight flight = (Flight) request.getAttribute(FLIGHT_ATTRIBUTE);
+            try {
+                filterChain.doFilter(request, response);
+            } finally {
+                if (flight != null && !request.isAsyncStarted()) {
+                    land(flight, WebUtils.getNativeResponse(response, ContentCachingResponseWrapper.class));
+                }
+            }
+            return;
+        }
+
+        if (!enabled || !isCoalescable(request)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        String key = keyOf(request);
+        Flight flight = new Flight(key);
+        Flight existing = flights.putIfAbsent(key, flight);
+        // Leader bị kẹt quá hạn chờ thì không cho follower mới bám theo nữa
+        if (existing != null && existing.startedAt + waitMs < System.currentTimeMillis()
+                && flights.replace(key, existing, flight)) {
+            existing = null;
+        }
+        if (existing != null && request.isAsyncSupported()) {
+            follow(existing, request, response);
+            return;
+        }
+        if (existing != null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        request.setAttribute(FLIGHT_ATTRIBUTE, flight);
+        boolean completed = false;
+        try {
+            filterChain.doFilter(request, wrapper);
+            completed = true;
+        } finally {
+            if (!completed) {
+                abandon(flight);
+                wrapper.copyBodyToResponse();
+            } else if (!request.isAsyncStarted()) {
+                land(flight, wrapper);
+            }
+        }
+    }
+
+    /**
+     * Chờ kết quả của leader mà không giữ luồng; leader lỗi hoặc quá hạn thì dispatch lại để follower tự xử lý
+     */
+    private void follow(Flight flight, HttpServletRequest request, HttpServletResponse response) {
+        long remaining = Math.max(1, flight.startedAt + waitMs - System.currentTimeMillis());
+        request.setAttribute(FALLBACK_CONTEXT_ATTRIBUTE, SecurityContextHolder.getContext());
+        AsyncContext asyncContext = request.startAsync(request, response);
+        asyncContext.setTimeout(remaining + ASYNC_TIMEOUT_GRACE_MS);
+        // Chỉ bản sao bị hết hạn, future chung của leader vẫn để các follower khác dùng
+        flight.result.copy().orTimeout(remaining, TimeUnit.MILLISECONDS).whenComplete((shared, error) -> {
+            if (shared == null) {
+                if (error != null && error.getCause() instanceof TimeoutException) {
+                    log.debug("Single-flight wait timed out for {}", flight.key);
+                }
+                asyncContext.dispatch();
+                return;
+            }
+            try {
+                write(shared, (HttpServletResponse) asyncContext.getResponse());
+            } catch (IOException e) {
+                log.debug("Could not write single-flight response for {}: {}", flight.key, e.getMessage());
+            } finally {
+                asyncContext.complete();
+            }
+        });
+    }
+
+    private void write(SharedResponse shared, HttpServletResponse response) throws IOException {
+        response.setStatus(shared.status);
+        if (shared.contentType != null) {
+            response.setContentType(shared.contentType);
+        }
+        if (shared.contentDisposition != null) {
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, shared.contentDisposition);
+        }
+        response.setContentLength(shared.body.length);
+        response.getOutputStream().write(shared.body);
+    }
+
+    private void land(Flight flight, ContentCachingResponseWrapper wrapper) throws IOException {
+        if (wrapper == null) {
+            abandon(flight);
+            return;
+        }
+        int status = wrapper.getStatus();
+        if (status >= 200 && status < 300) {
+            flight.result.complete(new SharedResponse(status, wrapper.getContentType(),
+                    wrapper.getHeader(HttpHeaders.CONTENT_DISPOSITION), wrapper.getContentAsByteArray()));
+            flights.remove(flight.key, flight);
+        } else {
+            abandon(flight);
+        }
+        wrapper.copyBodyToResponse();
+    }
+
+    private void abandon(Flight flight) {
+        flights.remove(flight.key, flight);
+        flight.result.complete(null);
+    }
+
+    private boolean isCoalescable(HttpServletRequest request) {
+        if (!"GET".equals(request.getMethod())) {
+            return false;
+        }
+        String path = request.getRequestURI();
+        return path.startsWith("/api/analytics/") || path.startsWith("/api/product/") || path.equals("/api/product");
+    }
+
+    private String keyOf(HttpServletRequest request) {
+        String query = new TreeMap<>(request.getParameterMap()).entrySet().stream()
+                .map(e -> e.getKey() + "=" + String.join(",", e.getValue()))
+                .collect(Collectors.joining("&"));
+        return "GET " + request.getRequestURI() + "?" + query + "|" + rolesOf();
+    }
+
+    private String rolesOf() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return "anonymous";
+        }
+        return authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .sorted()
+                .collect(Collectors.joining(","));
+    }
+}
@@ -0,0 +1,40 @@
+package com.naturegrain.service.outbox;
+
+import java.util.Date;
+
+import com.naturegrain.entity.ActivityMessage;
+import com.naturegrain.entity.ActivityType;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Payload của sự kiện ghi activity trong outbox
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ActivityEvent {
+
+    private ActivityType activityType;
+
+    private String title;
+
+    private String description;
+
+    private Long userId;
+
+    private String entityType;
+
+    private Long entityId;
+
+    private String metadata;
+
+    private Date occurredAt;
+
+    // Khi có message, title/description được dựng từ mẫu với params (đã mã hóa) thay vì lưu inline
+    private ActivityMessage message;
+
+    private String params;
+}
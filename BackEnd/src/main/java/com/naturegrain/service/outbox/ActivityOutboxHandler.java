@@ -0,0 +1,34 @@
+package com.naturegrain.service.outbox;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.naturegrain.service.ActivityService;
+
+/**
+ * Ghi activity từ sự kiện outbox, giữ nguyên thời điểm phát sinh. Dòng activity được lưu trong transaction
+ * đánh dấu sự kiện DONE (có kiểm tra lease), nên mỗi sự kiện chỉ sinh một activity dù worker bị nhận lại lease.
+ */
+@Component
+public class ActivityOutboxHandler implements OutboxEventHandler {
+
+    public static final String EVENT_TYPE = "ACTIVITY";
+
+    @Autowired
+    private ActivityService activityService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Override
+    public String getEventType() {
+        return EVENT_TYPE;
+    }
+
+    @Override
+    public void handle(String payload) throws Exception {
+        ActivityEvent event = objectMapper.readValue(payload, ActivityEvent.class);
+        activityService.saveActivity(event);
+    }
+}
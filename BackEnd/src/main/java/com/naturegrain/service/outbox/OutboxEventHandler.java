@@ -0,0 +1,13 @@
+package com.naturegrain.service.outbox;
+
+/**
+ * Bộ xử lý cho một loại sự kiện outbox. Được gọi trong transaction đánh dấu sự kiện DONE, nên thay đổi
+ * database của handler được commit đúng một lần cho mỗi sự kiện. Tác động ngoài database vẫn có thể lặp lại
+ * (at-least-once) khi handler lỗi và được thử lại, nên cần chấp nhận được trùng lặp.
+ */
+public interface OutboxEventHandler {
+
+    String getEventType();
+
+    void handle(String payload) throws Exception;
+}
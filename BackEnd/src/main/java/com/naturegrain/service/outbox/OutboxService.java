@@ -0,0 +1,98 @@
+package com.naturegrain.service.outbox;
+
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.naturegrain.entity.OutboxEvent;
+import com.naturegrain.repository.OutboxEventRepository;
+
+/**
+ * Ghi sự kiện vào bảng outbox trong cùng transaction với thao tác nghiệp vụ,
+ * và cấp phát các lô sự kiện cho worker bằng SELECT ... FOR UPDATE SKIP LOCKED.
+ */
+@Service
+public class OutboxService {
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Thêm sự kiện vào outbox; tham gia transaction hiện tại nên chỉ được xử lý khi nghiệp vụ commit
+     */
+    @Transactional
+    public OutboxEvent enqueue(String eventType, Object payload) {
+        try {
+            String json = objectMapper.writeValueAsString(payload);
+            return outboxEventRepository.save(new OutboxEvent(eventType, json));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot serialize outbox payload for " + eventType, e);
+        }
+    }
+
+    /**
+     * Nhận một lô sự kiện: khóa các dòng sẵn sàng (bỏ qua dòng worker khác đang giữ) rồi đánh dấu
+     * PROCESSING với hạn giữ leaseMs. Sự kiện của worker bị dừng giữa chừng sẽ được nhận lại khi hết hạn.
+     */
+    @Transactional
+    public List<OutboxEvent> claimBatch(int batchSize, long leaseMs) {
+        Date now = new Date();
+        List<OutboxEvent> events = outboxEventRepository.lockNextBatch(now, batchSize);
+        if (events.isEmpty()) {
+            return events;
+        }
+        List<Long> ids = events.stream().map(OutboxEvent::getId).collect(Collectors.toList());
+        Date leaseUntil = new Date(now.getTime() + leaseMs);
+        outboxEventRepository.markProcessing(ids, leaseUntil);
+        // availableAt giữ hạn lease đã nhận, dùng làm điều kiện khi đánh dấu xong / thất bại
+        events.forEach(e -> {
+            e.setStatus(OutboxEvent.PROCESSING);
+            e.setAttempts(e.getAttempts() + 1);
+            e.setAvailableAt(leaseUntil);
+        });
+        return events;
+    }
+
+    /**
+     * Đánh dấu DONE rồi chạy handler trong cùng một transaction, chỉ khi worker vẫn còn giữ lease.
+     * Câu UPDATE có điều kiện chạy trước nên dòng bị khóa suốt lúc xử lý và worker khác không nhận lại được;
+     * thay đổi database của handler (dòng activity...) chỉ được commit cùng trạng thái DONE, handler lỗi thì cả hai
+     * cùng rollback. Trả false nếu lease đã bị worker khác nhận lại, khi đó handler không chạy.
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public boolean process(OutboxEvent event, OutboxEventHandler handler) throws Exception {
+        if (outboxEventRepository.markDone(event.getId(), event.getAvailableAt(), new Date()) == 0) {
+            return false;
+        }
+        handler.handle(event.getPayload());
+        return true;
+    }
+
+    /**
+     * Lên lịch thử lại với thời gian chờ tăng dần, hoặc chuyển sang FAILED khi vượt quá số lần thử.
+     * Trả false nếu lease đã mất và worker khác đang giữ sự kiện.
+     */
+    public boolean markFailed(OutboxEvent event, String error, int maxAttempts, long baseBackoffMs) {
+        String message = error != null && error.length() > 1000 ? error.substring(0, 1000) : error;
+        if (event.getAttempts() >= maxAttempts) {
+            return outboxEventRepository.markFailedAttempt(event.getId(), event.getAvailableAt(), OutboxEvent.FAILED,
+                    new Date(), message) > 0;
+        }
+        long backoff = baseBackoffMs * (1L << Math.min(event.getAttempts() - 1, 10));
+        return outboxEventRepository.markFailedAttempt(event.getId(), event.getAvailableAt(), OutboxEvent.PENDING,
+                new Date(System.currentTimeMillis() + backoff), message) > 0;
+    }
+
+    public long countByStatus(String status) {
+        return outboxEventRepository.countByStatus(status);
+    }
+}
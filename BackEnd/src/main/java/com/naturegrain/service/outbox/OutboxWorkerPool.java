@@ -0,0 +1,186 @@
+package com.naturegrain.service.outbox;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.naturegrain.entity.OutboxEvent;
+import com.naturegrain.repository.OutboxEventRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Nhóm worker xử lý outbox: mỗi worker nhận một lô bằng SKIP LOCKED nên nhiều worker
+ * (kể cả trên nhiều instance) chạy song song mà không tranh chấp cùng một dòng.
+ * Khi hết việc worker nghỉ pollIntervalMs, khi còn việc thì nhận lô kế tiếp ngay.
+ */
+@Component
+@Slf4j
+public class OutboxWorkerPool {
+
+    private static final int PURGE_CHUNK = 1000;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private List<OutboxEventHandler> handlers;
+
+    @Value("${outbox.workers:2}")
+    private int workerCount;
+
+    @Value("${outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${outbox.poll-interval-ms:500}")
+    private long pollIntervalMs;
+
+    @Value("${outbox.lease-ms:60000}")
+    private long leaseMs;
+
+    @Value("${outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${outbox.retry-backoff-ms:1000}")
+    private long retryBackoffMs;
+
+    @Value("${outbox.retention-days:7}")
+    private int retentionDays;
+
+    private final Map<String, OutboxEventHandler> handlersByType = new HashMap<>();
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicLong processedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private ExecutorService executor;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        for (OutboxEventHandler handler : handlers) {
+            handlersByType.put(handler.getEventType(), handler);
+        }
+        if (workerCount <= 0 || !running.compareAndSet(false, true)) {
+            return;
+        }
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(workerCount, r -> {
+            Thread thread = new Thread(r, "outbox-worker-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < workerCount; i++) {
+            executor.submit(this::runWorker);
+        }
+        log.info("Outbox worker pool started: {} workers, batch size {}", workerCount, batchSize);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (!running.compareAndSet(true, false)) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            // Sự kiện đang giữ dở sẽ được nhận lại sau khi hết lease
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Xóa định kỳ các sự kiện đã xử lý quá hạn lưu giữ, theo từng lô nhỏ
+     */
+    @Scheduled(cron = "${outbox.purge-cron:0 30 3 * * *}")
+    public void purgeProcessed() {
+        Date before = new Date(System.currentTimeMillis() - Duration.ofDays(retentionDays).toMillis());
+        long total = 0;
+        int deleted;
+        do {
+            deleted = outboxEventRepository.deleteProcessedBefore(before, PURGE_CHUNK);
+            total += deleted;
+        } while (deleted == PURGE_CHUNK && running.get());
+        log.info("Purged {} processed outbox events", total);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("workers", workerCount);
+        stats.put("processed", processedCount.get());
+        stats.put("failedAttempts", failedCount.get());
+        stats.put("pending", outboxService.countByStatus(OutboxEvent.PENDING));
+        stats.put("failed", outboxService.countByStatus(OutboxEvent.FAILED));
+        return stats;
+    }
+
+    private void runWorker() {
+        while (running.get()) {
+            try {
+                List<OutboxEvent> batch = outboxService.claimBatch(batchSize, leaseMs);
+                if (batch.isEmpty()) {
+                    Thread.sleep(pollIntervalMs);
+                    continue;
+                }
+                for (OutboxEvent event : batch) {
+                    dispatch(event);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Outbox worker error: {}", e.getMessage());
+                try {
+                    Thread.sleep(pollIntervalMs);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void dispatch(OutboxEvent event) {
+        OutboxEventHandler handler = handlersByType.get(event.getEventType());
+        if (handler == null) {
+            failedCount.incrementAndGet();
+            outboxService.markFailed(event, "No handler for event type " + event.getEventType(), 0, retryBackoffMs);
+            return;
+        }
+        try {
+            if (outboxService.process(event, handler)) {
+                processedCount.incrementAndGet();
+            } else {
+                log.debug("Outbox event {} lease expired before completion, left to its new owner", event.getId());
+            }
+        } catch (Exception e) {
+            failedCount.incrementAndGet();
+            log.warn("Outbox event {} ({}) failed on attempt {}: {}", event.getId(), event.getEventType(),
+                    event.getAttempts(), e.getMessage());
+            if (!outboxService.markFailed(event, e.getMessage(), maxAttempts, retryBackoffMs)) {
+                log.debug("Outbox event {} lease expired, retry left to its new owner", event.getId());
+            }
+        }
+    }
+}
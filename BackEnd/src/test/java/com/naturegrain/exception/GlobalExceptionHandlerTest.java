@@ -0,0 +1,23 @@
+package com.naturegrain.exception;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import com.naturegrain.model.response.MessageResponse;
+
+class GlobalExceptionHandlerTest {
+
+    @Test
+    void overloadedMapsTo503WithRetryAfter() {
+        ResponseEntity<?> response = new GlobalExceptionHandler()
+                .handleOverloaded(new ServiceOverloadedException("busy", 5));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("5");
+        assertThat(((MessageResponse) response.getBody()).getMessage()).isEqualTo("busy");
+    }
+}
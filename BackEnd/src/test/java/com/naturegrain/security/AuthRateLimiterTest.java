@@ -0,0 +1,65 @@
+package com.naturegrain.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class AuthRateLimiterTest {
+
+    private AuthRateLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        limiter = new AuthRateLimiter();
+        ReflectionTestUtils.setField(limiter, "ipRatePerMinute", 60);
+        ReflectionTestUtils.setField(limiter, "ipBurst", 3);
+        ReflectionTestUtils.setField(limiter, "usernameRatePerMinute", 6);
+        ReflectionTestUtils.setField(limiter, "usernameBurst", 2);
+        ReflectionTestUtils.setField(limiter, "registerRatePerMinute", 10);
+        ReflectionTestUtils.setField(limiter, "registerBurst", 1);
+        ReflectionTestUtils.setField(limiter, "maxKeys", 100);
+    }
+
+    @Test
+    void ipBucketAllowsBurstThenThrottles() {
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.tryLogin("10.0.0.1", "user" + i)).isZero();
+        }
+        assertThat(limiter.tryLogin("10.0.0.1", "other")).isPositive();
+    }
+
+    @Test
+    void clientsBehindDifferentAddressesHaveSeparateBuckets() {
+        for (int i = 0; i < 3; i++) {
+            limiter.tryLogin("10.0.0.1", "user" + i);
+        }
+
+        assertThat(limiter.tryLogin("10.0.0.2", "someone")).isZero();
+    }
+
+    @Test
+    void usernameBucketIsSharedAcrossAddressesAndCase() {
+        assertThat(limiter.tryLogin("10.0.0.1", "Alice")).isZero();
+        assertThat(limiter.tryLogin("10.0.0.2", "alice ")).isZero();
+
+        assertThat(limiter.tryLogin("10.0.0.3", "ALICE")).isPositive();
+    }
+
+    @Test
+    void registerIsLimitedPerAddress() {
+        assertThat(limiter.tryRegister("10.0.0.1")).isZero();
+        assertThat(limiter.tryRegister("10.0.0.1")).isPositive();
+        assertThat(limiter.tryRegister("10.0.0.2")).isZero();
+    }
+
+    @Test
+    void overflowKeysShareOneBucket() {
+        ReflectionTestUtils.setField(limiter, "maxKeys", 1);
+        limiter.tryRegister("10.0.0.1");
+
+        assertThat(limiter.tryRegister("10.0.0.2")).isZero();
+        assertThat(limiter.tryRegister("10.0.0.3")).isPositive();
+    }
+}
@@ -0,0 +1,106 @@
+package com.naturegrain.security.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.naturegrain.entity.RevokedToken;
+import com.naturegrain.repository.RevokedTokenRepository;
+
+@ExtendWith(MockitoExtension.class)
+class TokenDenylistTest {
+
+    private static final long HOUR_MS = 3_600_000L;
+
+    @Mock
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @InjectMocks
+    private TokenDenylist denylist;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(denylist, "expectedSize", 100L);
+        ReflectionTestUtils.setField(denylist, "fpp", 0.001);
+    }
+
+    @Test
+    void revokedTokenIsRejectedUntilItExpires() {
+        when(revokedTokenRepository.findByExpiresAtAfter(any(Date.class))).thenReturn(Collections.emptyList());
+        denylist.warmUp();
+
+        denylist.revoke("jti-1", 1L, new Date(System.currentTimeMillis() + HOUR_MS));
+
+        assertThat(denylist.isRevoked("jti-1")).isTrue();
+        assertThat(denylist.isRevoked("jti-2")).isFalse();
+        assertThat(denylist.isRevoked(null)).isFalse();
+    }
+
+    @Test
+    void alreadyExpiredTokenIsNotStored() {
+        denylist.revoke("jti-1", 1L, new Date(System.currentTimeMillis() - 1));
+
+        verify(revokedTokenRepository, never()).save(any());
+        assertThat(denylist.size()).isZero();
+    }
+
+    @Test
+    void warmUpLoadsRevocationsFromOtherInstances() {
+        Date now = new Date();
+        when(revokedTokenRepository.findByExpiresAtAfter(any(Date.class))).thenReturn(List.of(
+                new RevokedToken("jti-a", 1L, now, new Date(now.getTime() + HOUR_MS)),
+                new RevokedToken("jti-b", 2L, now, new Date(now.getTime() + HOUR_MS))));
+
+        denylist.warmUp();
+
+        assertThat(denylist.isRevoked("jti-a")).isTrue();
+        assertThat(denylist.isRevoked("jti-b")).isTrue();
+        assertThat(denylist.size()).isEqualTo(2);
+    }
+
+    @Test
+    void filterGrowsPastExpectedSize() {
+        when(revokedTokenRepository.findByExpiresAtAfter(any(Date.class))).thenReturn(Collections.emptyList());
+        denylist.warmUp();
+        Date expiresAt = new Date(System.currentTimeMillis() + HOUR_MS);
+
+        for (int i = 0; i < 250; i++) {
+            denylist.revoke("jti-" + i, 1L, expiresAt);
+        }
+
+        for (int i = 0; i < 250; i++) {
+            assertThat(denylist.isRevoked("jti-" + i)).isTrue();
+        }
+        assertThat(denylist.size()).isEqualTo(250);
+    }
+
+    @Test
+    void purgeDropsExpiredEntries() {
+        Date now = new Date();
+        when(revokedTokenRepository.findByExpiresAtAfter(any(Date.class))).thenReturn(List.of(
+                new RevokedToken("jti-a", 1L, now, new Date(now.getTime() + 50))));
+        when(revokedTokenRepository.deleteExpiredBefore(any(Date.class), anyInt())).thenReturn(0);
+        denylist.warmUp();
+
+        ReflectionTestUtils.invokeMethod(denylist, "addLocal", "jti-old", now.getTime() - 1);
+        denylist.purgeExpired();
+
+        assertThat(denylist.size()).isEqualTo(1);
+        assertThat(denylist.isRevoked("jti-old")).isFalse();
+    }
+}
@@ -0,0 +1,84 @@
+package com.naturegrain.security.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.naturegrain.security.jwt.PrincipalCache;
+
+@ExtendWith(MockitoExtension.class)
+class TokenVersionRegistryTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PrincipalCache principalCache;
+
+    @InjectMocks
+    private TokenVersionRegistry registry;
+
+    @Test
+    void versionsAndTombstonesAreReloadedAfterRestart() {
+        when(jdbcTemplate.queryForList(anyString())).thenReturn(List.of(row(5, 2)));
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class))).thenReturn(List.of(9L));
+
+        registry.warmUp();
+
+        assertThat(registry.isRevoked(5, 1)).isTrue();
+        assertThat(registry.isRevoked(5, 2)).isFalse();
+        assertThat(registry.isRevoked(9, 0)).isTrue();
+        assertThat(registry.isRevoked(9, 3)).isTrue();
+        assertThat(registry.isRevoked(7, 0)).isFalse();
+    }
+
+    @Test
+    void revokeDeletedPersistsTombstone() {
+        registry.revokeDeleted(9);
+
+        verify(jdbcTemplate).update(startsWith("INSERT INTO user_token_tombstone"), eq(9L), any(Timestamp.class));
+        verify(principalCache).invalidateUser(9);
+        assertThat(registry.isRevoked(9, Integer.MAX_VALUE - 1)).isTrue();
+    }
+
+    @Test
+    void refreshPicksUpTombstoneWrittenByAnotherInstance() {
+        when(jdbcTemplate.queryForList(anyString())).thenReturn(Collections.emptyList());
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class)))
+                .thenReturn(Collections.emptyList())
+                .thenReturn(List.of(4L));
+        when(jdbcTemplate.queryForList(anyString(), any(Timestamp.class))).thenReturn(Collections.emptyList());
+        registry.warmUp();
+        assertThat(registry.isRevoked(4, 0)).isFalse();
+
+        registry.refresh();
+
+        assertThat(registry.isRevoked(4, 0)).isTrue();
+        verify(principalCache).invalidateUser(4);
+    }
+
+    private Map<String, Object> row(long id, int version) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("id", id);
+        row.put("token_version", version);
+        row.put("token_version_at", new Timestamp(System.currentTimeMillis()));
+        return row;
+    }
+}
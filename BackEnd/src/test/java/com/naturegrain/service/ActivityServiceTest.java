@@ -0,0 +1,164 @@
+package com.naturegrain.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+
+import com.naturegrain.dto.response.ActivityResponse;
+import com.naturegrain.entity.ActivityType;
+import com.naturegrain.repository.ActivityRepository;
+import com.naturegrain.repository.UserRepository;
+import com.naturegrain.service.cold.ActivityRecord;
+import com.naturegrain.service.cold.ActivitySegmentStore;
+
+@ExtendWith(MockitoExtension.class)
+class ActivityServiceTest {
+
+    @Mock
+    private ActivityRepository activityRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private ActivityTemplateService activityTemplateService;
+
+    @Mock
+    private ActivitySegmentStore activitySegmentStore;
+
+    @InjectMocks
+    private ActivityService service;
+
+    @Test
+    void probesColdTierWhenHotTierExactlyFillsPage() {
+        when(activityRepository.findFeed(any(Pageable.class))).thenReturn(hot(false, 10, 9));
+        when(activitySegmentStore.findBefore(isNull(), eq(9_000L), eq(9L), eq(Long.MIN_VALUE), eq(1)))
+                .thenReturn(List.of(cold(8)));
+
+        Slice<ActivityResponse> page = service.getFeed(null, null, null, 2);
+
+        assertThat(ids(page)).containsExactly(10L, 9L);
+        assertThat(page.hasNext()).isTrue();
+    }
+
+    @Test
+    void lastPageWhenBothTiersAreExhausted() {
+        when(activityRepository.findFeed(any(Pageable.class))).thenReturn(hot(false, 10, 9));
+        when(activitySegmentStore.findBefore(isNull(), eq(9_000L), eq(9L), eq(Long.MIN_VALUE), eq(1)))
+                .thenReturn(Collections.emptyList());
+
+        Slice<ActivityResponse> page = service.getFeed(null, null, null, 2);
+
+        assertThat(ids(page)).containsExactly(10L, 9L);
+        assertThat(page.hasNext()).isFalse();
+    }
+
+    @Test
+    void fillsPartialPageFromColdTier() {
+        when(activityRepository.findFeed(any(Pageable.class))).thenReturn(hot(false, 10));
+        when(activitySegmentStore.findBefore(isNull(), eq(10_000L), eq(10L), eq(Long.MIN_VALUE), eq(3)))
+                .thenReturn(List.of(cold(7), cold(6), cold(5)));
+
+        Slice<ActivityResponse> page = service.getFeed(null, null, null, 3);
+
+        assertThat(ids(page)).containsExactly(10L, 7L, 6L);
+        assertThat(page.hasNext()).isTrue();
+    }
+
+    @Test
+    void cursorPastHotTierContinuesInColdTier() {
+        Date before = new Date(7_000L);
+        when(activityRepository.findFeedBefore(eq(before), eq(7L), any(Pageable.class))).thenReturn(hot(false));
+        when(activitySegmentStore.findBefore(isNull(), eq(7_000L), eq(7L), eq(Long.MIN_VALUE), eq(3)))
+                .thenReturn(List.of(cold(6), cold(5)));
+
+        Slice<ActivityResponse> page = service.getFeed(null, before, 7L, 2);
+
+        assertThat(ids(page)).containsExactly(6L, 5L);
+        assertThat(page.hasNext()).isFalse();
+    }
+
+    @Test
+    void skipsColdTierWhileHotTierHasMoreRows() {
+        when(activityRepository.findFeed(any(Pageable.class))).thenReturn(hot(true, 10, 9));
+
+        Slice<ActivityResponse> page = service.getFeed(null, null, null, 2);
+
+        assertThat(page.hasNext()).isTrue();
+        verify(activitySegmentStore, never()).findBefore(any(), anyLong(), anyLong(), anyLong(), anyInt());
+    }
+
+    @Test
+    void offsetPagePastHotTierIsEmpty() {
+        when(activityRepository.findFeed(any(Pageable.class))).thenReturn(hot(false));
+
+        Slice<ActivityResponse> page = service.getFeedPage(null, 5, 2);
+
+        assertThat(page.getContent()).isEmpty();
+        assertThat(page.hasNext()).isFalse();
+        verify(activitySegmentStore, never()).findBefore(any(), anyLong(), anyLong(), anyLong(), anyInt());
+    }
+
+    @Test
+    void dateRangeMergesTiersAndLoadsUsersInOneQuery() {
+        Date start = new Date(0);
+        Date end = new Date(100_000);
+        List<Object[]> rows = new ArrayList<>(hot(false, 9, 8).getContent());
+        rows.get(0)[4] = 5L;
+        rows.get(1)[4] = 5L;
+        when(activityRepository.findFeedBetween(start, end)).thenReturn(rows);
+        // Dòng 8 đang chuyển tầng nên có ở cả hai tầng
+        when(activitySegmentStore.findBefore(isNull(), eq(100_000L), eq(Long.MAX_VALUE), eq(0L), eq(Integer.MAX_VALUE)))
+                .thenReturn(List.of(cold(8), cold(7)));
+        when(userRepository.findDisplayInfoByIdIn(Set.of(5L)))
+                .thenReturn(Collections.singletonList(new Object[] { 5L, "alice", null }));
+
+        List<ActivityResponse> activities = service.getActivitiesByDateRange(start, end);
+
+        assertThat(activities).extracting(ActivityResponse::getId).containsExactly(9L, 8L, 7L);
+        assertThat(activities).extracting(ActivityResponse::getUserName).containsExactly("alice", "alice", "Hệ thống");
+        verify(userRepository).findDisplayInfoByIdIn(any());
+    }
+
+    // Dòng projection của tầng nóng, createdAt = id * 1000
+    private Slice<Object[]> hot(boolean hasNext, long... ids) {
+        List<Object[]> rows = new ArrayList<>();
+        for (long id : ids) {
+            rows.add(new Object[] { id, ActivityType.USER_LOGIN, "title " + id, null, null, null, null, null,
+                    new Date(id * 1000), ActivityTemplateService.INLINE, null, null });
+        }
+        return new SliceImpl<>(rows, PageRequest.of(0, Math.max(ids.length, 1)), hasNext);
+    }
+
+    private ActivityRecord cold(long id) {
+        return new ActivityRecord(id, id * 1000, ActivityType.USER_LOGIN, null, null, null,
+                ActivityTemplateService.INLINE, null, "title " + id, null, null, null);
+    }
+
+    private List<Long> ids(Slice<ActivityResponse> page) {
+        return page.getContent().stream().map(ActivityResponse::getId).collect(Collectors.toList());
+    }
+}
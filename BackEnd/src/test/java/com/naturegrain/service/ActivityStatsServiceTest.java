@@ -0,0 +1,101 @@
+package com.naturegrain.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import com.naturegrain.entity.ActivityType;
+import com.naturegrain.service.cold.ActivitySegmentStore;
+
+@ExtendWith(MockitoExtension.class)
+class ActivityStatsServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private ActivitySegmentStore activitySegmentStore;
+
+    @InjectMocks
+    private ActivityStatsService service;
+
+    @Test
+    void reloadReplacesCountsWithDatabaseTotals() throws Exception {
+        service.record(ActivityType.ORDER_CREATED, new java.util.Date());
+        service.record(ActivityType.ORDER_CREATED, new java.util.Date());
+        seed(null, ActivityType.ORDER_CREATED, LocalDate.now(), 5);
+
+        service.reload();
+
+        assertThat(service.countByType()).containsEntry(ActivityType.ORDER_CREATED.name(), 5L);
+        assertThat(service.countToday()).isEqualTo(5);
+    }
+
+    @Test
+    void reloadKeepsIncrementsRecordedWhileQuerying() throws Exception {
+        seed(() -> service.record(ActivityType.USER_LOGIN, new java.util.Date()),
+                ActivityType.USER_LOGIN, LocalDate.now(), 3);
+
+        service.reload();
+
+        assertThat(service.countByType()).containsEntry(ActivityType.USER_LOGIN.name(), 4L);
+        assertThat(service.countToday()).isEqualTo(4);
+    }
+
+    @Test
+    void reloadClearsDaysMissingFromDatabase() throws Exception {
+        service.record(ActivityType.USER_LOGIN, java.sql.Timestamp.valueOf(LocalDate.now().minusDays(2).atStartOfDay()));
+        seed(null, ActivityType.USER_LOGIN, LocalDate.now(), 1);
+
+        service.reload();
+
+        List<Map<String, Object>> lastWeek = service.countLastWeek();
+        assertThat(lastWeek).hasSize(1);
+        assertThat(lastWeek.get(0)).containsEntry("date", LocalDate.now().toString());
+    }
+
+    @Test
+    void evictionKeepsDaysInsideTrackedRange() {
+        service.record(ActivityType.USER_LOGIN, new java.util.Date());
+
+        service.evictExpiredDays();
+
+        assertThat(service.countToday()).isEqualTo(1);
+        assertThat(service.countLastWeek()).hasSize(1);
+    }
+
+    // Giả lập một dòng kết quả GROUP BY; duringQuery chạy giữa lúc truy vấn để mô phỏng ghi đồng thời
+    private void seed(Runnable duringQuery, ActivityType type, LocalDate day, long count) throws Exception {
+        when(activitySegmentStore.countByType()).thenReturn(Collections.emptyMap());
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getString(1)).thenReturn(type.name());
+        when(rs.getDate(2)).thenReturn(Date.valueOf(day));
+        when(rs.getLong(3)).thenReturn(count);
+        doAnswer(invocation -> {
+            if (duringQuery != null) {
+                duringQuery.run();
+            }
+            RowCallbackHandler handler = invocation.getArgument(1);
+            handler.processRow(rs);
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(Object.class));
+    }
+}
@@ -0,0 +1,49 @@
+package com.naturegrain.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class ActivityTemplateServiceTest {
+
+    private final ActivityTemplateService service = new ActivityTemplateService();
+
+    @Test
+    void paramsRoundTripWithTypes() {
+        String encoded = service.encodeParams("Gạo lứt", 42L, null, 7);
+
+        assertThat(service.decodeParams(encoded)).containsExactly("Gạo lứt", 42L, null, 7L);
+    }
+
+    @Test
+    void shortParamsAreNotTruncated() {
+        String encoded = service.encodeParams("a".repeat(200), "b".repeat(200));
+
+        assertThat(service.decodeParams(encoded)).containsExactly("a".repeat(200), "b".repeat(200));
+    }
+
+    @Test
+    void longParamsAreCutToFitColumn() {
+        String longName = "x".repeat(2000);
+
+        String encoded = service.encodeParams("admin", longName, 12345L, "y".repeat(800));
+
+        assertThat(encoded.length()).isLessThanOrEqualTo(ActivityTemplateService.MAX_PARAMS_LENGTH);
+        Object[] decoded = service.decodeParams(encoded);
+        assertThat(decoded[0]).isEqualTo("admin");
+        assertThat(decoded[2]).isEqualTo(12345L);
+        assertThat((String) decoded[1]).startsWith("xxx").endsWith("…");
+        assertThat((String) decoded[3]).startsWith("yyy").endsWith("…");
+    }
+
+    @Test
+    void truncationDoesNotSplitSurrogatePairs() {
+        String emoji = "🌾".repeat(400);
+
+        String encoded = service.encodeParams(emoji);
+
+        assertThat(encoded.length()).isLessThanOrEqualTo(ActivityTemplateService.MAX_PARAMS_LENGTH);
+        String decoded = (String) service.decodeParams(encoded)[0];
+        assertThat(Character.isHighSurrogate(decoded.charAt(decoded.length() - 2))).isFalse();
+    }
+}
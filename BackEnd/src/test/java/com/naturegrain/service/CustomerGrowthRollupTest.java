@@ -0,0 +1,195 @@
+package com.naturegrain.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.naturegrain.entity.UserRegistrationDaily;
+import com.naturegrain.repository.CustomerOrderCountRepository;
+import com.naturegrain.repository.UserRegistrationDailyRepository;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerGrowthRollupTest {
+
+    // Dữ liệu mẫu: 2 user ngày 10, 3 user ngày 12 (ngày 11 trống), 1 user ngày 14
+    private static final LocalDate FIRST = LocalDate.of(2025, 3, 10);
+    private static final LocalDate LAST = FIRST.plusDays(4);
+
+    @Mock
+    private UserRegistrationDailyRepository registrationRepository;
+
+    @Mock
+    private CustomerOrderCountRepository orderCountRepository;
+
+    @InjectMocks
+    private CustomerGrowthRollup rollup;
+
+    @BeforeEach
+    void setUp() {
+        when(registrationRepository.findAll()).thenReturn(List.of(
+                new UserRegistrationDaily(1L, FIRST, "Vietnam", 2),
+                new UserRegistrationDaily(2L, FIRST.plusDays(2), "Vietnam", 1),
+                new UserRegistrationDaily(3L, FIRST.plusDays(2), "Canada", 2),
+                new UserRegistrationDaily(4L, LAST, "", 1)));
+        when(orderCountRepository.countRepeatCustomers()).thenReturn(3L);
+        rollup.reload();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void countBetweenHandlesEdgeDays() {
+        assertThat(rollup.countBetween(FIRST, LAST)).isEqualTo(6);
+        assertThat(rollup.countBetween(FIRST, FIRST)).isEqualTo(2);
+        assertThat(rollup.countBetween(LAST, LAST)).isEqualTo(1);
+        assertThat(rollup.countBetween(FIRST.plusDays(1), FIRST.plusDays(1))).isZero();
+        assertThat(rollup.countBetween(FIRST.minusDays(30), FIRST.minusDays(1))).isZero();
+        assertThat(rollup.countBetween(LAST.plusDays(1), LAST.plusDays(30))).isZero();
+        assertThat(rollup.countBetween(FIRST.minusDays(30), LAST.plusDays(30))).isEqualTo(6);
+        assertThat(rollup.countBetween(LAST, FIRST)).isZero();
+    }
+
+    @Test
+    void countBeforeExcludesTheDayItself() {
+        assertThat(rollup.countBefore(FIRST)).isZero();
+        assertThat(rollup.countBefore(FIRST.plusDays(1))).isEqualTo(2);
+        assertThat(rollup.countBefore(LAST)).isEqualTo(5);
+        assertThat(rollup.countBefore(LAST.plusDays(1))).isEqualTo(6);
+        assertThat(rollup.getTotalRegistrations()).isEqualTo(6);
+    }
+
+    @Test
+    void dailySeriesPadsDaysOutsideTheData() {
+        assertThat(rollup.dailySeries(FIRST.minusDays(2), 9)).containsExactly(0, 0, 2, 0, 3, 0, 1, 0, 0);
+        assertThat(rollup.dailySeries(LAST, 1)).containsExactly(1);
+        assertThat(rollup.dailySeries(FIRST, 0)).isEmpty();
+        assertThat(rollup.dailySeries(FIRST, -5)).isEmpty();
+    }
+
+    @Test
+    void countByCountrySkipsUnknownCountry() {
+        assertThat(rollup.countByCountry()).containsExactly(
+                Map.entry("Vietnam", 3L), Map.entry("Canada", 2L));
+    }
+
+    @Test
+    void registrationIsVisibleOnlyAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        rollup.onRegistered(dateOf(LAST.plusDays(3)), " Canada ");
+        assertThat(rollup.getTotalRegistrations()).isEqualTo(6);
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertThat(rollup.countBetween(LAST.plusDays(3), LAST.plusDays(3))).isEqualTo(1);
+        assertThat(rollup.countByCountry()).containsEntry("Canada", 3L);
+    }
+
+    @Test
+    void rolledBackRegistrationIsDiscarded() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        rollup.onRegistered(dateOf(FIRST.minusDays(5)), "Vietnam");
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertThat(rollup.countBefore(FIRST)).isZero();
+        assertThat(rollup.getTotalRegistrations()).isEqualTo(6);
+    }
+
+    @Test
+    void deletingRepeatCustomerDropsOrderCountAfterCommit() {
+        when(orderCountRepository.findOrderCount(7L)).thenReturn(4L);
+        TransactionSynchronizationManager.initSynchronization();
+
+        rollup.onDeleted(7L, dateOf(FIRST), "Vietnam");
+        verify(orderCountRepository).deleteByUserId(7L);
+        assertThat(rollup.getRepeatCustomers()).isEqualTo(3);
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertThat(rollup.getRepeatCustomers()).isEqualTo(2);
+        assertThat(rollup.countBetween(FIRST, FIRST)).isEqualTo(1);
+    }
+
+    @Test
+    void deletingUserWithoutOrdersKeepsRepeatCustomers() {
+        when(orderCountRepository.findOrderCount(8L)).thenReturn(null);
+
+        rollup.onDeleted(8L, dateOf(LAST), "");
+
+        verify(orderCountRepository, never()).deleteByUserId(anyLong());
+        assertThat(rollup.getRepeatCustomers()).isEqualTo(3);
+        assertThat(rollup.getTotalRegistrations()).isEqualTo(5);
+    }
+
+    @Test
+    void secondOrderMakesRepeatCustomerAfterCommit() {
+        when(orderCountRepository.findOrderCount(9L)).thenReturn(2L);
+        TransactionSynchronizationManager.initSynchronization();
+
+        rollup.onOrderPlaced(9L);
+        assertThat(rollup.getRepeatCustomers()).isEqualTo(3);
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertThat(rollup.getRepeatCustomers()).isEqualTo(4);
+    }
+
+    @Test
+    void registrationAppliedDuringReloadIsKept() {
+        // Bảng đếm vẫn như cũ nhưng một đăng ký commit xong ngay trong lúc đang truy vấn
+        when(registrationRepository.findAll()).thenAnswer(invocation -> {
+            rollup.onRegistered(dateOf(LAST), "Canada");
+            return List.of(
+                    new UserRegistrationDaily(1L, FIRST, "Vietnam", 2),
+                    new UserRegistrationDaily(2L, FIRST.plusDays(2), "Vietnam", 1),
+                    new UserRegistrationDaily(3L, FIRST.plusDays(2), "Canada", 2),
+                    new UserRegistrationDaily(4L, LAST, "", 1));
+        });
+
+        rollup.reload();
+
+        assertThat(rollup.getTotalRegistrations()).isEqualTo(7);
+        assertThat(rollup.countBetween(LAST, LAST)).isEqualTo(2);
+        assertThat(rollup.countByCountry()).containsEntry("Canada", 3L);
+    }
+
+    @Test
+    void reloadCorrectsDrift() {
+        when(registrationRepository.findAll()).thenReturn(List.of(
+                new UserRegistrationDaily(1L, FIRST, "Vietnam", 1),
+                new UserRegistrationDaily(5L, LAST.plusDays(1), "Canada", 4)));
+        when(orderCountRepository.countRepeatCustomers()).thenReturn(1L);
+
+        rollup.reload();
+
+        assertThat(rollup.dailySeries(FIRST, 6)).containsExactly(1, 0, 0, 0, 0, 4);
+        assertThat(rollup.countByCountry()).containsExactly(Map.entry("Canada", 4L), Map.entry("Vietnam", 1L));
+        assertThat(rollup.getRepeatCustomers()).isEqualTo(1);
+    }
+
+    private static Date dateOf(LocalDate day) {
+        return Timestamp.valueOf(day.atTime(12, 0));
+    }
+}
@@ -0,0 +1,47 @@
+package com.naturegrain.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import org.junit.jupiter.api.Test;
+
+class DurationSketchTest {
+
+    @Test
+    void emptySketchReturnsZero() {
+        assertThat(new DurationSketch().quantile(0.5)).isZero();
+    }
+
+    @Test
+    void subSecondValuesFallInBucketZero() {
+        assertThat(DurationSketch.bucketIndex(0)).isZero();
+        assertThat(DurationSketch.bucketIndex(1)).isEqualTo(1);
+    }
+
+    @Test
+    void quantilesStayWithinRelativeAccuracy() {
+        DurationSketch sketch = new DurationSketch();
+        for (long seconds = 1; seconds <= 10_000; seconds++) {
+            sketch.add(seconds);
+        }
+
+        assertThat(sketch.getCount()).isEqualTo(10_000);
+        assertThat(sketch.quantile(0.5)).isCloseTo(5_000, within(5_000 * 0.02));
+        assertThat(sketch.quantile(0.9)).isCloseTo(9_000, within(9_000 * 0.02));
+    }
+
+    @Test
+    void bucketsLoadedFromRowsMatchIndividualAdds() {
+        DurationSketch added = new DurationSketch();
+        DurationSketch loaded = new DurationSketch();
+        long[] values = { 30, 3_600, 3_600, 86_400 };
+        for (long value : values) {
+            added.add(value);
+            loaded.addBucket(DurationSketch.bucketIndex(value), 1);
+        }
+
+        assertThat(loaded.getCount()).isEqualTo(added.getCount());
+        assertThat(loaded.quantile(0.5)).isEqualTo(added.quantile(0.5));
+        assertThat(loaded.quantile(1)).isEqualTo(added.quantile(1));
+    }
+}
@@ -0,0 +1,127 @@
+package com.naturegrain.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.naturegrain.entity.Order;
+import com.naturegrain.entity.OrderStatusDurationBucket;
+import com.naturegrain.entity.OrderStatusTransitionStats;
+import com.naturegrain.repository.OrderStatusDurationBucketRepository;
+import com.naturegrain.repository.OrderStatusHistoryRepository;
+import com.naturegrain.repository.OrderStatusTransitionStatsRepository;
+import com.naturegrain.security.CurrentUserResolver;
+
+@ExtendWith(MockitoExtension.class)
+class OrderStatusHistoryServiceTest {
+
+    @Mock
+    private OrderStatusHistoryRepository historyRepository;
+
+    @Mock
+    private OrderStatusTransitionStatsRepository statsRepository;
+
+    @Mock
+    private OrderStatusDurationBucketRepository bucketRepository;
+
+    @Mock
+    private CurrentUserResolver currentUserResolver;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private OrderStatusHistoryService service;
+
+    @BeforeEach
+    void setUp() {
+        service.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void statsAreAccumulatedOnlyAfterCommit() {
+        Order order = order(1L);
+        when(historyRepository.findTopByOrderIdOrderByChangedAtDesc(1L)).thenReturn(Optional.empty());
+        TransactionSynchronizationManager.initSynchronization();
+
+        service.recordTransition(order, "PENDING", "PROCESSING");
+
+        verify(historyRepository).save(any());
+        verify(statsRepository, never()).accumulate(anyString(), anyString(), anyString(), anyLong(), any());
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        verify(statsRepository).accumulate(eq("PENDING->PROCESSING"), eq("PENDING"), eq("PROCESSING"), anyLong(), any());
+        verify(statsRepository).accumulate(eq("ORDER->PROCESSING"), eq("ORDER"), eq("PROCESSING"), anyLong(), any());
+        verify(bucketRepository).increment(eq("PENDING->PROCESSING"), anyInt());
+        verify(bucketRepository).increment(eq("ORDER->PROCESSING"), anyInt());
+    }
+
+    @Test
+    void longLegacyStatusIsTruncatedForStats() {
+        when(historyRepository.findTopByOrderIdOrderByChangedAtDesc(1L)).thenReturn(Optional.empty());
+
+        service.recordTransition(order(1L), "WAITING_FOR_SUPPLIER_CONFIRMATION", "PROCESSING");
+
+        verify(statsRepository).accumulate(eq("WAITING_FOR_SUPPLIER->PROCESSING"), eq("WAITING_FOR_SUPPLIER"),
+                eq("PROCESSING"), anyLong(), any());
+    }
+
+    @Test
+    void unchangedStatusIsIgnored() {
+        service.recordTransition(order(1L), "PENDING", "PENDING");
+
+        verify(historyRepository, never()).save(any());
+    }
+
+    @Test
+    void processingStatsCombineCountersAndBuckets() {
+        OrderStatusTransitionStats completed = new OrderStatusTransitionStats("ORDER->COMPLETED", "ORDER",
+                "COMPLETED", 2, 7_200, 3_600, null);
+        when(statsRepository.findAll()).thenReturn(List.of(completed));
+        when(bucketRepository.findAll()).thenReturn(List.of(
+                new OrderStatusDurationBucket("ORDER->COMPLETED", DurationSketch.bucketIndex(3_600), 2)));
+
+        Map<String, Object> stats = service.getProcessingTimeStats();
+
+        assertThat(stats.get("averageProcessingHours")).isEqualTo(1.0);
+        assertThat(stats.get("completedOrders")).isEqualTo(2L);
+        assertThat((double) stats.get("p50ProcessingHours")).isBetween(0.98, 1.02);
+    }
+
+    private Order order(long id) {
+        Order order = new Order();
+        order.setId(id);
+        order.setCreateAt(new Timestamp(System.currentTimeMillis() - 3_600_000));
+        return order;
+    }
+}
@@ -0,0 +1,83 @@
+package com.naturegrain.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.naturegrain.repository.ProductRepository;
+
+@ExtendWith(MockitoExtension.class)
+class ProductCatalogCacheTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @InjectMocks
+    private ProductCatalogCache cache;
+
+    @Test
+    void reconcileLoadsSnapshot() {
+        when(productRepository.findCatalogSnapshot()).thenReturn(rows(row(1L, "Gạo lứt", 50000L)));
+
+        cache.reconcile();
+
+        assertThat(cache.get(1L).getName()).isEqualTo("Gạo lứt");
+        assertThat(cache.get(1L).getPrice()).isEqualTo(50000L);
+    }
+
+    @Test
+    void reconcileDoesNotResurrectProductEvictedWhileRunning() {
+        // Snapshot được đọc trước khi lệnh xóa commit, evict chạy trong lúc đối soát
+        when(productRepository.findCatalogSnapshot()).thenAnswer(invocation -> {
+            cache.evict(1L);
+            return rows(row(1L, "Gạo lứt", 50000L), row(2L, "Yến mạch", 70000L));
+        });
+
+        cache.reconcile();
+
+        assertThat(cache.get(1L)).isNull();
+        assertThat(cache.get(2L)).isNotNull();
+    }
+
+    @Test
+    void tombstoneIsDroppedByLaterReconcile() {
+        cache.evict(1L);
+        when(productRepository.findCatalogSnapshot()).thenReturn(rows(row(1L, "Gạo lứt", 50000L)));
+
+        // Evict xảy ra trước lần đối soát này nên snapshot đã phản ánh trạng thái sau khi xóa
+        cache.reconcile();
+
+        assertThat(cache.get(1L)).isNotNull();
+    }
+
+    @Test
+    void reconcileRemovesProductsMissingFromSnapshot() {
+        when(productRepository.findCatalogSnapshot())
+                .thenReturn(rows(row(1L, "Gạo lứt", 50000L)))
+                .thenReturn(Collections.emptyList());
+
+        cache.reconcile();
+        cache.reconcile();
+
+        assertThat(cache.size()).isZero();
+    }
+
+    private static Object[] row(long id, String name, long price) {
+        return new Object[] { id, name, price, 10, 3L, Boolean.TRUE };
+    }
+
+    private static List<Object[]> rows(Object[]... rows) {
+        List<Object[]> list = new ArrayList<>();
+        Collections.addAll(list, rows);
+        return list;
+    }
+}
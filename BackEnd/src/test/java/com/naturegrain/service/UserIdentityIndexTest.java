@@ -0,0 +1,88 @@
+package com.naturegrain.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.naturegrain.repository.UserRepository;
+
+@ExtendWith(MockitoExtension.class)
+class UserIdentityIndexTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @InjectMocks
+    private UserIdentityIndex index;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ReflectionTestUtils.setField(index, "expectedUsers", 1000L);
+        ReflectionTestUtils.setField(index, "fpp", 0.001);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(1L);
+        ResultSet alice = row(1, "alice", "alice@example.com");
+        doAnswer(invocation -> {
+            invocation.<RowCallbackHandler>getArgument(1).processRow(alice);
+            return null;
+        }).when(jdbcTemplate).query(eq("SELECT id, username, email FROM user"), any(RowCallbackHandler.class));
+        index.rebuild();
+    }
+
+    @Test
+    void absentUsernameIsAnsweredWithoutQuery() {
+        assertThat(index.isUsernameTaken("bob")).isFalse();
+
+        verify(userRepository, never()).existsByUsername(anyString());
+    }
+
+    @Test
+    void refreshLearnsUsersRegisteredOnOtherInstances() throws Exception {
+        when(userRepository.existsByUsername("Bob")).thenReturn(true);
+        when(userRepository.existsByEmail("bob@example.com")).thenReturn(true);
+        ResultSet alice = row(1, "alice", "alice@example.com");
+        ResultSet bob = row(2, "bob", "bob@example.com");
+        doAnswer(invocation -> {
+            // Đoạn id chồng lấn được nạp lại, chỉ dòng mới làm tăng mốc
+            invocation.<RowCallbackHandler>getArgument(1).processRow(alice);
+            invocation.<RowCallbackHandler>getArgument(1).processRow(bob);
+            return null;
+        }).when(jdbcTemplate).query(eq("SELECT id, username, email FROM user WHERE id > ?"),
+                any(RowCallbackHandler.class), eq(0L));
+
+        index.refresh();
+
+        assertThat(index.isUsernameTaken("Bob")).isTrue();
+        assertThat(index.isEmailTaken("bob@example.com")).isTrue();
+        assertThat(ReflectionTestUtils.getField(index, "lastSeenId")).isEqualTo(2L);
+    }
+
+    private static ResultSet row(long id, String username, String email) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong(1)).thenReturn(id);
+        when(rs.getString(2)).thenReturn(username);
+        when(rs.getString(3)).thenReturn(email);
+        return rs;
+    }
+}
@@ -0,0 +1,147 @@
+package com.naturegrain.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.naturegrain.entity.ERole;
+
+@ExtendWith(MockitoExtension.class)
+class UserStatsServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private UserStatsService userStatsService;
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void reloadLoadsCountsFromDatabase() throws Exception {
+        seed(3, 1, 4);
+
+        userStatsService.reload();
+
+        assertThat(userStatsService.getTotalUsers()).isEqualTo(4);
+        assertThat(userStatsService.getStats()).containsEntry("activeUsers", 3L).containsEntry("inactiveUsers", 1L);
+    }
+
+    @Test
+    void registrationDuringReloadIsNotLost() throws Exception {
+        doAnswer(invocation -> {
+            // User đăng ký xong trong lúc truy vấn GROUP BY chưa thấy dòng mới
+            userStatsService.onRegistered(true, List.of(ERole.ROLE_USER));
+            processRow(invocation.getArgument(1), activeRow(true, 5));
+            return null;
+        }).when(jdbcTemplate).query(startsWith("SELECT active"), any(RowCallbackHandler.class));
+        doAnswer(invocation -> {
+            processRow(invocation.getArgument(1), roleRow("ROLE_USER", 5));
+            return null;
+        }).when(jdbcTemplate).query(startsWith("SELECT r.name"), any(RowCallbackHandler.class));
+
+        userStatsService.reload();
+
+        assertThat(userStatsService.getStats()).containsEntry("activeUsers", 6L);
+        assertThat(usersByRole()).containsEntry("user", 6L);
+    }
+
+    @Test
+    void adjustmentsWaitForCommit() throws Exception {
+        seed(2, 0, 2);
+        userStatsService.reload();
+        TransactionSynchronizationManager.initSynchronization();
+
+        userStatsService.onDeleted(true, List.of(ERole.ROLE_USER));
+        assertThat(userStatsService.getTotalUsers()).isEqualTo(2);
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertThat(userStatsService.getTotalUsers()).isEqualTo(1);
+        assertThat(usersByRole()).containsEntry("user", 1L);
+    }
+
+    @Test
+    void rolledBackAdjustmentIsDiscarded() throws Exception {
+        seed(2, 0, 2);
+        userStatsService.reload();
+        TransactionSynchronizationManager.initSynchronization();
+
+        userStatsService.onActiveChanged(false);
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertThat(userStatsService.getStats()).containsEntry("activeUsers", 2L).containsEntry("inactiveUsers", 0L);
+    }
+
+    @Test
+    void roleChangeMovesCountBetweenRoles() throws Exception {
+        seed(1, 0, 1);
+        userStatsService.reload();
+
+        userStatsService.onRolesChanged(List.of(ERole.ROLE_USER), List.of(ERole.ROLE_USER, ERole.ROLE_MODERATOR));
+
+        assertThat(usersByRole()).containsEntry("user", 1L).containsEntry("moderator", 1L).containsEntry("admin", 0L);
+    }
+
+    private void seed(long active, long inactive, long users) throws SQLException {
+        ResultSet activeRow = activeRow(true, active);
+        ResultSet inactiveRow = activeRow(false, inactive);
+        ResultSet roleRow = roleRow("ROLE_USER", users);
+        doAnswer(invocation -> {
+            processRow(invocation.getArgument(1), activeRow);
+            processRow(invocation.getArgument(1), inactiveRow);
+            return null;
+        }).when(jdbcTemplate).query(startsWith("SELECT active"), any(RowCallbackHandler.class));
+        doAnswer(invocation -> {
+            processRow(invocation.getArgument(1), roleRow);
+            return null;
+        }).when(jdbcTemplate).query(startsWith("SELECT r.name"), any(RowCallbackHandler.class));
+    }
+
+    private static ResultSet activeRow(boolean active, long count) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getBoolean(1)).thenReturn(active);
+        when(rs.getLong(2)).thenReturn(count);
+        return rs;
+    }
+
+    private static ResultSet roleRow(String role, long count) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getString(1)).thenReturn(role);
+        when(rs.getLong(2)).thenReturn(count);
+        return rs;
+    }
+
+    private static void processRow(RowCallbackHandler handler, ResultSet rs) throws SQLException {
+        handler.processRow(rs);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Long> usersByRole() {
+        return (Map<String, Long>) userStatsService.getStats().get("usersByRole");
+    }
+}
@@ -0,0 +1,84 @@
+package com.naturegrain.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.naturegrain.entity.ERole;
+import com.naturegrain.entity.Role;
+import com.naturegrain.entity.User;
+import com.naturegrain.exception.BadRequestException;
+import com.naturegrain.model.request.CreateUserRequest;
+import com.naturegrain.repository.RoleRepository;
+import com.naturegrain.repository.UserRepository;
+import com.naturegrain.service.UserIdentityIndex;
+
+@ExtendWith(MockitoExtension.class)
+class UserServiceImplTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private RoleRepository roleRepository;
+
+    @Mock
+    private PasswordEncoder encoder;
+
+    @Mock
+    private UserIdentityIndex userIdentityIndex;
+
+    @InjectMocks
+    private UserServiceImpl userService;
+
+    private CreateUserRequest request;
+
+    @BeforeEach
+    void setUp() {
+        request = new CreateUserRequest();
+        request.setUsername("alice");
+        request.setEmail("alice@example.com");
+        request.setPassword("secret1");
+        // Filter của instance này chưa biết user đăng ký trên instance khác
+        when(userIdentityIndex.isUsernameTaken(anyString())).thenReturn(false);
+        when(userIdentityIndex.isEmailTaken(anyString())).thenReturn(false);
+        when(encoder.encode(anyString())).thenReturn("hash");
+        when(roleRepository.findByName(ERole.ROLE_USER)).thenReturn(Optional.of(new Role()));
+    }
+
+    @Test
+    void duplicateUsernameFromOtherInstanceIsBadRequest() {
+        when(userRepository.save(any(User.class))).thenThrow(duplicate("alice"));
+
+        assertThatThrownBy(() -> userService.register(request))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessage("Error: Username is already taken!");
+    }
+
+    @Test
+    void duplicateEmailFromOtherInstanceIsBadRequest() {
+        when(userRepository.save(any(User.class))).thenThrow(duplicate("Alice@Example.com"));
+
+        assertThatThrownBy(() -> userService.register(request))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessage("Error: Email is already in use!");
+    }
+
+    private static DataIntegrityViolationException duplicate(String value) {
+        return new DataIntegrityViolationException("could not execute statement",
+                new SQLIntegrityConstraintViolationException("Duplicate entry '" + value + "' for key 'UK_user'"));
+    }
+}
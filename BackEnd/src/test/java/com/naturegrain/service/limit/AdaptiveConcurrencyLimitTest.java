@@ -0,0 +1,95 @@
+package com.naturegrain.service.limit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class AdaptiveConcurrencyLimitTest {
+
+    private static final long RTT = TimeUnit.MILLISECONDS.toNanos(10);
+
+    @Test
+    void admitsUpToLimitThenSheds() throws Exception {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 10);
+
+        assertThat(limit.tryAcquire()).isTrue();
+        assertThat(limit.tryAcquire()).isTrue();
+        assertThat(limit.tryAcquire()).isFalse();
+        assertThat(limit.getStats()).containsEntry("inFlight", 2).containsEntry("rejected", 1L);
+
+        limit.release(RTT, false);
+        assertThat(limit.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void failuresShrinkLimitButNotBelowMinimum() throws Exception {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 4, 20);
+
+        for (int i = 0; i < 200; i++) {
+            limit.tryAcquire();
+            limit.release(RTT, true);
+        }
+
+        assertThat(limit.getLimit()).isEqualTo(4);
+    }
+
+    @Test
+    void saturatedStableLatencyGrowsLimitUpToMaximum() throws Exception {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(4, 1, 8);
+
+        for (int i = 0; i < 200; i++) {
+            while (limit.tryAcquire()) {
+                // lấp đầy mọi suất để giới hạn được xem là đang được dùng tới
+            }
+            limit.release(RTT, false);
+        }
+
+        assertThat(limit.getLimit()).isEqualTo(8);
+    }
+
+    @Test
+    void queuedRequestIsAdmittedWhenSlotIsReleased() throws Exception {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(1, 1, 1, 5000, 4);
+        assertThat(limit.tryAcquire()).isTrue();
+
+        CompletableFuture<Boolean> waiter = CompletableFuture.supplyAsync(() -> {
+            try {
+                return limit.tryAcquire();
+            } catch (InterruptedException e) {
+                return false;
+            }
+        });
+        while (!Integer.valueOf(1).equals(limit.getStats().get("waiting"))) {
+            Thread.sleep(1);
+        }
+        limit.release(RTT, false);
+
+        assertThat(waiter.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(limit.getStats()).containsEntry("rejected", 0L);
+    }
+
+    @Test
+    void queuedRequestIsShedAfterMaxWait() throws Exception {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(1, 1, 1, 20, 4);
+        assertThat(limit.tryAcquire()).isTrue();
+
+        long startedAt = System.nanoTime();
+        assertThat(limit.tryAcquire()).isFalse();
+
+        assertThat(System.nanoTime() - startedAt).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(20));
+    }
+
+    @Test
+    void fullQueueShedsImmediately() throws Exception {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(1, 1, 1, 5000, 0);
+        assertThat(limit.tryAcquire()).isTrue();
+
+        long startedAt = System.nanoTime();
+        assertThat(limit.tryAcquire()).isFalse();
+
+        assertThat(System.nanoTime() - startedAt).isLessThan(TimeUnit.SECONDS.toNanos(1));
+    }
+}
@@ -0,0 +1,31 @@
+package com.naturegrain.service.limit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class RouteGroupTest {
+
+    @Test
+    void classifiesRoutes() {
+        assertThat(RouteGroup.of("GET", "/api/analytics/sales-trends")).isEqualTo(RouteGroup.ANALYTICS);
+        assertThat(RouteGroup.of("GET", "/api/dashboard/stats")).isEqualTo(RouteGroup.ANALYTICS);
+        assertThat(RouteGroup.of("POST", "/api/order/create")).isEqualTo(RouteGroup.CHECKOUT);
+        assertThat(RouteGroup.of("POST", "/api/product/upload")).isEqualTo(RouteGroup.UPLOAD);
+        assertThat(RouteGroup.of("GET", "/api/product")).isEqualTo(RouteGroup.STOREFRONT);
+        assertThat(RouteGroup.of("POST", "/api/auth/signin")).isNull();
+        assertThat(RouteGroup.of("GET", "/swagger-ui/index.html")).isNull();
+    }
+
+    @Test
+    void preflightRequestsAreNotLimited() {
+        assertThat(RouteGroup.of("OPTIONS", "/api/order/create")).isNull();
+        assertThat(RouteGroup.of("OPTIONS", "/api/analytics/sales-trends")).isNull();
+    }
+
+    @Test
+    void analyticsLimitFitsDashboardFanOut() {
+        assertThat(RouteGroup.ANALYTICS.getInitialLimit()).isGreaterThanOrEqualTo(10);
+        assertThat(RouteGroup.ANALYTICS.getMaxWaitMs()).isPositive();
+    }
+}
@@ -0,0 +1,107 @@
+package com.naturegrain.service.limit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.servlet.FilterChain;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class SingleFlightFilterTest {
+
+    private static final String PATH = "/api/product/bestsellers";
+
+    private SingleFlightFilter filter;
+
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        filter = new SingleFlightFilter();
+        ReflectionTestUtils.setField(filter, "enabled", true);
+        ReflectionTestUtils.setField(filter, "waitMs", 30000L);
+    }
+
+    @Test
+    void followerDoesNotHoldThreadAndReceivesLeaderBytes() throws Exception {
+        MockHttpServletRequest followerRequest = request();
+        MockHttpServletResponse followerResponse = new MockHttpServletResponse();
+        MockHttpServletResponse leaderResponse = new MockHttpServletResponse();
+
+        filter.doFilter(request(), leaderResponse, (req, res) -> {
+            // Follower tới trong lúc leader còn chạy: phải trả luồng ngay thay vì chờ
+            filter.doFilter(followerRequest, followerResponse, (r, s) -> executions.incrementAndGet());
+            assertThat(followerRequest.isAsyncStarted()).isTrue();
+            executions.incrementAndGet();
+            res.setContentType("application/json");
+            res.getWriter().write("[1,2,3]");
+        });
+
+        assertThat(executions).hasValue(1);
+        assertThat(leaderResponse.getContentAsString()).isEqualTo("[1,2,3]");
+        assertThat(followerResponse.getContentAsString()).isEqualTo("[1,2,3]");
+        assertThat(followerResponse.getContentType()).isEqualTo("application/json");
+        assertThat(followerRequest.isAsyncStarted()).isFalse();
+    }
+
+    @Test
+    void followerIsDispatchedAgainWhenLeaderFails() throws Exception {
+        MockHttpServletRequest followerRequest = request();
+        MockHttpServletResponse followerResponse = new MockHttpServletResponse();
+
+        filter.doFilter(request(), new MockHttpServletResponse(), (req, res) -> {
+            filter.doFilter(followerRequest, followerResponse, (r, s) -> executions.incrementAndGet());
+            ((HttpServletResponse) res).setStatus(500);
+        });
+
+        MockAsyncContext asyncContext = (MockAsyncContext) followerRequest.getAsyncContext();
+        assertThat(asyncContext.getDispatchedPath()).isEqualTo(PATH);
+        assertThat(followerResponse.getContentLength()).isZero();
+    }
+
+    @Test
+    void followerIsDispatchedAgainWhenWaitExpires() throws Exception {
+        ReflectionTestUtils.setField(filter, "waitMs", 20L);
+        MockHttpServletRequest followerRequest = request();
+
+        filter.doFilter(request(), new MockHttpServletResponse(), (req, res) -> {
+            filter.doFilter(followerRequest, new MockHttpServletResponse(), (r, s) -> executions.incrementAndGet());
+            MockAsyncContext asyncContext = (MockAsyncContext) followerRequest.getAsyncContext();
+            long deadline = System.currentTimeMillis() + 5000;
+            while (asyncContext.getDispatchedPath() == null && System.currentTimeMillis() < deadline) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(5));
+            }
+            assertThat(asyncContext.getDispatchedPath()).isEqualTo(PATH);
+        });
+    }
+
+    @Test
+    void differentQueriesAreNotCoalesced() throws Exception {
+        MockHttpServletRequest other = request();
+        other.setParameter("page", "2");
+        FilterChain chain = (req, res) -> executions.incrementAndGet();
+
+        filter.doFilter(request(), new MockHttpServletResponse(), (req, res) -> {
+            filter.doFilter(other, new MockHttpServletResponse(), chain);
+            executions.incrementAndGet();
+        });
+
+        assertThat(executions).hasValue(2);
+        assertThat(other.isAsyncStarted()).isFalse();
+    }
+
+    private MockHttpServletRequest request() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", PATH);
+        request.setAsyncSupported(true);
+        return request;
+    }
+}
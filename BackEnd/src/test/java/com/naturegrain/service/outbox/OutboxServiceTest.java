@@ -0,0 +1,102 @@
+package com.naturegrain.service.outbox;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.naturegrain.entity.OutboxEvent;
+import com.naturegrain.repository.OutboxEventRepository;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxServiceTest {
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    @Mock
+    private OutboxEventHandler handler;
+
+    @InjectMocks
+    private OutboxService outboxService;
+
+    @Test
+    void claimedEventsRememberTheirLease() {
+        OutboxEvent event = event(1L);
+        when(outboxEventRepository.lockNextBatch(any(Date.class), eq(10))).thenReturn(List.of(event));
+
+        outboxService.claimBatch(10, 60_000);
+
+        ArgumentCaptor<Date> lease = ArgumentCaptor.forClass(Date.class);
+        verify(outboxEventRepository).markProcessing(eq(List.of(1L)), lease.capture());
+        assertThat(event.getAvailableAt()).isEqualTo(lease.getValue());
+        assertThat(event.getStatus()).isEqualTo(OutboxEvent.PROCESSING);
+        assertThat(event.getAttempts()).isEqualTo(1);
+    }
+
+    @Test
+    void handlerRunsOnlyWhileLeaseIsHeld() throws Exception {
+        OutboxEvent event = leased(1L);
+        when(outboxEventRepository.markDone(eq(1L), eq(event.getAvailableAt()), any(Date.class))).thenReturn(1);
+
+        assertThat(outboxService.process(event, handler)).isTrue();
+
+        verify(handler).handle("{}");
+    }
+
+    @Test
+    void handlerIsSkippedWhenLeaseWasReclaimed() throws Exception {
+        OutboxEvent event = leased(1L);
+        when(outboxEventRepository.markDone(eq(1L), eq(event.getAvailableAt()), any(Date.class))).thenReturn(0);
+
+        assertThat(outboxService.process(event, handler)).isFalse();
+
+        verify(handler, never()).handle(anyString());
+    }
+
+    @Test
+    void failureIsRecordedOnlyByLeaseOwner() {
+        OutboxEvent event = leased(1L);
+        when(outboxEventRepository.markFailedAttempt(eq(1L), eq(event.getAvailableAt()), eq(OutboxEvent.PENDING),
+                any(Date.class), eq("boom"))).thenReturn(0);
+
+        assertThat(outboxService.markFailed(event, "boom", 5, 1000)).isFalse();
+    }
+
+    @Test
+    void lastAttemptMarksEventFailed() {
+        OutboxEvent event = leased(1L);
+        event.setAttempts(5);
+        when(outboxEventRepository.markFailedAttempt(eq(1L), eq(event.getAvailableAt()), eq(OutboxEvent.FAILED),
+                any(Date.class), eq("boom"))).thenReturn(1);
+
+        assertThat(outboxService.markFailed(event, "boom", 5, 1000)).isTrue();
+    }
+
+    private static OutboxEvent event(long id) {
+        OutboxEvent event = new OutboxEvent(ActivityOutboxHandler.EVENT_TYPE, "{}");
+        event.setId(id);
+        return event;
+    }
+
+    private static OutboxEvent leased(long id) {
+        OutboxEvent event = event(id);
+        event.setStatus(OutboxEvent.PROCESSING);
+        event.setAttempts(1);
+        event.setAvailableAt(new Date(System.currentTimeMillis() + 60_000));
+        return event;
+    }
+}
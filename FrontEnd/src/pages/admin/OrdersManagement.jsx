@@ -53,10 +53,17 @@ const OrdersManagement = () => {
   };
 
   // View order details
-  const handleViewDetails = (order) => {
-    setCurrentOrder(order);
-    setOrderStatus(order.status);
-    setShowModal(true);
+  // Danh sách chỉ chứa bản tóm tắt, chi tiết đơn hàng được tải khi mở modal
+  const handleViewDetails = async (order) => {
+    try {
+      const response = await orderService.getOrder(order.orderId);
+      setCurrentOrder(response.data);
+      setOrderStatus(response.data.status);
+      setShowModal(true);
+    } catch (error) {
+      console.error('Error fetching order details:', error);
+      toast.error('Không thể tải chi tiết đơn hàng');
+    }
   };
 
   // Update order status
@@ -82,8 +89,8 @@ const OrdersManagement = () => {
   // Filter orders based on search and status filter
   const filteredOrders = orders.filter(order => {
     const matchesSearch = (
-      order.id.toString().includes(searchTerm) ||
-      `${order.firstname} ${order.lastname}`.toLowerCase().includes(searchTerm.toLowerCase()) ||
+      order.orderId.toString().includes(searchTerm) ||
+      (order.customerName || '').toLowerCase().includes(searchTerm.toLowerCase()) ||
       order.email?.toLowerCase().includes(searchTerm.toLowerCase()) ||
       order.phone?.includes(searchTerm)
     );
@@ -249,13 +256,13 @@ const OrdersManagement = () => {
               </tr>
             ) : (
               filteredOrders.map(order => (
-                <tr key={order.id} className="transition-colors hover:bg-gray-50">
+                <tr key={order.orderId} className="transition-colors hover:bg-gray-50">
                   <td className="px-6 py-4 whitespace-nowrap">
-                    <div className="text-sm text-gray-900">#{order.id}</div>
+                    <div className="text-sm text-gray-900">#{order.orderId}</div>
                   </td>
                   <td className="px-6 py-4 whitespace-nowrap">
                     <div className="text-sm font-medium text-gray-900">
-                      {order.firstname} {order.lastname}
+                      {order.customerName}
                     </div>
                     <div className="text-sm text-gray-500">{order.email}</div>
                     <div className="text-sm text-gray-500">{order.phone}</div>